@@ -0,0 +1,332 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.filter_thread;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.memory.AppendableMemory;
+import ch.javasoft.metabolic.efm.memory.IndexableMemory;
+import ch.javasoft.metabolic.efm.memory.IterableMemory;
+
+import at.acib.generegulation.GeneticRuleBlockEvaluator;
+import at.acib.generegulation.GeneticRuleSet;
+
+////////////////////////////////////////////////////////////////////////////////
+// post filter removing the modes violating the gene rules
+//
+// if the memory is indexable, it is split into index ranges which are
+// filtered in parallel by a fork/join pool. there is one long lived pool per
+// number of threads, shared by all calls with this number of threads. every mode is read exactly once,
+// and the ranges are read sequentially, which is what out-of-core tables
+// like best. each worker evaluates blocks of 64 modes with its own block
+// evaluator, collects the accepted modes in a local buffer and counts the
+// removed modes locally. buffers and counts are merged once per range, or
+// every FLUSH_SIZE accepted modes.
+//
+// memories which are only iterable are filtered sequentially in the calling
+// thread.
+//
+// the accepted modes are passed to a ModeSink, which is never called by two
+// threads at the same time. the sink of the efm computation applies the other
+// mode filters to the modes obeying the rules, see
+// AbstractDoubleDescriptionImpl.filterModes().
+////////////////////////////////////////////////////////////////////////////////
+public class PartitionedPostFilter
+{
+   // ranges are not split below this number of modes
+   public static final int MIN_RANGE_SIZE = 16 * GeneticRuleBlockEvaluator.BLOCK_SIZE;
+   // accepted modes are written to the output memory in chunks of this size
+   public static final int FLUSH_SIZE = 4096;
+   // number of ranges per thread, more ranges give a better load balance
+   private static final int RANGES_PER_THREAD = 8;
+   // shared pools, by number of threads
+   private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+
+   ////////////////////////////////////////////////////////////////////////////
+   // receives the modes obeying the rules. calls are serialized by the filter
+   ////////////////////////////////////////////////////////////////////////////
+   public static interface ModeSink<Col extends Column>
+   {
+      public void accept(List<Col> modes) throws IOException;
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+   ////////////////////////////////////////////////////////////////////////////
+   // filters memory into filtered, and returns the number of modes removed by
+   // this call. the removed modes are also counted in remModesCnt, in total and per rule.
+   ////////////////////////////////////////////////////////////////////////////
+   public static <Col extends Column> long filter(GeneticRuleSet ruleSet, IterableMemory<Col> memory, final AppendableMemory<Col> filtered, int numThreads, RemovedModesCounter remModesCnt) throws IOException
+   {
+      ModeSink<Col> sink = new ModeSink<Col>()
+      {
+         public void accept(List<Col> modes) throws IOException
+         {
+            filtered.appendColumns(modes);
+         }
+      };
+      return( filter(ruleSet, memory, sink, numThreads, remModesCnt) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // passes the modes obeying the rules to the sink, and returns the number
+   // of modes removed by this call. the removed modes are also counted in
+   // remModesCnt, in total and per rule.
+   ////////////////////////////////////////////////////////////////////////////
+   public static <Col extends Column> long filter(GeneticRuleSet ruleSet, IterableMemory<Col> memory, ModeSink<Col> filtered, int numThreads, RemovedModesCounter remModesCnt) throws IOException
+   {
+      AtomicLong removed = new AtomicLong();
+      if( numThreads > 1 && memory instanceof IndexableMemory )
+      {
+         IndexableMemory<Col> indexable = (IndexableMemory<Col>) memory;
+         int count     = indexable.getColumnCount();
+         int rangeSize = Math.max(MIN_RANGE_SIZE, count / (numThreads * RANGES_PER_THREAD));
+
+         try
+         {
+            getPool(numThreads).invoke(new RangeTask<Col>(ruleSet, indexable, filtered, remModesCnt, removed, 0, count, rangeSize));
+         }
+         catch(RuntimeException e)
+         {
+            // the exception might be a copy of the wrapper thrown by another
+            // worker, thus the i/o exception is searched in the cause chain
+            for( Throwable cause = e.getCause(); cause != null; cause = cause.getCause() )
+            {
+               if( cause instanceof IOException )
+               {
+                  throw (IOException) cause;
+               }
+            }
+            throw e;
+         }
+      }
+      else
+      {
+         RangeFilter<Col> rangeFilter = new RangeFilter<Col>(ruleSet, filtered, remModesCnt, removed);
+         Iterator<Col> it = memory.iterator();
+         while( it.hasNext() )
+         {
+            rangeFilter.add(it.next());
+         }
+         rangeFilter.flush();
+      }
+      return(removed.get());
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the shared pool with the given number of threads, creating it if
+   // necessary. pools are never shut down, idle pool threads terminate.
+   ////////////////////////////////////////////////////////////////////////////
+   private static ForkJoinPool getPool(int numThreads)
+   {
+      synchronized(pools)
+      {
+         ForkJoinPool pool = pools.get(Integer.valueOf(numThreads));
+         if( pool == null )
+         {
+            pool = new ForkJoinPool(numThreads);
+            pools.put(Integer.valueOf(numThreads), pool);
+         }
+         return(pool);
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // splits the range [from, to) in halves until it is small enough, and
+   // filters it with a fresh RangeFilter
+   ////////////////////////////////////////////////////////////////////////////
+   private static class RangeTask<Col extends Column> extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final GeneticRuleSet ruleSet;
+      private final IndexableMemory<Col> memory;
+      private final ModeSink<Col> filtered;
+      private final RemovedModesCounter remModesCnt;
+      private final AtomicLong removed;
+      private final int from;
+      private final int to;
+      private final int rangeSize;
+
+      RangeTask(GeneticRuleSet ruleSet, IndexableMemory<Col> memory, ModeSink<Col> filtered, RemovedModesCounter remModesCnt, AtomicLong removed, int from, int to, int rangeSize)
+      {
+         this.ruleSet     = ruleSet;
+         this.memory      = memory;
+         this.filtered    = filtered;
+         this.remModesCnt = remModesCnt;
+         this.removed     = removed;
+         this.from        = from;
+         this.to          = to;
+         this.rangeSize   = rangeSize;
+      }
+
+      @Override
+      protected void compute()
+      {
+         if( to - from > rangeSize )
+         {
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask<Col>(ruleSet, memory, filtered, remModesCnt, removed, from, mid, rangeSize),
+                      new RangeTask<Col>(ruleSet, memory, filtered, remModesCnt, removed, mid, to, rangeSize));
+            return;
+         }
+
+         try
+         {
+            RangeFilter<Col> rangeFilter = new RangeFilter<Col>(ruleSet, filtered, remModesCnt, removed);
+            for( int i = from; i < to; i++ )
+            {
+               rangeFilter.add(memory.getColumn(i));
+            }
+            rangeFilter.flush();
+         }
+         catch(IOException e)
+         {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // filters a stream of modes in blocks of 64, not thread safe
+   ////////////////////////////////////////////////////////////////////////////
+   private static class RangeFilter<Col extends Column>
+   {
+      private final GeneticRuleBlockEvaluator ruleEvaluator;
+      private final ModeSink<Col> filtered;
+      private final RemovedModesCounter remModesCnt;
+      private final AtomicLong removedByCall;
+      private final Column block[];
+      private final int hitRule[];
+      private final ArrayList<Col> accepted;
+      private final long ruleHits[];
+      private long removed;
+      private int blkCnt;
+
+      RangeFilter(GeneticRuleSet ruleSet, ModeSink<Col> filtered, RemovedModesCounter remModesCnt, AtomicLong removedByCall)
+      {
+         this.ruleEvaluator = ruleSet.createBlockEvaluator();
+         this.filtered      = filtered;
+         this.remModesCnt   = remModesCnt;
+         this.removedByCall = removedByCall;
+         this.block         = new Column[GeneticRuleBlockEvaluator.BLOCK_SIZE];
+         this.hitRule       = new int[GeneticRuleBlockEvaluator.BLOCK_SIZE];
+         this.accepted      = new ArrayList<Col>();
+         this.ruleHits      = new long[ruleSet.getNumberOfRules() + 1];
+      }
+
+      void add(Col col) throws IOException
+      {
+         block[blkCnt++] = col;
+         if( blkCnt == block.length )
+         {
+            filterBlock();
+         }
+      }
+
+      // filters the buffered block and writes the accepted modes and counts
+      void flush() throws IOException
+      {
+         filterBlock();
+         flushAccepted();
+         remModesCnt.add(removed, ruleHits);
+         removedByCall.addAndGet(removed);
+         removed = 0;
+         Arrays.fill(ruleHits, 0);
+      }
+
+      @SuppressWarnings("unchecked")
+      private void filterBlock() throws IOException
+      {
+         if( blkCnt == 0 )
+         {
+            return;
+         }
+
+         ruleEvaluator.load(block, 0, blkCnt);
+         long violated = ruleEvaluator.evaluate(hitRule);
+
+         for( int j = 0; j < blkCnt; j++ )
+         {
+            if( (violated & (1L << j)) == 0 )
+            {
+               accepted.add((Col) block[j]);
+            }
+            else
+            {
+               removed++;
+               ruleHits[hitRule[j]]++;
+            }
+            block[j] = null;
+         }
+         blkCnt = 0;
+
+         if( accepted.size() >= FLUSH_SIZE )
+         {
+            flushAccepted();
+         }
+      }
+
+      private void flushAccepted() throws IOException
+      {
+         if( accepted.isEmpty() )
+         {
+            return;
+         }
+         synchronized(filtered)
+         {
+            filtered.accept(accepted);
+         }
+         accepted.clear();
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -33,64 +33,90 @@
  */
 package at.acib.filter_thread;
 
+import java.util.concurrent.atomic.AtomicLongArray;
+
+////////////////////////////////////////////////////////////////////////////////
+// thread safe counters for removed modes, in total and per rule. the filter
+// workers count locally and merge their counts once per range with add(),
+// thus the atomic counters are hardly ever contended.
+////////////////////////////////////////////////////////////////////////////////
 public class RemovedModesCounter
 {
-   int rem_modes;
-   Integer[] modes_rem_stat;
-   int numberOfRules;
+   // index 0 counts all removed modes, index i the modes removed by rule i
+   final AtomicLongArray counts;
+   final int numberOfRules;
 
    public RemovedModesCounter(int numRules)
    {
-      rem_modes = 0;
       numberOfRules = numRules;
-      modes_rem_stat = new Integer[numRules + 1];
-
-      for( int i = 1; i <= numRules; i++ )
-      {
-         modes_rem_stat[i] = 0;
-      }
+      counts = new AtomicLongArray(numRules + 1);
    }
 
-   public int getNumRemovedModes()
+   public long getNumRemovedModes()
    {
-      return(rem_modes);
+      return(counts.get(0));
    }
 
    public void incNumRemovedModes()
    {
-      rem_modes++;
+      counts.incrementAndGet(0);
       return;
    }
 
    public void incRuleRemCnt(int ruleId)
    {
-      if( ruleId < 1 )
+      checkRuleId(ruleId);
+      counts.incrementAndGet(ruleId);
+   }
+
+   // adds locally collected counts, ruleHits[i] being the hits of rule i
+   public void add(long removed, long ruleHits[])
+   {
+      if( removed == 0 )
       {
-         System.out.println("FATAL ERROR: ruleId (" + ruleId + ") must not be less than 1");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         return;
       }
-      if( ruleId  > numberOfRules )
+      counts.addAndGet(0, removed);
+      for( int i = 1; i <= numberOfRules; i++ )
       {
-         System.out.println("FATAL ERROR: ruleId (" + ruleId + ") must not be greater than number of rules" + numberOfRules);
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         if( ruleHits[i] != 0 )
+         {
+            counts.addAndGet(i, ruleHits[i]);
+         }
       }
-
-      modes_rem_stat[ruleId]++;
    }
 
-   public Integer[] getRuleHitStatistics()
+   public long[] getRuleHitStatistics()
    {
-      return(modes_rem_stat);
+      long stat[] = new long[numberOfRules + 1];
+      for( int i = 1; i <= numberOfRules; i++ )
+      {
+         stat[i] = counts.get(i);
+      }
+      return(stat);
    }
 
    public void printRuleHitStatistics()
    {
       for( int i = 1; i <= numberOfRules; i++ )
       {
-         System.out.println("Rule #" + i + ": " + modes_rem_stat[i]);
+         System.out.println("Rule #" + i + ": " + counts.get(i));
       }
    }
-}
 
+   private void checkRuleId(int ruleId)
+   {
+      if( ruleId < 1 )
+      {
+         System.out.println("FATAL ERROR: ruleId (" + ruleId + ") must not be less than 1");
+         System.out.println("             execution aborted.");
+         System.exit(-1);
+      }
+      if( ruleId  > numberOfRules )
+      {
+         System.out.println("FATAL ERROR: ruleId (" + ruleId + ") must not be greater than number of rules" + numberOfRules);
+         System.out.println("             execution aborted.");
+         System.exit(-1);
+      }
+   }
+}
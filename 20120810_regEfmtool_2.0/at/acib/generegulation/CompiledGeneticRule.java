@@ -0,0 +1,340 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.util.ArrayList;
+
+import ch.javasoft.util.ints.IntList;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.util.ReactionMapping;
+import ch.javasoft.metabolic.efm.util.ReactionMapping.Layer;
+
+////////////////////////////////////////////////////////////////////////////////
+// flat, pre-resolved form of a gene rule
+//
+// the rule in reverse polish notation is translated into an int program
+// exactly once. reaction operands are resolved to the indices of the
+// sorted layer, i.e. the indices that are used by Column.get().
+//
+// layout of the program:
+//    OP_LOAD_x, n, idx_1, ..., idx_n   push value of reaction (x = activity)
+//    OP_NOT                            pop one value, push result
+//    OP_AND / OP_OR                    pop two values, push result
+//
+// a reaction is TRUE (carries a flux) if at least one of its sorted indices
+// is non-zero in the column. reversible reactions may have two such indices.
+////////////////////////////////////////////////////////////////////////////////
+public class CompiledGeneticRule
+{
+   public static final int OP_LOAD_F = 1;
+   public static final int OP_LOAD_0 = 2;
+   public static final int OP_LOAD_1 = 3;
+   public static final int OP_NOT    = 4;
+   public static final int OP_AND    = 5;
+   public static final int OP_OR     = 6;
+
+   private final int program[];
+   private final int tgtSortedIdx[];
+   private final int maxStackDepth;
+   private final int maxSortedIdx;
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public CompiledGeneticRule(RPNElem postfixRule[], int tgtReacOrigIdx, ReactionMapping rmap)
+   {
+      ArrayList<Integer> prog = new ArrayList<Integer>();
+      int depth    = 0;
+      int maxDepth = 0;
+      int maxIdx   = -1;
+
+      for( int i = 0; i < postfixRule.length; i++ )
+      {
+         RPNElem elem = postfixRule[i];
+
+         if( elem.isReactionIndex() )
+         {
+            int activityType = elem.getActivityType();
+            if( activityType == RPNElem.ZERO_ACTIVE )
+            {
+               prog.add(OP_LOAD_0);
+            }
+            else if( activityType == RPNElem.ONE_ACTIVE )
+            {
+               prog.add(OP_LOAD_1);
+            }
+            else if( activityType == RPNElem.FULL_ACTIVE )
+            {
+               prog.add(OP_LOAD_F);
+            }
+            else
+            {
+               throw new IllegalArgumentException("invalid activity type " + activityType + " for reaction index " + elem.getValue());
+            }
+
+            int sortedIdx[] = toSortedIdx(rmap, elem.getValue());
+            prog.add(sortedIdx.length);
+            for( int s = 0; s < sortedIdx.length; s++ )
+            {
+               prog.add(sortedIdx[s]);
+               maxIdx = Math.max(maxIdx, sortedIdx[s]);
+            }
+
+            depth++;
+         }
+         else if( elem.getValue() == RevPolishNotation.NOT )
+         {
+            requireDepth(depth, 1);
+            prog.add(OP_NOT);
+         }
+         else if( elem.getValue() == RevPolishNotation.AND )
+         {
+            requireDepth(depth, 2);
+            prog.add(OP_AND);
+            depth--;
+         }
+         else if( elem.getValue() == RevPolishNotation.OR )
+         {
+            requireDepth(depth, 2);
+            prog.add(OP_OR);
+            depth--;
+         }
+         else
+         {
+            throw new IllegalArgumentException("invalid element in rule: " + elem.getValue());
+         }
+         maxDepth = Math.max(maxDepth, depth);
+      }
+
+      if( depth != 1 )
+      {
+         throw new IllegalArgumentException("invalid rule, stack depth after evaluation is " + depth + " instead of 1");
+      }
+
+      program = new int[prog.size()];
+      for( int i = 0; i < program.length; i++ )
+      {
+         program[i] = prog.get(i);
+      }
+
+      tgtSortedIdx = toSortedIdx(rmap, tgtReacOrigIdx);
+      for( int s = 0; s < tgtSortedIdx.length; s++ )
+      {
+         maxIdx = Math.max(maxIdx, tgtSortedIdx[s]);
+      }
+
+      maxStackDepth = maxDepth;
+      maxSortedIdx  = maxIdx;
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private static void requireDepth(int depth, int required)
+   {
+      if( depth < required )
+      {
+         throw new IllegalArgumentException("invalid rule, operator requires " + required + " operand(s), but found " + depth);
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private static int[] toSortedIdx(ReactionMapping rmap, int origIdx)
+   {
+      IntList intLst = rmap.get(Layer.Original, origIdx, Layer.Sorted);
+      int ret[] = new int[intLst.size()];
+      for( int i = 0; i < ret.length; i++ )
+      {
+         ret[i] = intLst.get(i);
+      }
+      return(ret);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // evaluates the rule for the given column
+   //
+   // stack must provide at least getMaxStackDepth() elements. it is the
+   // only scratch memory being used, i.e. no objects are allocated here.
+   // returns 'true' if the rule is obeyed or cannot be applied (NOTDEF).
+   ////////////////////////////////////////////////////////////////////////////
+   public boolean doesEFMObeyRule(Column col, int stack[])
+   {
+      int sp = 0;
+      int pc = 0;
+
+      while( pc < program.length )
+      {
+         int op = program[pc++];
+
+         if( op == OP_NOT )
+         {
+            int v = stack[sp - 1];
+            if( v == RevPolishNotation.TRUE )
+            {
+               stack[sp - 1] = RevPolishNotation.FALSE;
+            }
+            else if( v == RevPolishNotation.FALSE )
+            {
+               stack[sp - 1] = RevPolishNotation.TRUE;
+            }
+         }
+         else if( op == OP_AND )
+         {
+            int v1 = stack[--sp];
+            int v2 = stack[sp - 1];
+            if( v1 == RevPolishNotation.FALSE || v2 == RevPolishNotation.FALSE )
+            {
+               stack[sp - 1] = RevPolishNotation.FALSE;
+            }
+            else if( v1 == RevPolishNotation.NOTDEF || v2 == RevPolishNotation.NOTDEF )
+            {
+               stack[sp - 1] = RevPolishNotation.NOTDEF;
+            }
+            else
+            {
+               stack[sp - 1] = RevPolishNotation.TRUE;
+            }
+         }
+         else if( op == OP_OR )
+         {
+            int v1 = stack[--sp];
+            int v2 = stack[sp - 1];
+            if( v1 == RevPolishNotation.TRUE || v2 == RevPolishNotation.TRUE )
+            {
+               stack[sp - 1] = RevPolishNotation.TRUE;
+            }
+            else if( v1 == RevPolishNotation.NOTDEF || v2 == RevPolishNotation.NOTDEF )
+            {
+               stack[sp - 1] = RevPolishNotation.NOTDEF;
+            }
+            else
+            {
+               stack[sp - 1] = RevPolishNotation.FALSE;
+            }
+         }
+         else
+         {
+            int n = program[pc++];
+            boolean hasFlux = hasFlux(col, program, pc, n);
+            pc += n;
+
+            if( op == OP_LOAD_1 && !hasFlux )
+            {
+               // 1-active reaction without flux: nothing known
+               stack[sp++] = RevPolishNotation.NOTDEF;
+            }
+            else if( op == OP_LOAD_0 && hasFlux )
+            {
+               // 0-active reaction carrying a flux: nothing known
+               stack[sp++] = RevPolishNotation.NOTDEF;
+            }
+            else
+            {
+               stack[sp++] = hasFlux ? RevPolishNotation.TRUE : RevPolishNotation.FALSE;
+            }
+         }
+      }
+
+      int expcTgtVal = stack[0];
+
+      if( expcTgtVal == RevPolishNotation.NOTDEF )
+      {
+         // rule cannot be applied -> obeyed
+         return(true);
+      }
+
+      boolean tgtHasFlux = hasFlux(col, tgtSortedIdx, 0, tgtSortedIdx.length);
+      return( tgtHasFlux == (expcTgtVal == RevPolishNotation.TRUE) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // note: Column.get() returns 'true' if the reaction does NOT carry a flux
+   ////////////////////////////////////////////////////////////////////////////
+   private static boolean hasFlux(Column col, int idx[], int from, int n)
+   {
+      for( int i = from; i < from + n; i++ )
+      {
+         if( !col.get(idx[i]) )
+         {
+            return(true);
+         }
+      }
+      return(false);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int[] getProgram()
+   {
+      return(program);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int[] getTgtSortedIdx()
+   {
+      return(tgtSortedIdx);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int getMaxStackDepth()
+   {
+      return(maxStackDepth);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // largest sorted index accessed by this rule (inputs and target)
+   ////////////////////////////////////////////////////////////////////////////
+   public int getMaxSortedIdx()
+   {
+      return(maxSortedIdx);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -0,0 +1,137 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
+
+////////////////////////////////////////////////////////////////////////////////
+// adjacency filter built from the gene bit sets of the iteration qualified
+// rules. a pair of columns violates a rule bit set if none of the bit set's
+// reactions is zero in both columns, i.e. the new born mode has flux in all
+// of them. this holds for every later combination of the new mode as well,
+// thus the pair can be dropped as soon as the rule's reactions are all part
+// of the current boolean size.
+//
+// the bit sets are stored as sorted arrays of reaction indices. rules only
+// consist of a few reactions, so checking these bits directly is much cheaper
+// than intersecting the complete patterns, and it does not allocate anything.
+////////////////////////////////////////////////////////////////////////////////
+public class GeneRuleAdjacencyFilter implements AdjacencyFilter
+{
+   private final int ruleBits[][];
+   private final int maxReacIdx[];
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneRuleAdjacencyFilter(GeneBitSet bitSets[])
+   {
+      ruleBits   = new int[bitSets.length][];
+      maxReacIdx = new int[bitSets.length];
+
+      for( int r = 0; r < bitSets.length; r++ )
+      {
+         GeneBitSet bitSet = bitSets[r];
+         ruleBits[r] = new int[bitSet.cardinality()];
+         int b = 0;
+         for( int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1) )
+         {
+            ruleBits[r][b++] = i;
+         }
+         maxReacIdx[r] = bitSet.getMaxReacIdx();
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // for columns of the subtrees, Z(a) & Z(b) is a subset of
+   // unionPatternA & unionPatternB. if no rule bit is contained in the latter,
+   // all pairs of the subtrees violate the rule.
+   ////////////////////////////////////////////////////////////////////////////
+   public boolean mightKeepAny(IBitSet unionPatternA, IBitSet unionPatternB, int booleanSize)
+   {
+      return( !isViolated(unionPatternA, unionPatternB, booleanSize) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public boolean keepPair(IBitSet patternA, IBitSet patternB, int booleanSize)
+   {
+      return( !isViolated(patternA, patternB, booleanSize) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns true if there is an applicable rule bit set such that none of
+   // its bits is set in both patterns
+   ////////////////////////////////////////////////////////////////////////////
+   private boolean isViolated(IBitSet patternA, IBitSet patternB, int booleanSize)
+   {
+      for( int r = 0; r < ruleBits.length; r++ )
+      {
+         if( maxReacIdx[r] > booleanSize - 1 )
+         {
+            continue;
+         }
+
+         final int bits[] = ruleBits[r];
+         boolean commonZero = false;
+         for( int b = 0; b < bits.length && !commonZero; b++ )
+         {
+            commonZero = patternA.get(bits[b]) && patternB.get(bits[b]);
+         }
+
+         if( !commonZero )
+         {
+            return(true);
+         }
+      }
+
+      return(false);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int getNumberOfBitSets()
+   {
+      return(ruleBits.length);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -31,20 +31,29 @@
  * POSSIBILITY OF SUCH DAMAGE.
  * =============================================================================
  */
-package at.acib.generule_filestore;
+package at.acib.generegulation;
 
-public class GeneRuleFilenameException extends Exception
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilterFactory;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+
+////////////////////////////////////////////////////////////////////////////////
+// default adjacency filter factory, returns the filter of the gene rule set
+// registered for the model, or null if no gene rule file was specified
+////////////////////////////////////////////////////////////////////////////////
+public class GeneRuleAdjacencyFilterFactory implements AdjacencyFilterFactory
 {
-  public GeneRuleFilenameException()
-  {
-     super();
-  }
-  public GeneRuleFilenameException(String s)
-  {
-      super(s);
-  }
-  public GeneRuleFilenameException(String s, Throwable t)
-  {
-      super(s,t);
-  }
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public AdjacencyFilter createAdjacencyFilter(Config config, EfmModel efmModel)
+   {
+      GeneticRuleSet ruleSet = GeneticRuleSetRegistry.getRuleSet(efmModel, config);
+      if( ruleSet == null )
+      {
+         return(null);
+      }
+      return(ruleSet.getAdjacencyFilter());
+   }
+   ////////////////////////////////////////////////////////////////////////////
 }
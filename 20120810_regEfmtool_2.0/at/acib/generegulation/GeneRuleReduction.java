@@ -0,0 +1,481 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.efm.config.Config;
+
+////////////////////////////////////////////////////////////////////////////////
+// static network reduction by gene rules
+//
+// the rules are evaluated on the reactions of the uncompressed network only,
+// without looking at the stoichiometry. every reaction occurring in a rule
+// is a variable with the domain {0, 1}. for each rule, the assignments of
+// its reactions obeying the rule are enumerated once. values without such
+// a supporting assignment are removed from the domains, until a fixpoint is
+// reached (propagation).
+//
+// to find further implications, each undecided reaction is probed: it is
+// tentatively set to 1 (and 0), and the propagation is repeated. if this
+// leads to an empty domain, the reaction must be 0 (1) in every mode obeying
+// the rules. e.g. the rules R3 = (!1R1) and R3 = (1R1 & 1R1) together force
+// R1 to be 0.
+//
+// reactions which must be 0 are suppressed during network compression, which
+// shrinks the network before the iterations start. reactions which must
+// carry flux are only reported. rules which can not be parsed here, or
+// which involve more than MAX_RULE_REACTIONS reactions, are ignored; this
+// is safe as ignoring rules only weakens the derived implications.
+////////////////////////////////////////////////////////////////////////////////
+public class GeneRuleReduction
+{
+   // the obeying assignments of a rule are enumerated, thus the number of
+   // reactions per rule must be small
+   public static final int MAX_RULE_REACTIONS = 16;
+
+   // domain bits: value 0 possible, value 1 possible
+   private static final int CAN_BE_0 = 1;
+   private static final int CAN_BE_1 = 2;
+
+   private final ArrayList<String> reacNames;
+   private final Map<String, Integer> reacVars;
+   private final ArrayList<RuleTable> ruleTables;
+
+   private int domain[];
+   private boolean consistent;
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneRuleReduction(GeneRules geneRules, MetabolicNetwork net)
+   {
+      Set<String> netReacNames = new HashSet<String>(Arrays.asList(net.getReactionNames()));
+
+      reacNames  = new ArrayList<String>();
+      reacVars   = new HashMap<String, Integer>();
+      ruleTables = new ArrayList<RuleTable>();
+
+      for( String strLine : geneRules.getLines() )
+      {
+         RuleTable table = parseRule(strLine, netReacNames);
+         if( table != null )
+         {
+            ruleTables.add(table);
+         }
+      }
+
+      reduce();
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the reactions to suppress for the computation of the given
+   // config: the reactions suppressed by the config, and the reactions which
+   // are zero in all modes obeying the gene rules of the config
+   ////////////////////////////////////////////////////////////////////////////
+   public static Set<String> getReactionsToSuppress(Config config, MetabolicNetwork net)
+   {
+      if( config.getGeneRules() == null )
+      {
+         return(config.getReactionsToSuppress());
+      }
+
+      GeneRuleReduction reduction = new GeneRuleReduction(config.getGeneRules(), net);
+      if( !reduction.isConsistent() )
+      {
+         System.out.println("WARNING: no mode can obey all gene rules, the network is not reduced");
+         return(config.getReactionsToSuppress());
+      }
+
+      Set<String> suppressed = new LinkedHashSet<String>(config.getReactionsToSuppress());
+      suppressed.addAll(reduction.getZeroReactions());
+      System.out.println("INFO: reactions suppressed by gene rules: " + reduction.getZeroReactions());
+      System.out.println("INFO: reactions active in all modes obeying the gene rules: " + reduction.getActiveReactions());
+      return(suppressed);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // false if no assignment obeys all rules
+   ////////////////////////////////////////////////////////////////////////////
+   public boolean isConsistent()
+   {
+      return(consistent);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // reactions without flux in every mode obeying the rules
+   ////////////////////////////////////////////////////////////////////////////
+   public Set<String> getZeroReactions()
+   {
+      return(getReactionsWithDomain(CAN_BE_0));
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // reactions carrying flux in every mode obeying the rules
+   ////////////////////////////////////////////////////////////////////////////
+   public Set<String> getActiveReactions()
+   {
+      return(getReactionsWithDomain(CAN_BE_1));
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private Set<String> getReactionsWithDomain(int dom)
+   {
+      Set<String> reacs = new LinkedHashSet<String>();
+      if( consistent )
+      {
+         for( int v = 0; v < domain.length; v++ )
+         {
+            if( domain[v] == dom )
+            {
+               reacs.add(reacNames.get(v));
+            }
+         }
+      }
+      return(reacs);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // propagation and probing, until no domain changes any more
+   ////////////////////////////////////////////////////////////////////////////
+   private void reduce()
+   {
+      domain = new int[reacNames.size()];
+      Arrays.fill(domain, CAN_BE_0 | CAN_BE_1);
+
+      consistent = propagate(domain);
+
+      boolean changed = consistent;
+      while( changed )
+      {
+         changed = false;
+         for( int v = 0; v < domain.length; v++ )
+         {
+            if( domain[v] != (CAN_BE_0 | CAN_BE_1) )
+            {
+               continue;
+            }
+            for( int value = CAN_BE_0; value <= CAN_BE_1; value++ )
+            {
+               int probe[] = domain.clone();
+               probe[v] = value;
+               if( !propagate(probe) )
+               {
+                  // the other value is the only possible one
+                  domain[v] = (CAN_BE_0 | CAN_BE_1) & ~value;
+                  consistent = propagate(domain);
+                  changed = consistent;
+                  break;
+               }
+            }
+            if( !consistent )
+            {
+               return;
+            }
+         }
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // removes unsupported values from dom, returns false if a domain becomes
+   // empty
+   ////////////////////////////////////////////////////////////////////////////
+   private boolean propagate(int dom[])
+   {
+      boolean changed = true;
+      while( changed )
+      {
+         changed = false;
+         for( RuleTable table : ruleTables )
+         {
+            int support[] = table.getSupport(dom);
+            if( support == null )
+            {
+               return(false);
+            }
+            for( int j = 0; j < support.length; j++ )
+            {
+               int v = table.vars[j];
+               if( (dom[v] & support[j]) != dom[v] )
+               {
+                  dom[v] &= support[j];
+                  changed = true;
+               }
+            }
+         }
+      }
+      return(true);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // parses a rule line on reaction names, see GeneticRule for the syntax.
+   // returns null for comment lines and for rules not used for the reduction
+   ////////////////////////////////////////////////////////////////////////////
+   private RuleTable parseRule(String ruleAsString, Set<String> netReacNames)
+   {
+      String strLine = ruleAsString.replaceAll("\\s+","");
+      int intEqual = strLine.indexOf('=');
+      if( strLine.length() == 0 || strLine.charAt(0) == '#' || intEqual <= 0 )
+      {
+         return(null);
+      }
+
+      String strTgtReac = strLine.substring(0, intEqual);
+      String strFnc     = strLine.substring(intEqual + 1);
+      if( !netReacNames.contains(strTgtReac) )
+      {
+         return(null);
+      }
+
+      ArrayList<String>  arrLstRuleReacs = new ArrayList<String>();
+      ArrayList<RPNElem> arrLstTokens    = new ArrayList<RPNElem>();
+      arrLstRuleReacs.add(strTgtReac);
+
+      StringBuilder tmpToken = new StringBuilder();
+      for( int i = 0; i < strFnc.length(); i++ )
+      {
+         char c = strFnc.charAt(i);
+         if( c != '(' && c != ')' && c != '&' && c != '|' && c != '!' )
+         {
+            tmpToken.append(c);
+            continue;
+         }
+
+         if( tmpToken.length() > 0 )
+         {
+            int activityType;
+            switch( tmpToken.charAt(0) )
+            {
+               case '0': activityType = RPNElem.ZERO_ACTIVE; break;
+               case '1': activityType = RPNElem.ONE_ACTIVE;  break;
+               case 'f': activityType = RPNElem.FULL_ACTIVE; break;
+               default:  return(null);
+            }
+            String strReac = tmpToken.substring(1);
+            if( !netReacNames.contains(strReac) || strReac.equals(strTgtReac) )
+            {
+               return(null);
+            }
+            int local = arrLstRuleReacs.indexOf(strReac);
+            if( local == -1 )
+            {
+               local = arrLstRuleReacs.size();
+               arrLstRuleReacs.add(strReac);
+            }
+            arrLstTokens.add( new RPNElem(local, true, activityType) );
+            tmpToken.setLength(0);
+         }
+
+         switch( c )
+         {
+            case '(': arrLstTokens.add( new RPNElem(RevPolishNotation.P_OPEN,  false) ); break;
+            case ')': arrLstTokens.add( new RPNElem(RevPolishNotation.P_CLOSE, false) ); break;
+            case '&': arrLstTokens.add( new RPNElem(RevPolishNotation.AND,     false) ); break;
+            case '|': arrLstTokens.add( new RPNElem(RevPolishNotation.OR,      false) ); break;
+            default:  arrLstTokens.add( new RPNElem(RevPolishNotation.NOT,     false) ); break;
+         }
+      }
+
+      if( tmpToken.length() > 0 || arrLstRuleReacs.size() > MAX_RULE_REACTIONS )
+      {
+         return(null);
+      }
+
+      // every operation must be enclosed by one pair of parentheses
+      int numOpen = 0, numClose = 0, numOperators = 0;
+      for( RPNElem elem : arrLstTokens )
+      {
+         int val = elem.isReactionIndex() ? 0 : elem.getValue();
+         if( val == RevPolishNotation.P_OPEN )
+         {
+            numOpen++;
+         }
+         else if( val == RevPolishNotation.P_CLOSE )
+         {
+            numClose++;
+         }
+         else if( val == RevPolishNotation.AND || val == RevPolishNotation.OR || val == RevPolishNotation.NOT )
+         {
+            numOperators++;
+         }
+      }
+      if( numOpen != numClose || numOpen != numOperators || numOpen == 0 )
+      {
+         return(null);
+      }
+
+      RuleTable table;
+      try
+      {
+         Stack<RPNElem> stack = RevPolishNotation.infixToPostfix( arrLstTokens.toArray(new RPNElem[arrLstTokens.size()]) );
+         table = new RuleTable(arrLstRuleReacs.size(), stack.toArray(new RPNElem[stack.size()]));
+      }
+      catch(RuntimeException e)
+      {
+         // malformed rule, reported when the rule set is built
+         return(null);
+      }
+
+      for( int j = 0; j < table.vars.length; j++ )
+      {
+         table.vars[j] = getVar(arrLstRuleReacs.get(j));
+      }
+      return(table);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private int getVar(String reacName)
+   {
+      Integer var = reacVars.get(reacName);
+      if( var == null )
+      {
+         var = reacNames.size();
+         reacNames.add(reacName);
+         reacVars.put(reacName, var);
+      }
+      return(var);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the assignments of the reactions of one rule which obey the rule.
+   // bit j of an assignment is the value of vars[j], vars[0] is the target.
+   ////////////////////////////////////////////////////////////////////////////
+   private static final class RuleTable
+   {
+      final int vars[];
+      final boolean obeyed[];
+
+      RuleTable(int numVars, RPNElem postfix[])
+      {
+         vars   = new int[numVars];
+         obeyed = new boolean[1 << vars.length];
+
+         Integer intRule[] = new Integer[postfix.length];
+         for( int mask = 0; mask < obeyed.length; mask++ )
+         {
+            for( int i = 0; i < postfix.length; i++ )
+            {
+               if( postfix[i].isReactionIndex() )
+               {
+                  boolean flux = (mask & (1 << postfix[i].getValue())) != 0;
+                  int actType  = postfix[i].getActivityType();
+                  if( (!flux && actType == RPNElem.ONE_ACTIVE) || (flux && actType == RPNElem.ZERO_ACTIVE) )
+                  {
+                     intRule[i] = RevPolishNotation.NOTDEF;
+                  }
+                  else
+                  {
+                     intRule[i] = flux ? RevPolishNotation.TRUE : RevPolishNotation.FALSE;
+                  }
+               }
+               else
+               {
+                  intRule[i] = postfix[i].getValue();
+               }
+            }
+
+            int expected = RevPolishNotation.execute(intRule);
+            boolean tgtFlux = (mask & 1) != 0;
+            obeyed[mask] = expected == RevPolishNotation.NOTDEF ||
+                           (expected == RevPolishNotation.TRUE) == tgtFlux;
+         }
+      }
+
+      // returns the supported domain bits per rule reaction, or null if no
+      // assignment within the domains obeys the rule
+      int[] getSupport(int dom[])
+      {
+         int support[] = null;
+         for( int mask = 0; mask < obeyed.length; mask++ )
+         {
+            if( !obeyed[mask] || !isWithin(mask, dom) )
+            {
+               continue;
+            }
+            if( support == null )
+            {
+               support = new int[vars.length];
+            }
+            for( int j = 0; j < vars.length; j++ )
+            {
+               support[j] |= (mask & (1 << j)) != 0 ? CAN_BE_1 : CAN_BE_0;
+            }
+         }
+         return(support);
+      }
+
+      private boolean isWithin(int mask, int dom[])
+      {
+         for( int j = 0; j < vars.length; j++ )
+         {
+            int bit = (mask & (1 << j)) != 0 ? CAN_BE_1 : CAN_BE_0;
+            if( (dom[vars[j]] & bit) == 0 )
+            {
+               return(false);
+            }
+         }
+         return(true);
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -0,0 +1,160 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+////////////////////////////////////////////////////////////////////////////////
+// the lines of a gene rule file, held in memory
+//
+// gene rules are part of the configuration of a single efm computation, see
+// Config.withGeneRules(). the rules are either read from a file or passed in
+// directly, e.g. by a service running several regulated computations
+// in parallel. instances are immutable.
+////////////////////////////////////////////////////////////////////////////////
+public class GeneRules
+{
+   private final String source;
+   private final String lines[];
+
+   ////////////////////////////////////////////////////////////////////////////
+   // source names the origin of the rules, e.g. the file name, for logging
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneRules(String source, String rules[])
+   {
+      this.source = source;
+      this.lines  = rules.clone();
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public static GeneRules fromLines(String... rules)
+   {
+      return( new GeneRules("(in memory)", rules) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public static GeneRules fromFile(String fileName) throws IOException
+   {
+      List<String> rules = new ArrayList<String>();
+      BufferedReader bufRd = new BufferedReader(new FileReader(fileName));
+      try
+      {
+         String strLine;
+         while((strLine = bufRd.readLine()) != null)
+         {
+            rules.add(strLine);
+         }
+      }
+      finally
+      {
+         bufRd.close();
+      }
+      return( new GeneRules(fileName, rules.toArray(new String[rules.size()])) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public String getSource()
+   {
+      return(source);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the lines as given, including comment and empty lines
+   ////////////////////////////////////////////////////////////////////////////
+   public List<String> getLines()
+   {
+      return( Arrays.asList(lines.clone()) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the names of the reactions referenced by each rule, the target reaction
+   // first and every reaction only once. comment lines, empty lines and lines
+   // without a target reaction are skipped. the activity type prefix of the
+   // input reactions is removed, the rules are not checked otherwise.
+   ////////////////////////////////////////////////////////////////////////////
+   public List<List<String>> getRuleReactionNames()
+   {
+      List<List<String>> ruleReacs = new ArrayList<List<String>>();
+      for( String rule : lines )
+      {
+         String strLine = rule.replaceAll("\\s+","");
+         int intEqual = strLine.indexOf('=');
+         if( strLine.length() == 0 || strLine.charAt(0) == '#' || intEqual <= 0 )
+         {
+            continue;
+         }
+
+         List<String> reacs = new ArrayList<String>();
+         reacs.add(strLine.substring(0, intEqual));
+         for( String token : strLine.substring(intEqual + 1).split("[()&|!]+") )
+         {
+            if( token.length() > 1 && !reacs.contains(token.substring(1)) )
+            {
+               reacs.add(token.substring(1));
+            }
+         }
+         ruleReacs.add(reacs);
+      }
+      return(ruleReacs);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   @Override
+   public String toString()
+   {
+      return(source + " (" + lines.length + " lines)");
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -55,6 +55,7 @@ public class GeneticRule
    private String strBoolFnc;
    private NetworkEfmModel efmModel;
    private Config config;
+   private ReactionMapping rmap;
    private String ruleAsStringArray[];
    private RPNElem ruleAsArrayIdx[];
    private Stack<RPNElem> ruleAsStackIdx;
@@ -76,14 +77,28 @@ public class GeneticRule
 
    private ArrayList<GeneBitSet> arrLstBitSetRule;
 
+   private CompiledGeneticRule compiledRule;
+
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
    public GeneticRule(String ruleAsString, NetworkEfmModel model, Config conf) throws FoundCommentLineException
+   {
+      this(ruleAsString, model, conf, new ReactionMapping(conf, model.getMetabolicNetwork(), model.getReactionSorting()));
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // reactionMapping must belong to the network and reaction sorting of the
+   // model, it can be shared by all rules of a rule set
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRule(String ruleAsString, NetworkEfmModel model, Config conf, ReactionMapping reactionMapping) throws FoundCommentLineException
    {
       // System.out.println("DEBUG: entered constructor GeneticRule.GeneticRule(): Rule: " + ruleAsString);
       strRule    = ruleAsString;
       efmModel   = model;
       config     = conf;
+      rmap       = reactionMapping;
       boolTgtReacIsReversible  = false;
       boolIsIterationQualified = false;
       arrLstReacNames        = new ArrayList<String>();
@@ -114,12 +129,18 @@ public class GeneticRule
       {
          this.generateBitSets();
       }
+
+      // compile rule into a flat program working on sorted indices
+      RPNElem elemRule[] = new RPNElem[ ruleAsStackIdx.size() ];
+      elemRule = ruleAsStackIdx.toArray( elemRule );
+      compiledRule = new CompiledGeneticRule(elemRule, intTgtReac, rmap);
    }
    ////////////////////////////////////////////////////////////////////////////
 
 
    ////////////////////////////////////////////////////////////////////////////
-   // returns 'false' if we found a comment line
+   // returns 'false' if we found a comment or empty line, throws an
+   // IllegalArgumentException if the rule is invalid
    ////////////////////////////////////////////////////////////////////////////
    private Boolean processRuleString()
    {
@@ -137,9 +158,10 @@ public class GeneticRule
 
 
       /////////////////////////////////////////////////////////////////////////
-      // return if line starts with '#', which means it is a comment line
+      // return if line starts with '#', which means it is a comment line, or
+      // if the line is empty
       /////////////////////////////////////////////////////////////////////////
-      if( strLine.indexOf('#') == 0 )
+      if( strLine.length() == 0 || strLine.indexOf('#') == 0 )
       {
          // System.out.println("DEBUG: found comment line");
          return(false);
@@ -153,10 +175,7 @@ public class GeneticRule
       /////////////////////////////////////////////////////////////////////////
       if( strLine.matches(".*[^0-9a-zA-Z_=!()|&:].*") )
       {
-         System.out.println("FATAL ERROR: found invalid character in line '" + strLine + "'");
-         System.out.println("             valid characters are: a-z,A-Z,0-9,_,!,&,|");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("invalid character in gene rule '" + strLine + "', valid characters are: a-z,A-Z,0-9,_,!,&,|,(,),:,=");
       }
 
       // check if two operators follow each other
@@ -164,10 +183,7 @@ public class GeneticRule
           strLine.matches("&|") || strLine.matches("&&") || strLine.matches("&!") ||
           strLine.matches("!|") || strLine.matches("!&") || strLine.matches("!!") )
       {
-         System.out.println("FATAL ERROR: found invalid character combination (&&,||) in line '" + strLine + "'");
-         System.out.println("             note: an AND is as signle '&', an OR is a single '|'");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("invalid character combination in gene rule '" + strLine + "', an AND is a single '&', an OR is a single '|'");
       }
 
       // check the number of opening and closing parenthesis
@@ -179,36 +195,25 @@ public class GeneticRule
 
       if( num_oparent != num_cparent )
       {
-         System.out.println("FATAL ERROR: number of opening parentheses (" + num_oparent + ")" +
-                            " is not equal to number of closing parenthesis (" + num_cparent + ") in line '" + strLine + "'");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("number of opening parentheses (" + num_oparent + ") is not equal to number of closing parentheses (" + num_cparent + ") in gene rule '" + strLine + "'");
       }
 
       if( num_operator != num_oparent )
       {
-         System.out.println("FATAL ERROR: number of operators (!,|,&) (" + num_operator + ")" +
-                            " is not equal to number of pairs of parenthesis (" + num_cparent + ") in line '" + strLine + "'");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("number of operators (!,|,&) (" + num_operator + ") is not equal to number of pairs of parentheses (" + num_cparent + ") in gene rule '" + strLine + "'");
       }
 
       // check number of equal signs
       int num_equal = getNumOccOfChar(strLine,'=');
       if( num_equal != 1 )
       {
-         System.out.println("FATAL ERROR: number of equal signs (=) is not equal to 1, but " + num_equal + " in line '" + strLine + "'");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("number of equal signs (=) is not equal to 1, but " + num_equal + " in gene rule '" + strLine + "'");
       }
 
       // check if last character is a closing parenthesis
       if( strLine.charAt( strLine.length() - 1 ) != ')' )
       {
-         System.out.println("FATAL ERROR: found invalid character at last position '" + strLine.charAt( strLine.length() - 1 ) + "' in line '" + strLine + "'");
-         System.out.println("             character must be a closing parenthesis ')'");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("last character must be a closing parenthesis ')', but found '" + strLine.charAt( strLine.length() - 1 ) + "' in gene rule '" + strLine + "'");
       }
 
       // check if character right after equal sign is an opening parenthesis
@@ -217,10 +222,7 @@ public class GeneticRule
 
       if( strFunc.charAt(0) != '(' )
       {
-         System.out.println("FATAL ERROR: found invalid character at position 0 '" + strFunc.charAt(0) + "' in line '" + strLine + "'");
-         System.out.println("             character must be an opening parenthesis '('");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("first character of the function must be an opening parenthesis '(', but found '" + strFunc.charAt(0) + "' in gene rule '" + strLine + "'");
       }
       /////////////////////////////////////////////////////////////////////////
 
@@ -230,9 +232,7 @@ public class GeneticRule
       /////////////////////////////////////////////////////////////////////////
       if( strLine.indexOf('=') == -1 )
       {
-         System.out.println("FATAL ERROR: invalid line '" + strLine + "': character '=' missing");
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("character '=' missing in gene rule '" + strLine + "'");
       }
       /////////////////////////////////////////////////////////////////////////
 
@@ -256,15 +256,11 @@ public class GeneticRule
       /////////////////////////////////////////////////////////////////////////
       // check if target reaction is known
       /////////////////////////////////////////////////////////////////////////
-      final ReactionMapping rmap = new ReactionMapping(config, efmModel.getMetabolicNetwork(), efmModel.getReactionSorting());
       // int reacIdx = efmModel.getMetabolicNetwork().getReactionIndex(strTgtReac);
       int reacIdx = rmap.getOriginalReactionIndexByName(strTgtReac);
       if( reacIdx == -1 )
       {
-         System.out.println("FATAL ERROR: target gene/reaction '" + strTgtReac + "' not known.");
-         System.out.println("             known genes/reactions are: " + efmModel.getMetabolicNetwork().toStringVerbose());
-         System.out.println("             execution aborted.");
-         System.exit(-1);
+         throw new IllegalArgumentException("target gene/reaction '" + strTgtReac + "' not known in gene rule '" + strLine + "'");
       }
       intTgtReac = reacIdx;
       /////////////////////////////////////////////////////////////////////////
@@ -309,7 +305,6 @@ public class GeneticRule
       String tmpToken = new String();
       intMaxFncReacSortedIdx = -1;
 
-      final ReactionMapping rmap = new ReactionMapping(config, efmModel.getMetabolicNetwork(), efmModel.getReactionSorting());
 
       int tokenFinished = 1;
       int reacIdx;
@@ -347,13 +342,7 @@ public class GeneticRule
                else
                {
                   // invalid token name
-                  System.out.println("FATAL ERROR: reaction '" + tmpToken + "' does not have a valid prefix.");
-                  System.out.println("             valid prefixes are:");
-                  System.out.println("             0 .... 0-activity");
-                  System.out.println("             1 .... 1-activity");
-                  System.out.println("             f .... f-activity");
-                  System.out.println("             execution aborted.");
-                  System.exit(-1);
+                  throw new IllegalArgumentException("reaction '" + tmpToken + "' does not have a valid prefix (0, 1 or f for 0-, 1- or f-activity) in gene rule '" + strRule + "'");
                }
 
                // remove prefix from token name
@@ -362,10 +351,7 @@ public class GeneticRule
                // if( (reacIdx = efmModel.getMetabolicNetwork().getReactionIndex(tmpToken)) == -1 )
                if( (reacIdx = rmap.getOriginalReactionIndexByName(tmpToken)) == -1 )
                {
-                  System.out.println("FATAL ERROR: reaction '" + tmpToken + "' not known.");
-                  System.out.println("             known reactions are: " + efmModel.getMetabolicNetwork().toStringVerbose());
-                  System.out.println("             execution aborted.");
-                  System.exit(-1);
+                  throw new IllegalArgumentException("reaction '" + tmpToken + "' not known in gene rule '" + strRule + "'");
                }
                // System.out.println("original index of reaction '" + tmpToken + "' is: " + reacIdx);
                arrlstTokens.add( tmpToken );
@@ -528,9 +514,7 @@ public class GeneticRule
       }
       else
       {
-         System.out.println("DEBUG: GeneticRule.determineIterationQualification(): invalid returned by RevPolishNotation.execute(): " + intIsQualified);
-         System.out.println("       execution aborted.");
-         System.exit(-1);
+         throw new IllegalStateException("invalid value returned by RevPolishNotation.execute(): " + intIsQualified);
       }
 
       return( isQualified );
@@ -543,7 +527,6 @@ public class GeneticRule
    private void generateBitSets()
    {
       GeneBitSet initBitSet = new GeneBitSet( this.getMaxReacSortedIdx() );
-      final ReactionMapping rmap = new ReactionMapping(config, efmModel.getMetabolicNetwork(), efmModel.getReactionSorting());
 
       /////////////////////////////////////////////////////////////////////////
       // add all irreversible reactions to bitmap
@@ -555,6 +538,14 @@ public class GeneticRule
          // System.out.println("DEBUG: GeneticRule.generateBitSets(): irrev reactions: reacIdx = " + reacIdx);
          IntList intListReacSortedIdx = rmap.get(Layer.Original, reacIdx,  Layer.Sorted);
 
+         // the reaction has been removed from the network, e.g. suppressed
+         // during compression. it never carries a flux, thus the rule can
+         // never be violated during the iteration phase
+         if( intListReacSortedIdx.isEmpty() )
+         {
+            return;
+         }
+
          Iterator<Integer> intItSort = intListReacSortedIdx.iterator();
          while( intItSort.hasNext() )
          {
@@ -741,6 +732,18 @@ public class GeneticRule
 
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
+   public CompiledGeneticRule getCompiledRule()
+   {
+      return(compiledRule);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // interpreting version of the rule evaluation, builds a new ReactionMapping
+   // and evaluation stack for every call. the post filter uses the compiled
+   // rule (see getCompiledRule() and GeneticRuleEvaluator) instead.
+   ////////////////////////////////////////////////////////////////////////////
    public Boolean doesEFMObeyRule(Column col)
    {
       Boolean modeTgtVal;
@@ -796,9 +799,7 @@ public class GeneticRule
       }
       else
       {
-         System.out.println("FATAL INTERNAL ERROR: unknown value returned by getValByIdx():" + getValByIdx(rmap, col, intTgtReac ));
-         System.out.println("                      execution arborted.");
-         System.exit(-1);
+         throw new IllegalStateException("unknown value returned by getValByIdx(): " + getValByIdx(rmap, col, intTgtReac ));
       }
 
       if( (intExpcTgtVal == RevPolishNotation.TRUE  && modeTgtVal == true) ||
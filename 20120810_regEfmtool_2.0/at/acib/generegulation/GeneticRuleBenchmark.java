@@ -0,0 +1,143 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+
+////////////////////////////////////////////////////////////////////////////////
+// micro benchmark comparing the interpreting rule evaluation
+// (GeneticRule.doesEFMObeyRule) with the compiled rules
+// (GeneticRuleEvaluator) and the bit parallel GeneticRuleBlockEvaluator. each measurement is preceded by warm-up rounds
+// such that both paths are JIT compiled. timings are printed only, like
+// in ch.javasoft.metabolic.efm.stress.StressTest.
+////////////////////////////////////////////////////////////////////////////////
+public class GeneticRuleBenchmark extends TestCase
+{
+   private static final int WARMUP_ROUNDS  = 100;
+   private static final int MEASURE_ROUNDS = 200;
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public void testCompiledVsInterpreted() throws IOException
+   {
+      NetworkEfmModel model = GeneticRuleTest.createModel();
+      final GeneticRuleSet ruleSet = new GeneticRuleSet(GeneticRuleTest.writeRuleFile(GeneticRuleTest.RULES).getAbsolutePath(), model, Config.getConfig());
+      final GeneticRuleEvaluator evaluator = ruleSet.createEvaluator();
+      final Column cols[] = GeneticRuleTest.createAllColumns(model.getReactionSorting().length);
+
+      long interpreted = measure("interpreted", new Bench()
+      {
+         public int run()
+         {
+            int hits = 0;
+            for( int i = 0; i < cols.length; i++ )
+            {
+               hits += ruleSet.doesEFMObeyRulesInterpreted(cols[i]);
+            }
+            return(hits);
+         }
+      }, cols.length);
+
+      long compiled = measure("compiled", new Bench()
+      {
+         public int run()
+         {
+            int hits = 0;
+            for( int i = 0; i < cols.length; i++ )
+            {
+               hits += evaluator.doesEFMObeyRules(cols[i]);
+            }
+            return(hits);
+         }
+      }, cols.length);
+
+      final GeneticRuleBlockEvaluator blockEvaluator = ruleSet.createBlockEvaluator();
+      long block = measure("block", new Bench()
+      {
+         public int run()
+         {
+            int hits = 0;
+            for( int offset = 0; offset < cols.length; offset += GeneticRuleBlockEvaluator.BLOCK_SIZE )
+            {
+               blockEvaluator.load(cols, offset, Math.min(GeneticRuleBlockEvaluator.BLOCK_SIZE, cols.length - offset));
+               hits += Long.bitCount(blockEvaluator.evaluate(null));
+            }
+            return(hits);
+         }
+      }, cols.length);
+
+      System.out.println("INFO: speedup compiled/interpreted: " + ((double)interpreted / Math.max(1L, compiled)));
+      System.out.println("INFO: speedup block/interpreted: " + ((double)interpreted / Math.max(1L, block)));
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private static interface Bench
+   {
+      int run();
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the average time per column in nanoseconds
+   ////////////////////////////////////////////////////////////////////////////
+   private static long measure(String name, Bench bench, int colsPerRound)
+   {
+      int sink = 0;
+      for( int r = 0; r < WARMUP_ROUNDS; r++ )
+      {
+         sink += bench.run();
+      }
+
+      long tStart = System.nanoTime();
+      for( int r = 0; r < MEASURE_ROUNDS; r++ )
+      {
+         sink += bench.run();
+      }
+      long tEnd = System.nanoTime();
+
+      long nsPerCol = (tEnd - tStart) / ((long)MEASURE_ROUNDS * colsPerRound);
+      System.out.println("INFO: " + name + ": " + nsPerCol + " ns/column (checksum " + sink + ")");
+      return(nsPerCol);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
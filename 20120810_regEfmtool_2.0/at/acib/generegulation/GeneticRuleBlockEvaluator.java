@@ -0,0 +1,243 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.column.Column;
+
+////////////////////////////////////////////////////////////////////////////////
+// bit parallel evaluation of the compiled rules for blocks of up to 64 modes
+//
+// the bit patterns of the modes are transposed such that word flux[i]
+// contains bit j if mode j of the block carries a flux in sorted reaction i.
+// the three valued result of an expression is represented by two masks:
+//    maskT ... modes for which the expression is TRUE
+//    maskF ... modes for which the expression is FALSE
+// modes in neither mask are NOTDEF. the operations are then
+//    NOT:  T = F1,       F = T1
+//    AND:  T = T1 & T2,  F = F1 | F2
+//    OR:   T = T1 | T2,  F = F1 & F2
+// which is exactly the semantics of RevPolishNotation.execute().
+//
+// the evaluator owns its scratch memory and must not be shared between
+// threads, create one instance per thread with
+// GeneticRuleSet.createBlockEvaluator().
+////////////////////////////////////////////////////////////////////////////////
+public class GeneticRuleBlockEvaluator
+{
+   public static final int BLOCK_SIZE = 64;
+
+   private final CompiledGeneticRule rules[];
+   private final long flux[];
+   private final long stackT[];
+   private final long stackF[];
+   private long validMask;
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRuleBlockEvaluator(CompiledGeneticRule compiledRules[])
+   {
+      int maxDepth = 0;
+      int maxIdx   = -1;
+      for( int i = 0; i < compiledRules.length; i++ )
+      {
+         maxDepth = Math.max(maxDepth, compiledRules[i].getMaxStackDepth());
+         maxIdx   = Math.max(maxIdx, compiledRules[i].getMaxSortedIdx());
+      }
+      rules  = compiledRules;
+      flux   = new long[maxIdx + 1];
+      stackT = new long[maxDepth];
+      stackF = new long[maxDepth];
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // transposes the bit patterns of cols[offset] to cols[offset + count - 1]
+   // into the flux words. count must not exceed BLOCK_SIZE.
+   ////////////////////////////////////////////////////////////////////////////
+   public void load(Column cols[], int offset, int count)
+   {
+      if( count < 0 || count > BLOCK_SIZE )
+      {
+         throw new IllegalArgumentException("invalid block size: " + count);
+      }
+      validMask = count == BLOCK_SIZE ? -1L : (1L << count) - 1;
+
+      // start with 'all modes carry a flux', clear the zero flux bits
+      for( int i = 0; i < flux.length; i++ )
+      {
+         flux[i] = validMask;
+      }
+
+      for( int j = 0; j < count; j++ )
+      {
+         IBitSet bits = cols[offset + j].bitValues();
+         long clearMask = ~(1L << j);
+         for( int i = bits.nextSetBit(0); i >= 0 && i < flux.length; i = bits.nextSetBit(i + 1) )
+         {
+            // note: a set bit means that the reaction does NOT carry a flux
+            flux[i] &= clearMask;
+         }
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the mask of the loaded modes that violate the given rule
+   ////////////////////////////////////////////////////////////////////////////
+   public long getViolationMask(int ruleIdx)
+   {
+      CompiledGeneticRule rule = rules[ruleIdx];
+      int program[] = rule.getProgram();
+      int sp = 0;
+      int pc = 0;
+
+      while( pc < program.length )
+      {
+         int op = program[pc++];
+
+         if( op == CompiledGeneticRule.OP_NOT )
+         {
+            long t = stackT[sp - 1];
+            stackT[sp - 1] = stackF[sp - 1];
+            stackF[sp - 1] = t;
+         }
+         else if( op == CompiledGeneticRule.OP_AND )
+         {
+            sp--;
+            stackT[sp - 1] &= stackT[sp];
+            stackF[sp - 1] |= stackF[sp];
+         }
+         else if( op == CompiledGeneticRule.OP_OR )
+         {
+            sp--;
+            stackT[sp - 1] |= stackT[sp];
+            stackF[sp - 1] &= stackF[sp];
+         }
+         else
+         {
+            int n = program[pc++];
+            long w = fluxOf(program, pc, n);
+            pc += n;
+
+            if( op == CompiledGeneticRule.OP_LOAD_F )
+            {
+               stackT[sp] = w;
+               stackF[sp] = ~w & validMask;
+            }
+            else if( op == CompiledGeneticRule.OP_LOAD_1 )
+            {
+               // no flux is NOTDEF for 1-active reactions
+               stackT[sp] = w;
+               stackF[sp] = 0L;
+            }
+            else
+            {
+               // flux is NOTDEF for 0-active reactions
+               stackT[sp] = 0L;
+               stackF[sp] = ~w & validMask;
+            }
+            sp++;
+         }
+      }
+
+      int tgtIdx[] = rule.getTgtSortedIdx();
+      long tgt = fluxOf(tgtIdx, 0, tgtIdx.length);
+
+      // expected TRUE but no flux, or expected FALSE but flux
+      return( (stackT[0] & ~tgt) | (stackF[0] & tgt) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the mask of the loaded modes that violate at least one rule.
+   // if hitRule is not null, hitRule[j] is set to the number of the first
+   // rule violated by mode j (starting with 1), or to -1 if mode j obeys all
+   // rules. this is consistent with GeneticRuleSet.doesEFMObeyRules().
+   ////////////////////////////////////////////////////////////////////////////
+   public long evaluate(int hitRule[])
+   {
+      long violated = 0L;
+
+      if( hitRule != null )
+      {
+         for( int j = 0; j < BLOCK_SIZE; j++ )
+         {
+            hitRule[j] = -1;
+         }
+      }
+
+      for( int r = 0; r < rules.length && violated != validMask; r++ )
+      {
+         long newlyViolated = getViolationMask(r) & ~violated;
+         if( hitRule != null )
+         {
+            for( long m = newlyViolated; m != 0L; m &= m - 1 )
+            {
+               hitRule[Long.numberOfTrailingZeros(m)] = r + 1;
+            }
+         }
+         violated |= newlyViolated;
+      }
+
+      return(violated);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   private long fluxOf(int idx[], int from, int n)
+   {
+      long w = 0L;
+      for( int i = from; i < from + n; i++ )
+      {
+         w |= flux[idx[i]];
+      }
+      return(w);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int getNumberOfRules()
+   {
+      return(rules.length);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
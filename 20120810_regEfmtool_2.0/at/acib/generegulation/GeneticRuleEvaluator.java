@@ -0,0 +1,100 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import ch.javasoft.metabolic.efm.column.Column;
+
+////////////////////////////////////////////////////////////////////////////////
+// reusable evaluator for the compiled rules of a GeneticRuleSet
+//
+// the evaluator owns the scratch stack used by CompiledGeneticRule, hence,
+// an instance must not be shared between threads. create one evaluator per
+// thread via GeneticRuleSet.createEvaluator().
+////////////////////////////////////////////////////////////////////////////////
+public class GeneticRuleEvaluator
+{
+   private final CompiledGeneticRule rules[];
+   private final int stack[];
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRuleEvaluator(CompiledGeneticRule compiledRules[])
+   {
+      int maxDepth = 0;
+      for( int i = 0; i < compiledRules.length; i++ )
+      {
+         maxDepth = Math.max(maxDepth, compiledRules[i].getMaxStackDepth());
+      }
+      rules = compiledRules;
+      stack = new int[maxDepth];
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns -1 if all rules are obeyed, and the number of the first
+   // violated rule otherwise (starting with 1, same as
+   // GeneticRuleSet.doesEFMObeyRules())
+   ////////////////////////////////////////////////////////////////////////////
+   public int doesEFMObeyRules(Column col)
+   {
+      for( int r = 0; r < rules.length; r++ )
+      {
+         if( !rules[r].doesEFMObeyRule(col, stack) )
+         {
+            return(r + 1);
+         }
+      }
+      return(-1);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public boolean doesEFMObeyRule(int ruleIdx, Column col)
+   {
+      return( rules[ruleIdx].doesEFMObeyRule(col, stack) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public int getNumberOfRules()
+   {
+      return(rules.length);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -33,10 +33,7 @@
  */
 package at.acib.generegulation;
 
-import java.io.FileInputStream;
-import java.io.DataInputStream;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -45,85 +42,109 @@ import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.util.ReactionMapping;
+
+import at.acib.filter_thread.RemovedModesCounter;
 
 public class GeneticRuleSet
 {
-   private String strFileName;
+   private GeneRules geneRules;
    private NetworkEfmModel efmModel;
    private Config config;
    private ArrayList<GeneticRule> arrLstGeneticRules;
    private ArrayList<GeneBitSet> arrLstAllBitSets;
    private GeneBitSet arrAllBitSets[];
+   private CompiledGeneticRule arrCompiledRules[];
+   private GeneRuleAdjacencyFilter adjacencyFilter;
+   private RemovedModesCounter removedModesCounter;
    private int numRules;
 
+   // one evaluator per thread, as the evaluators own their scratch stack
+   private final ThreadLocal<GeneticRuleEvaluator> threadEvaluator = new ThreadLocal<GeneticRuleEvaluator>()
+   {
+      @Override
+      protected GeneticRuleEvaluator initialValue()
+      {
+         return(createEvaluator());
+      }
+   };
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRuleSet(String nameOfRuleFile, EfmModel model, Config conf) throws IOException
+   {
+      this(GeneRules.fromFile(nameOfRuleFile), model, conf);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
-   public GeneticRuleSet(String nameOfRuleFile, EfmModel model, Config conf)
+   public GeneticRuleSet(GeneRules rules, EfmModel model, Config conf)
    {
-      // System.out.println("DEBUG: entered constructor GeneticRuleSet.GeneticRuleSet(): name of gene regulation file: " + nameOfRuleFile);
-      strFileName = nameOfRuleFile;
+      geneRules   = rules;
       efmModel    = (NetworkEfmModel) model;
       config      = conf;
       arrLstAllBitSets = new ArrayList<GeneBitSet>();
       arrLstGeneticRules = new ArrayList<GeneticRule>();
-      this.readGeneFile();
+      this.parseGeneRules();
    }
    ////////////////////////////////////////////////////////////////////////////
 
 
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
-   private void readGeneFile()
+   private void parseGeneRules()
    {
-      try
-      {
-         FileInputStream fstream = new FileInputStream(strFileName);
-         DataInputStream inStr   = new DataInputStream(fstream);
-         BufferedReader  bufRd   = new BufferedReader(new InputStreamReader(inStr));
-
-         String strLine;
+      // one reaction mapping shared by all rules
+      final ReactionMapping rmap = new ReactionMapping(config, efmModel.getMetabolicNetwork(), efmModel.getReactionSorting());
 
-         while((strLine = bufRd.readLine()) != null)
+      for( String strLine : geneRules.getLines() )
+      {
+         // System.out.println("INFO: read line: " + strLine);
+         try
          {
-            // System.out.println("INFO: read line: " + strLine);
-            try
-            {
-               GeneticRule myGeneticRule = new GeneticRule(strLine, efmModel, config);
-               arrLstGeneticRules.add(myGeneticRule);
-               numRules++;
-               // System.out.println("DEBUG: maximum reaction index: " +  myGeneticRule.getMaxReacSortedIdx() );
-               // System.out.println("DEBUG: target reaction is reversible: " +  myGeneticRule.isTgtReactReversible() );
-               // System.out.println("DEBUG: target reaction names: " +  Arrays.toString(myGeneticRule.getFncReacNames()) );
-               // System.out.println("DEBUG: original target reaction index: " +  Arrays.toString(myGeneticRule.getFncReacOrigIdx()) );
-               // System.out.println("DEBUG: function reversible reaction names: " +  Arrays.toString(myGeneticRule.getFncRevReacNames()) );
-               // System.out.println("DEBUG: original function reversible reaction indices: " +  Arrays.toString(myGeneticRule.getFncRevReacOrigIdx()) );
-               // System.out.println("DEBUG: rule qualifies for iteration application: " +  myGeneticRule.isIterationQualified() );
-
-               ArrayList<GeneBitSet> arrLstGeneBitSet = myGeneticRule.getBitSets();
-               Iterator<GeneBitSet> bitSetIt = arrLstGeneBitSet.iterator();
-               while( bitSetIt.hasNext() )
-               {
-                  GeneBitSet curBitSet = bitSetIt.next();
-                  arrLstAllBitSets.add(curBitSet);
-                  // System.out.println("                          :" +  curBitSet );
-               }
-            }
-            catch(Exception FoundCommentLineException )
+            GeneticRule myGeneticRule = new GeneticRule(strLine, efmModel, config, rmap);
+            arrLstGeneticRules.add(myGeneticRule);
+            numRules++;
+            // System.out.println("DEBUG: maximum reaction index: " +  myGeneticRule.getMaxReacSortedIdx() );
+            // System.out.println("DEBUG: target reaction is reversible: " +  myGeneticRule.isTgtReactReversible() );
+            // System.out.println("DEBUG: target reaction names: " +  Arrays.toString(myGeneticRule.getFncReacNames()) );
+            // System.out.println("DEBUG: original target reaction index: " +  Arrays.toString(myGeneticRule.getFncReacOrigIdx()) );
+            // System.out.println("DEBUG: function reversible reaction names: " +  Arrays.toString(myGeneticRule.getFncRevReacNames()) );
+            // System.out.println("DEBUG: original function reversible reaction indices: " +  Arrays.toString(myGeneticRule.getFncRevReacOrigIdx()) );
+            // System.out.println("DEBUG: rule qualifies for iteration application: " +  myGeneticRule.isIterationQualified() );
+
+            ArrayList<GeneBitSet> arrLstGeneBitSet = myGeneticRule.getBitSets();
+            Iterator<GeneBitSet> bitSetIt = arrLstGeneBitSet.iterator();
+            while( bitSetIt.hasNext() )
             {
-               // System.out.println("DEBUG: Caught FoundCommentLineException(): " + strLine);
+               GeneBitSet curBitSet = bitSetIt.next();
+               arrLstAllBitSets.add(curBitSet);
+               // System.out.println("                          :" +  curBitSet );
             }
          }
-         inStr.close();
-      }
-      catch(Exception e)
-      {
-         System.err.println("Error: " + e.getMessage());
-         System.exit(-1);
+         catch(FoundCommentLineException e)
+         {
+            // comment or empty line, invalid rules are not caught here
+         }
       }
 
       arrAllBitSets = new GeneBitSet[ arrLstAllBitSets.size() ];
       arrAllBitSets = arrLstAllBitSets.toArray( arrAllBitSets );
-      
+
+      arrCompiledRules = new CompiledGeneticRule[ arrLstGeneticRules.size() ];
+      for( int i = 0; i < arrCompiledRules.length; i++ )
+      {
+         arrCompiledRules[i] = arrLstGeneticRules.get(i).getCompiledRule();
+      }
+
+      if( arrAllBitSets.length > 0 )
+      {
+         adjacencyFilter = new GeneRuleAdjacencyFilter(arrAllBitSets);
+      }
+
+      removedModesCounter = new RemovedModesCounter(numRules);
    }
    ////////////////////////////////////////////////////////////////////////////
 
@@ -146,19 +167,51 @@ public class GeneticRuleSet
    ////////////////////////////////////////////////////////////////////////////
 
 
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the filter pruning adjacent pairs during the iterations, or null
+   // if none of the rules qualifies for iteration application
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneRuleAdjacencyFilter getAdjacencyFilter()
+   {
+      return(adjacencyFilter);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // counts the final modes removed by the PartitionedPostFilter, in total
+   // and per rule
+   ////////////////////////////////////////////////////////////////////////////
+   public RemovedModesCounter getRemovedModesCounter()
+   {
+      return(removedModesCounter);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
    public int doesEFMObeyRules(Column col)
+   {
+      return( threadEvaluator.get().doesEFMObeyRules(col) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // evaluates the rules one after the other with the interpreting
+   // GeneticRule.doesEFMObeyRule(), which is considerably slower than
+   // doesEFMObeyRules(). used as reference for the compiled rules.
+   ////////////////////////////////////////////////////////////////////////////
+   public int doesEFMObeyRulesInterpreted(Column col)
    {
       Integer ruleCnt = 0;
-      // System.out.println("DEBUG: GeneticRuleSet.doesEFMObeyRules(): col = " + col + " booleanSize(): " + col.booleanSize());
       Iterator<GeneticRule> itRule = arrLstGeneticRules.iterator();
 
       while( itRule.hasNext() )
       {
          ruleCnt++;
          GeneticRule rule = itRule.next();
-         // System.out.println("DEBUG: checking rule '" + rule.getRuleString() + "'");
          if( rule.doesEFMObeyRule(col) == false )
          {
             return(ruleCnt);
@@ -170,6 +223,37 @@ public class GeneticRuleSet
    ////////////////////////////////////////////////////////////////////////////
 
 
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public CompiledGeneticRule[] getCompiledRules()
+   {
+      return(arrCompiledRules);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns a new evaluator for the compiled rules of this set. the
+   // evaluator is not thread safe, each thread needs its own instance.
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRuleEvaluator createEvaluator()
+   {
+      return( new GeneticRuleEvaluator(arrCompiledRules) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns a new bit parallel evaluator for blocks of 64 modes. the
+   // evaluator is not thread safe, each thread needs its own instance.
+   ////////////////////////////////////////////////////////////////////////////
+   public GeneticRuleBlockEvaluator createBlockEvaluator()
+   {
+      return( new GeneticRuleBlockEvaluator(arrCompiledRules) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
    ////////////////////////////////////////////////////////////////////////////
    ////////////////////////////////////////////////////////////////////////////
    public int getNumberOfRules()
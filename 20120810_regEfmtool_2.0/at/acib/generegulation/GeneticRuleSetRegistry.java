@@ -0,0 +1,141 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+
+////////////////////////////////////////////////////////////////////////////////
+// cache for parsed and compiled rule sets
+//
+// tokenizing the rules and mapping the reactions to the sorted layer depends
+// only on the rules, on the (compressed) network and on the reaction
+// sorting. the rule set is therefore built once, during preprocessing, and
+// then handed to every iteration and to the post filter. the cache entry is
+// released when the computation ends, also if it fails or is aborted.
+//
+// the rules are taken from the config of the computation, thus several
+// regulated computations with different rules can run concurrently.
+////////////////////////////////////////////////////////////////////////////////
+public class GeneticRuleSetRegistry
+{
+   private static final Map<Key, GeneticRuleSet> ruleSets = new HashMap<Key, GeneticRuleSet>();
+
+   ////////////////////////////////////////////////////////////////////////////
+   // returns the rule set for the given model, or null if the config has no
+   // gene rules. the rule set is created on first access.
+   ////////////////////////////////////////////////////////////////////////////
+   public static GeneticRuleSet getRuleSet(EfmModel model, Config conf)
+   {
+      GeneRules geneRules = conf.getGeneRules();
+      if( geneRules == null )
+      {
+         return(null);
+      }
+
+      Key key = new Key(model, geneRules);
+      synchronized(ruleSets)
+      {
+         GeneticRuleSet ruleSet = ruleSets.get(key);
+         if( ruleSet == null )
+         {
+            ruleSet = new GeneticRuleSet(geneRules, model, conf);
+            ruleSets.put(key, ruleSet);
+         }
+         return(ruleSet);
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // removes the rule set of the given model from the cache
+   ////////////////////////////////////////////////////////////////////////////
+   public static void release(EfmModel model, Config conf)
+   {
+      GeneRules geneRules = conf.getGeneRules();
+      if( geneRules == null )
+      {
+         return;
+      }
+
+      synchronized(ruleSets)
+      {
+         ruleSets.remove(new Key(model, geneRules));
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // identity of the rules and the network, value of the reaction sorting
+   ////////////////////////////////////////////////////////////////////////////
+   private static final class Key
+   {
+      private final GeneRules geneRules;
+      private final MetabolicNetwork network;
+      private final int sorting[];
+
+      Key(EfmModel model, GeneRules rules)
+      {
+         geneRules = rules;
+         network   = ((NetworkEfmModel) model).getMetabolicNetwork();
+         sorting   = model.getReactionSorting().clone();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return( System.identityHashCode(geneRules) ^ System.identityHashCode(network) ^ Arrays.hashCode(sorting) );
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if( !(obj instanceof Key) )
+         {
+            return(false);
+         }
+         Key other = (Key) obj;
+         return( geneRules == other.geneRules && network == other.network && Arrays.equals(sorting, other.sorting) );
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
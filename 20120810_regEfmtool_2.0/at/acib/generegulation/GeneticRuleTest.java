@@ -0,0 +1,463 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package at.acib.generegulation;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreMemory;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+import ch.javasoft.metabolic.efm.util.ReactionMapping;
+import ch.javasoft.metabolic.efm.util.ReactionMapping.Layer;
+import ch.javasoft.metabolic.efm.model.canonical.CanonicalEfmModelFactory;
+import ch.javasoft.metabolic.efm.sort.GeneRuleReactionsFirstSorter;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+import ch.javasoft.util.ints.IntList;
+import at.acib.filter_thread.PartitionedPostFilter;
+import at.acib.filter_thread.RemovedModesCounter;
+
+////////////////////////////////////////////////////////////////////////////////
+// checks the compiled rules against the interpreting reference
+// implementation for all possible bit patterns of a small network
+////////////////////////////////////////////////////////////////////////////////
+public class GeneticRuleTest extends TestCase
+{
+   // J3 and J4 cover the samples of README_GENERULE, J1 and J2 are reversible
+   static final String RULES[] = new String[] {
+      "# sample rules",
+      "J3 = (!0J1)",
+      "J4 = (!((!0J2) | 1J5))",
+      "J6 = (fJ1 & 1J5)",
+      "J5 = ((fJ3 | 0J4) & (!1J6))",
+      "J1 = (fJ2 | fJ2)"
+   };
+
+   // rules qualifying for application during the iterations
+   static final String ITERATION_RULES[] = new String[] {
+      "J3 = (!fJ5)",
+      "J6 = ((!fJ1) | (!fJ4))"
+   };
+
+   // J1 can not carry flux, as it would force J3 to be 0 and 1
+   static final String REDUCTION_RULES[] = new String[] {
+      "J3 = (!1J1)",
+      "J3 = (1J1 & 1J1)",
+      "J5 = (!fJ4)"
+   };
+
+   static
+   {
+      Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, "MostZerosOrFewestNegPos", CompressionMethod.NONE, false, Arithmetic.double_);
+   }
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the sample of the "geometry of the flux cone" paper, see
+   // ch.javasoft.metabolic.parse.SmallTest.testGeneratingSample()
+   ////////////////////////////////////////////////////////////////////////////
+   static NetworkEfmModel createModel()
+   {
+      double[][] values = new double[][] {
+         { 1, -1,  1,  0,  0,  0},	//A
+         { 0,  1,  0,  1,  0, -1},	//B
+         { 0,  0, -1, -1,  1,  0}	//C
+      };
+      boolean[] reversible = new boolean[] {
+         true, true, false, false, false, false
+      };
+      String[] metaNames = new String[] {"A", "B", "C"};
+      String[] reacNames = new String[] {"J1", "J2", "J3", "J4", "J5", "J6"};
+      MetabolicNetwork net = new DefaultMetabolicNetwork(metaNames, reacNames, values, reversible);
+      Config config = Config.getConfig();
+      return( new CanonicalEfmModelFactory().createEfmModel(config.getArithmetic().getColumnHome(), config, net) );
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   static File writeRuleFile(String rules[]) throws IOException
+   {
+      File file = File.createTempFile("generule", ".txt");
+      file.deleteOnExit();
+      PrintWriter pw = new PrintWriter(new FileWriter(file));
+      for( int i = 0; i < rules.length; i++ )
+      {
+         pw.println(rules[i]);
+      }
+      pw.close();
+      return(file);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // one column for every possible zero/non-zero pattern
+   ////////////////////////////////////////////////////////////////////////////
+   static Column[] createAllColumns(int booleanSize)
+   {
+      Column cols[] = new Column[1 << booleanSize];
+      for( int pattern = 0; pattern < cols.length; pattern++ )
+      {
+         DoubleColumn col = new DoubleColumn(booleanSize);
+         for( int bit = 0; bit < booleanSize; bit++ )
+         {
+            if( (pattern & (1 << bit)) != 0 )
+            {
+               col.bitValues().set(bit);
+            }
+         }
+         cols[pattern] = col;
+      }
+      return(cols);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public void testCompiledEqualsInterpreted() throws IOException
+   {
+      NetworkEfmModel model = createModel();
+      GeneticRuleSet ruleSet = new GeneticRuleSet(writeRuleFile(RULES).getAbsolutePath(), model, Config.getConfig());
+      assertEquals(RULES.length - 1, ruleSet.getNumberOfRules());
+
+      Column cols[] = createAllColumns(model.getReactionSorting().length);
+      GeneticRuleEvaluator evaluator = ruleSet.createEvaluator();
+      int violated = 0;
+      for( int i = 0; i < cols.length; i++ )
+      {
+         int expected = ruleSet.doesEFMObeyRulesInterpreted(cols[i]);
+         assertEquals("column " + cols[i], expected, evaluator.doesEFMObeyRules(cols[i]));
+         assertEquals("column " + cols[i], expected, ruleSet.doesEFMObeyRules(cols[i]));
+         if( expected != -1 )
+         {
+            violated++;
+         }
+      }
+      assertTrue(violated > 0);
+      assertTrue(violated < cols.length);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   ////////////////////////////////////////////////////////////////////////////
+   public void testBlockEqualsCompiled() throws IOException
+   {
+      NetworkEfmModel model = createModel();
+      GeneticRuleSet ruleSet = new GeneticRuleSet(writeRuleFile(RULES).getAbsolutePath(), model, Config.getConfig());
+
+      Column cols[] = createAllColumns(model.getReactionSorting().length);
+      GeneticRuleEvaluator evaluator = ruleSet.createEvaluator();
+      GeneticRuleBlockEvaluator blockEvaluator = ruleSet.createBlockEvaluator();
+      int hitRule[] = new int[GeneticRuleBlockEvaluator.BLOCK_SIZE];
+
+      // use an odd block size to also cover partial blocks
+      int blockSize = GeneticRuleBlockEvaluator.BLOCK_SIZE - 3;
+      for( int offset = 0; offset < cols.length; offset += blockSize )
+      {
+         int count = Math.min(blockSize, cols.length - offset);
+         blockEvaluator.load(cols, offset, count);
+         long violated = blockEvaluator.evaluate(hitRule);
+         assertEquals(0L, violated & ~((1L << count) - 1));
+         for( int j = 0; j < count; j++ )
+         {
+            int expected = evaluator.doesEFMObeyRules(cols[offset + j]);
+            assertEquals("column " + cols[offset + j], expected, hitRule[j]);
+            assertEquals("column " + cols[offset + j], expected != -1, (violated & (1L << j)) != 0);
+         }
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // compares the adjacency filter with the bit set check formerly applied
+   // to the adjacent pairs after the pattern tree traversal
+   ////////////////////////////////////////////////////////////////////////////
+   public void testAdjacencyFilterEqualsBitSetCheck() throws IOException
+   {
+      NetworkEfmModel model = createModel();
+      GeneticRuleSet ruleSet = new GeneticRuleSet(writeRuleFile(ITERATION_RULES).getAbsolutePath(), model, Config.getConfig());
+      GeneRuleAdjacencyFilter filter = ruleSet.getAdjacencyFilter();
+      assertNotNull(filter);
+
+      GeneBitSet bitSets[] = ruleSet.getAllBitSets();
+      Column cols[] = createAllColumns(model.getReactionSorting().length);
+      int rejected = 0;
+      for( int booleanSize = 1; booleanSize <= model.getReactionSorting().length; booleanSize++ )
+      {
+         for( int a = 0; a < cols.length; a++ )
+         {
+            for( int b = 0; b < cols.length; b++ )
+            {
+               boolean expected = true;
+               for( int r = 0; r < bitSets.length; r++ )
+               {
+                  int maxReacIdx = bitSets[r].getMaxReacIdx();
+                  BitSet myBitSet = cols[a].bitValues().getAnd(cols[b].bitValues()).toBitSet();
+                  myBitSet.flip(0, maxReacIdx + 1);
+                  myBitSet.and(bitSets[r]);
+                  if( booleanSize - 1 >= maxReacIdx && myBitSet.equals(bitSets[r]) )
+                  {
+                     expected = false;
+                  }
+               }
+               assertEquals(expected, filter.keepPair(cols[a].bitValues(), cols[b].bitValues(), booleanSize));
+               assertEquals(expected, filter.mightKeepAny(cols[a].bitValues(), cols[b].bitValues(), booleanSize));
+               if( !expected )
+               {
+                  rejected++;
+               }
+            }
+         }
+      }
+      assertTrue(rejected > 0);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the partitioned post filter must remove the same modes and count the
+   // same rule hits with one and with several threads
+   ////////////////////////////////////////////////////////////////////////////
+   public void testPartitionedPostFilter() throws IOException
+   {
+      NetworkEfmModel model = createModel();
+      GeneticRuleSet ruleSet = new GeneticRuleSet(writeRuleFile(RULES).getAbsolutePath(), model, Config.getConfig());
+      GeneticRuleEvaluator evaluator = ruleSet.createEvaluator();
+
+      // enough modes to split into several ranges
+      Column cols[] = createAllColumns(model.getReactionSorting().length);
+      InCoreMemory<Column> memory = new InCoreMemory<Column>();
+      for( int i = 0; i < 4 * PartitionedPostFilter.MIN_RANGE_SIZE; i++ )
+      {
+         memory.appendColumn(cols[i % cols.length]);
+      }
+
+      long expectedHits[] = null;
+      for( int numThreads = 1; numThreads <= 4; numThreads += 3 )
+      {
+         InCoreMemory<Column> filtered = new InCoreMemory<Column>();
+         RemovedModesCounter remModesCnt = new RemovedModesCounter(ruleSet.getNumberOfRules());
+         long removed = PartitionedPostFilter.filter(ruleSet, memory, filtered, numThreads, remModesCnt);
+
+         assertTrue(removed > 0);
+         assertEquals(memory.getColumnCount() - removed, filtered.getColumnCount());
+         for( int i = 0; i < filtered.getColumnCount(); i++ )
+         {
+            assertEquals(-1, evaluator.doesEFMObeyRules(filtered.getColumn(i)));
+         }
+
+         long hits[] = remModesCnt.getRuleHitStatistics();
+         if( expectedHits == null )
+         {
+            expectedHits = hits;
+         }
+         assertTrue(Arrays.equals(expectedHits, hits));
+
+         // a second call counts its own removed modes only
+         InCoreMemory<Column> refiltered = new InCoreMemory<Column>();
+         assertEquals(removed, PartitionedPostFilter.filter(ruleSet, memory, refiltered, numThreads, remModesCnt));
+         assertEquals(2 * removed, remModesCnt.getNumRemovedModes());
+      }
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // computations of the same model with different configs must not share
+   // their rule sets
+   ////////////////////////////////////////////////////////////////////////////
+   public void testRuleSetPerConfig()
+   {
+      NetworkEfmModel model = createModel();
+      Config unregulated = Config.getConfig();
+      Config regulated = unregulated.withGeneRules(GeneRules.fromLines(RULES));
+      Config iterationRegulated = unregulated.withGeneRules(GeneRules.fromLines(ITERATION_RULES));
+
+      assertNull(GeneticRuleSetRegistry.getRuleSet(model, unregulated));
+
+      GeneticRuleSet ruleSet = GeneticRuleSetRegistry.getRuleSet(model, regulated);
+      GeneticRuleSet iterationRuleSet = GeneticRuleSetRegistry.getRuleSet(model, iterationRegulated);
+      assertEquals(RULES.length - 1, ruleSet.getNumberOfRules());
+      assertEquals(ITERATION_RULES.length, iterationRuleSet.getNumberOfRules());
+      assertSame(ruleSet, GeneticRuleSetRegistry.getRuleSet(model, regulated));
+      assertNull(ruleSet.getAdjacencyFilter());
+      assertNotNull(iterationRuleSet.getAdjacencyFilter());
+
+      GeneticRuleSetRegistry.release(model, regulated);
+      GeneticRuleSetRegistry.release(model, iterationRegulated);
+      assertNotSame(ruleSet, GeneticRuleSetRegistry.getRuleSet(model, regulated));
+      GeneticRuleSetRegistry.release(model, regulated);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // gene rules and cache size must survive writing and reading the config,
+   // as done for recovery and for distributed workers
+   ////////////////////////////////////////////////////////////////////////////
+   public void testConfigWriteRead() throws IOException
+   {
+      Config config = Config.getConfig().withGeneRules(GeneRules.fromLines(RULES)).withCacheSize(3L << 20);
+      File file = File.createTempFile("config", ".xml");
+      file.deleteOnExit();
+      config.writeTo(file);
+
+      Config read = Config.readFrom(file);
+      assertEquals(3L << 20, read.getCacheSize());
+      assertNotNull(read.getGeneRules());
+      assertEquals(config.getGeneRules().getSource(), read.getGeneRules().getSource());
+      assertEquals(config.getGeneRules().getLines(), read.getGeneRules().getLines());
+      assertEquals(config.getAdjMethod(), read.getAdjMethod());
+
+      Config.getConfig().writeTo(file);
+      assertNull(Config.readFrom(file).getGeneRules());
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // invalid rules must be reported to the caller, empty lines are ignored
+   ////////////////////////////////////////////////////////////////////////////
+   public void testInvalidRules()
+   {
+      NetworkEfmModel model = createModel();
+      String invalid[][] = new String[][] {
+         {"J3 = (!0J1"},
+         {"J3 = (!0J7)"},
+         {"J7 = (!0J1)"},
+         {"J3 = (!xJ1)"},
+         {"J3 (!0J1)"}
+      };
+      for( int i = 0; i < invalid.length; i++ )
+      {
+         try
+         {
+            new GeneticRuleSet(GeneRules.fromLines(invalid[i]), model, Config.getConfig());
+            fail("invalid rule accepted: " + invalid[i][0]);
+         }
+         catch(IllegalArgumentException e)
+         {
+            // expected
+         }
+      }
+      GeneticRuleSet ruleSet = new GeneticRuleSet(GeneRules.fromLines("", "# comment", "J3 = (!0J1)", "  "), model, Config.getConfig());
+      assertEquals(1, ruleSet.getNumberOfRules());
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // the reactions found by the static reduction must be zero in every mode
+   // obeying the rules
+   ////////////////////////////////////////////////////////////////////////////
+   public void testReductionZeroReactions()
+   {
+      NetworkEfmModel model = createModel();
+      MetabolicNetwork net = model.getMetabolicNetwork();
+      GeneRules rules = GeneRules.fromLines(REDUCTION_RULES);
+      GeneRuleReduction reduction = new GeneRuleReduction(rules, net);
+      assertTrue(reduction.isConsistent());
+      assertEquals(Collections.singleton("J1"), reduction.getZeroReactions());
+      assertTrue(reduction.getActiveReactions().isEmpty());
+
+      GeneticRuleSet ruleSet = new GeneticRuleSet(rules, model, Config.getConfig());
+      ReactionMapping rmap = new ReactionMapping(Config.getConfig(), net, model.getReactionSorting());
+      IntList sortedJ1 = rmap.get(Layer.Original, net.getReactionIndex("J1"), Layer.Sorted);
+      Column cols[] = createAllColumns(model.getReactionSorting().length);
+      int obeying = 0;
+      for( int i = 0; i < cols.length; i++ )
+      {
+         if( ruleSet.doesEFMObeyRules(cols[i]) == -1 )
+         {
+            obeying++;
+            for( int j = 0; j < sortedJ1.size(); j++ )
+            {
+               assertTrue("column " + cols[i], cols[i].get(sortedJ1.get(j)));
+            }
+         }
+      }
+      assertTrue(obeying > 0);
+   }
+   ////////////////////////////////////////////////////////////////////////////
+
+
+   ////////////////////////////////////////////////////////////////////////////
+   // rows are weighted by the number of rules referencing the reaction
+   ////////////////////////////////////////////////////////////////////////////
+   public void testGeneRuleReactionsFirstSorter()
+   {
+      NetworkEfmModel model = createModel();
+      MetabolicNetwork net = model.getMetabolicNetwork();
+      Config config = Config.getConfig().withGeneRules(GeneRules.fromLines(RULES));
+      int rowMapping[] = model.getReactionSorting().clone();
+      ReactionMapping rmap = new ReactionMapping(config, net, rowMapping);
+      GeneRuleReactionsFirstSorter sorter = new GeneRuleReactionsFirstSorter(net, config, rowMapping, 0, rowMapping.length);
+
+      // J1 .. J6, see RULES
+      int expected[] = new int[] {3, 2, 2, 2, 3, 2};
+      for( int origIdx = 0; origIdx < expected.length; origIdx++ )
+      {
+         IntList rows = rmap.get(Layer.Original, origIdx, Layer.Sorted);
+         for( int j = 0; j < rows.size(); j++ )
+         {
+            assertEquals(net.getReactions().get(origIdx).getName(), expected[origIdx], sorter.getRuleCount(rows.get(j)));
+         }
+      }
+
+      int rowJ1 = rmap.getFirst(Layer.Original, net.getReactionIndex("J1"), Layer.Sorted);
+      int rowJ3 = rmap.getFirst(Layer.Original, net.getReactionIndex("J3"), Layer.Sorted);
+      assertTrue(sorter.compare(null, rowJ1, rowJ3) < 0);
+      assertTrue(sorter.compare(null, rowJ3, rowJ1) > 0);
+
+      sorter = new GeneRuleReactionsFirstSorter(net, Config.getConfig(), rowMapping, 0, rowMapping.length);
+      assertEquals(0, sorter.compare(null, rowJ1, rowJ3));
+   }
+   ////////////////////////////////////////////////////////////////////////////
+}
@@ -129,9 +129,7 @@ public class RevPolishNotation
              }
              else
              {
-                System.out.println("DEBUG: ReversePolishNotation.execute(): invalid operand in NOT operation: " + tmpInt1);
-                System.out.println("       execution aborted.");
-                System.exit(-1);
+                throw new IllegalStateException("invalid operand in NOT operation: " + tmpInt1);
              }
           }
           else if( ti == AND )
@@ -153,11 +151,7 @@ public class RevPolishNotation
              }
              else
              {
-                System.out.println("DEBUG: ReversePolishNotation.execute(): invalid operand in AND operation: ");
-                System.out.println("       tmpInt1: " + tmpInt1);
-                System.out.println("       tmpInt2: " + tmpInt2);
-                System.out.println("       execution aborted.");
-                System.exit(-1);
+                throw new IllegalStateException("invalid operands in AND operation: " + tmpInt1 + ", " + tmpInt2);
              }
           }
           else if( ti == OR )
@@ -179,11 +173,7 @@ public class RevPolishNotation
              }
              else
              {
-                System.out.println("DEBUG: ReversePolishNotation.execute(): invalid operand in OR operation: ");
-                System.out.println("       tmpInt1: " + tmpInt1);
-                System.out.println("       tmpInt2: " + tmpInt2);
-                System.out.println("       execution aborted.");
-                System.exit(-1);
+                throw new IllegalStateException("invalid operands in OR operation: " + tmpInt1 + ", " + tmpInt2);
              }
           }
           else
@@ -202,9 +192,7 @@ public class RevPolishNotation
              }
              else
              {
-                System.out.println("DEBUG: ReversePolishNotation.execute(): invalid input: " + ti);
-                System.out.println("       execution aborted.");
-                System.exit(-1);
+                throw new IllegalStateException("invalid input: " + ti);
              }
           }
        }
@@ -0,0 +1,282 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.bitset;
+
+import java.util.BitSet;
+
+/**
+ * A <code>Bits128</code> stores up to 128 bits in 2 long fields. Operations
+ * with other <code>Bits128</code> instances are straight-line code without 
+ * loops and branches.
+ * 
+ * @see FixedWidthBitSet
+ */
+public class Bits128 extends FixedWidthBitSet {
+
+	/**
+	 * Default static factory for {@link Bits128} instances.
+	 */
+    public static final Bits128Factory FACTORY = new Bits128Factory();
+    
+    /**
+     * <code>Bits128Factory</code> is the {@link BitSetFactory} for 
+     * {@code Bits128} instances.
+     */
+    public static final class Bits128Factory implements BitSetFactory {
+        public Bits128 create() {
+            return new Bits128();
+        }
+        /**
+         * Creates an empty bit set, the capacity must not exceed 128 bits 
+         */
+        public Bits128 create(int capacity) {
+        	if (capacity > CAPACITY) {
+        		throw new IllegalArgumentException("capacity exceeds " + CAPACITY + ": " + capacity);
+        	}
+        	return new Bits128();
+        }
+        public Bits128 create(IBitSet bits) {
+            return new Bits128(bits);
+        }
+        public Bits128 convert(IBitSet bitSet) {
+        	return bitSet instanceof Bits128 ? (Bits128)bitSet : new Bits128(bitSet);
+        }
+        public Bits128 create(BitSet bits) {
+            return new Bits128(bits);
+        }
+        public Class<Bits128> getBitSetClass() {
+        	return Bits128.class;
+        }
+    };
+    
+	/**
+	 * The number of bits a <code>Bits128</code> can store
+	 */
+	public static final int CAPACITY = 128;
+
+	private long u0, u1;
+	
+    /**
+     * Creates an empty bit set. All bits are initially false.
+     */
+	public Bits128() {
+		super();
+	}
+	/**
+	 * Constructor using the given units, the lowest bit is bit 0 of u0
+	 */
+	public Bits128(long u0, long u1) {
+		this.u0 = u0;
+		this.u1 = u1;
+	}
+    /**
+     * Constructor using the specified bits to initialize this bit set. The bits
+     * are copied, changes to the given bit set are <b>not</b> reflected in 
+     * {@code this} bit set.
+     * 
+     * @throws IndexOutOfBoundsException if a bit beyond the capacity is set
+     */
+	public Bits128(IBitSet bitSet) {
+		final long[] units = unitsOf(bitSet);
+		checkCapacity(units);
+		u0 = unitOf(units, 0);
+		u1 = unitOf(units, 1);
+	}
+    /**
+     * Constructor using the specified bits to initialize this bit set.
+     * 
+     * @throws IndexOutOfBoundsException if a bit beyond the capacity is set
+     */
+	public Bits128(BitSet bitSet) {
+        for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
+            set(bit);
+        }
+	}
+	
+	@Override
+	public int unitCount() {
+		return 2;
+	}
+	@Override
+	public long unit(int index) {
+		switch (index) {
+			case 0: return u0;
+			case 1: return u1;
+			default: return 0L;
+		}
+	}
+	@Override
+	protected void setUnit(int index, long value) {
+		switch (index) {
+			case 0: u0 = value; break;
+			case 1: u1 = value; break;
+			default: throw new IndexOutOfBoundsException("unit " + index + " exceeds unit count 2");
+		}
+	}
+	
+	@Override
+	public void clear() {
+		u0 = u1 = 0L;
+	}
+	@Override
+	public boolean isSubSetOf(IBitSet of) {
+		if (of instanceof Bits128) {
+			final Bits128 o = (Bits128)of;
+			return 0L == ((u0 & ~o.u0) | (u1 & ~o.u1));
+		}
+		return super.isSubSetOf(of);
+	}
+	@Override
+	public boolean isSuperSetOfIntersection(IBitSet interA, IBitSet interB) {
+		if (interA instanceof Bits128 && interB instanceof Bits128) {
+			final Bits128 a = (Bits128)interA;
+			final Bits128 b = (Bits128)interB;
+			return 0L == ((a.u0 & b.u0 & ~u0) | (a.u1 & b.u1 & ~u1));
+		}
+		return super.isSuperSetOfIntersection(interA, interB);
+	}
+	@Override
+	public void and(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			u0 &= o.u0;
+			u1 &= o.u1;
+		}
+		else {
+			super.and(with);
+		}
+	}
+	@Override
+	public IBitSet getAnd(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return new Bits128(u0 & o.u0, u1 & o.u1);
+		}
+		return super.getAnd(with);
+	}
+	@Override
+	public int getAndCardinality(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return Long.bitCount(u0 & o.u0) + Long.bitCount(u1 & o.u1);
+		}
+		return super.getAndCardinality(with);
+	}
+	@Override
+	public void andNot(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			u0 &= ~o.u0;
+			u1 &= ~o.u1;
+		}
+		else {
+			super.andNot(with);
+		}
+	}
+	@Override
+	public IBitSet getAndNot(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return new Bits128(u0 & ~o.u0, u1 & ~o.u1);
+		}
+		return super.getAndNot(with);
+	}
+	@Override
+	public void or(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			u0 |= o.u0;
+			u1 |= o.u1;
+		}
+		else {
+			super.or(with);
+		}
+	}
+	@Override
+	public IBitSet getOr(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return new Bits128(u0 | o.u0, u1 | o.u1);
+		}
+		return super.getOr(with);
+	}
+	@Override
+	public void xor(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			u0 ^= o.u0;
+			u1 ^= o.u1;
+		}
+		else {
+			super.xor(with);
+		}
+	}
+	@Override
+	public IBitSet getXor(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return new Bits128(u0 ^ o.u0, u1 ^ o.u1);
+		}
+		return super.getXor(with);
+	}
+	@Override
+	public int getXorCardinality(IBitSet with) {
+		if (with instanceof Bits128) {
+			final Bits128 o = (Bits128)with;
+			return Long.bitCount(u0 ^ o.u0) + Long.bitCount(u1 ^ o.u1);
+		}
+		return super.getXorCardinality(with);
+	}
+	@Override
+	public int cardinality() {
+		return Long.bitCount(u0) + Long.bitCount(u1);
+	}
+	
+	@Override
+	public Bits128 clone() {
+		return new Bits128(u0, u1);
+	}
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Bits128) {
+			final Bits128 o = (Bits128)obj;
+			return u0 == o.u0 && u1 == o.u1;
+		}
+		return super.equals(obj);
+	}
+	
+	public BitSetFactory factory() {
+		return FACTORY;
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.bitset;
+
+import java.util.BitSet;
+
+/**
+ * A <code>Bits256</code> stores up to 256 bits in 4 long fields. Operations
+ * with other <code>Bits256</code> instances are straight-line code without 
+ * loops and branches.
+ * 
+ * @see FixedWidthBitSet
+ */
+public class Bits256 extends FixedWidthBitSet {
+
+	/**
+	 * Default static factory for {@link Bits256} instances.
+	 */
+    public static final Bits256Factory FACTORY = new Bits256Factory();
+    
+    /**
+     * <code>Bits256Factory</code> is the {@link BitSetFactory} for 
+     * {@code Bits256} instances.
+     */
+    public static final class Bits256Factory implements BitSetFactory {
+        public Bits256 create() {
+            return new Bits256();
+        }
+        /**
+         * Creates an empty bit set, the capacity must not exceed 256 bits 
+         */
+        public Bits256 create(int capacity) {
+        	if (capacity > CAPACITY) {
+        		throw new IllegalArgumentException("capacity exceeds " + CAPACITY + ": " + capacity);
+        	}
+        	return new Bits256();
+        }
+        public Bits256 create(IBitSet bits) {
+            return new Bits256(bits);
+        }
+        public Bits256 convert(IBitSet bitSet) {
+        	return bitSet instanceof Bits256 ? (Bits256)bitSet : new Bits256(bitSet);
+        }
+        public Bits256 create(BitSet bits) {
+            return new Bits256(bits);
+        }
+        public Class<Bits256> getBitSetClass() {
+        	return Bits256.class;
+        }
+    };
+    
+	/**
+	 * The number of bits a <code>Bits256</code> can store
+	 */
+	public static final int CAPACITY = 256;
+
+	private long u0, u1, u2, u3;
+	
+    /**
+     * Creates an empty bit set. All bits are initially false.
+     */
+	public Bits256() {
+		super();
+	}
+	/**
+	 * Constructor using the given units, the lowest bit is bit 0 of u0
+	 */
+	public Bits256(long u0, long u1, long u2, long u3) {
+		this.u0 = u0;
+		this.u1 = u1;
+		this.u2 = u2;
+		this.u3 = u3;
+	}
+    /**
+     * Constructor using the specified bits to initialize this bit set. The bits
+     * are copied, changes to the given bit set are <b>not</b> reflected in 
+     * {@code this} bit set.
+     * 
+     * @throws IndexOutOfBoundsException if a bit beyond the capacity is set
+     */
+	public Bits256(IBitSet bitSet) {
+		final long[] units = unitsOf(bitSet);
+		checkCapacity(units);
+		u0 = unitOf(units, 0);
+		u1 = unitOf(units, 1);
+		u2 = unitOf(units, 2);
+		u3 = unitOf(units, 3);
+	}
+    /**
+     * Constructor using the specified bits to initialize this bit set.
+     * 
+     * @throws IndexOutOfBoundsException if a bit beyond the capacity is set
+     */
+	public Bits256(BitSet bitSet) {
+        for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
+            set(bit);
+        }
+	}
+	
+	@Override
+	public int unitCount() {
+		return 4;
+	}
+	@Override
+	public long unit(int index) {
+		switch (index) {
+			case 0: return u0;
+			case 1: return u1;
+			case 2: return u2;
+			case 3: return u3;
+			default: return 0L;
+		}
+	}
+	@Override
+	protected void setUnit(int index, long value) {
+		switch (index) {
+			case 0: u0 = value; break;
+			case 1: u1 = value; break;
+			case 2: u2 = value; break;
+			case 3: u3 = value; break;
+			default: throw new IndexOutOfBoundsException("unit " + index + " exceeds unit count 4");
+		}
+	}
+	
+	@Override
+	public void clear() {
+		u0 = u1 = u2 = u3 = 0L;
+	}
+	@Override
+	public boolean isSubSetOf(IBitSet of) {
+		if (of instanceof Bits256) {
+			final Bits256 o = (Bits256)of;
+			return 0L == ((u0 & ~o.u0) | (u1 & ~o.u1) | (u2 & ~o.u2) | (u3 & ~o.u3));
+		}
+		return super.isSubSetOf(of);
+	}
+	@Override
+	public boolean isSuperSetOfIntersection(IBitSet interA, IBitSet interB) {
+		if (interA instanceof Bits256 && interB instanceof Bits256) {
+			final Bits256 a = (Bits256)interA;
+			final Bits256 b = (Bits256)interB;
+			return 0L == ((a.u0 & b.u0 & ~u0) | (a.u1 & b.u1 & ~u1) | (a.u2 & b.u2 & ~u2) | (a.u3 & b.u3 & ~u3));
+		}
+		return super.isSuperSetOfIntersection(interA, interB);
+	}
+	@Override
+	public void and(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			u0 &= o.u0;
+			u1 &= o.u1;
+			u2 &= o.u2;
+			u3 &= o.u3;
+		}
+		else {
+			super.and(with);
+		}
+	}
+	@Override
+	public IBitSet getAnd(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return new Bits256(u0 & o.u0, u1 & o.u1, u2 & o.u2, u3 & o.u3);
+		}
+		return super.getAnd(with);
+	}
+	@Override
+	public int getAndCardinality(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return Long.bitCount(u0 & o.u0) + Long.bitCount(u1 & o.u1) + Long.bitCount(u2 & o.u2) + Long.bitCount(u3 & o.u3);
+		}
+		return super.getAndCardinality(with);
+	}
+	@Override
+	public void andNot(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			u0 &= ~o.u0;
+			u1 &= ~o.u1;
+			u2 &= ~o.u2;
+			u3 &= ~o.u3;
+		}
+		else {
+			super.andNot(with);
+		}
+	}
+	@Override
+	public IBitSet getAndNot(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return new Bits256(u0 & ~o.u0, u1 & ~o.u1, u2 & ~o.u2, u3 & ~o.u3);
+		}
+		return super.getAndNot(with);
+	}
+	@Override
+	public void or(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			u0 |= o.u0;
+			u1 |= o.u1;
+			u2 |= o.u2;
+			u3 |= o.u3;
+		}
+		else {
+			super.or(with);
+		}
+	}
+	@Override
+	public IBitSet getOr(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return new Bits256(u0 | o.u0, u1 | o.u1, u2 | o.u2, u3 | o.u3);
+		}
+		return super.getOr(with);
+	}
+	@Override
+	public void xor(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			u0 ^= o.u0;
+			u1 ^= o.u1;
+			u2 ^= o.u2;
+			u3 ^= o.u3;
+		}
+		else {
+			super.xor(with);
+		}
+	}
+	@Override
+	public IBitSet getXor(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return new Bits256(u0 ^ o.u0, u1 ^ o.u1, u2 ^ o.u2, u3 ^ o.u3);
+		}
+		return super.getXor(with);
+	}
+	@Override
+	public int getXorCardinality(IBitSet with) {
+		if (with instanceof Bits256) {
+			final Bits256 o = (Bits256)with;
+			return Long.bitCount(u0 ^ o.u0) + Long.bitCount(u1 ^ o.u1) + Long.bitCount(u2 ^ o.u2) + Long.bitCount(u3 ^ o.u3);
+		}
+		return super.getXorCardinality(with);
+	}
+	@Override
+	public int cardinality() {
+		return Long.bitCount(u0) + Long.bitCount(u1) + Long.bitCount(u2) + Long.bitCount(u3);
+	}
+	
+	@Override
+	public Bits256 clone() {
+		return new Bits256(u0, u1, u2, u3);
+	}
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Bits256) {
+			final Bits256 o = (Bits256)obj;
+			return u0 == o.u0 && u1 == o.u1 && u2 == o.u2 && u3 == o.u3;
+		}
+		return super.equals(obj);
+	}
+	
+	public BitSetFactory factory() {
+		return FACTORY;
+	}
+}
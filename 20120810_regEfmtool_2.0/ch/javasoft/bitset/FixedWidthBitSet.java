@@ -0,0 +1,385 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.bitset;
+
+import java.util.BitSet;
+
+/**
+ * A <code>FixedWidthBitSet</code> stores a fixed number of 64 bit units in 
+ * fields instead of an array, see {@link Bits64}, {@link Bits128}, 
+ * {@link Bits192} and {@link Bits256}. This saves the array object and its 
+ * bounds checks; subclasses implement operations with a bit set of the same
+ * class as straight-line code without branches.
+ * <p>
+ * Operations with bit sets of other classes are supported by the generic 
+ * implementations of this class, which are considerably slower. Unlike other
+ * bit sets, fixed width bit sets cannot grow: setting a bit beyond the 
+ * {@link #capacity() capacity} causes an {@link IndexOutOfBoundsException}.
+ */
+abstract public class FixedWidthBitSet implements IBitSet {
+	
+	protected static final int BITS_PER_UNIT = Long.SIZE;
+	
+	/**
+	 * Returns the number of 64 bit units of this bit set
+	 */
+	abstract public int unitCount();
+	/**
+	 * Returns the unit with the given index, or zero if the index is not 
+	 * smaller than the {@link #unitCount() unit count}
+	 */
+	abstract public long unit(int index);
+	/**
+	 * Sets the unit with the given index, which must be smaller than the 
+	 * {@link #unitCount() unit count}
+	 */
+	abstract protected void setUnit(int index, long value);
+	
+	/**
+	 * Returns the maximum number of bits this bit set can store
+	 */
+	public int capacity() {
+		return unitCount() * BITS_PER_UNIT;
+	}
+	
+	/**
+	 * Returns the units of the given bit set, as stored in a {@link LongBitSet}
+	 */
+	protected static long[] unitsOf(IBitSet bitSet) {
+		if (bitSet instanceof FixedWidthBitSet) {
+			return ((FixedWidthBitSet)bitSet).toLongArray();
+		}
+		if (bitSet instanceof LongBitSet) {
+			return ((LongBitSet)bitSet).toLongArray();
+		}
+		final long[] units = new long[1 + bitSet.length() / BITS_PER_UNIT];
+		for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
+			units[bit / BITS_PER_UNIT] |= (1L << bit);
+		}
+		return units;
+	}
+	/**
+	 * Returns the given unit, or zero if the index is out of range
+	 */
+	protected static long unitOf(long[] units, int index) {
+		return index < units.length ? units[index] : 0L;
+	}
+	/**
+	 * Returns true if the given units contain a bit which does not fit into 
+	 * this bit set
+	 */
+	protected boolean exceedsCapacity(long[] units) {
+		for (int i = unitCount(); i < units.length; i++) {
+			if (units[i] != 0L) return true;
+		}
+		return false;
+	}
+	/**
+	 * Throws an exception if the given units contain a bit which does not fit
+	 * into this bit set
+	 */
+	protected void checkCapacity(long[] units) {
+		for (int i = unitCount(); i < units.length; i++) {
+			if (units[i] != 0L) {
+				throw new IndexOutOfBoundsException(
+					"bit " + (i * BITS_PER_UNIT + Long.numberOfTrailingZeros(units[i])) + 
+					" exceeds capacity " + capacity()
+				);
+			}
+		}
+	}
+	private void checkCapacity(int bit) {
+		if (bit < 0 || bit >= capacity()) {
+			throw new IndexOutOfBoundsException("bit " + bit + " exceeds capacity " + capacity());
+		}
+	}
+
+	public void set(int bit, boolean value) {
+		if (value) set(bit); 
+		else clear(bit);
+	}
+	public void set(int bit) {
+		checkCapacity(bit);
+		final int unit = bit / BITS_PER_UNIT;
+		setUnit(unit, unit(unit) | (1L << bit));
+	}
+	public void clear(int bit) {
+		final int unit = bit / BITS_PER_UNIT;
+		if (unit < unitCount()) {
+			setUnit(unit, unit(unit) & ~(1L << bit));
+		}
+	}
+    public void clear() {
+    	for (int i = 0; i < unitCount(); i++) {
+    		setUnit(i, 0L);
+    	}
+    }
+	public void flip(int bit) {
+		checkCapacity(bit);
+		final int unit = bit / BITS_PER_UNIT;
+		setUnit(unit, unit(unit) ^ (1L << bit));
+	}
+	public boolean get(int bit) {
+		return 0L != (unit(bit / BITS_PER_UNIT) & (1L << bit));
+	}
+	
+	public boolean isSubSetOf(IBitSet of) {
+		final long[] ofUnits = unitsOf(of);
+		for (int i = 0; i < unitCount(); i++) {
+			if (0L != (unit(i) & ~unitOf(ofUnits, i))) return false;
+		}
+		return true;
+	}
+	public boolean isSuperSetOfIntersection(IBitSet interA, IBitSet interB) {
+		final long[] unitsA = unitsOf(interA);
+		final long[] unitsB = unitsOf(interB);
+		final int len = Math.min(unitsA.length, unitsB.length);
+		for (int i = 0; i < len; i++) {
+			if (0L != (unitsA[i] & unitsB[i] & ~unit(i))) return false;
+		}
+		return true;
+	}
+	
+	public void and(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		for (int i = 0; i < unitCount(); i++) {
+			setUnit(i, unit(i) & unitOf(withUnits, i));
+		}
+	}
+	public IBitSet getAnd(IBitSet with) {
+		final FixedWidthBitSet res = clone();
+		res.and(with);
+		return res;
+	}
+	public int getAndCardinality(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		int card = 0;
+		for (int i = 0; i < unitCount(); i++) {
+			card += Long.bitCount(unit(i) & unitOf(withUnits, i));
+		}
+		return card;
+	}
+	public void andNot(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		for (int i = 0; i < unitCount(); i++) {
+			setUnit(i, unit(i) & ~unitOf(withUnits, i));
+		}
+	}
+	public IBitSet getAndNot(IBitSet with) {
+		final FixedWidthBitSet res = clone();
+		res.andNot(with);
+		return res;
+	}
+	public void or(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		checkCapacity(withUnits);
+		for (int i = 0; i < unitCount(); i++) {
+			setUnit(i, unit(i) | unitOf(withUnits, i));
+		}
+	}
+	/**
+	 * Returns a new bit set with the union of both sets, a {@link LongBitSet} if
+	 * the union does not fit into this bit set
+	 */
+	public IBitSet getOr(IBitSet with) {
+		if (exceedsCapacity(unitsOf(with))) {
+			final LongBitSet res = new LongBitSet(this);
+			res.or(with);
+			return res;
+		}
+		final FixedWidthBitSet res = clone();
+		res.or(with);
+		return res;
+	}
+	public void xor(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		checkCapacity(withUnits);
+		for (int i = 0; i < unitCount(); i++) {
+			setUnit(i, unit(i) ^ unitOf(withUnits, i));
+		}
+	}
+	/**
+	 * Returns a new bit set with the symmetric difference of both sets, a 
+	 * {@link LongBitSet} if the result does not fit into this bit set
+	 */
+	public IBitSet getXor(IBitSet with) {
+		if (exceedsCapacity(unitsOf(with))) {
+			final LongBitSet res = new LongBitSet(this);
+			res.xor(with);
+			return res;
+		}
+		final FixedWidthBitSet res = clone();
+		res.xor(with);
+		return res;
+	}
+	public int getXorCardinality(IBitSet with) {
+		final long[] withUnits = unitsOf(with);
+		final int len = Math.max(unitCount(), withUnits.length);
+		int card = 0;
+		for (int i = 0; i < len; i++) {
+			card += Long.bitCount(unit(i) ^ unitOf(withUnits, i));
+		}
+		return card;
+	}
+	
+	public int length() {
+		int index = unitCount();
+		do index--;
+		while (index >= 0 && unit(index) == 0L);
+		return index < 0 ? 0 : index * BITS_PER_UNIT + BITS_PER_UNIT - Long.numberOfLeadingZeros(unit(index));
+	}
+	public int cardinality() {
+		int card = 0;
+		for (int i = 0; i < unitCount(); i++) {
+			card += Long.bitCount(unit(i));
+		}
+		return card;
+	}
+	public int cardinality(int fromBit, int toBit) {
+		int card = 0;
+		for (int bit = nextSetBit(fromBit); bit >= 0 && bit < toBit; bit = nextSetBit(bit + 1)) {
+			card++;
+		}
+		return card;
+	}
+	public int nextSetBit(int from) {
+		int index = Math.max(0, from) / BITS_PER_UNIT;
+		if (index >= unitCount()) return -1;
+		long unit = unit(index) & (-1L << from);
+		while (unit == 0L) {
+			if (++index >= unitCount()) return -1;
+			unit = unit(index);
+		}
+		return index * BITS_PER_UNIT + Long.numberOfTrailingZeros(unit);
+	}
+	public int nextClearBit(int from) {
+		int index = from / BITS_PER_UNIT;
+		if (index >= unitCount()) return from;
+		long unit = ~unit(index) & (-1L << from);
+		while (unit == 0L) {
+			if (++index >= unitCount()) return index * BITS_PER_UNIT;
+			unit = ~unit(index);
+		}
+		return index * BITS_PER_UNIT + Long.numberOfTrailingZeros(unit);
+	}
+	
+	/**
+	 * Returns the units of this bit set in a new array of length
+	 * {@link #unitCount()}
+	 */
+	public long[] toLongArray() {
+		final long[] units = new long[unitCount()];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = unit(i);
+		}
+		return units;
+	}
+	public BitSet toBitSet() {
+		final BitSet bitSet = new BitSet(length());
+		for (int bit = nextSetBit(0); bit >= 0; bit = nextSetBit(bit + 1)) {
+			bitSet.set(bit);
+		}
+		return bitSet;
+	}
+	
+	@Override
+	abstract public FixedWidthBitSet clone();
+
+	/**
+	 * Compares the bits in the same order as {@link LongBitSet#compareTo(IBitSet)}
+	 */
+	public int compareTo(IBitSet o) {
+		final long[] oUnits = unitsOf(o);
+		final int len = Math.max(unitCount(), oUnits.length);
+		for (int i = 0; i < len; i++) {
+			final int cmp = compareUnits(unit(i), unitOf(oUnits, i));
+			if (cmp != 0) return cmp;
+		}
+		return 0;
+	}
+	/**
+	 * Compares two units with the lowest bit being the most significant one
+	 */
+	protected static int compareUnits(long unitA, long unitB) {
+		if (unitA == unitB) return 0;
+		final long revA = Long.reverse(unitA);
+		final long revB = Long.reverse(unitB);
+		//unsigned comparison
+		return (revA ^ Long.MIN_VALUE) < (revB ^ Long.MIN_VALUE) ? -1 : 1;
+	}
+	
+	/**
+	 * Returns the same hash code as a {@link LongBitSet} with the same bits
+	 */
+	@Override
+	public int hashCode() {
+		int code = 0;
+		for (int i = 0; i < unitCount(); i++) {
+			final long unit = unit(i);
+			code ^= (int)unit;
+			code ^= (int)(unit >>> 32);
+		}
+		return code;
+	}
+	/**
+	 * Returns true if the given object is a fixed width or {@link LongBitSet}
+	 * with the same bits
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof FixedWidthBitSet || obj instanceof LongBitSet) {
+			final long[] oUnits = unitsOf((IBitSet)obj);
+			final int len = Math.max(unitCount(), oUnits.length);
+			for (int i = 0; i < len; i++) {
+				if (unit(i) != unitOf(oUnits, i)) return false;
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public String toString() {
+		final int len = length();
+		final StringBuilder sb = new StringBuilder(len + 2);
+		sb.append('{');
+		for (int i = 0; i < len; i++) {
+			sb.append(get(i) ? '1' : '0');
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,209 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.bitset;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.BigIntegerColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+import ch.javasoft.metabolic.efm.model.nullspace.NullspaceEfmModelFactory;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+
+/**
+ * <tt>FixedWidthBitSetTest</tt> compares the subset and superset-of-
+ * intersection tests of the {@link FixedWidthBitSet fixed width bit sets} 
+ * with {@link LongBitSet}, both for operands of the same class (inline 
+ * implementation) and of mixed classes (generic fallback). It also checks 
+ * the factory selection by capacity and by efm model configuration.
+ */
+public class FixedWidthBitSetTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.bigint);
+	}
+	
+	private static final int ROUNDS = 2000;
+	
+	public void testBits64() {
+		doSameClass(Bits64.FACTORY, Bits64.CAPACITY);
+	}
+	public void testBits128() {
+		doSameClass(Bits128.FACTORY, Bits128.CAPACITY);
+	}
+	public void testBits192() {
+		doSameClass(Bits192.FACTORY, Bits192.CAPACITY);
+	}
+	public void testBits256() {
+		doSameClass(Bits256.FACTORY, Bits256.CAPACITY);
+	}
+	
+	public void testMixedFixedWidth() {
+		final Random rnd = new Random(64);
+		for (int i = 0; i < ROUNDS; i++) {
+			final long[] a = randomUnits(rnd, 64);
+			final long[] b = randomUnits(rnd, 128);
+			final long[] c = randomUnits(rnd, 192);
+			doCompare(
+				Bits64.FACTORY.convert(longs(a)), Bits128.FACTORY.convert(longs(b)), Bits256.FACTORY.convert(longs(c)), 
+				longs(a), longs(b), longs(c)
+			);
+			doCompare(
+				Bits192.FACTORY.convert(longs(c)), Bits64.FACTORY.convert(longs(a)), Bits128.FACTORY.convert(longs(b)), 
+				longs(c), longs(a), longs(b)
+			);
+		}
+	}
+	public void testMixedLongBitSet() {
+		final Random rnd = new Random(128);
+		for (int i = 0; i < ROUNDS; i++) {
+			final long[] a = randomUnits(rnd, 128);
+			final long[] b = randomUnits(rnd, 128);
+			final long[] c = randomUnits(rnd, 128);
+			//fixed width with long bit set operands
+			doCompare(
+				Bits128.FACTORY.convert(longs(a)), longs(b), Bits128.FACTORY.convert(longs(c)), 
+				longs(a), longs(b), longs(c)
+			);
+			//long bit set with fixed width operands
+			doCompare(
+				longs(a), Bits128.FACTORY.convert(longs(b)), Bits128.FACTORY.convert(longs(c)), 
+				longs(a), longs(b), longs(c)
+			);
+		}
+	}
+	
+	public void testFactoryByCapacity() {
+		assertSame(Bits64.FACTORY, BitSetUtil.factory(1));
+		assertSame(Bits64.FACTORY, BitSetUtil.factory(64));
+		assertSame(Bits128.FACTORY, BitSetUtil.factory(65));
+		assertSame(Bits128.FACTORY, BitSetUtil.factory(128));
+		assertSame(Bits192.FACTORY, BitSetUtil.factory(129));
+		assertSame(Bits192.FACTORY, BitSetUtil.factory(192));
+		assertSame(Bits256.FACTORY, BitSetUtil.factory(193));
+		assertSame(Bits256.FACTORY, BitSetUtil.factory(256));
+		assertSame(BitSetUtil.factory(), BitSetUtil.factory(257));
+		try {
+			Bits64.FACTORY.create(65);
+			fail("capacity 65 exceeds Bits64");
+		}
+		catch (IllegalArgumentException ex) {
+			//expected
+		}
+	}
+	
+	public void testFactoryByModel() throws Exception {
+		final MetabolicNetwork net = createNetwork();
+		final NetworkEfmModel fixed = new NullspaceEfmModelFactory().createEfmModel(BigIntegerColumn.HOME, Config.getConfig(), net);
+		assertSame(BitSetUtil.factory(fixed.getFinalBooleanSize()), fixed.getBitSetFactory());
+		assertSame(fixed.getBitSetFactory(), fixed.getTableConfig().getBitSetFactory());
+		final NetworkEfmModel growable = new NullspaceEfmModelFactory().createEfmModel(BigIntegerColumn.HOME, Config.getConfig().withFixedWidthBitSets(false), net);
+		assertSame(BitSetUtil.factory(), growable.getBitSetFactory());
+		assertSame(BitSetUtil.factory(), growable.getTableConfig().getBitSetFactory());
+	}
+	
+	private static void doSameClass(BitSetFactory factory, int capacity) {
+		final Random rnd = new Random(capacity);
+		for (int i = 0; i < ROUNDS; i++) {
+			final long[] a = randomUnits(rnd, capacity);
+			final long[] b = randomUnits(rnd, capacity);
+			final long[] c = randomUnits(rnd, capacity);
+			final IBitSet fa = factory.convert(longs(a));
+			final IBitSet fb = factory.convert(longs(b));
+			final IBitSet fc = factory.convert(longs(c));
+			assertSame(factory.getBitSetClass(), fa.getClass());
+			doCompare(fa, fb, fc, longs(a), longs(b), longs(c));
+			//subset and superset of intersection by construction
+			assertTrue(fa.getAnd(fb).isSubSetOf(fa));
+			assertTrue(fa.getOr(fb).isSubSetOf(fa.getOr(fb).getOr(fc)));
+			assertTrue(fa.getOr(fb).isSuperSetOfIntersection(fa, fc));
+			assertTrue(fa.getAnd(fb).isSuperSetOfIntersection(fa, fb));
+		}
+	}
+	
+	private static void doCompare(IBitSet a, IBitSet b, IBitSet c, LongBitSet la, LongBitSet lb, LongBitSet lc) {
+		assertEquals(la.isSubSetOf(lb), a.isSubSetOf(b));
+		assertEquals(lb.isSubSetOf(la), b.isSubSetOf(a));
+		assertEquals(la.isSubSetOf(la.getOr(lb)), a.isSubSetOf(a.getOr(b)));
+		assertEquals(la.isSuperSetOfIntersection(lb, lc), a.isSuperSetOfIntersection(b, c));
+		assertEquals(lc.isSuperSetOfIntersection(la, lb), c.isSuperSetOfIntersection(a, b));
+		//union and difference, possibly of mixed classes
+		assertEqualBits(la.getOr(lb), a.getOr(b));
+		assertEqualBits(la.getAndNot(lb), a.getAndNot(b));
+		assertEqualBits(lb.getAndNot(la), b.getAndNot(a));
+	}
+	
+	private static void assertEqualBits(LongBitSet expected, IBitSet actual) {
+		final LongBitSet longActual = new LongBitSet(actual);
+		assertTrue(expected.isSubSetOf(longActual));
+		assertTrue(longActual.isSubSetOf(expected));
+	}
+	
+	/**
+	 * Random units with bits up to {@code capacity - 1}. Sparse and dense 
+	 * patterns alternate, and the word boundary bits are set often, such that 
+	 * the subset tests are true in a fair number of cases.
+	 */
+	private static long[] randomUnits(Random rnd, int capacity) {
+		final long[] units = new long[BitSetUtil.longSize(capacity)];
+		final boolean dense = rnd.nextBoolean();
+		for (int i = 0; i < units.length; i++) {
+			long unit = dense ? rnd.nextLong() | rnd.nextLong() : rnd.nextLong() & rnd.nextLong() & rnd.nextLong();
+			if (rnd.nextBoolean()) unit |= 1L;
+			if (rnd.nextBoolean()) unit |= Long.MIN_VALUE;
+			if (rnd.nextInt(4) == 0) unit = 0L;
+			units[i] = unit;
+		}
+		return units;
+	}
+	private static LongBitSet longs(long[] units) {
+		return new LongBitSet(units, true /*cloneArray*/);
+	}
+	
+	private static MetabolicNetwork createNetwork() {
+		final double[][] values = new double[][] {
+			{ 1.0, -1.0,  0.0, -1.0,  0.0 },
+			{ 0.0,  1.0, -1.0,  0.0,  0.0 },
+			{ 0.0,  0.0,  1.0,  1.0, -1.0 }
+		};
+		final boolean[] reversible = new boolean[] {false, false, false, false, false};
+		return new DefaultMetabolicNetwork(new String[] {"A", "B", "C"}, new String[] {"R1", "R2", "R3", "R4", "R5"}, values, reversible);
+	}
+}
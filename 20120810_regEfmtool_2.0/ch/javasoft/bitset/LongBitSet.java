@@ -116,8 +116,16 @@ public class LongBitSet implements IBitSet {
      */
 	public LongBitSet(IBitSet bitSet) {
 		this(bitSet.length());
-		for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
-			set(bit);
+		if (bitSet instanceof FixedWidthBitSet) {
+			final FixedWidthBitSet fixed = (FixedWidthBitSet)bitSet;
+			for (int i = 0; i < mUnits.length; i++) {
+				mUnits[i] = fixed.unit(i);
+			}
+		}
+		else {
+			for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
+				set(bit);
+			}
 		}
 	}
     /**
@@ -202,20 +210,23 @@ public class LongBitSet implements IBitSet {
 	public boolean isSubSetOf(LongBitSet of) {
     	if (this == of) return true;
 
-    	int min = Math.min(mUnits.length, of.mUnits.length);
-		for (int ii = 0; ii < min; ii++) {
-			//classical
-			long and = mUnits[ii] & of.mUnits[ii];
-			if (and != mUnits[ii]) return false;
-			
-			//this -> of == not this OR of
-//			if (-1L != (~mUnits[ii] | of.mUnits[ii])) return false;
-			
-			//not (this -> of) == this AND not of
-//			if (0L != (mUnits[ii] & ~of.mUnits[ii])) return false;
+    	final long[] units = mUnits;
+    	final long[] ofUnits = of.mUnits;
+    	final int min = Math.min(units.length, ofUnits.length);
+    	//not (this -> of) == this AND not of, 4 units per branch
+    	int ii = 0;
+		for (final int min4 = min & ~3; ii < min4; ii += 4) {
+			if (0L != (
+				(units[ii    ] & ~ofUnits[ii    ]) | 
+				(units[ii + 1] & ~ofUnits[ii + 1]) |
+				(units[ii + 2] & ~ofUnits[ii + 2]) | 
+				(units[ii + 3] & ~ofUnits[ii + 3]))) return false;
+		}
+		for (; ii < min; ii++) {
+			if (0L != (units[ii] & ~ofUnits[ii])) return false;
 		}		
-		for (int i = min; i < mUnits.length; i++) {
-			if (mUnits[i] != 0L) return false;
+		for (int i = min; i < units.length; i++) {
+			if (units[i] != 0L) return false;
 		}
 		return true;
 	}
@@ -228,14 +239,25 @@ public class LongBitSet implements IBitSet {
 	public boolean isSuperSetOfIntersection(LongBitSet interA, LongBitSet interB) {
 		if (this == interA || this == interB) return true;
 
-		int minInter = Math.min(interA.mUnits.length, interB.mUnits.length);
-		int minAll = Math.min(mUnits.length, minInter);
-		for (int ii = 0; ii < minAll; ii++) {
-			long inter = interA.mUnits[ii] & interB.mUnits[ii];
-			if (inter != (inter & mUnits[ii])) return false;
+		final long[] units = mUnits;
+		final long[] unitsA = interA.mUnits;
+		final long[] unitsB = interB.mUnits;
+		final int minInter = Math.min(unitsA.length, unitsB.length);
+		final int minAll = Math.min(units.length, minInter);
+		//inter AND not this, 4 units per branch
+		int ii = 0;
+		for (final int minAll4 = minAll & ~3; ii < minAll4; ii += 4) {
+			if (0L != (
+				(unitsA[ii    ] & unitsB[ii    ] & ~units[ii    ]) |
+				(unitsA[ii + 1] & unitsB[ii + 1] & ~units[ii + 1]) |
+				(unitsA[ii + 2] & unitsB[ii + 2] & ~units[ii + 2]) |
+				(unitsA[ii + 3] & unitsB[ii + 3] & ~units[ii + 3]))) return false;
+		}
+		for (; ii < minAll; ii++) {
+			if (0L != (unitsA[ii] & unitsB[ii] & ~units[ii])) return false;
 		}		
 		for (int i = minAll; i < minInter; i++) {
-			if (0L != (interA.mUnits[i] & interB.mUnits[i])) return false;
+			if (0L != (unitsA[i] & unitsB[i])) return false;
 		}
 		return true;
 	}
@@ -396,6 +418,9 @@ public class LongBitSet implements IBitSet {
     	for (int i = 0; i < smaller.mUnits.length; i++) {
 			units[i] = smaller.mUnits[i] | larger.mUnits[i];
 		}
+    	for (int i = smaller.mUnits.length; i < larger.mUnits.length; i++) {
+			units[i] = larger.mUnits[i];
+		}
     	return new LongBitSet(units, false);
     }
 
@@ -420,24 +445,65 @@ public class LongBitSet implements IBitSet {
      * number of bits which are common in the two sets
      */
     public static int getAndCardinality(LongBitSet setA, LongBitSet setB) {
-    	int card = 0;
-    	final int minLen = Math.min(setA.mUnits.length, setB.mUnits.length);
-    	for (int i = 0; i < minLen; i++) {
-			card += Long.bitCount(setA.mUnits[i] & setB.mUnits[i]);
+    	final long[] unitsA = setA.mUnits;
+    	final long[] unitsB = setB.mUnits;
+    	final int minLen = Math.min(unitsA.length, unitsB.length);
+    	//4 independent counters, the bit counts do not depend on each other
+    	int card0 = 0, card1 = 0, card2 = 0, card3 = 0;
+    	int i = 0;
+    	for (final int minLen4 = minLen & ~3; i < minLen4; i += 4) {
+			card0 += Long.bitCount(unitsA[i    ] & unitsB[i    ]);
+			card1 += Long.bitCount(unitsA[i + 1] & unitsB[i + 1]);
+			card2 += Long.bitCount(unitsA[i + 2] & unitsB[i + 2]);
+			card3 += Long.bitCount(unitsA[i + 3] & unitsB[i + 3]);
     	}
-    	return card;
+    	for (; i < minLen; i++) {
+			card0 += Long.bitCount(unitsA[i] & unitsB[i]);
+    	}
+    	return card0 + card1 + card2 + card3;
+    }
+    /**
+     * Stores the intersection of setA and setB in the given target set and 
+     * returns the target. The units of the target set are only reallocated if 
+     * they are too short to hold the intersection, thus, repeatedly 
+     * intersecting into the same target does usually not allocate any memory. 
+     * The target may be one of the two operands.
+     */
+    public static LongBitSet getAnd(LongBitSet setA, LongBitSet setB, LongBitSet target) {
+    	final long[] unitsA = setA.mUnits;
+    	final long[] unitsB = setB.mUnits;
+    	final int minLen = Math.min(unitsA.length, unitsB.length);
+    	if (target.mUnits.length < minLen) {
+    		target.mUnits = new long[minLen];
+    	}
+    	final long[] units = target.mUnits;
+    	int i = 0;
+    	for (final int minLen4 = minLen & ~3; i < minLen4; i += 4) {
+    		units[i    ] = unitsA[i    ] & unitsB[i    ];
+    		units[i + 1] = unitsA[i + 1] & unitsB[i + 1];
+    		units[i + 2] = unitsA[i + 2] & unitsB[i + 2];
+    		units[i + 3] = unitsA[i + 3] & unitsB[i + 3];
+    	}
+    	for (; i < minLen; i++) {
+    		units[i] = unitsA[i] & unitsB[i];
+    	}
+    	for (i = minLen; i < units.length; i++) {
+    		units[i] = 0L;
+    	}
+    	return target;
     }
     /**
      * Returns setA and not setB
      */
     public static LongBitSet getAndNot(LongBitSet setA, LongBitSet setB) {
-    	//set b is always true in the large parts, and thus always larger
+    	//not b is always true in the large parts, and thus always larger
     	//thus, set a is always directing the new length
     	final long[] units = new long[setA.mUnits.length];
-    	for (int i = 0; i < setB.mUnits.length; i++) {
-			units[i] = setA.mUnits[i] & ~setA.mUnits[i];
+    	final int min = Math.min(setA.mUnits.length, setB.mUnits.length);
+    	for (int i = 0; i < min; i++) {
+			units[i] = setA.mUnits[i] & ~setB.mUnits[i];
 		}
-    	for (int i = setB.mUnits.length; i < setA.mUnits.length; i++) {
+    	for (int i = min; i < setA.mUnits.length; i++) {
 			units[i] = setA.mUnits[i];
 		}
     	return new LongBitSet(units, false);
@@ -575,6 +641,9 @@ public class LongBitSet implements IBitSet {
 			}
             return true;
         }
+        if (obj instanceof FixedWidthBitSet) {
+        	return obj.equals(this);
+        }
         return false;
     }
     
@@ -0,0 +1,698 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.jbase.concurrent.Stateful;
+import ch.javasoft.jbase.marshal.VarLengthEncoding;
+import ch.javasoft.jbase.util.UnsupportedOperationException;
+
+/**
+ * The <code>BlockCompressedTable</code> stores entities of variable size in
+ * blocks of a fixed number of entities. Other than the 
+ * {@link VariableWidthTable}, no space is reserved for an entity, each entity
+ * uses exactly the bytes written by the marshaller. Together with a compact
+ * marshaller, e.g. using {@link VarLengthEncoding}, this reduces the file size 
+ * considerably.
+ * <p>
+ * Added entities are collected in memory until a block is full, the block is
+ * then appended to the file. The file offsets of all blocks are kept in an
+ * index, thus, random access to an entity needs to read one block. The last 
+ * block read is cached.
+ * <p>
+ * Blocks are not modified once written. If an entity in a written block is
+ * {@link #set(int, Object) replaced}, the new entity is appended to the file 
+ * and the index is patched. The space of replaced entities and outdated 
+ * indices is reclaimed by compacting the table, that is, by rewriting all
+ * entities as new blocks. Compaction takes place if the garbage exceeds the
+ * live data, or if the patches outnumber half of the entities in blocks. 
+ * Hence, frequent modifications, such as sorting the table in place, are 
+ * possible but expensive. This table is best used for tables which are 
+ * written once and read many times.
+ * <p>
+ * The file starts with a header containing the block size and the position 
+ * of the index. The index, including the entities not yet written in a 
+ * block, is appended to the file when the table is {@link #flush() flushed},
+ * and the header is switched to the new index after the index has been 
+ * written. Data written after the flush is appended after the index. Thus,
+ * the file content referenced by the header is never overwritten, and the 
+ * file is consistent with the last flush if a crash occurs before the next
+ * flush completes.
+ * <p>
+ * Note that block compressed tables are not thread safe. However, a thread 
+ * safe table for concurrent use is possible by using this table together with
+ * {@link ConcurrentTable}.
+ */
+public class BlockCompressedTable<E> implements Table<E>, Stateful {
+	
+	/**
+	 * The default number of entities per block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+	
+	private static final int 	MAGIC		= 0x4a42436d;//JBCm
+	private static final long	HEADER_SIZE	= 16;//magic, block size, index position
+	private static final long	MIN_COMPACT_GARBAGE	= 1 << 20;
+	private static final int	COPY_BUFFER_SIZE	= 1 << 16;
+	
+	private final RandomAccessPersister		raPersister;
+	private final EntityMarshaller<E>		marshaller;
+	private final State						state;
+	private final boolean					readCopy;
+	
+	private final ByteArrayOutputStream		bytes		= new ByteArrayOutputStream();
+	private final DataOutputStream			bytesOut	= new DataOutputStream(bytes);
+	
+	//the last block read, entry i is at [offsets[i], offsets[i+1]) of data
+	private int			cachedBlock	= -1;
+	private int			cachedGeneration;
+	private byte[]		cachedData	= new byte[0];
+	private final int[] cachedOffsets;
+	
+	//the entity located by locate(int)
+	private byte[]		sliceData;
+	private int			sliceOff;
+	private int			sliceLen;
+	
+	/**
+	 * State shared by the table and its read copies
+	 */
+	private static final class State {
+		final int				blockSize;
+		final List<byte[]>		pending		= new ArrayList<byte[]>();
+		final Map<Integer, Long>	patches	= new HashMap<Integer, Long>();
+		long[]					blockOffsets = new long[16];
+		int						blockCount;
+		int						size;
+		long					dataEnd		= HEADER_SIZE;
+		long					indexPos;//index referenced by the header
+		long					indexEnd;
+		long					garbage;//bytes no longer referenced
+		int						generation;
+		boolean					needsFlush;
+		volatile boolean		closed;
+		State(int blockSize) {
+			this.blockSize = blockSize;
+		}
+		int sealedCount() {
+			return blockCount * blockSize;
+		}
+		long indexLength() {
+			return indexEnd - indexPos;
+		}
+		long liveBytes() {
+			return dataEnd - HEADER_SIZE - garbage - indexLength();
+		}
+	}
+	
+	/**
+	 * Constructor for internal use and subclasses only, called from
+	 * {@link #open(RandomAccessPersister, EntityMarshaller) open(..)} and
+	 * {@link #create(RandomAccessPersister, EntityMarshaller, int) create(..)} 
+	 * methods.
+	 */
+	private BlockCompressedTable(RandomAccessPersister raPersister, EntityMarshaller<E> marshaller, State state, boolean readCopy) {
+		this.raPersister	= raPersister;
+		this.marshaller		= marshaller;
+		this.state			= state;
+		this.readCopy		= readCopy;
+		this.cachedOffsets	= new int[state.blockSize + 1];
+	}
+	
+	/**
+	 * Creates the given table for read and write, using the specified page 
+	 * cache and the {@link #DEFAULT_BLOCK_SIZE default block size}
+	 * 
+	 * @param <En>			the entry type
+	 * @param file			the table file to create
+	 * @param marshaller	the marshaller
+	 * @param cache			the page cache to use, or null if no cache should
+	 * 						be used
+	 * @param pinned		true if the pages of the table should preferably be
+	 * 						kept in the cache, see {@link PageCache}
+	 * @return	the table
+	 * 
+	 * @throws IOException	if an i/o exception occurs
+	 */
+	public static <En> BlockCompressedTable<En> create(File file, EntityMarshaller<En> marshaller, PageCache cache, boolean pinned) throws IOException {
+		return create(createRandomAccessPersister(file, cache, pinned), marshaller, DEFAULT_BLOCK_SIZE);
+	}
+	/**
+	 * Opens the given table for read and write, using the specified page cache
+	 * 
+	 * @param <En>			the entry type
+	 * @param file			the table file to open
+	 * @param marshaller	the marshaller
+	 * @param cache			the page cache to use, or null if no cache should
+	 * 						be used
+	 * @param pinned		true if the pages of the table should preferably be
+	 * 						kept in the cache, see {@link PageCache}
+	 * @return	the table
+	 * 
+	 * @throws IOException	if an i/o exception occurs
+	 */
+	public static <En> BlockCompressedTable<En> open(File file, EntityMarshaller<En> marshaller, PageCache cache, boolean pinned) throws IOException {
+		return open(createRandomAccessPersister(file, cache, pinned), marshaller);
+	}
+	private static RandomAccessPersister createRandomAccessPersister(File file, PageCache cache, boolean pinned) throws IOException {
+		if (cache == null) {
+			return new RandomAccessFilePersistor(file);
+		}
+		return new PagedRandomAccessPersister(new RandomAccessFilePersistor(file), cache, file.getName(), pinned);
+	}
+	/**
+	 * Creates the given table for read and write using the specified 
+	 * persister. 
+	 * 
+	 * @param <En>			the entry type
+	 * @param raPersister	the persister for file access
+	 * @param marshaller	the marshaller
+	 * @param blockSize		the number of entities per block
+	 * @return	the table
+	 * 
+	 * @throws IOException	if an i/o exception occurs
+	 */
+	public static <En> BlockCompressedTable<En> create(RandomAccessPersister raPersister, EntityMarshaller<En> marshaller, int blockSize) throws IOException {
+		if (blockSize <= 0) throw new IllegalArgumentException("block size must be positive: " + blockSize);
+		final BlockCompressedTable<En> tbl = new BlockCompressedTable<En>(raPersister, marshaller, new State(blockSize), false);
+		raPersister.setLength(0L);
+		tbl.writeHeader(0L);
+		tbl.state.needsFlush = true;
+		return tbl;
+	}
+	/**
+	 * Opens the given table for read and write using the specified persister. 
+	 * 
+	 * @param <En>			the entry type
+	 * @param raPersister	the persister for file access
+	 * @param marshaller	the marshaller
+	 * @return	the table
+	 * 
+	 * @throws IOException	if an i/o exception occurs
+	 */
+	public static <En> BlockCompressedTable<En> open(RandomAccessPersister raPersister, EntityMarshaller<En> marshaller) throws IOException {
+		raPersister.setPosition(0L);
+		final DataInput in = raPersister.getInput();
+		final int magic = in.readInt();
+		if (magic != MAGIC) {
+			throw new IOException("not a block compressed table file, magic number is " + Integer.toHexString(magic));
+		}
+		final int blockSize		= in.readInt();
+		final long indexPos		= in.readLong();
+		final BlockCompressedTable<En> tbl = new BlockCompressedTable<En>(raPersister, marshaller, new State(blockSize), false);
+		if (indexPos > 0) {
+			tbl.readIndex(indexPos);
+		}
+		return tbl;
+	}
+	
+	private void writeHeader(long indexPos) throws IOException {
+		raPersister.setPosition(0L);
+		final DataOutput out = raPersister.getOutput();
+		out.writeInt(MAGIC);
+		out.writeInt(state.blockSize);
+		out.writeLong(indexPos);
+	}
+	private void writeIndex() throws IOException {
+		raPersister.setPosition(state.dataEnd);
+		final DataOutput out = raPersister.getOutput();
+		out.writeInt(state.size);
+		out.writeInt(state.blockCount);
+		out.writeLong(state.garbage);
+		for (int i = 0; i < state.blockCount; i++) {
+			out.writeLong(state.blockOffsets[i]);
+		}
+		out.writeInt(state.patches.size());
+		for (final Map.Entry<Integer, Long> patch : state.patches.entrySet()) {
+			out.writeInt(patch.getKey().intValue());
+			out.writeLong(patch.getValue().longValue());
+		}
+		out.writeInt(state.pending.size());
+		for (final byte[] entry : state.pending) {
+			out.writeInt(entry.length);
+			out.write(entry);
+		}
+	}
+	private void readIndex(long indexPos) throws IOException {
+		raPersister.setPosition(indexPos);
+		final DataInput in = raPersister.getInput();
+		state.size			= in.readInt();
+		state.blockCount	= in.readInt();
+		state.garbage		= in.readLong();
+		state.blockOffsets	= new long[Math.max(16, state.blockCount)];
+		for (int i = 0; i < state.blockCount; i++) {
+			state.blockOffsets[i] = in.readLong();
+		}
+		final int patchCount = in.readInt();
+		for (int i = 0; i < patchCount; i++) {
+			final int index = in.readInt();
+			state.patches.put(Integer.valueOf(index), Long.valueOf(in.readLong()));
+		}
+		final int pendingCount = in.readInt();
+		for (int i = 0; i < pendingCount; i++) {
+			final byte[] entry = new byte[in.readInt()];
+			in.readFully(entry);
+			state.pending.add(entry);
+		}
+		//new data is appended after the index, which stays valid until the
+		//next flush switches to a new index
+		state.indexPos	= indexPos;
+		state.indexEnd	= raPersister.getPosition();
+		state.dataEnd	= state.indexEnd;
+	}
+	/**
+	 * Appends the index after the data and switches the header to the new 
+	 * index. The previous index becomes garbage, unless it has been moved or
+	 * truncated by compaction. The file is truncated after the new index.
+	 */
+	private void commitIndex() throws IOException {
+		final long indexPos = state.dataEnd;
+		if (state.indexEnd > 0 && state.indexEnd <= indexPos) {
+			state.garbage += state.indexLength();
+		}
+		writeIndex();
+		final long indexEnd = raPersister.getPosition();
+		raPersister.flush();
+		writeHeader(indexPos);
+		raPersister.flush();
+		raPersister.setLength(indexEnd);
+		state.indexPos		= indexPos;
+		state.indexEnd		= indexEnd;
+		state.dataEnd		= indexEnd;
+		state.needsFlush	= false;
+	}
+	
+	public int size() throws IOException {
+		checkOpen();
+		return state.size;
+	}
+
+	public E get(int index) throws IOException {
+		locate(index);
+		return marshaller.readFrom(new DataInputStream(new ByteArrayInputStream(sliceData, sliceOff, sliceLen)));
+	}
+	
+	public int add(E entity) throws IOException {
+		checkWritable();
+		final int index = state.size;
+		addRaw(encode(entity));
+		return index;
+	}
+
+	public void set(int index, E entity) throws IOException {
+		checkWritable();
+		checkIndex(index);
+		setRaw(index, encode(entity));
+	}
+
+	public void swap(int indexA, int indexB) throws IOException {
+		checkWritable();
+		if (indexA == indexB) return;
+		final byte[] entityA = getRaw(indexA);
+		final byte[] entityB = getRaw(indexB);
+		setRaw(indexA, entityB);
+		setRaw(indexB, entityA);
+	}
+
+	public void remove(int index) throws IOException {
+		checkWritable();
+		checkIndex(index);
+		final int last = state.size - 1;
+		if (index != last) {
+			setRaw(index, getRaw(last));
+		}
+		if (last >= state.sealedCount()) {
+			state.pending.remove(last - state.sealedCount());
+		}
+		else {
+			final Long patch = state.patches.remove(Integer.valueOf(last));
+			if (patch != null) {
+				state.garbage += patchSize(patch.longValue());
+			}
+		}
+		state.size--;
+		state.needsFlush = true;
+	}
+
+	public void removeAll() throws IOException {
+		checkWritable();
+		//the data stays valid until the next flush, the current index becomes
+		//garbage when it is replaced
+		state.garbage		= state.dataEnd - HEADER_SIZE - state.indexLength();
+		state.pending.clear();
+		state.patches.clear();
+		state.blockCount	= 0;
+		state.size			= 0;
+		state.generation++;
+		state.needsFlush	= true;
+	}
+
+	/**
+	 * Writes the index and switches the header to it. The table is compacted
+	 * if the garbage exceeds the live data.
+	 */
+	public void flush() throws IOException {
+		checkWritable();
+		if (needsCompaction()) {
+			compact();
+		}
+		else if (state.needsFlush) {
+			commitIndex();
+		}
+	}
+
+	/**
+	 * Closes this table. If this is the original table, it is flushed unless
+	 * <code>erase</code> is true, and the file is closed. Read copies only
+	 * close their own persister.
+	 */
+	public void close(boolean erase) throws IOException {
+		if (readCopy) {
+			if (erase) {
+				throw new UnsupportedOperationException("unmodifyable read copy table");
+			}
+			raPersister.close(false);
+			return;
+		}
+		if (!state.closed) {
+			if (!erase) {
+				flush();
+			}
+			state.closed = true;
+			raPersister.close(erase);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private EntityMarshaller<E> createReadCopyMarshaller(ReadWriteLock lock) throws IOException {
+		return marshaller instanceof Stateful ?
+			(EntityMarshaller<E>)((Stateful)marshaller).createReadCopy(lock) : marshaller;
+	}
+	/**
+	 * Returns a copy of this table for read access. The read copy shares the 
+	 * index and the entities not yet written with this table, it has its own 
+	 * persister and block cache. Read access through read copies and write 
+	 * access to the original must be synchronized, e.g. by using a 
+	 * {@link ConcurrentTable}.
+	 */
+	public BlockCompressedTable<E> createReadCopy(ReadWriteLock lock) throws IOException {
+		checkOpen();
+		return new BlockCompressedTable<E>(raPersister.createReadCopy(lock), createReadCopyMarshaller(lock), state, true);
+	}
+	
+	private void checkOpen() throws IOException {
+		if (state.closed) throw new IOException("table already closed.");
+	}
+	private void checkWritable() throws IOException {
+		checkOpen();
+		if (readCopy) throw new UnsupportedOperationException("unmodifyable read copy table");
+	}
+	private void checkIndex(int index) {
+		if (index < 0 || index >= state.size) {
+			throw new IndexOutOfBoundsException("index " + index + " not in [0, " + state.size + ")");
+		}
+	}
+	
+	private byte[] encode(E entity) throws IOException {
+		bytes.reset();
+		marshaller.writeTo(entity, bytesOut);
+		bytesOut.flush();
+		return bytes.toByteArray();
+	}
+	
+	private byte[] getRaw(int index) throws IOException {
+		locate(index);
+		final byte[] raw = new byte[sliceLen];
+		System.arraycopy(sliceData, sliceOff, raw, 0, sliceLen);
+		return raw;
+	}
+	
+	private void addRaw(byte[] entity) throws IOException {
+		final int index = state.size;
+		if (index < state.sealedCount()) {
+			//entries have been removed from a written block, the size is 
+			//incremented first since a patch might trigger compaction
+			state.size++;
+			setRaw(index, entity);
+		}
+		else {
+			state.pending.add(entity);
+			state.size++;
+			if (state.pending.size() == state.blockSize) {
+				writeBlock();
+			}
+		}
+		state.needsFlush = true;
+	}
+	
+	private void setRaw(int index, byte[] entity) throws IOException {
+		final int sealed = state.sealedCount();
+		if (index >= sealed) {
+			state.pending.set(index - sealed, entity);
+		}
+		else {
+			//append a patch, the replaced entity becomes garbage
+			if (index < state.size) {
+				final Long patch = state.patches.get(Integer.valueOf(index));
+				if (patch == null) {
+					locate(index);
+					state.garbage += sliceLen;
+				}
+				else {
+					state.garbage += patchSize(patch.longValue());
+				}
+			}
+			final long pos = state.dataEnd;
+			raPersister.setPosition(pos);
+			final DataOutput out = raPersister.getOutput();
+			out.writeInt(entity.length);
+			out.write(entity);
+			state.dataEnd = raPersister.getPosition();
+			state.patches.put(Integer.valueOf(index), Long.valueOf(pos));
+			if (state.patches.size() > Math.max(state.blockSize, sealed / 2)) {
+				compact();
+				return;
+			}
+		}
+		state.needsFlush = true;
+	}
+	private long patchSize(long patchPos) throws IOException {
+		raPersister.setPosition(patchPos);
+		return 4 + raPersister.getInput().readInt();
+	}
+	
+	private boolean needsCompaction() {
+		return state.garbage > Math.max(MIN_COMPACT_GARBAGE, state.liveBytes());
+	}
+	/**
+	 * Rewrites all entities as new blocks after the current data and switches
+	 * the header to the new index, dropping all patches. If the new blocks 
+	 * and index fit in front of them, the blocks are then moved to the start
+	 * of the file, the header is switched again and the file is truncated. 
+	 * The data referenced by the header is never overwritten.
+	 */
+	private void compact() throws IOException {
+		final int blockSize		= state.blockSize;
+		final int blockCount	= state.size / blockSize;
+		final long[] offsets	= new long[Math.max(16, blockCount)];
+		final List<byte[]> block	= new ArrayList<byte[]>(blockSize);
+		final long start = state.dataEnd;
+		long pos = start;
+		for (int b = 0; b < blockCount; b++) {
+			block.clear();
+			for (int i = 0; i < blockSize; i++) {
+				block.add(getRaw(b * blockSize + i));
+			}
+			offsets[b] = pos;
+			pos = writeBlock(pos, block);
+		}
+		final List<byte[]> pending = new ArrayList<byte[]>(blockSize);
+		for (int i = blockCount * blockSize; i < state.size; i++) {
+			pending.add(getRaw(i));
+		}
+		state.pending.clear();
+		state.pending.addAll(pending);
+		state.patches.clear();
+		state.blockOffsets	= offsets;
+		state.blockCount	= blockCount;
+		state.dataEnd		= pos;
+		state.garbage		= start - HEADER_SIZE - state.indexLength();
+		state.generation++;
+		commitIndex();
+		
+		final long length	= pos - start;
+		final long delta	= start - HEADER_SIZE;
+		if (delta > 0 && HEADER_SIZE + length + state.indexLength() <= start) {
+			copy(start, HEADER_SIZE, length);
+			for (int b = 0; b < blockCount; b++) {
+				offsets[b] -= delta;
+			}
+			state.dataEnd	= HEADER_SIZE + length;
+			state.garbage	= 0;
+			state.generation++;
+			commitIndex();
+		}
+	}
+	private void copy(long from, long to, long length) throws IOException {
+		final byte[] buf = new byte[(int)Math.min(length, COPY_BUFFER_SIZE)];
+		long done = 0;
+		while (done < length) {
+			final int cnt = (int)Math.min(buf.length, length - done);
+			raPersister.setPosition(from + done);
+			raPersister.getInput().readFully(buf, 0, cnt);
+			raPersister.setPosition(to + done);
+			raPersister.getOutput().write(buf, 0, cnt);
+			done += cnt;
+		}
+	}
+	
+	/**
+	 * Appends the pending entities as a new block. The block consists of the
+	 * total byte length, the entity lengths as varints and the entity bytes.
+	 */
+	private void writeBlock() throws IOException {
+		final long pos = state.dataEnd;
+		state.dataEnd = writeBlock(pos, state.pending);
+		if (state.blockCount == state.blockOffsets.length) {
+			final long[] offsets = new long[2 * state.blockOffsets.length];
+			System.arraycopy(state.blockOffsets, 0, offsets, 0, state.blockCount);
+			state.blockOffsets = offsets;
+		}
+		state.blockOffsets[state.blockCount++] = pos;
+		state.pending.clear();
+	}
+	/**
+	 * Writes the given entities as a block at the given position and returns
+	 * the position after the block
+	 */
+	private long writeBlock(long pos, List<byte[]> entities) throws IOException {
+		bytes.reset();
+		for (final byte[] entity : entities) {
+			VarLengthEncoding.writeUnsignedInt(bytesOut, entity.length);
+		}
+		for (final byte[] entity : entities) {
+			bytesOut.write(entity);
+		}
+		bytesOut.flush();
+		final byte[] data = bytes.toByteArray();
+		raPersister.setPosition(pos);
+		final DataOutput out = raPersister.getOutput();
+		out.writeInt(data.length);
+		out.write(data);
+		return raPersister.getPosition();
+	}
+	
+	/**
+	 * Locates the bytes of the given entity, and sets the slice fields
+	 */
+	private void locate(int index) throws IOException {
+		checkOpen();
+		checkIndex(index);
+		if (!state.patches.isEmpty()) {
+			final Long patch = state.patches.get(Integer.valueOf(index));
+			if (patch != null) {
+				raPersister.setPosition(patch.longValue());
+				final DataInput in = raPersister.getInput();
+				sliceLen	= in.readInt();
+				sliceData	= new byte[sliceLen];
+				sliceOff	= 0;
+				in.readFully(sliceData);
+				return;
+			}
+		}
+		final int sealed = state.sealedCount();
+		if (index >= sealed) {
+			sliceData	= state.pending.get(index - sealed);
+			sliceOff	= 0;
+			sliceLen	= sliceData.length;
+			return;
+		}
+		final int block = index / state.blockSize;
+		if (block != cachedBlock || cachedGeneration != state.generation) {
+			readBlock(block);
+		}
+		final int inBlock = index - block * state.blockSize;
+		sliceData	= cachedData;
+		sliceOff	= cachedOffsets[inBlock];
+		sliceLen	= cachedOffsets[inBlock + 1] - sliceOff;
+	}
+	
+	private void readBlock(int block) throws IOException {
+		cachedBlock = -1;
+		raPersister.setPosition(state.blockOffsets[block]);
+		final DataInput in = raPersister.getInput();
+		final int len = in.readInt();
+		if (cachedData.length < len) {
+			cachedData = new byte[len];
+		}
+		in.readFully(cachedData, 0, len);
+		//decode the entity lengths
+		int pos = 0;
+		final int[] lengths = new int[state.blockSize];
+		for (int i = 0; i < lengths.length; i++) {
+			int value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = cachedData[pos++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			lengths[i] = value;
+		}
+		for (int i = 0; i < lengths.length; i++) {
+			cachedOffsets[i] = pos;
+			pos += lengths[i];
+		}
+		cachedOffsets[lengths.length] = pos;
+		cachedBlock 		= block;
+		cachedGeneration	= state.generation;
+	}
+	
+}
@@ -0,0 +1,204 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import ch.javasoft.jbase.marshal.UtfStringMarshaller;
+
+/**
+ * <tt>BlockCompressedTableTest</tt> checks that the data referenced by the
+ * file header is never overwritten, and that the file size is bounded if 
+ * entities are modified repeatedly.
+ */
+public class BlockCompressedTableTest extends TestCase {
+	
+	private static final int BLOCK_SIZE = 16;
+	private static final UtfStringMarshaller MARSHALLER = new UtfStringMarshaller();
+	
+	private File file;
+	
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("block-compressed", ".tbl");
+		file.deleteOnExit();
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	private static String entity(int index) {
+		final StringBuilder sb = new StringBuilder("entity-").append(index);
+		for (int i = 0; i < index % 7; i++) {
+			sb.append('-').append(i);
+		}
+		return sb.toString();
+	}
+	private BlockCompressedTable<String> create() throws IOException {
+		return BlockCompressedTable.create(new RandomAccessFilePersistor(file), MARSHALLER, BLOCK_SIZE);
+	}
+	private BlockCompressedTable<String> open() throws IOException {
+		return BlockCompressedTable.open(new RandomAccessFilePersistor(file), MARSHALLER);
+	}
+	private static void assertEntities(BlockCompressedTable<String> table, int count) throws IOException {
+		assertEquals(count, table.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(entity(i), table.get(i));
+		}
+	}
+	
+	public void testReopenAndAppend() throws IOException {
+		BlockCompressedTable<String> table = create();
+		for (int i = 0; i < 1000; i++) {
+			table.add(entity(i));
+		}
+		table.close(false);
+		
+		table = open();
+		assertEntities(table, 1000);
+		for (int i = 1000; i < 1500; i++) {
+			table.add(entity(i));
+		}
+		table.close(false);
+		
+		table = open();
+		assertEntities(table, 1500);
+		table.close(false);
+	}
+	
+	/**
+	 * Writes after a flush must not touch the data of the flushed state, such
+	 * that the file can be opened in the flushed state after a crash
+	 */
+	public void testFlushedStateSurvivesLaterWrites() throws IOException {
+		final BlockCompressedTable<String> table = create();
+		for (int i = 0; i < 1000; i++) {
+			table.add(entity(i));
+		}
+		table.flush();
+		for (int i = 1000; i < 1500; i++) {
+			table.add(entity(i));
+		}
+		for (int i = 0; i < 100; i++) {
+			table.set(i * 7, "modified");
+		}
+		table.swap(3, 997);
+		
+		//simulate a crash, the unflushed modifications are lost
+		final BlockCompressedTable<String> crashed = open();
+		assertEntities(crashed, 1000);
+		crashed.close(false);
+		table.close(true);
+	}
+	
+	public void testRemoveAllKeepsFlushedState() throws IOException {
+		final BlockCompressedTable<String> table = create();
+		for (int i = 0; i < 500; i++) {
+			table.add(entity(i));
+		}
+		table.flush();
+		table.removeAll();
+		table.add("new");
+		
+		final BlockCompressedTable<String> crashed = open();
+		assertEntities(crashed, 500);
+		crashed.close(false);
+		
+		table.close(false);
+		final BlockCompressedTable<String> reopened = open();
+		assertEquals(1, reopened.size());
+		assertEquals("new", reopened.get(0));
+		reopened.close(false);
+	}
+	
+	/**
+	 * Reversing the table in place repeatedly patches every entity, the 
+	 * garbage must be reclaimed by compaction
+	 */
+	public void testCompactionBoundsFileSize() throws IOException {
+		final int size = 1000;
+		final BlockCompressedTable<String> table = create();
+		for (int i = 0; i < size; i++) {
+			table.add(entity(i));
+		}
+		table.flush();
+		final long initialLength = file.length();
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < size / 2; i++) {
+				table.swap(i, size - 1 - i);
+			}
+			table.flush();
+			assertTrue("file length " + file.length() + " exceeds bound, initial length was " + initialLength, 
+				file.length() <= 4 * initialLength + (1 << 20));
+		}
+		assertEntities(table, size);
+		table.remove(10);
+		table.close(false);
+		
+		final BlockCompressedTable<String> reopened = open();
+		assertEquals(size - 1, reopened.size());
+		assertEquals(entity(size - 1), reopened.get(10));
+		assertEquals(entity(11), reopened.get(11));
+		reopened.close(false);
+	}
+	
+	/**
+	 * Compaction must move the blocks to the start of the file once the 
+	 * garbage exceeds the live data
+	 */
+	public void testCompactionShrinksFile() throws IOException {
+		final int size = 20000;
+		final BlockCompressedTable<String> table = create();
+		for (int i = 0; i < size; i++) {
+			table.add(entity(i));
+		}
+		table.flush();
+		final long initialLength = file.length();
+		for (int round = 0; round < 6; round++) {
+			for (int i = 0; i < size; i++) {
+				table.set(i, entity(i));
+			}
+			table.flush();
+		}
+		assertTrue("file length " + file.length() + " should not exceed " + 3 * initialLength, file.length() <= 3 * initialLength);
+		assertEntities(table, size);
+		table.close(false);
+		final BlockCompressedTable<String> reopened = open();
+		assertEntities(reopened, size);
+		reopened.close(false);
+	}
+}
@@ -80,7 +80,8 @@ public class FixedWidthTable<E> implements Table<E>, Stateful {
         this.marshaller    = marshaller;
         this.size          = size;
         
-        bufferingMarshaller = new FixedWidthMarshaller<E>() {
+        //mapped persisters are read directly, without copying the bytes first
+        bufferingMarshaller = raPersister instanceof MappedRandomAccessPersister ? marshaller : new FixedWidthMarshaller<E>() {
         	final int byteWidth = marshaller.getByteWidth();
             private final ByteArray buffer = new ByteArray();
         	public int getByteWidth() {
@@ -138,21 +139,20 @@ public class FixedWidthTable<E> implements Table<E>, Stateful {
      * @param <En>				the entry type
      * @param file				the table file to open
      * @param marshaller		the marshaller
-     * @param cacheTableSize	Table size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
-     * @param cacheEntrySize	Table entry size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
+     * @param cache				the page cache to use, or null if no cache 
+     * 							should be used
+     * @param pinned			true if the pages of the table should preferably 
+     * 							be kept in the cache, see {@link PageCache}
      * @return	the table for reading only
      * 
      * @throws IOException	if an i/o exception occurs
      */
-    public static <En> FixedWidthTable<En> open(File file, FixedWidthMarshaller<En> marshaller, int cacheTableSize, int cacheEntrySize) throws IOException {
-        return open(
-        	new RandomAccessFilePersistor(file, new RandomAccessFile(file, "r")),
-//        	new BufferedRandomAccessPersister(
-//        		new RandomAccessFilePersistor(file, new RandomAccessFile(file, "r")),
-//        		cacheTableSize, cacheEntrySize), 
-        	marshaller);
+    public static <En> FixedWidthTable<En> open(File file, FixedWidthMarshaller<En> marshaller, PageCache cache, boolean pinned) throws IOException {
+    	final RandomAccessPersister raPersister = new RandomAccessFilePersistor(file, new RandomAccessFile(file, "r"));
+    	if (cache == null) {
+    		return open(raPersister, marshaller);
+    	}
+        return open(new PagedRandomAccessPersister(raPersister, cache, file.getName(), pinned), marshaller);
     }
     /**
      * Open the given table for read and write, depending on the specified
@@ -171,6 +171,20 @@ public class FixedWidthTable<E> implements Table<E>, Stateful {
         tbl.needsFlush = false;
         return tbl;
     }
+    /**
+     * Open the given table for read-only access, using a 
+     * {@link MappedRandomAccessPersister memory mapped} file
+     * 
+     * @param <En>			the entry type
+     * @param file			the table file to open
+     * @param marshaller	the marshaller
+     * @return	the table for reading only
+     * 
+     * @throws IOException	if an i/o exception occurs
+     */
+    public static <En> FixedWidthTable<En> openMapped(File file, FixedWidthMarshaller<En> marshaller) throws IOException {
+        return open(new MappedRandomAccessPersister(file, true /*readOnly*/), marshaller);
+    }
     /**
      * Creates the given table for read and write, using no cache 
      * 
@@ -190,17 +204,34 @@ public class FixedWidthTable<E> implements Table<E>, Stateful {
      * @param <En>			the entry type
      * @param file			the table file to create
      * @param marshaller	the marshaller
-     * @param cacheTableSize	Table size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
-     * @param cacheEntrySize	Table entry size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
+     * @param cache			the page cache to use, or null if no cache should
+     * 						be used
+     * @param pinned		true if the pages of the table should preferably be
+     * 						kept in the cache, see {@link PageCache}
      * @return	the table
      * 
      * @throws IOException	if an i/o exception occurs
      */
-    public static <En> FixedWidthTable<En> create(File file, FixedWidthMarshaller<En> marshaller, int cacheTableSize, int cacheEntrySize) throws IOException {
-        return create(new RandomAccessFilePersistor(file), marshaller);
-//        return create(new BufferedRandomAccessPersister(file, cacheTableSize, cacheEntrySize), marshaller);
+    public static <En> FixedWidthTable<En> create(File file, FixedWidthMarshaller<En> marshaller, PageCache cache, boolean pinned) throws IOException {
+    	if (cache == null) {
+    		return create(new RandomAccessFilePersistor(file), marshaller);
+    	}
+        return create(new PagedRandomAccessPersister(new RandomAccessFilePersistor(file), cache, file.getName(), pinned), marshaller);
+    }
+    /**
+     * Creates the given table for read and write, using a 
+     * {@link MappedRandomAccessPersister memory mapped} file. Entities are 
+     * read and written directly from and to the mapped file segments.
+     * 
+     * @param <En>			the entry type
+     * @param file			the table file to create
+     * @param marshaller	the marshaller
+     * @return	the table
+     * 
+     * @throws IOException	if an i/o exception occurs
+     */
+    public static <En> FixedWidthTable<En> createMapped(File file, FixedWidthMarshaller<En> marshaller) throws IOException {
+        return create(new MappedRandomAccessPersister(file), marshaller);
     }
     /**
      * Creates the given table for read and write using the specified persister. 
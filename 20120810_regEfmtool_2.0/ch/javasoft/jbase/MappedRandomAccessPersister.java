@@ -0,0 +1,558 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.jbase.util.AbstractDataInput;
+import ch.javasoft.jbase.util.AbstractDataOutput;
+import ch.javasoft.jbase.util.UnsupportedOperationException;
+
+/**
+ * The <code>MappedRandomAccessPersister</code> implements 
+ * {@link RandomAccessPersister} using memory mapped files. The file is mapped
+ * in segments of fixed size, new segments are mapped as the file grows. Read
+ * and write operations access the mapped buffers directly, i.e. without a 
+ * system call per access and without intermediate buffers. The pages are 
+ * cached by the operating system, thus, the working set is served from the
+ * page cache if enough memory is available.
+ * <p>
+ * While a writable persister is open, the file length is a multiple of the 
+ * segment size. The logical length, that is, the length set by 
+ * {@link #setLength(long)} or extended by write operations, is restored when 
+ * the persister is closed. Until then, the logical length is recorded in a
+ * length file next to the file, see {@link #LENGTH_FILE_SUFFIX}. It is 
+ * written when the persister is opened and {@link #flush() flushed}, and 
+ * deleted when the persister is closed. If the process crashed, the file is
+ * truncated to the recorded length when it is opened again, thus, the zero
+ * padding up to the segment size is not taken as data.
+ * <p>
+ * Closing the persister unmaps the segments explicitly before the file is
+ * truncated or deleted, instead of leaving it to the garbage collector. 
+ * Subsequent accesses through read copies fail with an exception. If the 
+ * virtual machine does not support explicit unmapping, the segments are 
+ * released when the buffers are garbage collected.
+ * <p>
+ * Read copies share the mapped segments with the original persister, they 
+ * only have their own position. Read access through read copies and write
+ * access to the original must be synchronized, e.g. by using a 
+ * {@link ConcurrentTable}.
+ */
+public class MappedRandomAccessPersister implements RandomAccessPersister {
+
+	/**
+	 * The default segment size as power of 2, the default size is 64 MB
+	 */
+	public static final int DEFAULT_SEGMENT_SHIFT = 26;
+	/**
+	 * Suffix appended to the file name for the file recording the logical
+	 * length while a writable persister is open
+	 */
+	public static final String LENGTH_FILE_SUFFIX = ".length";
+	
+	private final Segments 	segments;
+	private final boolean	readCopy;
+	private final Input		input	= new Input();
+	private final Output	output	= new Output();
+	
+	private ByteBuffer[]	views	= new ByteBuffer[0];
+	private long			position;
+	private boolean			closed;
+	
+	/**
+	 * Opens the file for read and write access using the default segment size
+	 */
+	public MappedRandomAccessPersister(File file) throws IOException {
+		this(file, false /*readOnly*/, DEFAULT_SEGMENT_SHIFT);
+	}
+	/**
+	 * Opens the file for read or write access using the default segment size
+	 */
+	public MappedRandomAccessPersister(File file, boolean readOnly) throws IOException {
+		this(file, readOnly, DEFAULT_SEGMENT_SHIFT);
+	}
+	/**
+	 * Opens the file for read or write access. 
+	 * 
+	 * @param file			the file to map
+	 * @param readOnly		true to open the file for reading only
+	 * @param segmentShift	the segment size as power of 2, at most 30
+	 * @throws IOException	if an i/o exception occurs
+	 */
+	public MappedRandomAccessPersister(File file, boolean readOnly, int segmentShift) throws IOException {
+		this(new Segments(file, readOnly, segmentShift), false /*readCopy*/);
+	}
+	private MappedRandomAccessPersister(Segments segments, boolean readCopy) {
+		this.segments	= segments;
+		this.readCopy	= readCopy;
+	}
+	
+	public long getPosition() throws IOException {
+		checkOpen();
+		return position;
+	}
+	
+	public void setPosition(long bytePos) throws IOException {
+		checkOpen();
+		if (bytePos < 0) throw new IOException("negative position: " + bytePos);
+		position = bytePos;
+	}
+	
+	public void setLength(long byteLength) throws IOException {
+		checkWritable();
+		segments.ensureCapacity(byteLength);
+		segments.length = byteLength;
+	}
+	
+	public DataInput getInput() throws IOException {
+		checkOpen();
+		return input;
+	}
+	
+	public DataOutput getOutput() throws IOException {
+		checkWritable();
+		return output;
+	}
+	
+	public void flush() throws IOException {
+		checkWritable();
+		segments.force();
+	}
+	
+	/**
+	 * Closes this persistor. If this is the original persister, the file is 
+	 * truncated to the logical length and closed, or deleted if 
+	 * <code>erase</code> is true. The length file is deleted in both cases. Read copies only release their views on the
+	 * mapped segments.
+	 */
+	public void close(boolean erase) throws IOException {
+		if (closed) return;
+		closed	= true;
+		views	= null;
+		if (!readCopy) {
+			segments.close(erase);
+		}
+	}
+	
+	/**
+	 * Returns a copy of this persistor for read access. The new reader shares 
+	 * the mapped segments and the position is set to this persistor's 
+	 * position. The returned instance does not support write operations, thus, 
+	 * invoking {@link #getOutput()}, {@link #setLength(long)} or 
+	 * {@link #flush()} causes an {@link UnsupportedOperationException}.
+	 */
+	public MappedRandomAccessPersister createReadCopy(ReadWriteLock lock) throws IOException {
+		checkOpen();
+		final MappedRandomAccessPersister copy = new MappedRandomAccessPersister(segments, true /*readCopy*/);
+		copy.position = position;
+		return copy;
+	}
+	
+	private void checkOpen() throws IOException {
+		if (closed || segments.closed) throw new IOException("persister already closed");
+	}
+	private void checkWritable() throws IOException {
+		checkOpen();
+		if (readCopy) throw new UnsupportedOperationException("read only copy, write operations not supported");
+		if (segments.readOnly) throw new UnsupportedOperationException("file opened for reading only");
+	}
+	
+	/**
+	 * Returns the view of the segment containing the given byte position. The
+	 * views are duplicates of the mapped segments, such that the buffer 
+	 * position can be used without affecting other read copies.
+	 */
+	private ByteBuffer view(long bytePos) throws IOException {
+		if (segments.closed) {
+			//segments might be unmapped, accessing them would crash the vm
+			throw new IOException("persister already closed");
+		}
+		final int index = (int)(bytePos >>> segments.shift);
+		if (index >= views.length) {
+			checkOpen();
+			final MappedByteBuffer[] buffers = segments.buffers;
+			if (index >= buffers.length) {
+				throw new EOFException("position " + bytePos + " exceeds mapped size " + segments.capacity());
+			}
+			final ByteBuffer[] newViews = new ByteBuffer[buffers.length];
+			System.arraycopy(views, 0, newViews, 0, views.length);
+			for (int i = views.length; i < newViews.length; i++) {
+				newViews[i] = buffers[i].duplicate();
+			}
+			views = newViews;
+		}
+		return views[index];
+	}
+	private int offset(long bytePos) {
+		return (int)(bytePos & segments.mask);
+	}
+	/**
+	 * True if the given number of bytes at the current position are in the
+	 * same segment, i.e. if they can be accessed without crossing a segment
+	 * border
+	 */
+	private boolean isInSegment(int bytes) {
+		return offset(position) + bytes <= segments.mask + 1;
+	}
+
+	/**
+	 * Reads directly from the mapped segments
+	 */
+	private class Input extends AbstractDataInput {
+		@Override
+		protected int read() throws IOException {
+			final int value = peek();
+			if (value >= 0) position++;
+			return value;
+		}
+		@Override
+		protected int peek() throws IOException {
+			if (position >= segments.length) return -1;
+			return view(position).get(offset(position)) & 0xff;
+		}
+		@Override
+		protected int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			final long avail = segments.length - position;
+			if (avail <= 0) return -1;
+			final int cnt = (int)Math.min(len, avail);
+			int done = 0;
+			while (done < cnt) {
+				final ByteBuffer view = view(position);
+				final int offset = offset(position);
+				final int chunk = Math.min(cnt - done, view.capacity() - offset);
+				view.position(offset);
+				view.get(b, off + done, chunk);
+				done 		+= chunk;
+				position	+= chunk;
+			}
+			return cnt;
+		}
+		@Override
+		public int skipBytes(int n) throws IOException {
+			final int cnt = (int)Math.max(0, Math.min(n, segments.length - position));
+			position += cnt;
+			return cnt;
+		}
+		@Override
+		public int readInt() throws IOException {
+			if (!isInSegment(4) || position + 4 > segments.length) return super.readInt();
+			final int value = view(position).getInt(offset(position));
+			position += 4;
+			return value;
+		}
+		@Override
+		public long readLong() throws IOException {
+			if (!isInSegment(8) || position + 8 > segments.length) return super.readLong();
+			final long value = view(position).getLong(offset(position));
+			position += 8;
+			return value;
+		}
+	}
+	
+	/**
+	 * Writes directly to the mapped segments, mapping new segments if needed
+	 */
+	private class Output extends AbstractDataOutput {
+		private void ensure(int bytes) throws IOException {
+			segments.ensureCapacity(position + bytes);
+		}
+		private void advance(int bytes) {
+			position += bytes;
+			if (position > segments.length) {
+				segments.length = position;
+			}
+		}
+		public void write(int b) throws IOException {
+			ensure(1);
+			view(position).put(offset(position), (byte)b);
+			advance(1);
+		}
+		public void write(byte[] b, int off, int len) throws IOException {
+			ensure(len);
+			int done = 0;
+			while (done < len) {
+				final ByteBuffer view = view(position);
+				final int offset = offset(position);
+				final int chunk = Math.min(len - done, view.capacity() - offset);
+				view.position(offset);
+				view.put(b, off + done, chunk);
+				done += chunk;
+				advance(chunk);
+			}
+		}
+		@Override
+		public void writeInt(int v) throws IOException {
+			if (!isInSegment(4)) {
+				super.writeInt(v);
+				return;
+			}
+			ensure(4);
+			view(position).putInt(offset(position), v);
+			advance(4);
+		}
+		@Override
+		public void writeLong(long v) throws IOException {
+			if (!isInSegment(8)) {
+				super.writeLong(v);
+				return;
+			}
+			ensure(8);
+			view(position).putLong(offset(position), v);
+			advance(8);
+		}
+	}
+	
+	/**
+	 * The mapped segments of a file, shared by the original persister and its
+	 * read copies
+	 */
+	private static class Segments {
+		final File 				file;
+		final File 				lengthFile;
+		final RandomAccessFile 	raf;
+		final RandomAccessFile 	lengthRaf;
+		final FileChannel		channel;
+		final boolean			readOnly;
+		final int				shift;
+		final long				mask;
+		volatile MappedByteBuffer[]	buffers;
+		volatile long			length;
+		volatile boolean		closed;
+		
+		Segments(File file, boolean readOnly, int shift) throws IOException {
+			if (shift < 12 || shift > 30) {
+				throw new IllegalArgumentException("segment shift must be in [12, 30]: " + shift);
+			}
+			this.file		= file;
+			this.lengthFile	= new File(file.getPath() + LENGTH_FILE_SUFFIX);
+			this.raf		= new RandomAccessFile(file, readOnly ? "r" : "rw");
+			this.channel	= raf.getChannel();
+			this.readOnly	= readOnly;
+			this.shift		= shift;
+			this.mask		= (1L << shift) - 1;
+			this.buffers	= new MappedByteBuffer[0];
+			this.length		= Math.min(channel.size(), readRecordedLength(lengthFile));
+			if (readOnly) {
+				this.lengthRaf = null;
+				final int count = (int)((length + mask) >>> shift);
+				final MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+				for (int i = 0; i < count; i++) {
+					final long start = ((long)i) << shift;
+					mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(mask + 1, length - start));
+				}
+				buffers = mapped;
+			}
+			else {
+				if (channel.size() > length) {
+					//not closed properly, cut the padding before mapping
+					raf.setLength(length);
+				}
+				this.lengthRaf = new RandomAccessFile(lengthFile, "rw");
+				writeLength();
+				ensureCapacity(length);
+			}
+		}
+		/**
+		 * Returns the length recorded in the given length file, or 
+		 * {@link Long#MAX_VALUE} if the file does not exist or is incomplete
+		 */
+		private static long readRecordedLength(File lengthFile) throws IOException {
+			if (!lengthFile.exists()) return Long.MAX_VALUE;
+			final RandomAccessFile in = new RandomAccessFile(lengthFile, "r");
+			try {
+				if (in.length() < 8) return Long.MAX_VALUE;
+				final long recorded = in.readLong();
+				return recorded < 0 ? Long.MAX_VALUE : recorded;
+			}
+			finally {
+				in.close();
+			}
+		}
+		/**
+		 * Records the logical length in the length file and syncs it
+		 */
+		private void writeLength() throws IOException {
+			lengthRaf.seek(0L);
+			lengthRaf.writeLong(length);
+			lengthRaf.getChannel().force(false);
+		}
+		long capacity() {
+			long capacity = 0;
+			for (final MappedByteBuffer buf : buffers) {
+				capacity += buf.capacity();
+			}
+			return capacity;
+		}
+		/**
+		 * Maps new segments until the given length is covered, extending the
+		 * file to a multiple of the segment size
+		 */
+		void ensureCapacity(long byteLength) throws IOException {
+			final int count = (int)((byteLength + mask) >>> shift);
+			if (count > buffers.length) {
+				if (readOnly) {
+					throw new UnsupportedOperationException("file opened for reading only");
+				}
+				final MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+				System.arraycopy(buffers, 0, mapped, 0, buffers.length);
+				for (int i = buffers.length; i < count; i++) {
+					mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, ((long)i) << shift, mask + 1);
+				}
+				buffers = mapped;
+			}
+		}
+		/**
+		 * Writes the mapped segments to disk, and then records the logical 
+		 * length, such that the recorded length never covers unwritten data
+		 */
+		void force() throws IOException {
+			for (final MappedByteBuffer buf : buffers) {
+				buf.force();
+			}
+			writeLength();
+		}
+		void close(boolean erase) throws IOException {
+			closed = true;
+			try {
+				if (!readOnly && !erase) {
+					force();
+				}
+			}
+			finally {
+				final MappedByteBuffer[] mapped = buffers;
+				buffers = new MappedByteBuffer[0];
+				for (final MappedByteBuffer buf : mapped) {
+					Unmapper.unmap(buf);
+				}
+				try {
+					if (!readOnly && !erase) {
+						//truncate after unmapping, not allowed for mapped files on some platforms
+						raf.setLength(length);
+					}
+				}
+				finally {
+					raf.close();
+					if (erase) {
+						file.delete();
+					}
+					if (lengthRaf != null) {
+						//the file has its logical length now, or is deleted
+						lengthRaf.close();
+						lengthFile.delete();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Releases the mapping of a buffer immediately. Uses 
+	 * <code>sun.misc.Unsafe.invokeCleaner</code> on java 9 and later, and the
+	 * cleaner of the direct buffer on earlier versions. Both are accessed by
+	 * reflection since they are not part of the public api.
+	 */
+	private static class Unmapper {
+		private static final Object 	unsafe;
+		private static final Method 	invokeCleaner;
+		private static final Method		cleaner;
+		private static final Method		clean;
+		static {
+			Object unsafeInst = null;
+			Method invokeCleanerMethod = null;
+			Method cleanerMethod = null;
+			Method cleanMethod = null;
+			try {
+				final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				invokeCleanerMethod = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				final Field field = unsafeClass.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafeInst = field.get(null);
+			}
+			catch (Exception e) {
+				//not java 9 or later
+				invokeCleanerMethod = null;
+				try {
+					cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+					cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+				}
+				catch (Exception ex) {
+					//not supported, leave it to the garbage collector
+					cleanerMethod	= null;
+					cleanMethod		= null;
+				}
+			}
+			unsafe			= unsafeInst;
+			invokeCleaner	= invokeCleanerMethod;
+			cleaner			= cleanerMethod;
+			clean			= cleanMethod;
+		}
+		/**
+		 * Unmaps the buffer and returns true, or returns false if unmapping is
+		 * not supported. The buffer must not be accessed afterwards.
+		 */
+		static boolean unmap(MappedByteBuffer buffer) {
+			try {
+				if (invokeCleaner != null) {
+					invokeCleaner.invoke(unsafe, buffer);
+					return true;
+				}
+				if (cleaner != null) {
+					final Object bufCleaner = cleaner.invoke(buffer);
+					if (bufCleaner != null) {
+						clean.invoke(bufCleaner);
+						return true;
+					}
+				}
+			}
+			catch (Exception e) {
+				//not supported, leave it to the garbage collector
+			}
+			return false;
+		}
+	}
+
+}
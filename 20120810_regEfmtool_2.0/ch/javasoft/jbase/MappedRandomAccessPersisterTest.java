@@ -0,0 +1,133 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import junit.framework.TestCase;
+
+/**
+ * <tt>MappedRandomAccessPersisterTest</tt> checks that the zero padding of 
+ * the mapped segments is never taken as data, neither after closing the 
+ * persister nor after a crash.
+ */
+public class MappedRandomAccessPersisterTest extends TestCase {
+	
+	private static final int SEGMENT_SHIFT = 12;
+	
+	private File file;
+	private File crashed;
+	
+	@Override
+	protected void setUp() throws Exception {
+		file	= File.createTempFile("mapped", ".tbl");
+		crashed	= File.createTempFile("mapped-crashed", ".tbl");
+		file.deleteOnExit();
+		crashed.deleteOnExit();
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		for (final File f : new File[] {file, crashed}) {
+			f.delete();
+			lengthFile(f).delete();
+		}
+	}
+	
+	private static File lengthFile(File file) {
+		return new File(file.getPath() + MappedRandomAccessPersister.LENGTH_FILE_SUFFIX);
+	}
+	private static void writeLongs(MappedRandomAccessPersister persister, int from, int to) throws IOException {
+		persister.setPosition(8L * from);
+		final DataOutput out = persister.getOutput();
+		for (int i = from; i < to; i++) {
+			out.writeLong(i + 1);
+		}
+	}
+	private static void assertLongs(MappedRandomAccessPersister persister, int count) throws IOException {
+		persister.setPosition(0L);
+		final DataInput in = persister.getInput();
+		for (int i = 0; i < count; i++) {
+			assertEquals(i + 1, in.readLong());
+		}
+		assertEquals(0, in.skipBytes(Integer.MAX_VALUE));
+	}
+	
+	public void testCloseTruncatesToLogicalLength() throws IOException {
+		final MappedRandomAccessPersister persister = new MappedRandomAccessPersister(file, false /*readOnly*/, SEGMENT_SHIFT);
+		writeLongs(persister, 0, 1000);
+		assertEquals(0, file.length() % (1 << SEGMENT_SHIFT));
+		assertTrue(lengthFile(file).exists());
+		persister.close(false);
+		
+		assertEquals(8000, file.length());
+		assertFalse(lengthFile(file).exists());
+		final MappedRandomAccessPersister reopened = new MappedRandomAccessPersister(file, true /*readOnly*/, SEGMENT_SHIFT);
+		assertLongs(reopened, 1000);
+		reopened.close(false);
+	}
+	
+	/**
+	 * The padded file and the length file are copied while the persister is
+	 * open, simulating a crash. The copy is truncated to the flushed length
+	 * when it is opened.
+	 */
+	public void testReopenAfterCrash() throws IOException {
+		final MappedRandomAccessPersister persister = new MappedRandomAccessPersister(file, false /*readOnly*/, SEGMENT_SHIFT);
+		writeLongs(persister, 0, 1000);
+		persister.flush();
+		writeLongs(persister, 1000, 1100);
+		Files.copy(file.toPath(), crashed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(lengthFile(file).toPath(), lengthFile(crashed).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		persister.close(true);
+		assertFalse(lengthFile(file).exists());
+		assertTrue(crashed.length() > 8000);
+		
+		final MappedRandomAccessPersister readOnly = new MappedRandomAccessPersister(crashed, true /*readOnly*/, SEGMENT_SHIFT);
+		assertLongs(readOnly, 1000);
+		readOnly.close(false);
+		
+		final MappedRandomAccessPersister writable = new MappedRandomAccessPersister(crashed, false /*readOnly*/, SEGMENT_SHIFT);
+		assertLongs(writable, 1000);
+		writeLongs(writable, 1000, 1010);
+		writable.close(false);
+		assertEquals(8080, crashed.length());
+		assertFalse(lengthFile(crashed).exists());
+	}
+
+}
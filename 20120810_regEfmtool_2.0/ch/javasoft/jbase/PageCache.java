@@ -0,0 +1,683 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>PageCache</code> caches fixed size pages of table files. A single
+ * cache is usually shared by all tables, such that the total memory used for
+ * caching is bounded by the {@link #getCapacity() capacity} of the cache, 
+ * independent of the number of open tables.
+ * <p>
+ * The pages are stored in a segmented LRU: new pages enter a probationary 
+ * segment and are only promoted to the protected segment if they are accessed
+ * again. Pages are evicted from the probationary segment first. Hence, a 
+ * single scan through a large table does not flush the frequently accessed 
+ * pages out of the cache. Pages of tables registered as <i>pinned</i>, e.g. 
+ * the nodes of a pattern tree, are kept in a third segment and are only 
+ * evicted if no other pages are left; at most half of the capacity is used
+ * for pinned pages.
+ * <p>
+ * The cache is split into shards, each guarded by its own lock and each 
+ * holding a part of the capacity. Reading and writing page data, loading 
+ * pages and writing back dirty pages happens while the shard lock is held.
+ * The caller must still ensure that reading and writing of the same bytes does
+ * not overlap, e.g. by using a 
+ * {@link ch.javasoft.jbase.concurrent.ConcurrentTable ConcurrentTable}.
+ * <p>
+ * Access statistics are collected per table, see {@link #getStatistics()}.
+ * 
+ * @see PagedRandomAccessPersister
+ */
+public class PageCache {
+	
+	/**
+	 * The default page size in bytes
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 4096;
+	
+	private static final int SHARD_BITS 	= 4;
+	private static final int SHARD_COUNT	= 1 << SHARD_BITS;
+	
+	//segment identifiers
+	private static final int PROBATION	= 0;
+	private static final int PROTECTED	= 1;
+	private static final int PINNED		= 2;
+	
+	private static PageCache defaultCache;
+	
+	private final int					pageSize;
+	private final Shard[]				shards;
+	private final AtomicInteger			nextRegionId	= new AtomicInteger();
+	private final List<Region>			regions			= new CopyOnWriteArrayList<Region>();
+	private volatile long				capacity;
+	
+	/**
+	 * Returns the default cache shared by all tables. If not yet initialized,
+	 * the cache is created with the {@link #getDefaultCapacity() default 
+	 * capacity}.
+	 */
+	public static synchronized PageCache getDefault() {
+		if (defaultCache == null) {
+			defaultCache = new PageCache(getDefaultCapacity());
+		}
+		return defaultCache;
+	}
+	/**
+	 * Returns the default capacity, that is, a quarter of the maximum heap size
+	 */
+	public static long getDefaultCapacity() {
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+
+	/**
+	 * Constructor for a cache with the given capacity and 
+	 * {@link #DEFAULT_PAGE_SIZE default page size}
+	 * 
+	 * @param capacity	the capacity in bytes
+	 */
+	public PageCache(long capacity) {
+		this(capacity, DEFAULT_PAGE_SIZE);
+	}
+	/**
+	 * Constructor for a cache with the given capacity and page size
+	 * 
+	 * @param capacity	the capacity in bytes
+	 * @param pageSize	the size of a single page in bytes
+	 */
+	public PageCache(long capacity, int pageSize) {
+		if (pageSize <= 0) throw new IllegalArgumentException("page size must be positive: " + pageSize);
+		this.pageSize	= pageSize;
+		this.shards		= new Shard[SHARD_COUNT];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Shard();
+		}
+		setCapacityInternal(capacity);
+	}
+	
+	/**
+	 * Returns the page size in bytes
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+	/**
+	 * Returns the capacity in bytes
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+	/**
+	 * Returns the number of bytes currently used by cached pages
+	 */
+	public long getUsage() {
+		long pages = 0;
+		for (final Shard shard : shards) {
+			shard.lock();
+			try {
+				pages += shard.size();
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+		return pages * pageSize;
+	}
+	/**
+	 * Sets the capacity of the cache. If the new capacity is smaller than the
+	 * current usage, pages are evicted immediately, and dirty pages are written
+	 * back to their tables.
+	 * 
+	 * @param capacity		the new capacity in bytes, at least one page per 
+	 * 						shard is always kept
+	 * @throws IOException	if writing back a dirty page fails
+	 */
+	public void setCapacity(long capacity) throws IOException {
+		setCapacityInternal(capacity);
+		for (final Shard shard : shards) {
+			shard.lock();
+			try {
+				shard.evict(null);
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+	}
+	private void setCapacityInternal(long capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("negative capacity: " + capacity);
+		this.capacity = capacity;
+		final long pagesPerShard = Math.max(1, capacity / pageSize / SHARD_COUNT);
+		final int maxPages = (int)Math.min(Integer.MAX_VALUE, pagesPerShard);
+		for (final Shard shard : shards) {
+			shard.lock();
+			try {
+				shard.maxPages		= maxPages;
+				shard.maxProtected	= Math.max(1, (int)(0.8 * maxPages));
+				shard.maxPinned		= maxPages / 2;
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the statistics of all currently registered tables
+	 */
+	public List<Statistics> getStatistics() {
+		final List<Statistics> stats = new ArrayList<Statistics>(regions.size());
+		for (final Region region : regions) {
+			stats.add(region.stats);
+		}
+		return stats;
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[capacity=" + capacity + ", usage=" + getUsage() + ", page=" + pageSize + ", tables=" + regions.size() + "]";
+	}
+	
+	/**
+	 * Access statistics for a single table
+	 */
+	public static class Statistics {
+		private final String		name;
+		private final AtomicLong	hits		= new AtomicLong();
+		private final AtomicLong	misses		= new AtomicLong();
+		private final AtomicLong	evictions	= new AtomicLong();
+		private final AtomicLong	writes		= new AtomicLong();
+		private Statistics(String name) {
+			this.name = name;
+		}
+		/** The name of the table, usually the file name */
+		public String getName() {
+			return name;
+		}
+		/** Number of page accesses served from the cache */
+		public long getHitCount() {
+			return hits.get();
+		}
+		/** Number of page accesses that caused the page to be loaded */
+		public long getMissCount() {
+			return misses.get();
+		}
+		/** Number of pages evicted to make room for other pages */
+		public long getEvictionCount() {
+			return evictions.get();
+		}
+		/** Number of dirty pages written back to the table file */
+		public long getWriteCount() {
+			return writes.get();
+		}
+		/** The hit ratio, or 0 if the table has not been accessed yet */
+		public double getHitRatio() {
+			final long h = hits.get();
+			final long total = h + misses.get();
+			return total == 0 ? 0d : ((double)h) / total;
+		}
+		@Override
+		public String toString() {
+			return name + "[hits=" + getHitCount() + ", misses=" + getMissCount() + 
+				", evictions=" + getEvictionCount() + ", writes=" + getWriteCount() + "]";
+		}
+	}
+	
+	/**
+	 * Registers a table with this cache. All i/o operations of the table 
+	 * should use the returned region, and the table must 
+	 * {@link #release(Region, boolean) release} the region when it is closed.
+	 * 
+	 * @param delegate	the persister performing the real i/o operations
+	 * @param name		the name of the table, used for the statistics
+	 * @param pinned	true if the pages of this table should be kept in the 
+	 * 					cache preferably
+	 */
+	Region register(RandomAccessPersister delegate, String name, boolean pinned) {
+		final Region region = new Region(nextRegionId.getAndIncrement(), delegate, name, pinned);
+		regions.add(region);
+		return region;
+	}
+	
+	/**
+	 * The cached pages of a single table
+	 */
+	static class Region {
+		final int 						id;
+		final RandomAccessPersister		delegate;
+		final boolean					pinned;
+		final Statistics				stats;
+		final ConcurrentHashMap<Long, Page>	pages	= new ConcurrentHashMap<Long, Page>();
+		final AtomicInteger				dirty 	= new AtomicInteger();
+		final AtomicLong				extent	= new AtomicLong();//end of written data
+		private Region(int id, RandomAccessPersister delegate, String name, boolean pinned) {
+			this.id			= id;
+			this.delegate	= delegate;
+			this.pinned		= pinned;
+			this.stats		= new Statistics(name);
+		}
+	}
+	
+	/**
+	 * Reads up to <code>len</code> bytes from the given position. 
+	 * 
+	 * @return the number of bytes read, or -1 if the position is at or after
+	 * 		   the end of the table file
+	 */
+	int read(Region region, long bytePos, byte[] b, int off, int len) throws IOException {
+		int done = 0;
+		while (done < len) {
+			final long pos		= bytePos + done;
+			final long index	= pos / pageSize;
+			final int inPage	= (int)(pos - index * pageSize);
+			final Shard shard	= shard(region, index);
+			shard.lock();
+			try {
+				final Page page = shard.get(region, index, false /*forWrite*/, false /*overwrite*/);
+				//written data might not yet be in the file if pages are dirty
+				final long inExtent = region.extent.get() - index * pageSize;
+				final int valid = (int)Math.max(page.length, Math.min(pageSize, inExtent));
+				final int avail = valid - inPage;
+				if (avail <= 0) {
+					return done == 0 ? -1 : done;
+				}
+				final int cnt = Math.min(avail, len - done);
+				System.arraycopy(page.data, inPage, b, off + done, cnt);
+				done += cnt;
+				if (valid < pageSize) {
+					//last page of the file
+					return done;
+				}
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+		return done;
+	}
+	
+	/**
+	 * Writes <code>len</code> bytes at the given position
+	 */
+	void write(Region region, long bytePos, byte[] b, int off, int len) throws IOException {
+		int done = 0;
+		while (done < len) {
+			final long pos		= bytePos + done;
+			final long index	= pos / pageSize;
+			final int inPage	= (int)(pos - index * pageSize);
+			final int cnt		= Math.min(pageSize - inPage, len - done);
+			final Shard shard	= shard(region, index);
+			shard.lock();
+			try {
+				final Page page = shard.get(region, index, true /*forWrite*/, cnt == pageSize /*overwrite*/);
+				System.arraycopy(b, off + done, page.data, inPage, cnt);
+				if (page.length < inPage + cnt) {
+					page.length = inPage + cnt;
+				}
+				if (!page.dirty) {
+					page.dirty = true;
+					region.dirty.incrementAndGet();
+				}
+				done += cnt;
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+		final long end = bytePos + len;
+		long cur;
+		while ((cur = region.extent.get()) < end && !region.extent.compareAndSet(cur, end));
+	}
+	
+	/**
+	 * Writes back all dirty pages of the given region, in the order of their
+	 * file position. The delegate itself is not flushed.
+	 */
+	void flush(Region region) throws IOException {
+		if (region.dirty.get() == 0) return;
+		final List<Page> pages = new ArrayList<Page>();
+		for (final Page page : region.pages.values()) {
+			if (page.dirty) pages.add(page);
+		}
+		Collections.sort(pages, PAGE_ORDER);
+		for (final Page page : pages) {
+			final Shard shard = shard(region, page.index);
+			shard.lock();
+			try {
+				if (page.dirty && region.pages.get(Long.valueOf(page.index)) == page) {
+					writeBack(page);
+				}
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Drops or shortens the pages of the given region after the given length.
+	 * The length of the delegate is not changed.
+	 */
+	void truncate(Region region, long byteLength) throws IOException {
+		region.extent.set(byteLength);
+		for (final Page page : region.pages.values()) {
+			final long start = page.index * pageSize;
+			if (start + page.length <= byteLength) continue;
+			final Shard shard = shard(region, page.index);
+			shard.lock();
+			try {
+				if (region.pages.get(Long.valueOf(page.index)) == page) {
+					if (start >= byteLength) {
+						shard.remove(page);
+					}
+					else if (page.length > byteLength - start) {
+						final int newLength = (int)(byteLength - start);
+						Arrays.fill(page.data, newLength, page.length, (byte)0);
+						page.length = newLength;
+					}
+				}
+			}
+			finally {
+				shard.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Removes all pages of the given region from the cache and unregisters 
+	 * the region. Dirty pages are written back if <code>writeBack</code> is
+	 * true, and discarded otherwise.
+	 */
+	void release(Region region, boolean writeBack) throws IOException {
+		try {
+			if (writeBack) {
+				flush(region);
+			}
+			for (final Page page : region.pages.values()) {
+				final Shard shard = shard(region, page.index);
+				shard.lock();
+				try {
+					if (region.pages.get(Long.valueOf(page.index)) == page) {
+						shard.remove(page);
+					}
+				}
+				finally {
+					shard.unlock();
+				}
+			}
+		}
+		finally {
+			regions.remove(region);
+		}
+	}
+	
+	private Shard shard(Region region, long index) {
+		final long hash = index * 0x9E3779B97F4A7C15L + region.id * 0xC2B2AE3D27D4EB4FL;
+		return shards[(int)(hash >>> (64 - SHARD_BITS))];
+	}
+	
+	/**
+	 * PRECONDITION: shard lock held
+	 */
+	private void writeBack(Page page) throws IOException {
+		final RandomAccessPersister delegate = page.region.delegate;
+		synchronized (delegate) {
+			delegate.setPosition(page.index * pageSize);
+			delegate.getOutput().write(page.data, 0, page.length);
+		}
+		page.dirty = false;
+		page.region.dirty.decrementAndGet();
+		page.region.stats.writes.incrementAndGet();
+	}
+	
+	/**
+	 * PRECONDITION: shard lock held
+	 */
+	private void load(Page page) throws IOException {
+		final RandomAccessPersister delegate = page.region.delegate;
+		synchronized (delegate) {
+			final long start = page.index * pageSize;
+			delegate.setPosition(start);
+			final DataInput in = delegate.getInput();
+			if (in instanceof RandomAccessFile) {
+				final RandomAccessFile raf = (RandomAccessFile)in;
+				int len = 0;
+				while (len < pageSize) {
+					final int cnt = raf.read(page.data, len, pageSize - len);
+					if (cnt < 0) break;
+					len += cnt;
+				}
+				page.length = len;
+			}
+			else {
+				try {
+					in.readFully(page.data);
+					page.length = pageSize;
+				}
+				catch (EOFException ex) {
+					//end of file, read byte by byte
+					delegate.setPosition(start);
+					int len = 0;
+					try {
+						while (len < pageSize) {
+							page.data[len] = in.readByte();
+							len++;
+						}
+					}
+					catch (EOFException ex2) {
+						//len is set
+					}
+					page.length = len;
+				}
+			}
+		}
+	}
+	
+	private static final Comparator<Page> PAGE_ORDER = new Comparator<Page>() {
+		public int compare(Page a, Page b) {
+			return a.index < b.index ? -1 : a.index > b.index ? 1 : 0;
+		}
+	};
+	
+	/**
+	 * A cached page, linked into one of the segment lists of its shard
+	 */
+	private static final class Page {
+		final Region	region;
+		final long		index;
+		final byte[]	data;
+		int				length;
+		boolean			dirty;
+		int				segment;
+		Page			prev, next;
+		Page(Region region, long index, int pageSize) {
+			this.region	= region;
+			this.index	= index;
+			this.data	= new byte[pageSize];
+		}
+	}
+	
+	/**
+	 * Doubly linked list of pages, least recently used page at the head
+	 */
+	private static final class PageList {
+		Page	head, tail;
+		int		size;
+		void addLast(Page page) {
+			page.prev = tail;
+			page.next = null;
+			if (tail == null) head = page;
+			else tail.next = page;
+			tail = page;
+			size++;
+		}
+		void remove(Page page) {
+			if (page.prev == null) head = page.next;
+			else page.prev.next = page.next;
+			if (page.next == null) tail = page.prev;
+			else page.next.prev = page.prev;
+			page.prev = page.next = null;
+			size--;
+		}
+	}
+	
+	/**
+	 * A part of the cache with its own lock and segment lists
+	 */
+	private final class Shard extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+		
+		final PageList[]	segments = new PageList[] {new PageList(), new PageList(), new PageList()};
+		int					maxPages;
+		int					maxProtected;
+		int					maxPinned;
+		
+		int size() {
+			return segments[PROBATION].size + segments[PROTECTED].size + segments[PINNED].size;
+		}
+		
+		/**
+		 * Returns the page, loading it if it is not in the cache. If the page
+		 * is requested for read only and the page is beyond the end of the 
+		 * file, the returned page is empty and it is not added to the cache.
+		 * PRECONDITION: lock held
+		 */
+		Page get(Region region, long index, boolean forWrite, boolean overwrite) throws IOException {
+			final Long key = Long.valueOf(index);
+			Page page = region.pages.get(key);
+			if (page != null) {
+				region.stats.hits.incrementAndGet();
+				touch(page);
+				return page;
+			}
+			region.stats.misses.incrementAndGet();
+			page = new Page(region, index, pageSize);
+			if (!overwrite) {
+				load(page);
+				if (page.length == 0 && !forWrite) {
+					return page;
+				}
+			}
+			if (region.pinned && segments[PINNED].size < maxPinned) {
+				add(page, PINNED);
+			}
+			else {
+				add(page, PROBATION);
+			}
+			region.pages.put(key, page);
+			evict(page);
+			return page;
+		}
+		
+		/**
+		 * Moves the page to the most recently used position, promoting 
+		 * probationary pages to the protected segment.
+		 * PRECONDITION: lock held
+		 */
+		private void touch(Page page) {
+			final PageList list = segments[page.segment];
+			if (page.segment == PROBATION) {
+				list.remove(page);
+				add(page, PROTECTED);
+				if (segments[PROTECTED].size > maxProtected) {
+					//demote least recently used protected page
+					final Page demoted = segments[PROTECTED].head;
+					segments[PROTECTED].remove(demoted);
+					add(demoted, PROBATION);
+				}
+			}
+			else if (list.tail != page) {
+				list.remove(page);
+				list.addLast(page);
+			}
+		}
+		private void add(Page page, int segment) {
+			page.segment = segment;
+			segments[segment].addLast(page);
+		}
+		
+		/**
+		 * Removes the page from the cache, dirty pages are discarded.
+		 * PRECONDITION: lock held
+		 */
+		void remove(Page page) {
+			segments[page.segment].remove(page);
+			page.region.pages.remove(Long.valueOf(page.index));
+			if (page.dirty) {
+				page.dirty = false;
+				page.region.dirty.decrementAndGet();
+			}
+		}
+		
+		/**
+		 * Evicts pages until the shard size is within the bounds, but never
+		 * evicts the given page.
+		 * PRECONDITION: lock held
+		 */
+		void evict(Page keep) throws IOException {
+			while (size() > maxPages) {
+				final Page victim = victim(keep);
+				if (victim == null) return;
+				if (victim.dirty) {
+					writeBack(victim);
+				}
+				remove(victim);
+				victim.region.stats.evictions.incrementAndGet();
+			}
+		}
+		private Page victim(Page keep) {
+			for (final PageList list : segments) {
+				Page page = list.head;
+				if (page == keep) page = page.next;
+				if (page != null) return page;
+			}
+			return null;
+		}
+	}
+	
+}
@@ -0,0 +1,286 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import ch.javasoft.jbase.util.AbstractDataInput;
+import ch.javasoft.jbase.util.AbstractDataOutput;
+import ch.javasoft.jbase.util.UnsupportedOperationException;
+
+/**
+ * The <code>PagedRandomAccessPersister</code> reads and writes through a
+ * shared {@link PageCache}, and delegates the real i/o operations to an 
+ * underlying delegate {@link RandomAccessPersister}.
+ * <p>
+ * In contrast to the {@link BufferedRandomAccessPersister}, the cache is not 
+ * owned by the persister, but shared by all tables using the same page cache.
+ * The memory used for caching is thus bounded by the capacity of the page 
+ * cache, and frequently used tables get more pages than rarely used ones.
+ * <p>
+ * Read copies share the cached pages and the delegate with the original 
+ * persister, they only have their own position. Read access through read 
+ * copies and write access to the original must be synchronized, e.g. by using 
+ * a {@link ch.javasoft.jbase.concurrent.ConcurrentTable ConcurrentTable}.
+ */
+public class PagedRandomAccessPersister implements RandomAccessPersister {
+	
+	private final PageCache			cache;
+	private final PageCache.Region	region;
+	private final boolean			readCopy;
+	private final Input				input	= new Input();
+	private final Output			output	= new Output();
+	private final byte[]			scratch	= new byte[8];
+	
+	private long		position;
+	private boolean		closed;
+	
+	/**
+	 * Constructor using a {@link RandomAccessFilePersistor} as delegate, 
+	 * caching in the {@link PageCache#getDefault() default} page cache. 
+	 * 
+	 * @param file		file to create a {@link RandomAccessFilePersistor}
+	 * @param pinned	true if the pages of this file should preferably be 
+	 * 					kept in the cache
+	 * @throws FileNotFoundException if the specified file is not found
+	 */
+	public PagedRandomAccessPersister(File file, boolean pinned) throws FileNotFoundException {
+		this(new RandomAccessFilePersistor(file), PageCache.getDefault(), file.getName(), pinned);
+	}
+	/**
+	 * Constructor with delegate persistor and page cache. 
+	 * 
+	 * @param delegate	delegate persistor, does the real i/o operations
+	 * @param cache		the page cache to use
+	 * @param name		the name of the table, used for the cache statistics
+	 * @param pinned	true if the pages of this table should preferably be 
+	 * 					kept in the cache
+	 */
+	public PagedRandomAccessPersister(RandomAccessPersister delegate, PageCache cache, String name, boolean pinned) {
+		if (delegate == null) throw new NullPointerException("delegate cannot be null");
+		this.cache		= cache;
+		this.region		= cache.register(delegate, name, pinned);
+		this.readCopy	= false;
+	}
+	private PagedRandomAccessPersister(PagedRandomAccessPersister original) {
+		this.cache		= original.cache;
+		this.region		= original.region;
+		this.readCopy	= true;
+		this.position	= original.position;
+	}
+	
+	/**
+	 * Returns the cache statistics of this table, shared with all read copies
+	 */
+	public PageCache.Statistics getStatistics() {
+		return region.stats;
+	}
+
+	public long getPosition() throws IOException {
+		checkOpen();
+		return position;
+	}
+
+	public void setPosition(long bytePos) throws IOException {
+		checkOpen();
+		if (bytePos < 0) throw new IOException("negative position: " + bytePos);
+		position = bytePos;
+	}
+
+	public void setLength(long byteLength) throws IOException {
+		checkWritable();
+		cache.truncate(region, byteLength);
+		synchronized (region.delegate) {
+			region.delegate.setLength(byteLength);
+		}
+	}
+
+	public DataInput getInput() throws IOException {
+		checkOpen();
+		return input;
+	}
+
+	public DataOutput getOutput() throws IOException {
+		checkWritable();
+		return output;
+	}
+
+	public void flush() throws IOException {
+		checkWritable();
+		cache.flush(region);
+		synchronized (region.delegate) {
+			region.delegate.flush();
+		}
+	}
+
+	/**
+	 * Closes this persistor. If this is the original persister, the pages are
+	 * removed from the cache and the delegate is closed. Dirty pages are 
+	 * written back before, unless <code>erase</code> is true. Read copies are 
+	 * just marked closed.
+	 */
+	public void close(boolean erase) throws IOException {
+		if (erase && readCopy) {
+			throw new UnsupportedOperationException("unmodifyable read copy");    							
+		}
+		if (closed) return;
+		closed = true;
+		if (!readCopy) {
+			try {
+				cache.release(region, !erase);
+			}
+			finally {
+				synchronized (region.delegate) {
+					region.delegate.close(erase);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of this persistor for read access. The new reader shares 
+	 * the cached pages and the position is set to this persistor's position. 
+	 * The returned instance does not support write operations, thus, invoking 
+	 * {@link #getOutput()}, {@link #setLength(long)} or {@link #flush()} 
+	 * causes an {@link UnsupportedOperationException}.
+	 */
+	public PagedRandomAccessPersister createReadCopy(ReadWriteLock lock) throws IOException {
+		checkOpen();
+		return new PagedRandomAccessPersister(this);
+	}
+	
+	private void checkOpen() throws IOException {
+		if (closed) throw new IOException("persister already closed");
+	}
+	private void checkWritable() throws IOException {
+		checkOpen();
+		if (readCopy) throw new UnsupportedOperationException("read only copy, write operations not supported");
+	}
+	
+	/**
+	 * Reads through the page cache
+	 */
+	private class Input extends AbstractDataInput {
+		@Override
+		protected int read() throws IOException {
+			final int value = peek();
+			if (value >= 0) position++;
+			return value;
+		}
+		@Override
+		protected int peek() throws IOException {
+			checkOpen();
+			final int cnt = cache.read(region, position, scratch, 0, 1);
+			return cnt <= 0 ? -1 : scratch[0] & 0xff;
+		}
+		@Override
+		protected int read(byte[] b, int off, int len) throws IOException {
+			checkOpen();
+			if (len == 0) return 0;
+			final int cnt = cache.read(region, position, b, off, len);
+			if (cnt > 0) position += cnt;
+			return cnt;
+		}
+		@Override
+		public int skipBytes(int n) throws IOException {
+			checkOpen();
+			position += n;
+			return n;
+		}
+		@Override
+		public int readInt() throws IOException {
+			readFully(scratch, 0, 4);
+			return 
+				((scratch[0] & 0xff) << 24) | ((scratch[1] & 0xff) << 16) | 
+				((scratch[2] & 0xff) << 8) | (scratch[3] & 0xff);
+		}
+		@Override
+		public long readLong() throws IOException {
+			readFully(scratch, 0, 8);
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (scratch[i] & 0xff);
+			}
+			return value;
+		}
+		@Override
+		public void readFully(byte[] b, int off, int len) throws IOException {
+			int n = 0;
+			while (n < len) {
+				final int cnt = read(b, off + n, len - n);
+				if (cnt < 0) {
+					throw new EOFException("end of file at position " + position + ", n=" + n + ", len=" + len);
+				}
+				n += cnt;
+			}
+		}
+	}
+	
+	/**
+	 * Writes through the page cache
+	 */
+	private class Output extends AbstractDataOutput {
+		public void write(int b) throws IOException {
+			scratch[0] = (byte)b;
+			write(scratch, 0, 1);
+		}
+		public void write(byte[] b, int off, int len) throws IOException {
+			checkWritable();
+			cache.write(region, position, b, off, len);
+			position += len;
+		}
+		@Override
+		public void writeInt(int v) throws IOException {
+			scratch[0] = (byte)(v >>> 24);
+			scratch[1] = (byte)(v >>> 16);
+			scratch[2] = (byte)(v >>> 8);
+			scratch[3] = (byte)v;
+			write(scratch, 0, 4);
+		}
+		@Override
+		public void writeLong(long v) throws IOException {
+			for (int i = 7; i >= 0; i--) {
+				scratch[i] = (byte)v;
+				v >>>= 8;
+			}
+			write(scratch, 0, 8);
+		}
+	}
+}
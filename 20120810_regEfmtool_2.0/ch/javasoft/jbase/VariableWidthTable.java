@@ -72,8 +72,8 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
     private final File                                  folder;
     private final String                                fileName;
     private final EntityMarshaller<E>                   entityMarshaller;  
-    private final int									cacheTableSize;
-    private final int 									cacheEntrySize;
+    private final PageCache								cache;
+    private final boolean 								pinned;
     private volatile FixedWidthTable<FixedTableRow>     primaryTable;
     
     private final Map<File, FixedWidthTable<FixedTableRow>> secondaryTables;
@@ -82,25 +82,25 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
     
     /**
      * Constructor, only for subclassing, use the static 
-     * {@link #create(File, String, int, EntityMarshaller, int, int) create} and 
-     * {@link #open(File, String, EntityMarshaller, int, int) open} methods to create 
+     * {@link #create(File, String, int, EntityMarshaller, PageCache, boolean) create} and 
+     * {@link #open(File, String, EntityMarshaller, PageCache, boolean) open} methods to create 
      * instances.
      * 
      * @param folder            The folder containing the table files
      * @param fileName          The file name of the tables. Indexing is inserted
      *                          in front of the file ending if needed. 
      * @param entityMarshaller  The marshaller transforming entities (rows) into bytes  
-     * @param cacheTableSize	Table size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
-     * @param cacheEntrySize	Table entry size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
+     * @param cache			The page cache to use, or null if no cache should 
+     * 							be used
+     * @param pinned			True if the pages of the tables should preferably
+     * 							be kept in the cache, see {@link PageCache}
      */
-    protected VariableWidthTable(File folder, String fileName, EntityMarshaller<E> entityMarshaller, int cacheTableSize, int cacheEntrySize) {
+    protected VariableWidthTable(File folder, String fileName, EntityMarshaller<E> entityMarshaller, PageCache cache, boolean pinned) {
         this.folder             = folder;
         this.fileName           = fileName;
         this.entityMarshaller	= entityMarshaller;
-        this.cacheTableSize		= cacheTableSize;
-        this.cacheEntrySize		= cacheEntrySize;
+        this.cache				= cache;
+        this.pinned				= pinned;
         this.secondaryTables    = new ConcurrentHashMap<File, FixedWidthTable<FixedTableRow>>();
         this.byteBuffer			= new ByteArray();
     }
@@ -112,13 +112,13 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
      * @param fileName          The file name of the tables. Indexing is inserted
      *                          in front of the file ending if needed. 
      * @param entityMarshaller  The marshaller transforming entities (rows) into bytes  
-     * @param cacheTableSize	Table size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
-     * @param cacheEntrySize	Table entry size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
+     * @param cache			The page cache to use, or null if no cache should 
+     * 							be used
+     * @param pinned			True if the pages of the tables should preferably
+     * 							be kept in the cache, see {@link PageCache}
      */
-    public static <En> VariableWidthTable<En> open(File folder, String fileName, EntityMarshaller<En> entityMarshaller, int cacheTableSize, int cacheEntrySize) throws IOException {
-        final VariableWidthTable<En> tbl = new VariableWidthTable<En>(folder, fileName, entityMarshaller, cacheTableSize, cacheEntrySize);
+    public static <En> VariableWidthTable<En> open(File folder, String fileName, EntityMarshaller<En> entityMarshaller, PageCache cache, boolean pinned) throws IOException {
+        final VariableWidthTable<En> tbl = new VariableWidthTable<En>(folder, fileName, entityMarshaller, cache, pinned);
         tbl.primaryTable = tbl.openPrimaryTable();
         return tbl;
     }
@@ -137,13 +137,13 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
      * @param firstTableByteWidth   The byte width of the primary table, without
      *                              index widths for indices to secondary tables
      * @param entityMarshaller  The marshaller transforming entities (rows) into bytes  
-     * @param cacheTableSize	Table size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
-     * @param cacheEntrySize	Table entry size for {@link BufferedRandomAccessPersister},
-     * 							or 0 if no cache should be used
+     * @param cache			The page cache to use, or null if no cache should 
+     * 							be used
+     * @param pinned			True if the pages of the tables should preferably
+     * 							be kept in the cache, see {@link PageCache}
      */
-    public static <En> VariableWidthTable<En> create(File folder, String fileName, int firstTableByteWidth, EntityMarshaller<En> entityMarshaller, int cacheTableSize, int cacheEntrySize) throws IOException {
-        final VariableWidthTable<En> tbl = new VariableWidthTable<En>(folder, fileName, entityMarshaller, cacheTableSize, cacheEntrySize);
+    public static <En> VariableWidthTable<En> create(File folder, String fileName, int firstTableByteWidth, EntityMarshaller<En> entityMarshaller, PageCache cache, boolean pinned) throws IOException {
+        final VariableWidthTable<En> tbl = new VariableWidthTable<En>(folder, fileName, entityMarshaller, cache, pinned);
         eraseTableFiles(folder, fileName);
         tbl.primaryTable = tbl.createPrimaryTable(firstTableByteWidth);
         return tbl;
@@ -180,8 +180,8 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
         return tbl;
     }
     private RandomAccessPersister createRandomAccessPersister(File file) throws FileNotFoundException {
-    	if (cacheTableSize > 0 && cacheEntrySize > 0) {
-    		return new BufferedRandomAccessPersister(file, cacheTableSize, cacheEntrySize);
+    	if (cache != null) {
+    		return new PagedRandomAccessPersister(new RandomAccessFilePersistor(file), cache, file.getName(), pinned);
     	}
     	return new RandomAccessFilePersistor(file);
     }
@@ -341,7 +341,7 @@ public class VariableWidthTable<E> implements Table<E>, Stateful {
     }
     public VariableWidthTable<E> createReadCopy(final ReadWriteLock lock) throws IOException {
         final EntityMarshaller<E> marshaller = createReadCopyMarshaller(lock);
-    	final VariableWidthTable<E> tbl = new VariableWidthTable<E>(folder, fileName, marshaller, cacheTableSize, cacheEntrySize) {
+    	final VariableWidthTable<E> tbl = new VariableWidthTable<E>(folder, fileName, marshaller, cache, pinned) {
 			@Override
 		    protected FixedWidthTable<FixedTableRow> openTableFile(int tableIndex, int byteWidth, boolean createIfNeeded) throws IOException {
 				if (createIfNeeded) {
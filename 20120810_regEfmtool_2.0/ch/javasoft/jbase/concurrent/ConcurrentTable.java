@@ -34,6 +34,7 @@
 package ch.javasoft.jbase.concurrent;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -53,6 +54,11 @@ import ch.javasoft.jbase.Table;
  * this instance) closes it. If the owner closes the table, every subsequent 
  * table access will cause an exception, also for read access to read copy 
  * tables. Multiple close calls do not cause an exception.  
+ * <p>
+ * Removing all rows might invalidate existing read copies, depending on the
+ * underlying table implementation. Read copies created before a 
+ * {@link #removeAll()} call are therefore closed and replaced by new read 
+ * copies when they are accessed the next time.
  */
 public class ConcurrentTable<E> implements Table<E> {
 
@@ -62,6 +68,8 @@ public class ConcurrentTable<E> implements Table<E> {
 	private final Thread owner;
 	
 	private final ThreadLocal<Table<E>> readTable = new ThreadLocal<Table<E>>();
+	private final ThreadLocal<Integer> readTableGeneration = new ThreadLocal<Integer>();
+	private final AtomicInteger generation = new AtomicInteger();
 	
 	/**
 	 * Creates a table owned by the current thread. The owner is the thread 
@@ -99,6 +107,12 @@ public class ConcurrentTable<E> implements Table<E> {
 	//do not call this method with held locks!
 	protected Table<E> getReadTable(boolean forceCreate) throws IOException {
 		Table<E> readTbl = readTable.get();
+		if (readTbl != null && readTableGeneration.get().intValue() != generation.get()) {
+			//stale read copy, created before removeAll()
+			readTbl.close(false);
+			readTable.remove();
+			readTbl = null;
+		}
 		if (readTbl == null && forceCreate) {
 			final Lock lock = rwLock.writeLock();
 			lock.lock();
@@ -106,6 +120,7 @@ public class ConcurrentTable<E> implements Table<E> {
 				table.flush();
 				readTbl = createReadCopyTable();
 				readTable.set(readTbl);
+				readTableGeneration.set(Integer.valueOf(generation.get()));
 			} 
 			catch (IOException e) {
 				throw new RuntimeException(e);
@@ -186,6 +201,7 @@ public class ConcurrentTable<E> implements Table<E> {
 		lock.lock();
 		try {
 			table.removeAll();
+			generation.incrementAndGet();
 		}
 		finally {
 			lock.unlock();
@@ -0,0 +1,244 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.jbase.marshal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import ch.javasoft.jbase.BlockCompressedTable;
+
+/**
+ * Static helpers for compact, variable length encodings of integers and bit
+ * patterns, used by marshallers for {@link BlockCompressedTable compressed 
+ * tables}.
+ * <p>
+ * Integers are written as varints, 7 bits per byte with the high bit set for
+ * all but the last byte. Signed values are zig-zag encoded, such that small 
+ * negative values also use few bytes.
+ * <p>
+ * Bit patterns, given as long words with bit 0 in the lowest bit of the first 
+ * word, are written as run lengths of alternating clear and set bits if this
+ * is shorter than the raw bytes, and as raw bytes otherwise. The bit count is
+ * not written, it must be known when reading.
+ */
+public class VarLengthEncoding {
+	
+	//leading mode byte for bit patterns
+	private static final int BITS_RAW			= 0;
+	private static final int BITS_RUN_LENGTH	= 1;
+
+	/**
+	 * Writes a non-negative int value as varint
+	 */
+	public static void writeUnsignedInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	/**
+	 * Reads an int value written by {@link #writeUnsignedInt(DataOutput, int)}
+	 */
+	public static int readUnsignedInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			final int b = in.readByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("malformed varint");
+	}
+	/**
+	 * Writes a long value as varint, the value is treated as unsigned
+	 */
+	public static void writeUnsignedLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int)(value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+	/**
+	 * Reads a long value written by {@link #writeUnsignedLong(DataOutput, long)}
+	 */
+	public static long readUnsignedLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			final int b = in.readByte();
+			value |= ((long)(b & 0x7f)) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("malformed varint");
+	}
+	/**
+	 * Writes a signed long value zig-zag encoded as varint
+	 */
+	public static void writeSignedLong(DataOutput out, long value) throws IOException {
+		writeUnsignedLong(out, (value << 1) ^ (value >> 63));
+	}
+	/**
+	 * Reads a long value written by {@link #writeSignedLong(DataOutput, long)}
+	 */
+	public static long readSignedLong(DataInput in) throws IOException {
+		final long zz = readUnsignedLong(in);
+		return (zz >>> 1) ^ -(zz & 1);
+	}
+	/**
+	 * Returns the number of bytes needed to write the given value with
+	 * {@link #writeUnsignedInt(DataOutput, int)}
+	 */
+	public static int getUnsignedIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7f) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+	
+	/**
+	 * Writes the first <code>bitCount</code> bits of the given words, as run
+	 * lengths or raw bytes, whatever is shorter.
+	 * 
+	 * @param out		the output to write to
+	 * @param words		the bits, bit 0 is the lowest bit of the first word
+	 * @param bitCount	the number of bits to write
+	 */
+	public static void writeBits(DataOutput out, long[] words, int bitCount) throws IOException {
+		final int rawSize = (bitCount + 7) / 8;
+		//compute the run length size first
+		int runSize = 0;
+		int pos = 0;
+		boolean set = false;
+		while (pos < bitCount && runSize < rawSize) {
+			final int next = set ? nextClearBit(words, pos, bitCount) : nextSetBit(words, pos, bitCount);
+			runSize += getUnsignedIntSize(next - pos);
+			pos = next;
+			set = !set;
+		}
+		if (runSize < rawSize) {
+			out.writeByte(BITS_RUN_LENGTH);
+			pos = 0;
+			set = false;
+			while (pos < bitCount) {
+				final int next = set ? nextClearBit(words, pos, bitCount) : nextSetBit(words, pos, bitCount);
+				writeUnsignedInt(out, next - pos);
+				pos = next;
+				set = !set;
+			}
+		}
+		else {
+			out.writeByte(BITS_RAW);
+			for (int i = 0; i < rawSize; i++) {
+				final int index = i / 8;
+				final long word = index < words.length ? words[index] : 0L;
+				out.writeByte((int)(word >>> (8 * (i % 8))));
+			}
+		}
+	}
+	/**
+	 * Reads bits written by {@link #writeBits(DataOutput, long[], int)}
+	 * 
+	 * @param in		the input to read from
+	 * @param bitCount	the number of bits, as specified when writing
+	 * @return the bit words, of length <code>(bitCount + 63) / 64</code>
+	 */
+	public static long[] readBits(DataInput in, int bitCount) throws IOException {
+		final long[] words = new long[(bitCount + 63) / 64];
+		final int mode = in.readByte();
+		if (mode == BITS_RUN_LENGTH) {
+			int pos = 0;
+			boolean set = false;
+			while (pos < bitCount) {
+				final int len = readUnsignedInt(in);
+				if (len < 0 || pos + len > bitCount) {
+					throw new IOException("run length exceeds bit count: " + (pos + len) + " > " + bitCount);
+				}
+				if (set) {
+					setBits(words, pos, pos + len);
+				}
+				pos += len;
+				set = !set;
+			}
+		}
+		else if (mode == BITS_RAW) {
+			final int rawSize = (bitCount + 7) / 8;
+			for (int i = 0; i < rawSize; i++) {
+				words[i / 8] |= (in.readByte() & 0xffL) << (8 * (i % 8));
+			}
+		}
+		else {
+			throw new IOException("unknown bit encoding: " + mode);
+		}
+		return words;
+	}
+	
+	private static int nextSetBit(long[] words, int from, int bitCount) {
+		int index = from >>> 6;
+		if (index >= words.length) return bitCount;
+		long word = words[index] & (-1L << from);
+		while (word == 0) {
+			if (++index >= words.length) return bitCount;
+			word = words[index];
+		}
+		return Math.min(bitCount, (index << 6) + Long.numberOfTrailingZeros(word));
+	}
+	private static int nextClearBit(long[] words, int from, int bitCount) {
+		int index = from >>> 6;
+		if (index >= words.length) return Math.min(from, bitCount);
+		long word = ~words[index] & (-1L << from);
+		while (word == 0) {
+			if (++index >= words.length) return Math.min(index << 6, bitCount);
+			word = ~words[index];
+		}
+		return Math.min(bitCount, (index << 6) + Long.numberOfTrailingZeros(word));
+	}
+	private static void setBits(long[] words, int from, int to) {
+		for (int i = from; i < to; ) {
+			final int index = i >>> 6;
+			final int end = Math.min(to, (index + 1) << 6);
+			final int len = end - i;
+			final long mask = len == 64 ? -1L : ((1L << len) - 1) << i;
+			words[index] |= mask;
+			i = end;
+		}
+	}
+	
+	// no instances
+	private VarLengthEncoding() {
+		super();
+	}
+}
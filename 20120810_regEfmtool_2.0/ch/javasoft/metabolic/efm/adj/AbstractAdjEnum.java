@@ -37,12 +37,15 @@ import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.util.AdjacencyFilterUtil;
 
 /**
  * <code>AbstractAdjEnum</code> requires the name in the constructor.
  * It stores the {@link Config configuration} and {@link EfmModel efm model} 
  * passed to the {@link #initialize(ColumnHome, Config, EfmModel) initialize}
- * method. The stored values can be accessed by getter methods.
+ * method. The stored values can be accessed by getter methods. The
+ * {@link AdjacencyFilter adjacency filter} of the computation is also looked 
+ * up when initializing, subclasses are expected to honour it.
  */
 abstract public class AbstractAdjEnum implements AdjEnum {
     
@@ -50,6 +53,7 @@ abstract public class AbstractAdjEnum implements AdjEnum {
     
     private Config 		config;
     private EfmModel	efmModel;
+    private AdjacencyFilter adjacencyFilter;
     
     public AbstractAdjEnum(String name) {
         this.name = name;
@@ -61,6 +65,7 @@ abstract public class AbstractAdjEnum implements AdjEnum {
     public <Col extends Column, N extends Number> void initialize(ColumnHome<N, Col> columnHome, Config config, EfmModel efmModel) {
         this.config 	= config;
         this.efmModel 	= efmModel;
+        this.adjacencyFilter = AdjacencyFilterUtil.getAdjacencyFilter(config, efmModel);
     }
     public String name() {
         return name;
@@ -71,5 +76,11 @@ abstract public class AbstractAdjEnum implements AdjEnum {
     public EfmModel getEfmModel() {
     	return efmModel;
     }
+    /**
+     * Returns the adjacency filter, or null if adjacent pairs are not filtered
+     */
+    public AdjacencyFilter getAdjacencyFilter() {
+    	return adjacencyFilter;
+    }
 
 }
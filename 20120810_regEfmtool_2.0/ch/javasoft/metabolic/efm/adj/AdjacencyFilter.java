@@ -0,0 +1,80 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.adj;
+
+import ch.javasoft.bitset.IBitSet;
+
+/**
+ * An <code>AdjacencyFilter</code> rejects adjacent column pairs whose new 
+ * born column is known to be useless for the final result, for instance since
+ * it violates a regulatory rule which no later combination can repair. 
+ * <p>
+ * The filter is consulted on two levels. Pattern tree traversals call
+ * {@link #mightKeepAny(IBitSet, IBitSet, int)} with the union patterns of two
+ * subtrees, and skip the whole subtree pair if it returns false. For single
+ * candidate pairs, {@link #keepPair(IBitSet, IBitSet, int)} is called before 
+ * the pair is materialized.
+ * <p>
+ * Bit patterns are the usual column bit values, that is, a set bit stands for
+ * a zero flux value. Implementations must be thread safe.
+ */
+public interface AdjacencyFilter {
+	/**
+	 * Returns false if every pair with one column of zero pattern 
+	 * <code>Z(a)</code> &sube; <code>unionPatternA</code> and one column with
+	 * <code>Z(b)</code> &sube; <code>unionPatternB</code> is rejected by
+	 * {@link #keepPair(IBitSet, IBitSet, int) keepPair(..)}. If in doubt, 
+	 * true is returned.
+	 * 
+	 * @param unionPatternA	union of the zero patterns of the first subtree
+	 * @param unionPatternB	union of the zero patterns of the second subtree
+	 * @param booleanSize	the number of valid bits in the patterns, that is,
+	 * 						the boolean size of the columns in the current
+	 * 						iteration step
+	 * @return false if no pair of the two subtrees can be kept
+	 */
+	boolean mightKeepAny(IBitSet unionPatternA, IBitSet unionPatternB, int booleanSize);
+	/**
+	 * Returns true if the column pair with the given zero patterns should be
+	 * kept, and false if the pair is to be dropped.
+	 * 
+	 * @param patternA		the zero pattern (bit values) of the first column
+	 * @param patternB		the zero pattern (bit values) of the second column
+	 * @param booleanSize	the number of valid bits in the patterns, that is,
+	 * 						the boolean size of the columns in the current
+	 * 						iteration step
+	 * @return true if the pair is kept
+	 */
+	boolean keepPair(IBitSet patternA, IBitSet patternB, int booleanSize);
+}
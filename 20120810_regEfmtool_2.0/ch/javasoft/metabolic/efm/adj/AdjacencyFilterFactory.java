@@ -2,7 +2,7 @@
  * =============================================================================
  * Simplified BSD License, see http://www.opensource.org/licenses/
  * -----------------------------------------------------------------------------
- * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
  * All rights reserved.
  * 
  * Redistribution and use in source and binary forms, with or without 
@@ -31,20 +31,28 @@
  * POSSIBILITY OF SUCH DAMAGE.
  * =============================================================================
  */
-package at.acib.generule_filestore;
+package ch.javasoft.metabolic.efm.adj;
 
-public class GeneRuleFilenameException extends Exception
-{
-  public GeneRuleFilenameException()
-  {
-     super();
-  }
-  public GeneRuleFilenameException(String s)
-  {
-      super(s);
-  }
-  public GeneRuleFilenameException(String s, Throwable t)
-  {
-      super(s,t);
-  }
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+
+/**
+ * An <code>AdjacencyFilterFactory</code> creates the {@link AdjacencyFilter}
+ * for a computation. It is part of the {@link Config}, see 
+ * {@link Config#getAdjacencyFilterFactory()}, and consulted by every adjacency
+ * enumerator when it is initialized. Implementations should have a public 
+ * no-arg constructor, the factory class is instantiated by reflection when a
+ * config is read.
+ */
+public interface AdjacencyFilterFactory {
+	/**
+	 * Returns the adjacency filter for the given computation, or null if no
+	 * adjacent pairs are to be filtered. Calls for the same model should be
+	 * cheap, the method is invoked once per iteration step.
+	 * 
+	 * @param config	the configuration of the computation
+	 * @param efmModel	the efm model of the computation
+	 * @return the filter, or null for no filtering
+	 */
+	AdjacencyFilter createAdjacencyFilter(Config config, EfmModel efmModel);
 }
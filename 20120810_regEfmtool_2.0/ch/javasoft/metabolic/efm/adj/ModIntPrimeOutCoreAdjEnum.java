@@ -42,13 +42,13 @@ import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.AdjEnumModel;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.tree.BitPatternTree;
-import ch.javasoft.metabolic.efm.tree.outcore.PersistentBitPatternTree;
+import ch.javasoft.metabolic.efm.tree.outcore.MappedBitPatternTree;
 
 /**
  * The <code>ModIntPrimeOutCoreAdjEnum</code> uses rank updating with integer
  * primes, such that each rank computation operation fits into a 32 bit integer
  * register. The pattern trees are written to files, that is, out-of-core 
- * memory.
+ * memory, and read through memory mapping.
  */
 public class ModIntPrimeOutCoreAdjEnum extends AbstractModIntPrimeAdjEnum {
 
@@ -62,14 +62,14 @@ public class ModIntPrimeOutCoreAdjEnum extends AbstractModIntPrimeAdjEnum {
 	}
 	
 	/**
-	 * Creates a {@link PersistentBitPatternTree} and creates the file associated
+	 * Creates a {@link MappedBitPatternTree} and creates the file associated
 	 * with such a tree. 
 	 * 
-	 * @see PersistentBitPatternTree#create(Thread, File, ColumnHome, EfmModel, AdjEnumModel, BitPatternTree.Kind, int[], SortableMemory)
+	 * @see MappedBitPatternTree#create(File, ColumnHome, EfmModel, AdjEnumModel, BitPatternTree.Kind, int[], SortableMemory)
 	 */
 	@Override
 	protected <Col extends Column, N extends Number> BitPatternTree createTree(Thread treeOwner, ColumnHome<N, Col> columnHome, AdjEnumModel<Col> itModel, BitPatternTree.Kind kind, final int[] selectiveBits, SortableMemory<Col> columns) throws IOException {
-		return PersistentBitPatternTree.create(treeOwner, getConfig().getTempDir().getPersonalizedDir(), columnHome, getEfmModel(), itModel, kind, selectiveBits, columns);
+		return MappedBitPatternTree.create(getConfig().getTempDir().getPersonalizedDir(), columnHome, getEfmModel(), itModel, kind, selectiveBits, columns);
 	}
 	
 }
@@ -34,50 +34,71 @@
 package ch.javasoft.metabolic.efm.adj.incore;
 
 import java.io.IOException;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ch.javasoft.metabolic.efm.adj.AdjEnum;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.AdjEnumModel;
 import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.util.AdjacencyFilterUtil;
 
 abstract public class AbstractAdjacencyEnumerator implements AdjEnum {
 
 	protected Config 	mConfig;
 	protected EfmModel	mModel;
+	protected AdjacencyFilter mAdjacencyFilter;
 	public AbstractAdjacencyEnumerator() {
 		super();
 	}
 	
 	/**
-	 * Stores config and model into protected variables
+	 * Stores config, model and adjacency filter into protected variables
 	 */
 	public <Col extends Column, N extends Number> void initialize(ColumnHome<N,Col> columnHome, Config config, EfmModel model) {
 		mConfig = config;
 		mModel 	= model;
+		mAdjacencyFilter = AdjacencyFilterUtil.getAdjacencyFilter(config, model);
 	}
 	
 	@SuppressWarnings("unchecked")
 	public <Col extends Column, N extends Number> void adjacentPairs(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> adjModel) throws IOException {
-        final Queue<ColumnPair> adjacentPairs = new ConcurrentLinkedQueue<ColumnPair>();
+        //pairs are merged while enumerating, by a pool of merge threads
+        final MergingPairSink<N, Col> adjacentPairs = new MergingPairSink<N, Col>(columnHome, mModel, adjModel, mAdjacencyFilter, getMergeThreads());
         final SortableMemory<Column> memZer = (SortableMemory<Column>)adjModel.getMemoryZero();
         final SortableMemory<Column> memPos = (SortableMemory<Column>)adjModel.getMemoryPos();
         final SortableMemory<Column> memNeg = (SortableMemory<Column>)adjModel.getMemoryNeg();
-		adjacentPairs(adjacentPairs, memZer, memPos, memNeg);
-		while (!adjacentPairs.isEmpty()) {
-			final ColumnPair pair = adjacentPairs.poll();
-			final Col colA = columnHome.castColumn(pair.getColumnA());
-			final Col colB = columnHome.castColumn(pair.getColumnB());
-			final Col colN = colA.mergeWith(columnHome, mModel, colB, adjModel);
-			adjModel.getMemoryForNewFromAdj().appendColumn(colN);
-		}
+        boolean enumerated = false;
+        try {
+        	adjacentPairs(adjacentPairs, memZer, memPos, memNeg);
+        	enumerated = true;
+        }
+        finally {
+        	//abort without throwing, not to mask the enumeration exception 
+        	if (enumerated) adjacentPairs.finish();
+        	else adjacentPairs.abort();
+        }
 	}
-	abstract public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException;
+	/**
+	 * Returns the number of threads merging adjacent pairs, split off the
+	 * {@link EfmModel#getAdjEnumThreads() enumeration threads} since pairs
+	 * are merged by a {@link MergingPairSink}
+	 */
+	protected int getMergeThreads() {
+		return MergingPairSink.getMergeThreads(mModel.getAdjEnumThreads());
+	}
+	/**
+	 * Returns the number of threads to use for the enumeration, that is, the
+	 * {@link EfmModel#getAdjEnumThreads() enumeration threads} without the 
+	 * {@link #getMergeThreads() merge threads}
+	 */
+	protected int getEnumThreads() {
+		return mModel.getAdjEnumThreads() - getMergeThreads();
+	}
+	abstract public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException;
 	 
 	public Config getConfig() {
 		return mConfig;
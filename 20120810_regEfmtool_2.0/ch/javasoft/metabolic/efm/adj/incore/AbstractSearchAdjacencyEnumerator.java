@@ -34,11 +34,10 @@
 package ch.javasoft.metabolic.efm.adj.incore;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 /**
@@ -48,7 +47,7 @@ import ch.javasoft.metabolic.efm.memory.SortableMemory;
 abstract public class AbstractSearchAdjacencyEnumerator extends AbstractAdjacencyEnumerator {
 
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
 		final int minCard = mModel.getRequiredCardinality();
 		final AdjCandidates<Column> candidates = new AdjCandidates<Column>(posCols, negCols, 1);
 		final int posCnt = posCols.getColumnCount();
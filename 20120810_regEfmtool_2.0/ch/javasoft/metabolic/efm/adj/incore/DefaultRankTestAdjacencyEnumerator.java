@@ -34,12 +34,12 @@
 package ch.javasoft.metabolic.efm.adj.incore;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
@@ -83,7 +83,7 @@ public class DefaultRankTestAdjacencyEnumerator extends AbstractAdjacencyEnumera
 	}
 	
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
 		for (final Column colP : posCols) {
 			for (final Column colN : negCols) {
         		final ColumnPair pair = new ColumnPair<Column>(colP, colN);
@@ -0,0 +1,263 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.adj.incore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.model.AdjEnumModel;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.util.AdjacencyFilterUtil;
+import ch.javasoft.util.ExceptionUtil;
+
+/**
+ * The <code>MergingPairSink</code> is the sink for adjacent pairs found by
+ * the adjacency enumerators. The pairs are not collected, but merged into new
+ * columns and appended to the 
+ * {@link AdjEnumModel#getMemoryForNewFromAdj() memory for new columns} while
+ * the enumeration is still in progress.
+ * <p>
+ * With merge threads, the enumerating threads put the pairs into a bounded
+ * buffer, and the merge threads take them from there. If the buffer is full, 
+ * the enumerating threads block until the merge threads catch up. Without 
+ * merge threads, pairs are merged directly by the enumerating threads. In 
+ * both cases, the number of pending pairs is bounded, and not all pairs of an
+ * iteration are kept in memory. The creator of the sink splits the 
+ * {@link EfmModel#getAdjEnumThreads() enumeration threads} into merge threads,
+ * see {@link #getMergeThreads(int)}, and the remaining threads used for the 
+ * enumeration itself.
+ * <p>
+ * After a successful enumeration, {@link #finish()} must be called, waiting 
+ * for the merge threads to complete and throwing exceptions caught during 
+ * merging. If the enumeration fails, {@link #abort()} stops the merge threads
+ * without throwing.
+ */
+public class MergingPairSink<N extends Number, Col extends Column> implements ColumnPairSink {
+	
+	/**
+	 * System property defining the number of buffered pairs per merge thread,
+	 * default is {@link #DEFAULT_BUFFER_SIZE_PER_THREAD}
+	 */
+	public static final String SYSTEM_PROPERTY_BUFFER_SIZE = MergingPairSink.class.getName() + ".buffer-size";
+	/**
+	 * Default number of buffered pairs per merge thread
+	 */
+	public static final int DEFAULT_BUFFER_SIZE_PER_THREAD = 1024;
+	
+	private static final ColumnPair<Column> END = new ColumnPair<Column>(null, null);
+	
+	private final ColumnHome<N, Col>	mColumnHome;
+	private final EfmModel				mEfmModel;
+	private final AdjEnumModel<Col>		mAdjModel;
+	private final AdjacencyFilter		mAdjacencyFilter;
+	
+	private final BlockingQueue<ColumnPair> mBuffer;
+	private final List<Thread>				mThreads;
+	private volatile Throwable				mFailure;
+	private volatile boolean				mAborted;
+	
+	/**
+	 * Constructor for <code>MergingPairSink</code>, starting the merge 
+	 * threads if <tt>threadCount</tt> is positive
+	 * 
+	 * @param columnHome		column home for the number type
+	 * @param efmModel			the efm model, used for merging
+	 * @param adjModel			the adjacency model for the current iteration,
+	 * 							new columns are appended to its 
+	 * 							{@link AdjEnumModel#getMemoryForNewFromAdj() concurrent memory}
+	 * @param adjacencyFilter	filter for pairs not pruned during enumeration,
+	 * 							or null if no filtering is desired
+	 * @param threadCount		number of merge threads, pairs are merged by
+	 * 							the enumerating threads if zero
+	 */
+	public MergingPairSink(ColumnHome<N, Col> columnHome, EfmModel efmModel, AdjEnumModel<Col> adjModel, AdjacencyFilter adjacencyFilter, int threadCount) {
+		mColumnHome			= columnHome;
+		mEfmModel			= efmModel;
+		mAdjModel			= adjModel;
+		mAdjacencyFilter	= adjacencyFilter;
+		if (threadCount > 0) {
+			final int bufferSize = Integer.getInteger(SYSTEM_PROPERTY_BUFFER_SIZE, DEFAULT_BUFFER_SIZE_PER_THREAD).intValue();
+			mBuffer		= new LinkedBlockingQueue<ColumnPair>(Math.max(1, bufferSize) * threadCount);
+			mThreads	= new ArrayList<Thread>(threadCount);
+			for (int i = 0; i < threadCount; i++) {
+				final Thread thread = new Thread(new Runnable() {
+					public void run() {
+						mergeBuffered();
+					}
+				}, "merge-pairs-" + (i + 1));
+				thread.setDaemon(true);
+				mThreads.add(thread);
+				thread.start();
+			}
+		}
+		else {
+			mBuffer		= null;
+			mThreads	= null;
+		}
+	}
+	
+	/**
+	 * Returns the number of merge threads to split off the given number of
+	 * threads available for enumeration and merging, a quarter of the 
+	 * threads, thus 0 for less than 4 threads
+	 * 
+	 * @param threads	the total number of threads for enumeration and 
+	 * 					merging, usually the
+	 * 					{@link EfmModel#getAdjEnumThreads() enumeration threads}
+	 * @return the number of merge threads, the remaining threads are used to
+	 * 			enumerate the adjacent pairs
+	 */
+	public static int getMergeThreads(int threads) {
+		return threads / 4;
+	}
+	
+	/**
+	 * Merges the given pair, either directly or by putting it into the buffer
+	 * for the merge threads. Blocks if the buffer is full.
+	 * 
+	 * @throws IOException	if merging failed, i/o exceptions are thrown as is,
+	 * 						other checked exceptions are nested
+	 */
+	public void add(ColumnPair pair) throws IOException {
+		if (mBuffer == null) {
+			merge(pair);
+			return;
+		}
+		try {
+			while (!mBuffer.offer(pair, 100, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+			}
+		}
+		catch (InterruptedException e) {
+			throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, e);
+		}
+		checkFailure();
+	}
+	
+	private void checkFailure() throws IOException {
+		final Throwable failure = mFailure;
+		if (failure != null) {
+			throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, failure);
+		}
+	}
+
+	private void merge(ColumnPair pair) throws IOException {
+		final Col colA = mColumnHome.castColumn(pair.getColumnA());
+		final Col colB = mColumnHome.castColumn(pair.getColumnB());
+		//subclasses not pruning during enumeration are filtered here
+		if (AdjacencyFilterUtil.keepPair(mAdjacencyFilter, colA, colB)) {
+			final Col colN = colA.mergeWith(mColumnHome, mEfmModel, colB, mAdjModel);
+			mAdjModel.getMemoryForNewFromAdj().appendColumn(colN);
+		}
+	}
+	
+	private void mergeBuffered() {
+		try {
+			ColumnPair pair = mBuffer.take();
+			while (pair != END) {
+				if (mFailure == null && !mAborted) {
+					try {
+						merge(pair);
+					}
+					catch (Throwable e) {
+						mFailure = e;
+					}
+				}
+				//after a failure, continue taking pairs to unblock producers
+				pair = mBuffer.take();
+			}
+		}
+		catch (InterruptedException e) {
+			mFailure = e;
+		}
+	}
+	
+	/**
+	 * Sends the end token to the merge threads and waits until they have 
+	 * terminated
+	 */
+	private void stopThreads() throws InterruptedException {
+		for (int i = 0; i < mThreads.size(); i++) {
+			mBuffer.put(END);
+		}
+		for (final Thread thread : mThreads) {
+			thread.join();
+		}
+	}
+	
+	/**
+	 * Waits until all pairs have been merged and stops the merge threads.
+	 * 
+	 * @throws IOException	if merging failed, i/o exceptions are thrown as is,
+	 * 						other checked exceptions are nested
+	 */
+	public void finish() throws IOException {
+		if (mThreads != null) {
+			try {
+				stopThreads();
+			}
+			catch (InterruptedException e) {
+				throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, e);
+			}
+		}
+		checkFailure();
+	}
+	
+	/**
+	 * Stops the merge threads after a failed enumeration, discarding pending 
+	 * pairs. Exceptions caught during merging are not thrown, the failure of 
+	 * the enumeration is usually the cause and must not be masked.
+	 */
+	public void abort() {
+		mAborted = true;
+		if (mThreads != null) {
+			try {
+				stopThreads();
+			}
+			catch (InterruptedException e) {
+				//keep the interrupted state for the caller
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -34,7 +34,6 @@
 package ch.javasoft.metabolic.efm.adj.incore;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.adj.incore.tree.AbstractRoot;
@@ -43,7 +42,7 @@ import ch.javasoft.metabolic.efm.adj.incore.tree.Node;
 import ch.javasoft.metabolic.efm.adj.incore.tree.TreeFactory;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 /**
@@ -65,7 +64,7 @@ public class PatternTreeSearchAdjacencyEnumerator extends AbstractSearchAdjacenc
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
 		final TreeFactory<Void> fac = new DefaultTreeFactory(mModel);
 		nodePos = fac.createNode(posCols, AbstractRoot.calculateXorBitOrder(posCols), -1, 0, posCols.getColumnCount());
 		nodeNeg = fac.createNode(negCols, AbstractRoot.calculateXorBitOrder(negCols), -1, 0, negCols.getColumnCount());
@@ -34,14 +34,14 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.adj.incore.AbstractAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.RankAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.rank.RankRoot;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
@@ -68,11 +68,22 @@ abstract public class AbstractPatternTreeRankAdjacencyEnumerator extends Abstrac
 	abstract protected RankAdjacencyEnumerator createRankAdjacencyEnumeratorDelegate();
 	
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
-//    	TreeFactory<SemaphoreConcurrentToken> fac = new SemIncMultiThreadTreeFactory(threads);
-    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel);//faster, mainly if cpu-cores > 2
-    	Root<SemaphoreConcurrentToken> root = new RankRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, mRankEnum, posCols, zerCols, negCols);
-    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+		//some threads are merging the adjacent pairs, see MergingPairSink
+		final int threads = getEnumThreads();
+		if (NumaNodes.isSharding()) {
+			//node aware job queues, see JobQueue
+//	    	TreeFactory<SemaphoreConcurrentToken> fac = new SemIncMultiThreadTreeFactory(threads);
+	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel, threads);//faster, mainly if cpu-cores > 2
+	    	Root<SemaphoreConcurrentToken> root = new RankRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, mRankEnum, posCols, zerCols, negCols);
+	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
+		}
+		else {
+			//work stealing fork/join pool, or normal, 1 thread
+			final TreeFactory<Void> fac = threads > 1 ? new ForkJoinTreeFactory(mModel, threads) : new DefaultTreeFactory(mModel, threads);
+	    	Root<Void> root = new RankRoot<Void>(mConfig, mModel, fac, mRankEnum, posCols, zerCols, negCols);
+	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
+		}
 	}
 
 
@@ -38,11 +38,15 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Random;
 
+import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.math.BigFraction;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.ExternalSortableMemory;
 import ch.javasoft.metabolic.efm.memory.IndexableMemory;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.tree.TreeMemAdjEnum;
 import ch.javasoft.metabolic.efm.util.ColumnUtil;
@@ -57,12 +61,22 @@ abstract public class AbstractRoot<T /*traversing token*/> implements Root<T> {
 	protected final int[]			mSelectiveBits;
 	protected final Node<T>			mPos;
 	protected final Node<T>			mNeg;
+	protected final AdjacencyFilter	mAdjacencyFilter;
 	
-	@SuppressWarnings("unchecked")
 	public AbstractRoot(Config config, EfmModel model, TreeFactory<T> treeFactory, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols) {
+		this(config, model, treeFactory, null /*adjacencyFilter*/, posCols, zeroCols, negCols);
+	}
+	/**
+	 * Constructor with an adjacency filter, which is used to cut off subtree
+	 * pairs and to drop candidates before the adjacency test. The filter
+	 * might be null if no filtering is desired.
+	 */
+	@SuppressWarnings("unchecked")
+	public AbstractRoot(Config config, EfmModel model, TreeFactory<T> treeFactory, AdjacencyFilter adjacencyFilter, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols) {
 		mConfig 		= config;
 		mModel			= model;
 		mTreeFactory	= treeFactory;
+		mAdjacencyFilter= adjacencyFilter;
 
 		try {
 			//no sorting, seems as fast since trees use path-shortening
@@ -71,14 +85,55 @@ abstract public class AbstractRoot<T /*traversing token*/> implements Root<T> {
 //			mSelectiveBits = calculateBitOrder(posCols.getColumnCount() > negCols.getColumnCount() ? posCols : negCols);
 //			mSelectiveBits = calculateBitOrder(posCols, negCols, zeroCols);
 			mSelectiveBits = calculateXorBitOrder(posCols, negCols);
+			presort(posCols, mSelectiveBits);
+			presort(negCols, mSelectiveBits);
 			mPos = treeFactory.createNode(posCols, mSelectiveBits, -1 /*prevSelBitIndex*/, 0, posCols.getColumnCount());
 			mNeg = treeFactory.createNode(negCols, mSelectiveBits, -1 /*prevSelBitIndex*/, 0, negCols.getColumnCount());
+			//after tree construction, which partitions the columns by swapping
+			//them, the columns keep their index and node
+			InCoreMemory.localizeShards(posCols);
+			InCoreMemory.localizeShards(negCols);
 		}
 		catch (IOException ex) {
 			throw new RuntimeException(ex);
 		}
 	}
 
+	/**
+	 * If the columns can be sorted externally, they are sorted by selective
+	 * bits. The sort order coincides with the partitioning performed during 
+	 * tree construction, thus, the column partitioning finds the columns in
+	 * place and needs no swapping. For file based memories, random swap 
+	 * operations are replaced by sequential i/o.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void presort(SortableMemory<Column> cols, int[] selectiveBits) throws IOException {
+		if (cols instanceof ExternalSortableMemory) {
+			((ExternalSortableMemory<Column>)cols).sortColumns(createSelectiveBitComparator(selectiveBits));
+		}
+	}
+	
+	/**
+	 * Returns a comparator ordering columns lexicographically by the given 
+	 * selective bits, columns with a cleared bit preceding those with a set
+	 * bit. This is the order established by 
+	 * {@link ch.javasoft.metabolic.efm.column.AbstractColumn#partition(SortableMemory, int, int, int) partitioning}
+	 * the columns successively by the selective bits.
+	 */
+	public static Comparator<Column> createSelectiveBitComparator(final int[] selectiveBits) {
+		return new Comparator<Column>() {
+			public int compare(Column colA, Column colB) {
+				for (final int bit : selectiveBits) {
+					final boolean bitA = colA.get(bit);
+					if (bitA != colB.get(bit)) {
+						return bitA ? 1 : -1;
+					}
+				}
+				return 0;
+			}
+		};
+	}
+
 	public Zero zero() {
 		return mConfig.zero();
 	}
@@ -110,7 +165,11 @@ abstract public class AbstractRoot<T /*traversing token*/> implements Root<T> {
 	
 	public boolean enterIfCandidates(T token, Node<T> nodeA, Node<T> nodeB) {
 		final int interCard = nodeA.unionPattern.getAndCardinality(nodeB.unionPattern);
-		return isRequiredZeroBitCount(token, interCard);// && mModel.columnPairFilter.keepPair(booleanSize(), numericSize(), unionCut, mConfig, mModel.reactionMapping);		
+		return isRequiredZeroBitCount(token, interCard) &&// && mModel.columnPairFilter.keepPair(booleanSize(), numericSize(), unionCut, mConfig, mModel.reactionMapping);
+			(mAdjacencyFilter == null || mAdjacencyFilter.mightKeepAny(nodeA.unionPattern, nodeB.unionPattern, booleanSize()));
+	}
+	public boolean isAcceptedCandidate(T token, IBitSet patternA, IBitSet patternB) {
+		return mAdjacencyFilter == null || mAdjacencyFilter.keepPair(patternA, patternB, booleanSize());
 	}
 	public void leave(T token, Node<T> nodeA, Node<T> nodeB) {
 		//nothing to do here
@@ -42,9 +42,19 @@ import ch.javasoft.metabolic.efm.model.EfmModel;
 abstract public class AbstractTreeFactory<T /*traversing token*/> implements TreeFactory<T> {
 	
 	protected final EfmModel efmModel;
+	protected final int threads;
 	
 	public AbstractTreeFactory(EfmModel efmModel) {
-		this.efmModel = efmModel;
+		this(efmModel, efmModel.getAdjEnumThreads());
+	}
+	/**
+	 * Constructor with specified number of threads to use for the traversal,
+	 * for instance if some of the {@link EfmModel#getAdjEnumThreads() 
+	 * enumeration threads} are used to merge adjacent pairs
+	 */
+	public AbstractTreeFactory(EfmModel efmModel, int threads) {
+		this.efmModel	= efmModel;
+		this.threads	= threads;
 	}
 
 	protected Node<T> createInterNode(SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
@@ -34,10 +34,9 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 
@@ -46,10 +45,13 @@ public class DefaultTreeFactory extends AbstractTreeFactory<Void> {
 	public DefaultTreeFactory(EfmModel efmModel) {
 		super(efmModel);
 	}
+	public DefaultTreeFactory(EfmModel efmModel, int threads) {
+		super(efmModel, threads);
+	}
 
 	public Traverser<Void> createTraverser() {
 		return new Traverser<Void>() {
-			public void traverseTree(Root<Void> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void traverseTree(Root<Void> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
 				root.pos().addAdjacentPairs(null, root, posCols, zeroCols, negCols, root.neg(), true /*thisIsPos*/, adjacentPairs);
 			}			
 		};
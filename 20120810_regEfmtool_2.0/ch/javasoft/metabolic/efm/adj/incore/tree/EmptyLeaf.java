@@ -34,12 +34,11 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.util.BitSetUtil;
 
@@ -55,7 +54,7 @@ public class EmptyLeaf<T /*traversing token*/> extends Node<T> {
 		super(BitSetUtil.factory().create());
 	}
 	@Override
-	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 		//nothing to do
 	}
 	@Override
@@ -0,0 +1,208 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.adj.incore.tree;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+
+/**
+ * Tree factory traversing the trees with a work-stealing 
+ * {@link ForkJoinPool}. A pair of subtrees is split recursively into the
+ * pairs of their child nodes, each pair being a {@link RecursiveAction}. Idle
+ * threads steal pending pairs from busy threads, thus, skewed trees do not 
+ * leave threads idle as with statically created jobs, see 
+ * {@link JobScheduleMultiThreadTreeFactory}.
+ * <p>
+ * The granularity adapts to the subtree sizes: pairs with fewer candidates 
+ * than a fraction of all candidates are not split, and neither are pairs if
+ * the current thread has enough queued tasks for other threads to steal.
+ * <p>
+ * There is one long lived pool per number of threads, shared by all 
+ * traversals with this number of threads. Pools are never shut down, since
+ * traversals with different thread counts might run concurrently, e.g. in 
+ * the born/die algorithm. The number of pools is bounded by the maximum 
+ * number of threads, and idle pool threads terminate.
+ */
+public class ForkJoinTreeFactory extends DefaultTreeFactory {
+	
+	/**
+	 * Pairs with fewer adjacency candidates are never split
+	 */
+	public static final long MIN_SPLIT_CANDIDATES = 1024;
+	/**
+	 * The minimum number of tasks per thread. Pairs having fewer candidates 
+	 * than the total candidate count divided by this number and the thread 
+	 * count are not split.
+	 */
+	public static final int TASKS_PER_THREAD = 64;
+	/**
+	 * Pairs are not split if the current thread has more surplus tasks 
+	 * queued, that is, more tasks than other threads are likely to steal
+	 */
+	public static final int MAX_SURPLUS_TASKS = 3;
+
+	private static final Map<Integer, ForkJoinPool> sPools = new HashMap<Integer, ForkJoinPool>();
+	
+	public ForkJoinTreeFactory(EfmModel efmModel) {
+		super(efmModel);
+	}
+	public ForkJoinTreeFactory(EfmModel efmModel, int threads) {
+		super(efmModel, threads);
+	}
+	
+	/**
+	 * Returns the shared pool with the given parallelism, creating it if
+	 * necessary
+	 */
+	private static ForkJoinPool getPool(int parallelism) {
+		synchronized (sPools) {
+			ForkJoinPool pool = sPools.get(Integer.valueOf(parallelism));
+			if (pool == null) {
+				pool = new ForkJoinPool(parallelism);
+				sPools.put(Integer.valueOf(parallelism), pool);
+			}
+			return pool;
+		}
+	}
+	
+	@Override
+	public Traverser<Void> createTraverser() {
+		return new Traverser<Void>() {
+			public void traverseTree(Root<Void> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
+				final int parallelism = Math.max(1, threads);
+				final long candidates = size(root.pos()) * size(root.neg());
+				final long minSplit = Math.max(MIN_SPLIT_CANDIDATES, candidates / parallelism / TASKS_PER_THREAD);
+				final PairTask task = new PairTask(root, posCols, zeroCols, negCols, adjacentPairs, minSplit, root.pos(), root.neg());
+				try {
+					getPool(parallelism).invoke(task);
+				}
+				catch (RuntimeException e) {
+					//rethrow i/o exceptions nested by the tasks
+					for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+						if (cause instanceof IOException) throw (IOException)cause;
+					}
+					throw e;
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Returns the number of columns in the given subtree, or 1 if unknown
+	 */
+	private static long size(Node<Void> node) {
+		if (node instanceof InterNode) return ((InterNode<Void>)node).size;
+		if (node instanceof Leaf) return ((Leaf<Void>)node).end - ((Leaf<Void>)node).start;
+		return 1;
+	}
+
+	/**
+	 * Task for a pair of subtrees, node A of the positive and node B of the
+	 * negative tree
+	 */
+	private static class PairTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final Root<Void> 				root;
+		private final SortableMemory<Column> 	posCols;
+		private final SortableMemory<Column> 	zeroCols;
+		private final SortableMemory<Column> 	negCols;
+		private final ColumnPairSink 		adjacentPairs;
+		private final long						minSplit;
+		private final Node<Void>				nodeA;
+		private final Node<Void>				nodeB;
+		
+		public PairTask(Root<Void> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs, long minSplit, Node<Void> nodeA, Node<Void> nodeB) {
+			this.root			= root;
+			this.posCols		= posCols;
+			this.zeroCols		= zeroCols;
+			this.negCols		= negCols;
+			this.adjacentPairs	= adjacentPairs;
+			this.minSplit		= minSplit;
+			this.nodeA			= nodeA;
+			this.nodeB			= nodeB;
+		}
+		private PairTask child(Node<Void> childA, Node<Void> childB) {
+			return new PairTask(root, posCols, zeroCols, negCols, adjacentPairs, minSplit, childA, childB);
+		}
+		
+		@Override
+		protected void compute() {
+			try {
+				final boolean splitA = nodeA instanceof InterNode;
+				final boolean splitB = nodeB instanceof InterNode;
+				if ((!splitA && !splitB) || size(nodeA) * size(nodeB) < minSplit || getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+					nodeA.addAdjacentPairs(null, root, posCols, zeroCols, negCols, nodeB, true /*thisIsPos*/, adjacentPairs);
+				}
+				else if (root.enterIfCandidates(null, nodeA, nodeB)) {
+					try {
+						if (splitA && splitB) {
+							final InterNode<Void> interA = (InterNode<Void>)nodeA;
+							final InterNode<Void> interB = (InterNode<Void>)nodeB;
+							invokeAll(
+								child(interA.child0, interB.child0),
+								child(interA.child0, interB.child1),
+								child(interA.child1, interB.child0),
+								child(interA.child1, interB.child1)
+							);
+						}
+						else if (splitA) {
+							final InterNode<Void> interA = (InterNode<Void>)nodeA;
+							invokeAll(child(interA.child0, nodeB), child(interA.child1, nodeB));
+						}
+						else {
+							final InterNode<Void> interB = (InterNode<Void>)nodeB;
+							invokeAll(child(nodeA, interB.child0), child(nodeA, interB.child1));
+						}
+					}
+					finally {
+						root.leave(null, nodeA, nodeB);
+					}
+				}
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+}
@@ -34,20 +34,24 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AbstractColumn;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 public class InterNode<T /*traversing token*/> extends Node<T> {
 	public final Node<T> child0;
 	public final Node<T> child1;
+	/**
+	 * The number of columns in this subtree
+	 */
+	public final int size;
 	protected InterNode(TreeFactory<T> treeFactory, SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
 		super(Node.calculateUnionPattern(cols, iStart, iEnd));
+		size = iEnd - iStart;
 		
 		//this loop does path-shortening:
 		//- intermediary nodes with only one child are shortened
@@ -61,7 +65,7 @@ public class InterNode<T /*traversing token*/> extends Node<T> {
 		child1 = treeFactory.createNode(cols, selectiveBits, prevSelBitIndex, median, iEnd);
 	}
 	@Override
-	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 		if (root.enterIfCandidates(token, this, partner)) {
     		if (partner instanceof InterNode) {
     			InterNode<T> interPartner = (InterNode<T>)partner;
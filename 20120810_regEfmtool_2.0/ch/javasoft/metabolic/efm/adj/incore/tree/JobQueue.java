@@ -34,13 +34,13 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.concurrent.ConcurrentToken;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.concurrent.ReleasePolicy;
 import ch.javasoft.metabolic.efm.concurrent.TimeoutWaitingReleasePolicy;
 import ch.javasoft.metabolic.efm.config.Config;
@@ -49,6 +49,12 @@ import ch.javasoft.metabolic.efm.memory.SortableMemory;
 /**
  * Tree recursions are split up into jobs, each job is an instance of
  * {@link Runnable}. The different threads can then invoke jobs.
+ * <p>
+ * If multiple {@link NumaNodes NUMA nodes} are used, every node has its own 
+ * job queue. A job is assigned to the node owning the positive columns of the
+ * job, and threads are bound to nodes in a round robin manner. A thread first
+ * processes the jobs of its own node, and then helps other nodes by stealing
+ * their jobs. With a single node, all jobs are in one queue.
  */
 public class JobQueue<T extends ConcurrentToken> {
 
@@ -62,10 +68,10 @@ public class JobQueue<T extends ConcurrentToken> {
 //	private final Node<T> nodeA;
 //	private final Node<T> nodeB;
 	private final boolean nodeAIsPos;
-	private final Queue<ColumnPair> adjacentPairs;	
-	private final ConcurrentLinkedQueue<Runnable> queue;
+	private final ColumnPairSink adjacentPairs;	
+	private final ConcurrentLinkedQueue<Runnable>[] queues;
 	
-	public JobQueue(final Config config, final int threadCount, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	public JobQueue(final Config config, final int threadCount, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 //		this.config			= config;
 //		this.threadCount 	= threadCount;
 //		this.semaphore		= semaphore;
@@ -78,10 +84,10 @@ public class JobQueue<T extends ConcurrentToken> {
 //		this.nodeB			= nodeB;
 		this.nodeAIsPos		= nodeAIsPos;
 		this.adjacentPairs	= adjacentPairs;
-		this.queue 			= getJobQueue(nodeA, nodeB);
+		this.queues			= getJobQueues(nodeA, nodeB);
 	}
 	
-	public static <T extends ConcurrentToken, I> JobQueue<T> createQueue(final Config config, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	public static <T extends ConcurrentToken, I> JobQueue<T> createQueue(final Config config, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 		final int threadCount = token.drainPermits();
 		if (threadCount > 0) {
 //			System.out.print(threadCount);
@@ -99,19 +105,22 @@ public class JobQueue<T extends ConcurrentToken> {
 	 */
 	public static final int MAX_LEVEL_DEPTH = 6; 
 
-	private <I> void startChildThreads(final Config config, final int threadCount, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	private <I> void startChildThreads(final Config config, final int threadCount, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 		final ReleasePolicy releasePolicy;
 //		releasePolicy	= new ImmediateReleasePolicy();
 //		releasePolicy	= new WaitForHalfReleasePolicy();
 		releasePolicy	= new TimeoutWaitingReleasePolicy();
 		releasePolicy.initialize(config, 4 << MAX_LEVEL_DEPTH, threadCount);
 		for (int i = 0; i < threadCount; i++) {
+			final int node = i % queues.length;
 			token.createChildThread(new Callable<Void>() {
 				public Void call() throws Exception {
-					Runnable job = queue.poll();
-					while (job != null) {
-						job.run();
-						job = queue.poll();
+					NumaNodes.bindCurrentThread(node);
+					try {
+						execJobs(node);
+					}
+					finally {
+						NumaNodes.unbindCurrentThread();
 					}
 					releasePolicy.releasePermit(token);
 					return null;//void
@@ -121,23 +130,40 @@ public class JobQueue<T extends ConcurrentToken> {
 	}
 	
 	public void execParentThread() {
-		Runnable job = queue.poll();
-		while (job != null) {
-			job.run();
-			job = queue.poll();
+		final int node = NumaNodes.getCurrentNode();
+		execJobs(node < 0 ? 0 : node % queues.length);
+	}
+	
+	/**
+	 * Executes the jobs of the given node, and afterwards those of the other
+	 * nodes, until all queues are empty
+	 */
+	private void execJobs(int node) {
+		for (int i = 0; i < queues.length; i++) {
+			final ConcurrentLinkedQueue<Runnable> queue = queues[(node + i) % queues.length];
+			Runnable job = queue.poll();
+			while (job != null) {
+				job.run();
+				job = queue.poll();
+			}
 		}
 	}
 	
 	/**
-	 * Returns the job queue with recursive calls up to the given level depth
+	 * Returns the job queues, one per node, with recursive calls up to the 
+	 * given level depth
 	 */
-	private ConcurrentLinkedQueue<Runnable> getJobQueue(final Node<T> nodeA, final Node<T> nodeB) {
-		final ConcurrentLinkedQueue<Runnable> jobs = new ConcurrentLinkedQueue<Runnable>();
+	@SuppressWarnings("unchecked")
+	private ConcurrentLinkedQueue<Runnable>[] getJobQueues(final Node<T> nodeA, final Node<T> nodeB) {
+		final ConcurrentLinkedQueue<Runnable>[] jobs = new ConcurrentLinkedQueue[NumaNodes.getNodeCount()];
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i] = new ConcurrentLinkedQueue<Runnable>();
+		}
 		addToJobQueue(0, jobs, nodeA, nodeB);
 		return jobs;
 	}
 	
-	private void addToJobQueue(int level, final ConcurrentLinkedQueue<Runnable> jobs, final Node<T> nodeA, final Node<T> nodeB) {
+	private void addToJobQueue(int level, final ConcurrentLinkedQueue<Runnable>[] jobs, final Node<T> nodeA, final Node<T> nodeB) {
 		if (level < MAX_LEVEL_DEPTH) {
 			level++;
 			if (nodeA instanceof InterNode) {
@@ -175,8 +201,9 @@ public class JobQueue<T extends ConcurrentToken> {
 			addJobToQueue(jobs, nodeA, nodeB);
 		}
 	}
-	private void addJobToQueue(final ConcurrentLinkedQueue<Runnable> jobs, final Node<T> nodeA, final Node<T> nodeB) {
-		jobs.add(new Runnable() {
+	private void addJobToQueue(final ConcurrentLinkedQueue<Runnable>[] jobs, final Node<T> nodeA, final Node<T> nodeB) {
+		final int node = jobs.length == 1 ? 0 : getPosNode(nodeAIsPos ? nodeA : nodeB);
+		jobs[node].add(new Runnable() {
 			public void run() {
 				try {
 					nodeA.addAdjacentPairs(token, root, posCols, zeroCols, negCols, nodeB, nodeAIsPos, adjacentPairs);
@@ -187,5 +214,31 @@ public class JobQueue<T extends ConcurrentToken> {
 			}
 		});
 	}	
+	
+	/**
+	 * Returns the node owning the first positive column of the given tree 
+	 * node, or 0 if the tree node references no column directly
+	 */
+	private int getPosNode(Node<T> posNode) {
+		while (posNode instanceof InterNode) {
+			posNode = ((InterNode<T>)posNode).child0;
+		}
+		final int index;
+		if (posNode instanceof Leaf) {
+			index = ((Leaf<T>)posNode).start;
+		}
+		else if (posNode instanceof UnaryLeaf) {
+			index = ((UnaryLeaf<T>)posNode).columnIndex;
+		}
+		else {
+			return 0;
+		}
+		try {
+			return NumaNodes.getNodeForIndex(index, posCols.getColumnCount());
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
 
 }
@@ -34,10 +34,9 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
@@ -53,17 +52,24 @@ import ch.javasoft.metabolic.efm.model.EfmModel;
 public class JobScheduleMultiThreadTreeFactory extends AbstractTreeFactory<SemaphoreConcurrentToken> {
 	
 	/**
-	 * Constructor with specified number of threads to use
+	 * Constructor using the {@link EfmModel#getAdjEnumThreads() enumeration 
+	 * threads} of the model
 	 */
 	public JobScheduleMultiThreadTreeFactory(EfmModel efmModel) {		
 		super(efmModel);
 	}
+	/**
+	 * Constructor with specified number of threads to use
+	 */
+	public JobScheduleMultiThreadTreeFactory(EfmModel efmModel, int threads) {		
+		super(efmModel, threads);
+	}
 	
 	@Override
 	public InterNode<SemaphoreConcurrentToken> createInterNode(SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
 		return new InterNode<SemaphoreConcurrentToken>(this, cols, selectiveBits, prevSelBitIndex, iStart, iEnd) {
 			@Override
-			public void addAdjacentPairs(final SemaphoreConcurrentToken token, final Root<SemaphoreConcurrentToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<SemaphoreConcurrentToken> partner, final boolean thisIsPos, final Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void addAdjacentPairs(final SemaphoreConcurrentToken token, final Root<SemaphoreConcurrentToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<SemaphoreConcurrentToken> partner, final boolean thisIsPos, final ColumnPairSink adjacentPairs) throws IOException {
 				if (root.enterIfCandidates(token, this, partner)) {
 		    		if (partner instanceof InterNode) {
 						final JobQueue<SemaphoreConcurrentToken> queue = JobQueue.createQueue(efmModel.getConfig(), token, root, posCols, zeroCols, negCols, this, partner, thisIsPos, adjacentPairs);
@@ -90,8 +96,8 @@ public class JobScheduleMultiThreadTreeFactory extends AbstractTreeFactory<Semap
 	}
 	public Traverser<SemaphoreConcurrentToken> createTraverser() {
 		return new Traverser<SemaphoreConcurrentToken>() {
-			public void traverseTree(Root<SemaphoreConcurrentToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Queue<ColumnPair> adjacentPairs) throws IOException {
-				SemaphoreConcurrentToken token = new SemaphoreConcurrentToken(efmModel);
+			public void traverseTree(Root<SemaphoreConcurrentToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
+				SemaphoreConcurrentToken token = new SemaphoreConcurrentToken(threads);
 				if (token.tryAcquirePermit()) {//since current thread is one of them
 					root.pos().addAdjacentPairs(token, root, posCols, zeroCols, negCols, root.neg(), true /*thisIsPos*/, adjacentPairs);
 					token.releasePermit();
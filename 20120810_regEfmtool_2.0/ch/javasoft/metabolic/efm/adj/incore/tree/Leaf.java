@@ -34,12 +34,11 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 public class Leaf<T /*traversing token*/> extends Node<T> {
@@ -53,7 +52,7 @@ public class Leaf<T /*traversing token*/> extends Node<T> {
 		end		= iEnd;
 	}
 	@Override
-	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 		if (root.enterIfCandidates(token, this, partner)) {
 			if (partner instanceof Leaf) {
 				final Leaf<T> leafPartner = ((Leaf<T>)partner);    		
@@ -72,14 +71,15 @@ public class Leaf<T /*traversing token*/> extends Node<T> {
 			root.leave(token, this, partner);
 		}
 	}
-	private IBitSet addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> thisCols, SortableMemory<Column> partnerCols, final Leaf partner, final AdjCandidates<Column> adjCandidates, Queue<ColumnPair> adjacentPairs) throws IOException {
+	private IBitSet addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> thisCols, SortableMemory<Column> partnerCols, final Leaf partner, final AdjCandidates<Column> adjCandidates, ColumnPairSink adjacentPairs) throws IOException {
 		IBitSet pat = null;
 		for (int ii = start; ii < end; ii++) {
 			for (int jj = partner.start; jj < partner.end; jj++) {
 				final int index = adjCandidates.size(); 
 				adjCandidates.add(thisCols, ii, partnerCols, jj);
 				final int interCard = adjCandidates.getIntersectionCardinality(index);
-				if (root.isRequiredZeroBitCount(token, interCard)) {
+				if (root.isRequiredZeroBitCount(token, interCard) && 
+					root.isAcceptedCandidate(token, adjCandidates.getColumnPos(index).bitValues(), adjCandidates.getColumnNeg(index).bitValues())) {
 //					if (root.keepByColumnPairFilter(pair)) {
 
 						//adjacent if |Z(r1)\Z(r2)| = 1 or |Z(r2)\Z(r1)| = 1
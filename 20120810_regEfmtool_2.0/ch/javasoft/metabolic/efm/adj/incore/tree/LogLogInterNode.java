@@ -34,13 +34,12 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AbstractColumn;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 public class LogLogInterNode<T /*traversing token*/> extends Node<T> {
@@ -82,7 +81,7 @@ public class LogLogInterNode<T /*traversing token*/> extends Node<T> {
 		}
     }
 	@Override
-	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 		if (root.enterIfCandidates(token, this, partner)) {
     		if (partner instanceof Leaf) {
                 for (int i = 0; i < children.length; i++) {
@@ -34,12 +34,12 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.IndexableMemory;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.util.BitSetUtil;
@@ -53,7 +53,9 @@ abstract public class Node<T /*traversing token*/> {
 	protected static IBitSet calculateUnionPattern(final IndexableMemory<Column> columns, final int start, final int end) {
 		try {
 			final int bitCount = ColumnUtil.getBooleanSize(columns);
-			IBitSet pat = BitSetUtil.factory().create(bitCount);
+			//same bit set class as the columns, keeps the inline bit set ops
+			final BitSetFactory factory = start < end ? columns.getColumn(start).bitValues().factory() : BitSetUtil.factory();
+			IBitSet pat = factory.create(bitCount);
 			for (int i = start; i < end; i++) {
 				IBitSet bits = columns.getColumn(i).bitValues();
 				pat.or(bits);
@@ -64,6 +66,6 @@ abstract public class Node<T /*traversing token*/> {
 			throw new RuntimeException(ex);
 		}
 	}
-	abstract public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException;
+	abstract public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException;
 	abstract public IBitSet filterAdjacentPairs(IBitSet filterCutPattern, SortableMemory<Column> cols, AdjCandidates<Column> adjCandidates) throws IOException;
 }
\ No newline at end of file
@@ -33,15 +33,14 @@
  */
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 public interface PoolToken {
 
-	<T extends PoolToken> boolean scheduleAsJob(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> nodeA, Node<T> nodeB, boolean nodeAIsPos, Queue<ColumnPair> adjacentPairs);
+	<T extends PoolToken> boolean scheduleAsJob(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> nodeA, Node<T> nodeB, boolean nodeAIsPos, ColumnPairSink adjacentPairs);
 	void execMainThread();
 
 }
@@ -34,10 +34,9 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 
@@ -57,7 +56,7 @@ public class PoolTreeFactory extends AbstractTreeFactory<PoolToken> {
 	public InterNode<PoolToken> createInterNode(SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
 		return new InterNode<PoolToken>(this, cols, selectiveBits, prevSelBitIndex, iStart, iEnd) {
 			@Override
-			public void addAdjacentPairs(final PoolToken token, final Root<PoolToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<PoolToken> partner, final boolean thisIsPos, final Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void addAdjacentPairs(final PoolToken token, final Root<PoolToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<PoolToken> partner, final boolean thisIsPos, final ColumnPairSink adjacentPairs) throws IOException {
 				if (!token.scheduleAsJob(token, root, posCols, zeroCols, negCols, this, partner, thisIsPos, adjacentPairs)) {
 					if (root.enterIfCandidates(token, this, partner)) {
 			    		if (partner instanceof InterNode) {
@@ -80,7 +79,7 @@ public class PoolTreeFactory extends AbstractTreeFactory<PoolToken> {
 	
 	public Traverser<PoolToken> createTraverser() {
 		return new Traverser<PoolToken>() {
-			public void traverseTree(Root<PoolToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void traverseTree(Root<PoolToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
 				if (!token.scheduleAsJob(token, root, posCols, zeroCols, negCols, root.pos(), root.neg(), true /*nodeAIsPos*/, adjacentPairs)) {
 					root.pos().addAdjacentPairs(token, root, posCols, zeroCols, negCols, root.neg(), true /*thisIsPos*/, adjacentPairs);
 				}
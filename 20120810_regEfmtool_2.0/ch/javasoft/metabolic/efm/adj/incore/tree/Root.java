@@ -100,6 +100,20 @@ public interface Root<T /*traversing token*/> {
 	 */
 	void leave(T token, Node<T> nodeA, Node<T> nodeB);
 	
+	/**
+	 * Returns true if the adjacency candidate consisting of the two columns
+	 * with the given bit patterns passes the 
+	 * {@link ch.javasoft.metabolic.efm.adj.AdjacencyFilter adjacency filter}, 
+	 * or if no such filter is installed. Rejected candidates are dropped 
+	 * before the adjacency test.
+	 * 
+	 * @param token		the traversing token
+	 * @param patternA	bit values of the first column
+	 * @param patternB	bit values of the second column
+	 * @return true if the candidate is kept
+	 */
+	boolean isAcceptedCandidate(T token, IBitSet patternA, IBitSet patternB);
+	
 	/**
 	 * Returns true if the given <code>count</code> is at least the minimum 
 	 * required zero bit count needed for adjacency
@@ -34,11 +34,10 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 import java.util.concurrent.Callable;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
@@ -56,7 +55,7 @@ public class SemIncMultiThreadTreeFactory extends AbstractTreeFactory<SemaphoreC
 	public InterNode<SemaphoreConcurrentToken> createInterNode(SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
 		return new InterNode<SemaphoreConcurrentToken>(this, cols, selectiveBits, prevSelBitIndex, iStart, iEnd) {
 			@Override
-			public void addAdjacentPairs(final SemaphoreConcurrentToken token, final Root<SemaphoreConcurrentToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<SemaphoreConcurrentToken> partner, final boolean thisIsPos, final Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void addAdjacentPairs(final SemaphoreConcurrentToken token, final Root<SemaphoreConcurrentToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<SemaphoreConcurrentToken> partner, final boolean thisIsPos, final ColumnPairSink adjacentPairs) throws IOException {
 				if (root.enterIfCandidates(token, this, partner)) {
 		    		if (partner instanceof InterNode) {
 		    			final InterNode<SemaphoreConcurrentToken> interPartner = (InterNode<SemaphoreConcurrentToken>)partner;
@@ -98,7 +97,7 @@ public class SemIncMultiThreadTreeFactory extends AbstractTreeFactory<SemaphoreC
 	
 	public Traverser<SemaphoreConcurrentToken> createTraverser() {
 		return new Traverser<SemaphoreConcurrentToken>() {
-			public void traverseTree(Root<SemaphoreConcurrentToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void traverseTree(Root<SemaphoreConcurrentToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
 				final SemaphoreConcurrentToken token = new SemaphoreConcurrentToken(efmModel);
 				if (token.tryAcquirePermit()) {//since current thread is one of them
 					root.pos().addAdjacentPairs(token, root, posCols, zeroCols, negCols, root.neg(), true /*thisIsPos*/, adjacentPairs);
@@ -40,7 +40,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CyclicBarrier;
 
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 
@@ -89,7 +89,7 @@ public class ThreadPoolToken implements PoolToken {
 		}		
 	}
 	
-	public <T extends PoolToken> boolean scheduleAsJob(final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	public <T extends PoolToken> boolean scheduleAsJob(final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 		int jobsToAdd = 64*threadCount - jobCount;
 		if (jobsToAdd > 0) {
 			jobCount += addToJobQueue(0, token, root, posCols, zeroCols, negCols, nodeA, nodeB, nodeAIsPos, adjacentPairs);
@@ -114,7 +114,7 @@ public class ThreadPoolToken implements PoolToken {
 	 * Returns true if the recursive invocation has been added to the job queue, and false if the 
 	 * caller should execute the recursion
 	 */
-	private <T extends PoolToken> int addToJobQueue(int level, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	private <T extends PoolToken> int addToJobQueue(int level, final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 		if (root.enterIfCandidates(token, nodeA, nodeB)) {
 			int jobs = 0;
 			if (level < MAX_LEVEL_DEPTH) {
@@ -151,7 +151,7 @@ public class ThreadPoolToken implements PoolToken {
 		}
 		return 0;
 	}
-	private <T extends PoolToken> void addJobToQueue(final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final Queue<ColumnPair> adjacentPairs) {
+	private <T extends PoolToken> void addJobToQueue(final T token, final Root<T> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, final Node<T> nodeA, final Node<T> nodeB, final boolean nodeAIsPos, final ColumnPairSink adjacentPairs) {
 		jobs.add(new Runnable() {
 			public void run() {
 				try {
@@ -34,12 +34,11 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 public class UnaryLeaf<T /*traversing token*/> extends Node<T> {
@@ -53,7 +52,7 @@ public class UnaryLeaf<T /*traversing token*/> extends Node<T> {
 		this.columnIndex = columnIndex;
 	}
 	@Override
-	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+	public void addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Node<T> partner, boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 		if (root.enterIfCandidates(token, this, partner)) {
 			if (partner instanceof UnaryLeaf) {
 				final UnaryLeaf<T> leafPartner = ((UnaryLeaf<T>)partner);    		
@@ -71,7 +70,7 @@ public class UnaryLeaf<T /*traversing token*/> extends Node<T> {
 			root.leave(token, this, partner);
 		}
 	}
-	private IBitSet addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> thisCols, SortableMemory<Column> partnerCols, final UnaryLeaf partner, final AdjCandidates<Column> adjCandidates, Queue<ColumnPair> adjacentPairs) throws IOException {
+	private IBitSet addAdjacentPairs(T token, Root<T> root, SortableMemory<Column> thisCols, SortableMemory<Column> partnerCols, final UnaryLeaf partner, final AdjCandidates<Column> adjCandidates, ColumnPairSink adjacentPairs) throws IOException {
 		IBitSet pat = null;
 		final int index = adjCandidates.size(); 
 		adjCandidates.add(thisCols, columnIndex, partnerCols, partner.columnIndex);
@@ -34,16 +34,17 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.search;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.adj.incore.AbstractAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.DefaultTreeFactory;
+import ch.javasoft.metabolic.efm.adj.incore.tree.ForkJoinTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.JobScheduleMultiThreadTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Root;
 import ch.javasoft.metabolic.efm.adj.incore.tree.TreeFactory;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
@@ -74,20 +75,23 @@ public class PatternTreeLinearSearchAdjacencyEnumerator extends AbstractAdjacenc
 		mRequiredZeroCount = model.getRequiredCardinality();
 	}
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
-		if (mModel.getAdjEnumThreads() > 1) {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+		//some threads are merging the adjacent pairs, see MergingPairSink
+		final int threads = getEnumThreads();
+		if (threads > 1 && NumaNodes.isSharding()) {
+			//node aware job queues, see JobQueue
 //	    	TreeFactory<SemaphoreConcurrentToken> fac = new SemIncMultiThreadTreeFactory(threads);
-	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel);//faster, mainly if cpu-cores > 2
+	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel, threads);//faster, mainly if cpu-cores > 2
 	    	Root<SemaphoreConcurrentToken> root = new LinearSearchRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
 //	    	TreeFactory<PoolToken> fac = new PoolTreeFactory(threads);
 //	    	Root<PoolToken> root = new SearchRoot<PoolToken>(fac, mRequiredZeroCount, posCols, zerCols, negCols);
 	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
 		else {
-    		// normal, 1 thread
-    		TreeFactory<Void> fac = new DefaultTreeFactory(mModel);
+			//work stealing fork/join pool, or normal, 1 thread
+			final TreeFactory<Void> fac = threads > 1 ? new ForkJoinTreeFactory(mModel, threads) : new DefaultTreeFactory(mModel, threads);
 	    	Root<Void> root = new LinearSearchRoot<Void>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
-	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);    			
+	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
 	}
 	
@@ -34,17 +34,18 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.search;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.adj.incore.AbstractAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.DefaultRankTestAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.DefaultTreeFactory;
+import ch.javasoft.metabolic.efm.adj.incore.tree.ForkJoinTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.JobScheduleMultiThreadTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Root;
 import ch.javasoft.metabolic.efm.adj.incore.tree.TreeFactory;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
@@ -72,17 +73,20 @@ public class PatternTreeLogLogAdjacencyEnumerator extends AbstractAdjacencyEnume
 		mRequiredZeroCount = rank.getRequiredZeroBitCount();
 	}
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
-		if (mModel.getAdjEnumThreads() > 1) {
-	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel);//faster, mainly if cpu-cores > 2
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+		//some threads are merging the adjacent pairs, see MergingPairSink
+		final int threads = getEnumThreads();
+		if (threads > 1 && NumaNodes.isSharding()) {
+			//node aware job queues, see JobQueue
+	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel, threads);//faster, mainly if cpu-cores > 2
 	    	Root<SemaphoreConcurrentToken> root = new SearchRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
 	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
 		else {
-    		// 1 thread
-			TreeFactory<Void> fac = new DefaultTreeFactory(mModel);
+			//work stealing fork/join pool, or normal, 1 thread
+			final TreeFactory<Void> fac = threads > 1 ? new ForkJoinTreeFactory(mModel, threads) : new DefaultTreeFactory(mModel, threads);
 	    	Root<Void> root = new SearchRoot<Void>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
-	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);    			
+	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
 	}
 	
@@ -34,28 +34,23 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.search;
 
 import java.io.IOException;
-import java.util.Queue;
-import java.util.Iterator;
-import java.util.ArrayList;
-import java.util.BitSet;
 
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
 import ch.javasoft.metabolic.efm.adj.incore.AbstractAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.DefaultTreeFactory;
+import ch.javasoft.metabolic.efm.adj.incore.tree.ForkJoinTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.JobScheduleMultiThreadTreeFactory;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Root;
 import ch.javasoft.metabolic.efm.adj.incore.tree.TreeFactory;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.concurrent.SemaphoreConcurrentToken;
 import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 
-import at.acib.generegulation.GeneticRuleSet;
-import at.acib.generegulation.GeneBitSet;
-import at.acib.generule_filestore.GeneRuleFilenameStore;
-
 /**
  * The <code>PatternTreeMinZerosAdjacencyEnumerator</code> uses candidate
  * narrowing to enumerate adjacent pairs, and it uses three pattern trees to
@@ -81,62 +76,25 @@ public class PatternTreeMinZerosAdjacencyEnumerator extends AbstractAdjacencyEnu
 		mRequiredZeroCount = model.getRequiredCardinality();
 	}
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
-		if (mModel.getAdjEnumThreads() > 1) {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+		//filtered pairs are pruned during the traversal
+		final AdjacencyFilter filter = mAdjacencyFilter;
+		//some threads are merging the adjacent pairs, see MergingPairSink
+		final int threads = getEnumThreads();
+		if (threads > 1 && NumaNodes.isSharding()) {
+			//node aware job queues, see JobQueue
 //	    	TreeFactory<SemaphoreConcurrentToken> fac = new SemIncMultiThreadTreeFactory(threads);
-	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel);//faster, mainly if cpu-cores > 2
-	    	Root<SemaphoreConcurrentToken> root = new SearchRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
+	    	TreeFactory<SemaphoreConcurrentToken> fac = new JobScheduleMultiThreadTreeFactory(mModel, threads);//faster, mainly if cpu-cores > 2
+	    	Root<SemaphoreConcurrentToken> root = new SearchRoot<SemaphoreConcurrentToken>(mConfig, mModel, fac, filter, mRequiredZeroCount, posCols, zerCols, negCols);
 //	    	TreeFactory<PoolToken> fac = new PoolTreeFactory(threads);
 //	    	Root<PoolToken> root = new SearchRoot<PoolToken>(fac, mRequiredZeroCount, posCols, zerCols, negCols);
 	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
 		else {
-    		// normal, 1 thread
-    		TreeFactory<Void> fac = new DefaultTreeFactory(mModel);
-	    	Root<Void> root = new SearchRoot<Void>(mConfig, mModel, fac, mRequiredZeroCount, posCols, zerCols, negCols);
-	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);    			
-		}
-
-                ///////////////////////////////////////////////////////////////
-                ///////////////////////////////////////////////////////////////
-                GeneRuleFilenameStore fileNameStore = new GeneRuleFilenameStore();
-
-                if( fileNameStore.isFilenameAvailable() )
-                {
-                   String filename = fileNameStore.getFilename();
-                   GeneticRuleSet myRuleSet = new GeneticRuleSet(filename, mModel, mConfig);
-                   GeneBitSet arrLstRules[] = myRuleSet.getAllBitSets();
-
-		   int remove_pairs = 0;
-                   int maxReacIdx;
-                   for( int r = 0; r < arrLstRules.length; r++ )
-                   {
-                      maxReacIdx = arrLstRules[r].getMaxReacIdx();
-
-                      Iterator<ColumnPair> myIterator = adjacentPairs.iterator();
-                      while(myIterator.hasNext())
-                      {
-                         ColumnPair myAdjacentPairs = myIterator.next();
-
-                         // System.out.println("maxReacIdx = " + maxReacIdx + "  booleanSize = " + myAdjacentPairs.getColumnA().booleanSize());
-                         // System.out.println("Compare: ruleBitSet = " + arrLstRules[r] + " interset = " + myAdjacentPairs.intersectBitValues());
-
-                         BitSet myBitSet = myAdjacentPairs.intersectBitValues().toBitSet();
-                         // System.out.println("myBitSet = " + myBitSet);
-                         myBitSet.flip( 0, maxReacIdx + 1);
-                         // System.out.println("myBitSet = " + myBitSet);
-                         myBitSet.and( arrLstRules[r] );
-                         // System.out.println("myBitSet = " + myBitSet);
-                         if( ((myAdjacentPairs.getColumnA().booleanSize() - 1) >= maxReacIdx ) &&
-                             myBitSet.equals(arrLstRules[r]) )
-                         {
-                            myIterator.remove();
-                            remove_pairs++;
-		         }
-                      }
-		   }
-                   System.out.println("Removed " + remove_pairs + " modes");
+			//work stealing fork/join pool, or normal, 1 thread
+			final TreeFactory<Void> fac = threads > 1 ? new ForkJoinTreeFactory(mModel, threads) : new DefaultTreeFactory(mModel, threads);
+	    	Root<Void> root = new SearchRoot<Void>(mConfig, mModel, fac, filter, mRequiredZeroCount, posCols, zerCols, negCols);
+	    	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
 		}
-                ///////////////////////////////////////////////////////////////
 	}
 }
@@ -36,6 +36,7 @@ package ch.javasoft.metabolic.efm.adj.incore.tree.search;
 import java.io.IOException;
 
 import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
 import ch.javasoft.metabolic.efm.adj.incore.tree.AbstractRoot;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Node;
 import ch.javasoft.metabolic.efm.adj.incore.tree.TreeFactory;
@@ -58,7 +59,10 @@ public class SearchRoot<T /*traversing token*/> extends AbstractRoot<T> {
 
 	//TODO do this nicer (memory!)
 	public SearchRoot(Config config, EfmModel model, TreeFactory<T> treeFactory, final int requiredZeroCount, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols) throws IOException {
-		super(config, model, treeFactory, posCols, zeroCols, negCols);
+		this(config, model, treeFactory, null /*adjacencyFilter*/, requiredZeroCount, posCols, zeroCols, negCols);
+	}
+	public SearchRoot(Config config, EfmModel model, TreeFactory<T> treeFactory, AdjacencyFilter adjacencyFilter, final int requiredZeroCount, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols) throws IOException {
+		super(config, model, treeFactory, adjacencyFilter, posCols, zeroCols, negCols);
 		mZero 				= treeFactory.createNode(zeroCols, mSelectiveBits, -1 /*prevSelBitIndex*/, 0, zeroCols.getColumnCount());
 		mRequiredZeroCount	= requiredZeroCount;
 		mTestMethod 		= SearchRoot.createTestMethod(this, posCols.getColumnCount(), negCols.getColumnCount(), zeroCols.getColumnCount());
@@ -34,7 +34,6 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.urank;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.adj.incore.tree.AbstractTreeFactory;
@@ -45,7 +44,7 @@ import ch.javasoft.metabolic.efm.adj.incore.tree.Node;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Root;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Traverser;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.concurrent.RankUpdateToken;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 import ch.javasoft.metabolic.efm.model.EfmModel;
@@ -76,7 +75,7 @@ abstract public class RankUpdateJobScheduleTreeFactory extends AbstractTreeFacto
 	public InterNode<RankUpdateToken> createInterNode(SortableMemory<Column> cols, int[] selectiveBits, int prevSelBitIndex, int iStart, int iEnd) throws IOException {
 		return new InterNode<RankUpdateToken>(this, cols, selectiveBits, prevSelBitIndex, iStart, iEnd) {
 			@Override
-			public void addAdjacentPairs(final RankUpdateToken token, final Root<RankUpdateToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, Node<RankUpdateToken> partner, final boolean thisIsPos, Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void addAdjacentPairs(final RankUpdateToken token, final Root<RankUpdateToken> root, final SortableMemory<Column> posCols, final SortableMemory<Column> zeroCols, final SortableMemory<Column> negCols, Node<RankUpdateToken> partner, final boolean thisIsPos, ColumnPairSink adjacentPairs) throws IOException {
 				if (root.enterIfCandidates(token, this, partner)) {
 		    		if (partner instanceof InterNode) {
 						final JobQueue<RankUpdateToken> queue = JobQueue.createQueue(efmModel.getConfig(), token, root, posCols, zeroCols, negCols, this, partner, thisIsPos, adjacentPairs);
@@ -103,7 +102,7 @@ abstract public class RankUpdateJobScheduleTreeFactory extends AbstractTreeFacto
 	
 	public Traverser<RankUpdateToken> createTraverser() {
 		return new Traverser<RankUpdateToken>() {
-			public void traverseTree(Root<RankUpdateToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, Queue<ColumnPair> adjacentPairs) throws IOException {
+			public void traverseTree(Root<RankUpdateToken> root, SortableMemory<Column> posCols, SortableMemory<Column> zeroCols, SortableMemory<Column> negCols, ColumnPairSink adjacentPairs) throws IOException {
 				RankUpdateToken token = new RankUpdateToken(efmModel);
 				if (token.tryAcquirePermit()) {//since current thread is one of them
 					final IBitSet cut = root.pos().unionPattern.getAnd(root.neg().unionPattern);
@@ -34,12 +34,11 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.urank.frac;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.adj.incore.AbstractStoichMappingAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.urank.RankUpdateRoot;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 /**
@@ -66,7 +65,7 @@ public class FractionalPatternTreeRankUpdateAdjacencyEnumerator extends Abstract
 	}
 
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
 		FractionalRankUpdateTreeFactory fac = new FractionalRankUpdateTreeFactory(mModel);
     	RankUpdateRoot root = new RankUpdateRoot(mConfig, mModel, fac, mModel.getStoichRank(), posCols, zerCols, negCols);
     	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
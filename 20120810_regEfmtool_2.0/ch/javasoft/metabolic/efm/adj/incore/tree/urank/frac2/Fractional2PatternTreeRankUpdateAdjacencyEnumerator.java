@@ -34,13 +34,12 @@
 package ch.javasoft.metabolic.efm.adj.incore.tree.urank.frac2;
 
 import java.io.IOException;
-import java.util.Queue;
 
 import ch.javasoft.metabolic.efm.adj.incore.AbstractStoichMappingAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.adj.incore.tree.urank.RankUpdateRoot;
 import ch.javasoft.metabolic.efm.adj.incore.tree.urank.frac.FractionalPatternTreeRankUpdateAdjacencyEnumerator;
 import ch.javasoft.metabolic.efm.column.Column;
-import ch.javasoft.metabolic.efm.column.ColumnPair;
+import ch.javasoft.metabolic.efm.column.ColumnPairSink;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 /**
@@ -72,7 +71,7 @@ public class Fractional2PatternTreeRankUpdateAdjacencyEnumerator extends Abstrac
 	}
 
 	@Override
-	public void adjacentPairs(Queue<ColumnPair> adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
+	public void adjacentPairs(ColumnPairSink adjacentPairs, SortableMemory<Column> zerCols, SortableMemory<Column> posCols, SortableMemory<Column> negCols) throws IOException {
 		Fractional2RankUpdateTreeFactory fac = new Fractional2RankUpdateTreeFactory(mModel);
     	RankUpdateRoot root = new RankUpdateRoot(mConfig, mModel, fac, mModel.getStoichRank(), posCols, zerCols, negCols);
     	fac.createTraverser().traverseTree(root, posCols, zerCols, negCols, adjacentPairs);
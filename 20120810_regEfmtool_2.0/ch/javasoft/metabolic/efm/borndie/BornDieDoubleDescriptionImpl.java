@@ -34,6 +34,7 @@
 package ch.javasoft.metabolic.efm.borndie;
 
 import java.io.IOException;
+import java.util.logging.Logger;
 
 import ch.javasoft.metabolic.efm.borndie.matrix.BornDieMatrix;
 import ch.javasoft.metabolic.efm.borndie.model.BornDieEfmModel;
@@ -44,6 +45,7 @@ import ch.javasoft.metabolic.efm.impl.AbstractDoubleDescriptionImpl;
 import ch.javasoft.metabolic.efm.memory.AppendableMemory;
 import ch.javasoft.metabolic.efm.memory.IterableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryGovernor;
 import ch.javasoft.metabolic.efm.model.EfmModelFactory;
 import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
 
@@ -57,6 +59,8 @@ import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
  */
 public class BornDieDoubleDescriptionImpl extends AbstractDoubleDescriptionImpl {
 	
+	private static final Logger LOG = LogPkg.LOGGER;
+	
     /**
 	 * Constructor with config access and the two factories for model and 
 	 * memory. Note that most factories have default constructors without 
@@ -68,12 +72,14 @@ public class BornDieDoubleDescriptionImpl extends AbstractDoubleDescriptionImpl
 
 	@Override
 	protected <N extends Number, Col extends Column> IterableMemory<Col> iterate(final ColumnHome<N,Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory) throws IOException {
-		//start algorithm
-		final BornDieController<Col> controller = new BornDieController<Col>(columnHome, getConfig(), (BornDieEfmModel)efmModel, getMemoryFactory());
+		//start algorithm, cells are released when erased
+		final MemoryGovernor memoryFactory = createMemoryGovernor();
+		final BornDieController<Col> controller = new BornDieController<Col>(columnHome, getConfig(), (BornDieEfmModel)efmModel, memoryFactory);
 		controller.start(memory);
 
 		//await termination
 		final IterableMemory<Col> result = controller.awaitTermination();
+		LOG.info("memory usage: " + memoryFactory);
         return result;
     }
 	
@@ -39,18 +39,27 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ch.javasoft.metabolic.efm.borndie.BornDieController;
 import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 
 /**
  * The <code>JobManager</code> allows the queuing of pairing jobs and manages 
  * their multi-threaded execution.
+ * <p>
+ * If multiple {@link NumaNodes NUMA nodes} are used, every node has its own
+ * executor with threads bound to the node. Pairing jobs are scheduled on the 
+ * node associated with the born column of their positive cell range, that 
+ * is, jobs reading the same born/die cells run on the same node. Other 
+ * commands are distributed round robin.
  */
 public class JobManager<Col extends Column> {
 
 	private final BornDieController<Col> 	controller;
-	private final ThreadPoolExecutor 		service;
+	private final ThreadPoolExecutor[] 		services;
+	private final AtomicInteger				nextService = new AtomicInteger();
 	
 	/**
 	 * Constructor for <code>JobManager</code> with controller and job queue of
@@ -71,9 +80,25 @@ public class JobManager<Col extends Column> {
 	 */
 	public JobManager(BornDieController<Col> controller, int queueCapacity) {
 		this.controller	= controller;
-		this.service	= createExecutorService(controller.getConfig().getMaxThreads(), queueCapacity);
+		this.services	= createExecutorServices(controller.getConfig().getMaxThreads(), queueCapacity);
 	}
 	
+	private static ThreadPoolExecutor[] createExecutorServices(int threadCount, int queueCapacity) {
+		final int nodes = NumaNodes.getNodeCount();
+		final ThreadPoolExecutor[] services = new ThreadPoolExecutor[nodes];
+		if (nodes == 1) {
+			services[0] = createExecutorService(threadCount, queueCapacity);
+		}
+		else {
+			final int nodeThreadCount	= Math.max(1, (threadCount + nodes - 1) / nodes);
+			final int nodeQueueCapacity	= queueCapacity == 0 ? 0 : Math.max(1, queueCapacity / nodes);
+			for (int i = 0; i < nodes; i++) {
+				services[i] = createExecutorService(nodeThreadCount, nodeQueueCapacity);
+				services[i].setThreadFactory(NumaNodes.createThreadFactory("borndie-job", i));
+			}
+		}
+		return services;
+	}
 	private static ThreadPoolExecutor createExecutorService(int threadCount, int queueCapacity) {
 //		return new ThreadPoolExecutor(threadCount, threadCount,
 //                0L, TimeUnit.MILLISECONDS,
@@ -133,7 +158,8 @@ public class JobManager<Col extends Column> {
 	}
 	
 	private void schedule(final PairingJob<Col> pairingJob) {
-		schedule((Runnable)pairingJob);
+		final int node = pairingJob.getCellRangePos().getBornColumn() % services.length;
+		schedule(services[node], pairingJob);
 //		schedule(new Runnable() {
 //			public void run() {
 //				try {
@@ -167,6 +193,11 @@ public class JobManager<Col extends Column> {
 	 * is expected to do its own exception handling.
 	 */
 	public void schedule(Runnable command) {
+		final int node = services.length == 1 ? 0 : 
+			(nextService.getAndIncrement() & Integer.MAX_VALUE) % services.length;
+		schedule(services[node], command);
+	}
+	private void schedule(ThreadPoolExecutor service, Runnable command) {
 		try {
 			service.execute(command);
 		}
@@ -202,13 +233,21 @@ public class JobManager<Col extends Column> {
 		if (controller.getException() != null) {
 			throw controller.getException();
 		}
-		service.awaitTermination(0, TimeUnit.MILLISECONDS);
+		for (final ThreadPoolExecutor service : services) {
+			service.awaitTermination(0, TimeUnit.MILLISECONDS);
+		}
 	}
 	
 	@Override
 	public String toString() {
-		return "JobManager{done=" + service.getCompletedTaskCount() + 
-			", active=" + service.getActiveCount() + ", total=" +
-			service.getTaskCount() + "}";
+		long done = 0, total = 0;
+		int active = 0;
+		for (final ThreadPoolExecutor service : services) {
+			done	+= service.getCompletedTaskCount();
+			active	+= service.getActiveCount();
+			total	+= service.getTaskCount();
+		}
+		return "JobManager{done=" + done + ", active=" + active + ", total=" +
+			total + (services.length == 1 ? "" : ", nodes=" + services.length) + "}";
 	}
 }
@@ -136,10 +136,16 @@ public class ColumnDemuxAppendableMemory<Col extends Column> implements Appendab
 	}
 
 	/**
-	 * @throws IOException always because this operation is not supported
+	 * Flushes the cell memories of the born column. If the cell memories 
+	 * append asynchronously, this method returns after all columns appended 
+	 * so far are written.
 	 */
 	public void flush() throws IOException {
-		throw new IOException("not supported");
+		final BornDieMatrix<Col> matrix = controller.getMatrix();
+		final LowerTriangularMatrix tril = matrix.getMatrixRange();
+		for (int row = tril.getRowFrom(bornColumn); row < tril.getRowTo(bornColumn); row++) {
+			matrix.getForAppending(bornColumn, row).flush();
+		}
 	}
 
 	/**
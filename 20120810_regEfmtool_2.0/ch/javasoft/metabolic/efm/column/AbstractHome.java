@@ -37,16 +37,23 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.util.BitSetUtil;
 
 abstract public class AbstractHome<N extends Number, Col extends Column> implements ColumnHome<N, Col> {
 
-	protected IBitSet readBinaryFrom(DataInput in, int booleanSize) throws IOException {
-		return BitSetUtil.readFrom(in, booleanSize);
+	protected IBitSet readBinaryFrom(DataInput in, int booleanSize, BitSetFactory bitSetFactory) throws IOException {
+		return BitSetUtil.readFrom(in, booleanSize, bitSetFactory);
 	}
 	public void writeBinaryTo(Col column, DataOutput out) throws IOException {
 		BitSetUtil.writeTo(column.bitValues(), column.booleanSize(), out);
 	}
+	protected IBitSet readCompressedBinaryFrom(DataInput in, int booleanSize, BitSetFactory bitSetFactory) throws IOException {
+		return BitSetUtil.readCompressedFrom(in, booleanSize, bitSetFactory);
+	}
+	protected void writeCompressedBinaryTo(Col column, DataOutput out) throws IOException {
+		BitSetUtil.writeCompressedTo(column.bitValues(), column.booleanSize(), out);
+	}
 
 }
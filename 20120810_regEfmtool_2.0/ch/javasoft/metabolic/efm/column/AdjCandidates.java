@@ -34,12 +34,12 @@
 package ch.javasoft.metabolic.efm.column;
 
 import java.io.IOException;
-import java.util.Collection;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.memory.IndexableMemory;
 import ch.javasoft.metabolic.efm.model.AdjEnumModel;
 import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
 import ch.javasoft.util.IntArray;
 
 /**
@@ -55,6 +55,8 @@ public class AdjCandidates<Col extends Column> {
 	private final IntArray posIndices;
 	private final IntArray negIndices;
 	
+	private IBitSet interScratch;//reused by hasSuperSet
+	
 	public AdjCandidates(IndexableMemory<Col> posMemory, IndexableMemory<Col> negMemory, int capacity) {
 		this.posMemory	= posMemory;
 		this.negMemory 	= negMemory;
@@ -110,6 +112,19 @@ public class AdjCandidates<Col extends Column> {
 		final Col colNeg = getColumnNeg(pairIndex);
 		return colPos.bitValues().getAnd(colNeg.bitValues());
 	}
+	/**
+	 * Returns the intersection of the column pair, reusing the target set if
+	 * possible, see {@link BitSetUtil#intersectInto(IBitSet, IBitSet, IBitSet)}.
+	 * 
+	 * @param pairIndex	the candidate pair index
+	 * @param target	the set to store the intersection in, or null
+	 * @return the target set if it could be reused, or a new set otherwise
+	 */
+	public IBitSet getIntersection(int pairIndex, IBitSet target) throws IOException {
+		final Col colPos = getColumnPos(pairIndex);
+		final Col colNeg = getColumnNeg(pairIndex);
+		return BitSetUtil.intersectInto(colPos.bitValues(), colNeg.bitValues(), target);
+	}
 	public int getIntersectionCardinality(int pairIndex) throws IOException {
 		final Col colPos = getColumnPos(pairIndex);
 		final Col colNeg = getColumnNeg(pairIndex);
@@ -125,12 +140,12 @@ public class AdjCandidates<Col extends Column> {
 	 * @param superIndexEnd		the end index, exclusive
 	 */
 	public boolean hasSuperSet(int pairIndex, IndexableMemory<Col> supMemory, int superIndexStart, int superIndexEnd) throws IOException {
-		final IBitSet setP = getColumnPos(pairIndex).bitValues();
-		final IBitSet setN = getColumnNeg(pairIndex).bitValues();
+		//intersect once, and not for every super column
+		final IBitSet inter = interScratch = getIntersection(pairIndex, interScratch);
 		for (int i = superIndexStart; i < superIndexEnd; i++) {
 			if (!isAncestor(pairIndex, supMemory, i)) {
 				final Col colSup = supMemory.getColumn(i);
-				if (colSup.bitValues().isSuperSetOfIntersection(setP, setN)) {
+				if (inter.isSubSetOf(colSup.bitValues())) {
 					return true;
 				}
 			}
@@ -168,13 +183,13 @@ public class AdjCandidates<Col extends Column> {
 			adjModel.getMemoryForNewFromAdj().appendColumn(colN);
 		}
 	}
-	public void appendPairsTo(Collection<ColumnPair> dst) throws IOException {
+	public void appendPairsTo(ColumnPairSink dst) throws IOException {
 		for (int i = 0; i < posIndices.length(); i++) {
 			final ColumnPair pair = new ColumnPair<Column>(getColumnPos(i), getColumnNeg(i));
 			dst.add(pair);
 		}
 	}
-	public void appendPairTo(Collection<ColumnPair> dst, int index) throws IOException {
+	public void appendPairTo(ColumnPairSink dst, int index) throws IOException {
 		final ColumnPair pair = new ColumnPair<Column>(getColumnPos(index), getColumnNeg(index));
 		dst.add(pair);
 	}
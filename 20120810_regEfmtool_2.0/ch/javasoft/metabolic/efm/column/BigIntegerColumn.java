@@ -39,10 +39,13 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.jbase.BlockCompressedTable;
 import ch.javasoft.jbase.EntityMarshaller;
 import ch.javasoft.jbase.VariableWidthTable;
 import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.jbase.marshal.VarLengthEncoding;
 import ch.javasoft.math.BigFraction;
 import ch.javasoft.math.NumberOperations;
 import ch.javasoft.math.ops.BigIntegerOperations;
@@ -50,6 +53,7 @@ import ch.javasoft.metabolic.FluxDistribution;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.model.IterationStateModel;
@@ -198,7 +202,7 @@ public class BigIntegerColumn extends AbstractColumn {
             throw new RuntimeException("not implemented");
 			//return new FractionalColumn(booleanSize, numericSize);
 		}
-		public BigIntegerColumn[] newInstances(ReadableMatrix<BigInteger> matrix, int booleanSize) {
+		public BigIntegerColumn[] newInstances(ReadableMatrix<BigInteger> matrix, int booleanSize, BitSetFactory bitSetFactory) {
 			final int rows = matrix.getRowCount();
 			final int cols = matrix.getColumnCount();
 			final BigIntegerColumn[] res = new BigIntegerColumn[cols];
@@ -207,12 +211,12 @@ public class BigIntegerColumn extends AbstractColumn {
 				for (int row = 0; row < rows; row++) {
                     vals[row] = matrix.getNumberValueAt(row, col); 
 				}
-                res[col] = new BigIntegerColumn(booleanSize, BitSetUtil.factory().create(rows), vals);
+                res[col] = new BigIntegerColumn(booleanSize, bitSetFactory.create(booleanSize), vals);
 			}
 			return res;
 		}
-		public BigIntegerColumn readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException {
-			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize);
+		public BigIntegerColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
             final BigInteger[] values = new BigInteger[numericSize];  
 			for (int i = 0; i < numericSize; i++) {
 				int byteCnt;
@@ -244,35 +248,98 @@ public class BigIntegerColumn extends AbstractColumn {
 				}
 			}
 		}
-		public EntityMarshaller<BigIntegerColumn> getEntityMarshaller(final int booleanSize, final int numericSize) throws IOException {
+		public EntityMarshaller<BigIntegerColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
 			return new EntityMarshaller<BigIntegerColumn>() {
                 public BigIntegerColumn readFrom(DataInput in) throws IOException {
-                    return HOME.readFrom(in, booleanSize, numericSize);
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
                 }
                 public void writeTo(BigIntegerColumn entity, DataOutput out) throws IOException {
                     HOME.writeTo(entity, out);
                 }
             };
 		}
-        public ConcurrentTable<BigIntegerColumn> createTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+		/**
+		 * Returns a marshaller for {@link BlockCompressedTable compressed 
+		 * tables}. The bit pattern is run length encoded, values fitting into
+		 * a long are written as zig-zag varints, larger values as varint byte
+		 * length followed by the bytes. The lowest bit of the leading varint
+		 * distinguishes the two cases.
+		 */
+		public EntityMarshaller<BigIntegerColumn> getCompressedEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) {
+			return new EntityMarshaller<BigIntegerColumn>() {
+                public BigIntegerColumn readFrom(DataInput in) throws IOException {
+        			final IBitSet bitSet = readCompressedBinaryFrom(in, booleanSize, bitSetFactory);
+                    final BigInteger[] values = new BigInteger[numericSize];  
+        			for (int i = 0; i < numericSize; i++) {
+        				final long head = VarLengthEncoding.readUnsignedLong(in);
+        				if ((head & 1) == 0) {
+        					final long zz = head >>> 1;
+        					values[i] = BigInteger.valueOf((zz >>> 1) ^ -(zz & 1));
+        				}
+        				else {
+        					final byte[] numBytes = new byte[(int)(head >>> 1)];
+        					in.readFully(numBytes);
+        					values[i] = new BigInteger(numBytes);
+        				}
+        			}
+        			return new BigIntegerColumn(booleanSize, bitSet, values);
+                }
+                public void writeTo(BigIntegerColumn column, DataOutput out) throws IOException {
+                	writeCompressedBinaryTo(column, out);
+        			for (int i = 0; i < column.mValues.length; i++) {
+        				final BigInteger value = column.mValues[i];
+        				if (value.bitLength() <= 62) {
+        					final long lval = value.longValue();
+        					VarLengthEncoding.writeUnsignedLong(out, ((lval << 1) ^ (lval >> 63)) << 1);
+        				}
+        				else {
+        					final byte[] bytes = value.toByteArray();
+        					VarLengthEncoding.writeUnsignedLong(out, (((long)bytes.length) << 1) | 1);
+        					out.write(bytes);
+        				}
+        			}
+                }
+            };
+		}
+        public ConcurrentTable<BigIntegerColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.BigIntegerMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<BigIntegerColumn>(
+                    BlockCompressedTable.create(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                        Cache.BigIntegerMemoryTable.isPinned()
+                    )
+                );
+            }
             final int boolByteLen 		= BitSetUtil.byteSize(booleanSize);
             final int numericByteLen	= numericSize * (4 + 8);//4 for len value, 8 for one long value
             return new ConcurrentTable<BigIntegerColumn>(
                 VariableWidthTable.create(
                 	folder, fileName, boolByteLen + numericByteLen, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigIntegerMemoryTable.getCacheTableSize(),
-                    Cache.BigIntegerMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                    Cache.BigIntegerMemoryTable.isPinned()
                 )
             );
         }
-        public ConcurrentTable<BigIntegerColumn> openTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<BigIntegerColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.BigIntegerMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<BigIntegerColumn>(
+                    BlockCompressedTable.open(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                        Cache.BigIntegerMemoryTable.isPinned()
+                    )
+                );
+            }
             return new ConcurrentTable<BigIntegerColumn>(
                 VariableWidthTable.open(
                 	folder, fileName, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigIntegerMemoryTable.getCacheTableSize(),
-                    Cache.BigIntegerMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                    Cache.BigIntegerMemoryTable.isPinned()
                 )
             );
         }
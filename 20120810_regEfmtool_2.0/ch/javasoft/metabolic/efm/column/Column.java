@@ -134,6 +134,11 @@ public interface Column {
 	 */
 	IBitSet bitValues();
 	
+	/**
+	 * Returns a deep copy of this column, allocated by the calling thread
+	 */
+	Column clone();
+	
 	/**
 	 * Convert <tt>convertCount</tt> numeric values to binary. The converted
 	 * column is returned, possibly still <tt>this</tt> instance if 
@@ -173,7 +178,7 @@ public interface Column {
 	
 	/**
 	 * Write this column to the given data output. See 
-	 * {@link ColumnHome#readFrom(DataInput, int, int)} for the corresponding read 
+	 * {@link ColumnHome#readFrom(DataInput, int, int, ch.javasoft.bitset.BitSetFactory)} for the corresponding read 
 	 * method.
 	 */
 	void writeTo(DataOutput dataOut) throws IOException;
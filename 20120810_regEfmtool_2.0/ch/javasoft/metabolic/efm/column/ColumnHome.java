@@ -38,12 +38,14 @@ import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.jbase.EntityMarshaller;
 import ch.javasoft.jbase.concurrent.ConcurrentTable;
 import ch.javasoft.math.NumberOperations;
 import ch.javasoft.metabolic.FluxDistribution;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.smx.iface.ReadableMatrix;
 import ch.javasoft.util.numeric.Zero;
 
@@ -64,22 +66,25 @@ public interface ColumnHome<N extends Number, Col extends Column> {
 	/** 
 	 * Returns new instances from a matrix. The numeric values reflect the
 	 * values of a column in the matrix. All bits in the binary part of the 
-	 * returned columns are false, i.e. not set.
+	 * returned columns are false, i.e. not set. The bit sets are created by 
+	 * the given factory, usually the 
+	 * {@link ch.javasoft.metabolic.efm.model.EfmModel#getBitSetFactory() factory of the efm model}.
 	 */
-	Col[] newInstances(ReadableMatrix<N> matrix, int booleanSize);
-	/** Reads a column from the data input, assuming the given boolean/numeric sizes*/
-	Col readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException;
+	Col[] newInstances(ReadableMatrix<N> matrix, int booleanSize, BitSetFactory bitSetFactory);
+	/** Reads a column from the data input, assuming the given boolean/numeric sizes, bit sets are created by the given factory*/
+	Col readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException;
 	/** Writes the given column to the data output*/
 	void writeTo(Col column, DataOutput dataOut) throws IOException;
-    /** Create a table to store the columns
+    /** Create a marshaller to read and write the columns, bit sets are created by the given factory
      * @throws IOException */
-	EntityMarshaller<Col> getEntityMarshaller(int booleanSize, int numericSize) throws IOException;
-    /** Create a table to store the columns
+	EntityMarshaller<Col> getEntityMarshaller(int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException;
+    /** Create a table to store the columns, using the given table settings,
+     * including the {@link TableConfig#getBitSetFactory() bit set factory}
      * @throws IOException */
-	ConcurrentTable<Col> createTable(File folder, String fileName, int booleanSize, int numericSize) throws IOException;
-    /** Opens a table to read columns from
+	ConcurrentTable<Col> createTable(TableConfig tableConfig, File folder, String fileName, int booleanSize, int numericSize) throws IOException;
+    /** Opens a table to read columns from, using the given table settings
      * @throws IOException */
-	ConcurrentTable<Col> openTable(File folder, String fileName, int booleanSize, int numericSize) throws IOException;
+	ConcurrentTable<Col> openTable(TableConfig tableConfig, File folder, String fileName, int booleanSize, int numericSize) throws IOException;
 	/** Returns the underlying arithmetic*/
 	Arithmetic getArithmetic();
 	/** The number operations for numeric operations on the underlying data type*/
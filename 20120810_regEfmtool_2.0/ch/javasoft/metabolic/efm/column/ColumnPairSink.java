@@ -2,7 +2,7 @@
  * =============================================================================
  * Simplified BSD License, see http://www.opensource.org/licenses/
  * -----------------------------------------------------------------------------
- * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
  * All rights reserved.
  * 
  * Redistribution and use in source and binary forms, with or without 
@@ -31,34 +31,25 @@
  * POSSIBILITY OF SUCH DAMAGE.
  * =============================================================================
  */
-package at.acib.generule_filestore;
+package ch.javasoft.metabolic.efm.column;
 
-public class GeneRuleFilenameStore
-{
-   private static boolean filename_is_set = false;
-   private static String filename;
+import java.io.IOException;
 
-   public GeneRuleFilenameStore()
-   {
-   }
-
-   public GeneRuleFilenameStore(String inFilename) throws GeneRuleFilenameException
-   {
-      if( filename_is_set == true )
-      {
-         throw new GeneRuleFilenameException("Name of gene rule file has already been set: " + filename);
-      }
-      this.filename = inFilename;
-      filename_is_set = true;
-   }
-
-   public boolean isFilenameAvailable()
-   {
-      return(filename_is_set);
-   }
-
-   public String getFilename()
-   {
-      return(filename);
-   }
+/**
+ * A <code>ColumnPairSink</code> accepts the adjacent {@link ColumnPair pairs}
+ * found by an adjacency enumerator. Implementations might collect the pairs, 
+ * or merge them directly into new columns. Multi-threaded enumerators call
+ * {@link #add(ColumnPair)} concurrently, the sink must be thread safe in this
+ * case.
+ */
+public interface ColumnPairSink {
+	/**
+	 * Accepts an adjacent pair
+	 * 
+	 * @param pair	the adjacent pair
+	 * @throws IOException	if an i/o exception occurs, for instance when
+	 * 						the pair is merged and the new column is appended
+	 * 						to an out-of-core memory
+	 */
+	void add(ColumnPair pair) throws IOException;
 }
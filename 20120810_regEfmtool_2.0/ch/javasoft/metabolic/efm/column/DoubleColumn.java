@@ -38,6 +38,7 @@ import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.jbase.FixedWidthMarshaller;
 import ch.javasoft.jbase.FixedWidthTable;
@@ -46,6 +47,7 @@ import ch.javasoft.math.ops.DoubleOperations;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.model.IterationStateModel;
@@ -178,7 +180,23 @@ public class DoubleColumn extends AbstractColumn {
 	
 	public static abstract class Home 
 		extends		AbstractHome<Double, DoubleColumn> 
-		implements	ColumnHome<Double, DoubleColumn> {}
+		implements	ColumnHome<Double, DoubleColumn> {
+		/**
+		 * Creates a column using the given bit set and values, without 
+		 * copying them. Used by memories storing the column parts in their
+		 * own structures.
+		 */
+		public DoubleColumn newInstance(int booleanSize, IBitSet bitSet, double[] values) {
+			return new DoubleColumn(booleanSize, bitSet, values);
+		}
+		/**
+		 * Copies the numeric values of the given column to the destination
+		 * array, starting at the given position
+		 */
+		public void copyValues(DoubleColumn column, double[] dst, int dstPos) {
+			System.arraycopy(column.mValues, 0, dst, dstPos, column.mValues.length);
+		}
+	}
 	
 	public static final Home HOME = new Home() {
 		public Arithmetic getArithmetic() {
@@ -190,12 +208,12 @@ public class DoubleColumn extends AbstractColumn {
 		public DoubleColumn newInstance(int booleanSize, int numericSize) {
 			return new DoubleColumn(booleanSize, numericSize);
 		}
-		public DoubleColumn[] newInstances(ReadableMatrix<Double> matrix, int booleanSize) {
+		public DoubleColumn[] newInstances(ReadableMatrix<Double> matrix, int booleanSize, BitSetFactory bitSetFactory) {
 			final int rows = matrix.getRowCount();
 			final int cols = matrix.getColumnCount();
 			final DoubleColumn[] res = new DoubleColumn[cols];
 			for (int col = 0; col < cols; col++) {
-				res[col] = new DoubleColumn(booleanSize, rows);
+				res[col] = new DoubleColumn(booleanSize, bitSetFactory.create(booleanSize), new double[rows]);
 				final double[] vals = res[col].mValues;
 				for (int row = 0; row < rows; row++) {
 					vals[row] = matrix.getNumberValueAt(row, col).doubleValue();
@@ -203,8 +221,8 @@ public class DoubleColumn extends AbstractColumn {
 			}
 			return res;
 		}
-		public DoubleColumn readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException {
-			IBitSet bitSet = readBinaryFrom(dataIn, booleanSize);
+		public DoubleColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
 			double[] dbls	= new double[numericSize];
 			for (int i = 0; i < numericSize; i++) {
 				dbls[i] = dataIn.readDouble();
@@ -217,7 +235,7 @@ public class DoubleColumn extends AbstractColumn {
 				dataOut.writeDouble(column.mValues[i]);
 			}
 		}
-		public FixedWidthMarshaller<DoubleColumn> getEntityMarshaller(final int booleanSize, final int numericSize) throws IOException {
+		public FixedWidthMarshaller<DoubleColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
         	final int byteWidth = 	/*bits as bytes*/ BitSetUtil.byteSize(booleanSize) +
         							/*doubles*/ numericSize * 8;
 			return new FixedWidthMarshaller<DoubleColumn>() {
@@ -225,30 +243,45 @@ public class DoubleColumn extends AbstractColumn {
                     return byteWidth; 
                 }
                 public DoubleColumn readFrom(DataInput in) throws IOException {
-                    return HOME.readFrom(in, booleanSize, numericSize);
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
                 }
                 public void writeTo(DoubleColumn entity, DataOutput out) throws IOException {
                     HOME.writeTo(entity, out);
                 }
             };		
 		}
-        public ConcurrentTable<DoubleColumn> createTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<DoubleColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.DoubleMemoryTable.isMemoryMapped(tableConfig)) {
+                return new ConcurrentTable<DoubleColumn>(
+                    FixedWidthTable.createMapped(
+                       	new File(folder, fileName), 
+                       	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory())
+                    )
+                );
+            }
             return new ConcurrentTable<DoubleColumn>(
                 FixedWidthTable.create(
                    	new File(folder, fileName), 
-                   	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.DoubleMemoryTable.getCacheTableSize(),
-                    Cache.DoubleMemoryTable.getCacheEntrySize()                   	
+                   	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.DoubleMemoryTable.getPageCache(tableConfig),
+                    Cache.DoubleMemoryTable.isPinned()
                 )
             );
         }
-        public ConcurrentTable<DoubleColumn> openTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<DoubleColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.DoubleMemoryTable.isMemoryMapped(tableConfig)) {
+                return new ConcurrentTable<DoubleColumn>(
+                    FixedWidthTable.openMapped(
+                    	new File(folder, fileName), 
+                    	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory())
+                	));
+            }
             return new ConcurrentTable<DoubleColumn>(
                 FixedWidthTable.open(
                 	new File(folder, fileName), 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.DoubleMemoryTable.getCacheTableSize(),
-                    Cache.DoubleMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.DoubleMemoryTable.getPageCache(tableConfig),
+                    Cache.DoubleMemoryTable.isPinned()
             	));
         }
 		public DefaultFluxDistribution createFluxDistribution(MetabolicNetwork net, Double[] values) {
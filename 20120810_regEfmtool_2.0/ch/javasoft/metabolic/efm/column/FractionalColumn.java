@@ -39,6 +39,7 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.jbase.EntityMarshaller;
 import ch.javasoft.jbase.VariableWidthTable;
@@ -50,6 +51,7 @@ import ch.javasoft.metabolic.FluxDistribution;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.model.IterationStateModel;
@@ -191,7 +193,7 @@ public class FractionalColumn extends AbstractColumn {
             throw new RuntimeException("not implemented");
 			//return new FractionalColumn(booleanSize, numericSize);
 		}
-		public FractionalColumn[] newInstances(ReadableMatrix<BigFraction> matrix, int booleanSize) {
+		public FractionalColumn[] newInstances(ReadableMatrix<BigFraction> matrix, int booleanSize, BitSetFactory bitSetFactory) {
 			final int rows = matrix.getRowCount();
 			final int cols = matrix.getColumnCount();
 			final FractionalColumn[] res = new FractionalColumn[cols];
@@ -200,12 +202,12 @@ public class FractionalColumn extends AbstractColumn {
 				for (int row = 0; row < rows; row++) {
                     vals[row] = matrix.getNumberValueAt(row, col).reduce(); 
 				}
-                res[col] = new FractionalColumn(booleanSize, BitSetUtil.factory().create(rows), vals);
+                res[col] = new FractionalColumn(booleanSize, bitSetFactory.create(booleanSize), vals);
 			}
 			return res;
 		}
-		public FractionalColumn readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException {
-			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize);
+		public FractionalColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
             final BigFraction[] values = new BigFraction[numericSize];  
 			for (int i = 0; i < numericSize; i++) {
 				int byteCnt;
@@ -254,35 +256,35 @@ public class FractionalColumn extends AbstractColumn {
 				}
 			}
 		}
-		public EntityMarshaller<FractionalColumn> getEntityMarshaller(final int booleanSize, final int numericSize) throws IOException {
+		public EntityMarshaller<FractionalColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
 			return new EntityMarshaller<FractionalColumn>() {
                 public FractionalColumn readFrom(DataInput in) throws IOException {
-                    return HOME.readFrom(in, booleanSize, numericSize);
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
                 }
                 public void writeTo(FractionalColumn entity, DataOutput out) throws IOException {
                     HOME.writeTo(entity, out);
                 }
             };
 		}
-        public ConcurrentTable<FractionalColumn> createTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<FractionalColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
             final int boolByteLen 		= (booleanSize - 1) / 8 + 1;
             final int numericByteLen	= numericSize * (8 + 16);//8 for 2 len values, 16 for two long values (numerator/denominator)
             return new ConcurrentTable<FractionalColumn>(
                 VariableWidthTable.create(
                 	folder, fileName, boolByteLen + numericByteLen, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigFractionMemoryTable.getCacheTableSize(),
-                    Cache.BigFractionMemoryTable.getCacheEntrySize()                	
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigFractionMemoryTable.getPageCache(tableConfig),
+                    Cache.BigFractionMemoryTable.isPinned()
                 )
             );
         }
-        public ConcurrentTable<FractionalColumn> openTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<FractionalColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
             return new ConcurrentTable<FractionalColumn>(
                 VariableWidthTable.open(
                 	folder, fileName, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigFractionMemoryTable.getCacheTableSize(),
-                    Cache.BigFractionMemoryTable.getCacheEntrySize()                	
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigFractionMemoryTable.getPageCache(tableConfig),
+                    Cache.BigFractionMemoryTable.isPinned()
                 )
             );
         }
@@ -0,0 +1,441 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.column;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+
+import ch.javasoft.bitset.BitSetFactory;
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.jbase.EntityMarshaller;
+import ch.javasoft.jbase.VariableWidthTable;
+import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.math.NumberOperations;
+import ch.javasoft.math.ops.BigIntegerOperations;
+import ch.javasoft.metabolic.FluxDistribution;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
+import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
+import ch.javasoft.metabolic.efm.model.ColumnInspectorModifierFactory;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.model.IterationStateModel;
+import ch.javasoft.metabolic.efm.model.IterationStepModel;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.metabolic.impl.FractionNumberFluxDistribution;
+import ch.javasoft.smx.iface.ReadableMatrix;
+import ch.javasoft.util.numeric.IntegerUtil;
+import ch.javasoft.util.numeric.Zero;
+
+/**
+ * A <tt>LongColumn</tt> implements the numeric part of the column with 
+ * primitive long values, using exact, overflow checked arithmetic. Only if a
+ * merge overflows, the resulting column is promoted to 
+ * {@link BigInteger large integer numbers}. Promoted columns are demoted back 
+ * to longs as soon as all values fit into a long again, for instance after 
+ * vector reduction.
+ * <p>
+ * The numbers seen from outside are always big integers, that is, the column 
+ * home uses {@link BigInteger} as number type and can thus reuse all matrix
+ * and flux distribution functionality of {@link BigIntegerColumn}.
+ * <p>
+ * Merging and conversion of long values requires a column inspector/modifier
+ * for {@code Long} and {@code long[]}. If the efm model does not support such
+ * a modifier, big integer arithmetic is used instead. 
+ */
+public class LongColumn extends AbstractColumn {
+	
+	private int				mBoolSize;
+	private final IBitSet	mBitSet;
+	private long[]			mValues;	//null if promoted
+	private BigInteger[]	mBigValues;	//null if not promoted
+
+	public LongColumn(int boolSize) {
+		this(boolSize, BitSetUtil.factory().create(boolSize), new long[0]);
+	}
+	protected LongColumn(int boolSize, IBitSet bitSet, long[] values) {
+		mBoolSize		= boolSize;
+		mBitSet 		= bitSet;
+		mValues			= values;
+	}
+	protected LongColumn(int boolSize, IBitSet bitSet, BigInteger[] bigValues) {
+		mBoolSize		= boolSize;
+		mBitSet 		= bitSet;
+		setValues(bigValues);
+	}
+	
+	/**
+	 * Sets the given big integer values, demoting them to long values if 
+	 * possible
+	 */
+	private void setValues(BigInteger[] bigValues) {
+		mValues 	= toLongs(bigValues);
+		mBigValues	= mValues == null ? bigValues : null;
+	}
+	
+	/**
+	 * Returns true if this column stores big integer values since some values
+	 * do not fit into a long
+	 */
+	public boolean isPromoted() {
+		return mValues == null;
+	}
+	
+	public IBitSet bitValues() {
+		return mBitSet;
+	}
+	
+	public <N extends Number> N getNumeric(ColumnHome<N, ?> columnHome, int row) {
+		return columnHome.castNumber(mValues == null ? mBigValues[row] : BigInteger.valueOf(mValues[row]));
+	}
+	
+	/**
+	 * Returns the values as longs, or null if any value does not fit into a 
+	 * long. {@link Long#MIN_VALUE} is not considered to fit.
+	 */
+	private static long[] toLongs(BigInteger[] values) {
+		final long[] res = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].bitLength() > 63) return null;
+			res[i] = values[i].longValue();
+			if (res[i] == Long.MIN_VALUE) return null;
+		}
+		return res;
+	}
+	private BigInteger[] toBigIntegers() {
+		if (mValues == null) return mBigValues;
+		final BigInteger[] res = new BigInteger[mValues.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = BigInteger.valueOf(mValues[i]);
+		}
+		return res;
+	}
+	
+	public int booleanSize() {
+		return mBoolSize;
+	}
+	public int numericSize() {
+		return mValues == null ? mBigValues.length : mValues.length;
+	}
+	public int size() {
+		return mBoolSize + numericSize();
+	}
+	
+	public int getNumericSignum(Zero zero, int row) {
+		return mValues == null ? mBigValues[row].signum() : IntegerUtil.signum(mValues[row]);
+	}
+	public int getHyperplaneSign(EfmModel model, IterationStateModel iteration) {
+		final ColumnInspectorModifier<Long, long[]> longModifier = getLongModifier(model);
+		if (mValues != null && longModifier != null) {
+			return longModifier.getHyperplaneSign(null, model, mBitSet, mBoolSize, mValues, iteration);
+		}
+		return getColumnInspectorModifier(model, BigInteger.class, BigInteger[].class).getHyperplaneSign(columnHome(), model, mBitSet, mBoolSize, toBigIntegers(), iteration);
+	}
+	public <Col extends Column> Col convert(ColumnHome<?,Col> columnHome, EfmModel model, IterationStepModel iteration, boolean clone) {
+		final int newBoolSize = iteration.getNextState().getBooleanSize();
+		final ColumnInspectorModifier<Long, long[]> longModifier = getLongModifier(model);
+		final IBitSet newBin;
+		final LongColumn result;
+		if (mValues != null && longModifier != null) {
+			newBin = longModifier.convertBinary(null, model, mBitSet, mBoolSize, mValues, iteration, clone);
+			final long[] newNum = longModifier.convertNumeric(null, model, mBitSet, mBoolSize, mValues, iteration, clone);
+			if (clone) {
+				return columnHome.castColumn(new LongColumn(newBoolSize, newBin, newNum));
+			}
+			mValues 	= newNum;
+			result		= this;
+		}
+		else {
+			final BigInteger[] bigInts = toBigIntegers();
+			final ColumnInspectorModifier<BigInteger, BigInteger[]> modifier = getColumnInspectorModifier(model, BigInteger.class, BigInteger[].class);
+			newBin = modifier.convertBinary(columnHome(), model, mBitSet, mBoolSize, bigInts, iteration, clone);
+			final BigInteger[] newNum = modifier.convertNumeric(columnHome(), model, mBitSet, mBoolSize, bigInts, iteration, clone);
+			if (clone) {
+				return columnHome.castColumn(new LongColumn(newBoolSize, newBin, newNum));
+			}
+			setValues(newNum);
+			result = this;
+		}
+		mBoolSize = newBoolSize;
+		if (mBitSet != newBin) {
+			mBitSet.clear();
+			mBitSet.or(newBin);
+		}
+		return columnHome.castColumn(result);
+	}
+	public <Col extends Column> Col mergeWith(ColumnHome<?,Col> columnHome, EfmModel model, Col other, IterationStepModel iteration) {
+		return columnHome.castColumn(mergeWith(model, (LongColumn)other, iteration));
+	}
+	/**
+	 * Merges this column with the other one. If both columns store long 
+	 * values, the merge is performed with checked long arithmetic. If this 
+	 * overflows, or if any of the columns is promoted, the merge is performed
+	 * with big integers. 
+	 */
+	public LongColumn mergeWith(EfmModel model, LongColumn other, IterationStepModel iteration) {
+		final int newBoolSize = iteration.getNextState().getBooleanSize();
+		final ColumnInspectorModifier<Long, long[]> longModifier = getLongModifier(model);
+		if (mValues != null && other.mValues != null && longModifier != null) {
+			try {
+				final long[] newNum = longModifier.mergeNumeric(null, model, mBitSet, mBoolSize, mValues, other.mBitSet, other.mBoolSize, other.mValues, iteration);
+				final IBitSet newBin = longModifier.mergeBinary(null, model, mBitSet, mBoolSize, mValues, other.mBitSet, other.mBoolSize, other.mValues, iteration);
+				return new LongColumn(newBoolSize, newBin, newNum);
+			}
+			catch (ArithmeticException ex) {
+				//overflow, promote to big integer below
+			}
+		}
+		final BigInteger[] myBigInts = toBigIntegers();
+		final BigInteger[] otBigInts = other.toBigIntegers();
+
+		final ColumnInspectorModifier<BigInteger, BigInteger[]> modifier = getColumnInspectorModifier(model, BigInteger.class, BigInteger[].class);
+		final IBitSet newBin = modifier.mergeBinary(columnHome(), model, mBitSet, mBoolSize, myBigInts, other.mBitSet, other.mBoolSize, otBigInts, iteration);
+		final BigInteger[] newNum = modifier.mergeNumeric(columnHome(), model, mBitSet, mBoolSize, myBigInts, other.mBitSet, other.mBoolSize, otBigInts, iteration);
+		return new LongColumn(newBoolSize, newBin, newNum);
+	}
+	
+	/**
+	 * Model factory and long modifier of the last lookup, or a null modifier
+	 * if the factory does not support long values.
+	 */
+	private static final class LongModifierLookup {
+		final ColumnInspectorModifierFactory 		factory;
+		final ColumnInspectorModifier<Long, long[]> modifier;
+		LongModifierLookup(ColumnInspectorModifierFactory factory, ColumnInspectorModifier<Long, long[]> modifier) {
+			this.factory	= factory;
+			this.modifier	= modifier;
+		}
+	}
+	private static volatile LongModifierLookup sLongModifierLookup;
+	
+	/**
+	 * Returns the long modifier of the model, or null if the model does not 
+	 * support long values. The last lookup is cached since the factory throws
+	 * an exception for unsupported types.
+	 */
+	private static ColumnInspectorModifier<Long, long[]> getLongModifier(EfmModel model) {
+		final ColumnInspectorModifierFactory factory = model.getColumnInspectorModifierFactory();
+		final LongModifierLookup lookup = sLongModifierLookup;
+		if (lookup != null && lookup.factory == factory) {
+			return lookup.modifier;
+		}
+		ColumnInspectorModifier<Long, long[]> modifier;
+		try {
+			modifier = factory.getColumnInspectorModifier(Long.class, long[].class);
+		}
+		catch (IllegalArgumentException ex) {
+			modifier = null;
+		}
+		sLongModifierLookup = new LongModifierLookup(factory, modifier);
+		return modifier;
+	}
+
+	public void writeTo(DataOutput dataOut) throws IOException {
+		columnHome().writeTo(this, dataOut);
+	}
+	
+	@Override
+	public LongColumn clone() {
+		if (mValues == null) {
+			return new LongColumn(mBoolSize, mBitSet.clone(), mBigValues.clone());
+		}
+		return new LongColumn(mBoolSize, mBitSet.clone(), mValues.clone());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (obj instanceof LongColumn) {
+			final LongColumn col = (LongColumn)obj;
+			//promoted and unpromoted columns never hold equal values
+			return
+				mBoolSize == col.mBoolSize &&
+				mBitSet.equals(col.mBitSet) && 
+				java.util.Arrays.equals(mValues, col.mValues) && 
+				java.util.Arrays.equals(mBigValues, col.mBigValues);
+		}
+		return false;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append('{');
+		for (int ii = 0; ii < mBoolSize; ii++) {
+			sb.append(mBitSet.get(ii) ? '1' : '0');
+		}
+		final int numSize = numericSize();
+		for (int ii = 0; ii < numSize; ii++) {
+			if (mBoolSize > 0 || ii > 0) sb.append(", ");
+			sb.append(mValues == null ? mBigValues[ii] : Long.valueOf(mValues[ii]));
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+    
+	public Home columnHome() {
+		return HOME;
+	}
+	
+	public static abstract class Home
+		extends		AbstractHome<BigInteger, LongColumn> 
+		implements	ColumnHome<BigInteger, LongColumn> {}
+	
+	public static final Home HOME = new Home() {
+		public Arithmetic getArithmetic() {
+			return Arithmetic.longint;
+		}
+		public NumberOperations<BigInteger> getNumberOperations() {
+			return BigIntegerOperations.instance();
+		}
+		public LongColumn newInstance(int booleanSize, int numericSize) {
+			return new LongColumn(booleanSize, BitSetUtil.factory().create(booleanSize), new long[numericSize]);
+		}
+		public LongColumn[] newInstances(ReadableMatrix<BigInteger> matrix, int booleanSize, BitSetFactory bitSetFactory) {
+			final int rows = matrix.getRowCount();
+			final int cols = matrix.getColumnCount();
+			final LongColumn[] res = new LongColumn[cols];
+			for (int col = 0; col < cols; col++) {
+				final BigInteger[] vals = new BigInteger[rows];				
+				for (int row = 0; row < rows; row++) {
+                    vals[row] = matrix.getNumberValueAt(row, col); 
+				}
+                res[col] = new LongColumn(booleanSize, bitSetFactory.create(booleanSize), vals);
+			}
+			return res;
+		}
+		/**
+		 * Reads the column, written by {@link #writeTo(LongColumn, DataOutput)}
+		 */
+		public LongColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
+			if (dataIn.readBoolean()) {
+				final BigInteger[] values = new BigInteger[numericSize];
+				for (int i = 0; i < numericSize; i++) {
+					final byte[] bytes = new byte[dataIn.readInt()];
+					dataIn.readFully(bytes);
+					values[i] = new BigInteger(bytes);
+				}
+				return new LongColumn(booleanSize, bitSet, values);
+			}
+			final long[] values = new long[numericSize];
+			for (int i = 0; i < numericSize; i++) {
+				values[i] = dataIn.readLong();
+			}
+			return new LongColumn(booleanSize, bitSet, values);
+		}
+		/**
+		 * Writes the bits, followed by a promoted flag. Long values are 
+		 * written with 8 bytes each, promoted values as byte length followed
+		 * by the big integer bytes. 
+		 */
+		public void writeTo(LongColumn column, DataOutput dataOut) throws IOException {
+			writeBinaryTo(column, dataOut);
+			dataOut.writeBoolean(column.isPromoted());
+			if (column.isPromoted()) {
+				for (int i = 0; i < column.mBigValues.length; i++) {
+					final byte[] bytes = column.mBigValues[i].toByteArray();
+					dataOut.writeInt(bytes.length);
+					dataOut.write(bytes);
+				}
+			}
+			else {
+				for (int i = 0; i < column.mValues.length; i++) {
+					dataOut.writeLong(column.mValues[i]);
+				}
+			}
+		}
+		public EntityMarshaller<LongColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
+			return new EntityMarshaller<LongColumn>() {
+                public LongColumn readFrom(DataInput in) throws IOException {
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
+                }
+                public void writeTo(LongColumn entity, DataOutput out) throws IOException {
+                    HOME.writeTo(entity, out);
+                }
+            };
+		}
+		/**
+		 * Creates a variable width table whose primary table has exactly the
+		 * width of an unpromoted column, that is, long columns are stored in 
+		 * the fixed width primary table, and only promoted columns overflow
+		 * into the secondary tables.
+		 */
+        public ConcurrentTable<LongColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            final int boolByteLen 		= BitSetUtil.byteSize(booleanSize);
+            final int numericByteLen	= 1 + numericSize * 8;//1 for promoted flag, 8 for one long value
+            return new ConcurrentTable<LongColumn>(
+                VariableWidthTable.create(
+                	folder, fileName, boolByteLen + numericByteLen, 
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.LongMemoryTable.getPageCache(tableConfig),
+                    Cache.LongMemoryTable.isPinned()
+                )
+            );
+        }
+        public ConcurrentTable<LongColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            return new ConcurrentTable<LongColumn>(
+                VariableWidthTable.open(
+                	folder, fileName, 
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.LongMemoryTable.getPageCache(tableConfig),
+                    Cache.LongMemoryTable.isPinned()
+                )
+            );
+        }
+		public FluxDistribution createFluxDistribution(MetabolicNetwork net, BigInteger[] values) {
+			return new FractionNumberFluxDistribution(net, values);
+		}
+		public ReadableMatrix<BigInteger> convertMatrix(ReadableMatrix matrix, boolean allowRowScaling, boolean allowColumnScaling) {
+			return BigIntegerColumn.HOME.convertMatrix(matrix, allowRowScaling, allowColumnScaling);
+		}
+		public ReadableMatrix<BigInteger> castMatrix(ReadableMatrix matrix) {
+			return BigIntegerColumn.HOME.castMatrix(matrix);
+		}
+		public LongColumn castColumn(Column column) {
+			return (LongColumn)column;
+		}
+		public BigInteger castNumber(Number number) {
+			return (BigInteger)number;
+		}
+		public int rank(ReadableMatrix matrix, Zero zero) {
+			return BigIntegerColumn.HOME.rank(matrix, zero);
+		}		
+	};
+    
+}
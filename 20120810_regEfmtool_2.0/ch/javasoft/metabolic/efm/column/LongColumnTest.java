@@ -0,0 +1,264 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.column;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.FluxDistribution;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.ElementaryFluxModes;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.impl.SequentialDoubleDescriptionImpl;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreMemoryFactory;
+import ch.javasoft.metabolic.efm.model.DefaultIterationStepModel;
+import ch.javasoft.metabolic.efm.model.IterationStepModel;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+import ch.javasoft.metabolic.efm.model.nullspace.NullspaceEfmModelFactory;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+
+/**
+ * <tt>LongColumnTest</tt> checks that long columns are promoted to big 
+ * integers if a value does not fit into a long, that they are demoted again
+ * if all values fit, and that the results are the same as with big integer 
+ * columns, both for single merges and for a whole efm computation.
+ */
+public class LongColumnTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.longint);
+	}
+	
+	private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+	
+	public void testPromoteOnConstruction() throws Exception {
+		assertTrue(createColumn(5, LONG_MAX.add(BigInteger.ONE)).isPromoted());
+		assertTrue(createColumn(5, BigInteger.valueOf(Long.MIN_VALUE)).isPromoted());
+		assertTrue(createColumn(5, LONG_MAX.negate().subtract(BigInteger.ONE)).isPromoted());
+	}
+	
+	public void testDemoteOnConstruction() throws Exception {
+		final LongColumn col = createColumn(5, LONG_MAX, LONG_MAX.negate(), BigInteger.ZERO);
+		assertFalse(col.isPromoted());
+		assertEquals(LONG_MAX, col.getNumeric(LongColumn.HOME, 0));
+		assertEquals(LONG_MAX.negate(), col.getNumeric(LongColumn.HOME, 1));
+		assertEquals(0, col.getNumericSignum(null, 2));
+	}
+	
+	public void testMergeOverflowPromotes() throws Exception {
+		final NetworkEfmModel model = createModel();
+		final IterationStepModel iteration = new DefaultIterationStepModel(model, 1);
+		final long half = Long.MAX_VALUE / 2;
+		//3*half + 1 and 5*half + 2 do not fit, and their gcd is one
+		final BigInteger[] valsA = createValues(model, iteration, half, 1, 2);
+		final BigInteger[] valsB = createValues(model, iteration, -1, 3, 5);
+		
+		final LongColumn merged = assertMergeEquals(model, iteration, valsA, valsB);
+		assertTrue(merged.isPromoted());
+	}
+	
+	public void testMergeDemotes() throws Exception {
+		final NetworkEfmModel model = createModel();
+		final IterationStepModel iteration = new DefaultIterationStepModel(model, 1);
+		final BigInteger big = BigInteger.ONE.shiftLeft(64);
+		//merged values are multiples of 2^64, which are reduced to small values
+		final BigInteger[] valsA = createValues(model, iteration, big, big, big.shiftLeft(1));
+		final BigInteger[] valsB = createValues(model, iteration, BigInteger.ONE.negate(), BigInteger.ONE, BigInteger.ONE);
+		
+		final LongColumn colA = createColumn(model, iteration, valsA);
+		assertTrue(colA.isPromoted());
+		final LongColumn merged = assertMergeEquals(model, iteration, valsA, valsB);
+		assertFalse(merged.isPromoted());
+	}
+	
+	public void testMergeWithoutOverflow() throws Exception {
+		final NetworkEfmModel model = createModel();
+		final IterationStepModel iteration = new DefaultIterationStepModel(model, 1);
+		final BigInteger[] valsA = createValues(model, iteration, 4, 1, 2);
+		final BigInteger[] valsB = createValues(model, iteration, -6, 3, 5);
+		
+		final LongColumn merged = assertMergeEquals(model, iteration, valsA, valsB);
+		assertFalse(merged.isPromoted());
+	}
+	
+	public void testWriteRead() throws Exception {
+		final LongColumn plain = createColumn(5, BigInteger.ONE, LONG_MAX.negate());
+		final LongColumn promoted = createColumn(5, BigInteger.ONE, LONG_MAX.shiftLeft(3));
+		plain.bitValues().set(2);
+		promoted.bitValues().set(4);
+		for (final LongColumn col : new LongColumn[] {plain, promoted}) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			LongColumn.HOME.writeTo(col, new DataOutputStream(out));
+			final LongColumn read = LongColumn.HOME.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())), col.booleanSize(), col.numericSize(), BitSetUtil.factory());
+			assertEquals(col, read);
+			assertEquals(col.isPromoted(), read.isPromoted());
+		}
+	}
+	
+	public void testLongintEqualsBigint() throws Exception {
+		final MetabolicNetwork network = createOverflowNetwork();
+		final List<String> expected = calculateEfms(network, "bigint");
+		assertTrue(expected.size() > 0);
+		assertTrue("no value exceeds the long range", exceedsLong(expected));
+		assertEquals(expected, calculateEfms(network, "longint"));
+	}
+	
+	private static boolean exceedsLong(List<String> efms) {
+		for (final String efm : efms) {
+			for (final String value : efm.split("[^0-9-]+")) {
+				if (value.length() > 0 && new BigInteger(value).abs().compareTo(LONG_MAX) > 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Merges the columns with long and big integer arithmetic, asserts that
+	 * the results are equal and returns the merged long column
+	 */
+	private static LongColumn assertMergeEquals(NetworkEfmModel model, IterationStepModel iteration, BigInteger[] valsA, BigInteger[] valsB) {
+		final LongColumn longA = createColumn(model, iteration, valsA);
+		final LongColumn longB = createColumn(model, iteration, valsB);
+		final BigIntegerColumn bigA = new BigIntegerColumn(longA.booleanSize(), longA.bitValues().clone(), valsA.clone());
+		final BigIntegerColumn bigB = new BigIntegerColumn(longB.booleanSize(), longB.bitValues().clone(), valsB.clone());
+		
+		final LongColumn longMerged = longA.mergeWith(model, longB, iteration);
+		final BigIntegerColumn bigMerged = bigA.mergeWith(model, bigB, iteration);
+		assertEquals(bigMerged.booleanSize(), longMerged.booleanSize());
+		assertEquals(bigMerged.bitValues(), longMerged.bitValues());
+		assertEquals(bigMerged.numericSize(), longMerged.numericSize());
+		for (int i = 0; i < bigMerged.numericSize(); i++) {
+			assertEquals(bigMerged.getNumeric(BigIntegerColumn.HOME, i), longMerged.getNumeric(LongColumn.HOME, i));
+		}
+		return longMerged;
+	}
+	
+	private static LongColumn createColumn(int booleanSize, BigInteger... values) {
+		return new LongColumn(booleanSize, BitSetUtil.factory(booleanSize).create(booleanSize), values);
+	}
+	private static LongColumn createColumn(NetworkEfmModel model, IterationStepModel iteration, BigInteger[] values) {
+		final int booleanSize = iteration.getCurrentState().getBooleanSize();
+		return new LongColumn(booleanSize, BitSetUtil.factory(booleanSize).create(booleanSize), values.clone());
+	}
+	
+	/**
+	 * Returns the numeric values of a column in the current iteration, with 
+	 * the hyperplane value first, followed by the given values and zeros
+	 */
+	private static BigInteger[] createValues(NetworkEfmModel model, IterationStepModel iteration, long hyperplaneValue, long... values) {
+		final BigInteger[] bigValues = new BigInteger[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bigValues[i] = BigInteger.valueOf(values[i]);
+		}
+		return createValues(model, iteration, BigInteger.valueOf(hyperplaneValue), bigValues);
+	}
+	private static BigInteger[] createValues(NetworkEfmModel model, IterationStepModel iteration, BigInteger hyperplaneValue, BigInteger... values) {
+		final BigInteger[] res = new BigInteger[iteration.getCurrentState().getNumericSize()];
+		Arrays.fill(res, BigInteger.ZERO);
+		res[0] = hyperplaneValue;
+		System.arraycopy(values, 0, res, 1, values.length);
+		return res;
+	}
+	
+	private static NetworkEfmModel createModel() {
+		return new NullspaceEfmModelFactory().createEfmModel(LongColumn.HOME, Config.getConfig(), createOverflowNetwork());
+	}
+	
+	/**
+	 * Linear pathway A -> B -> C -> D with two bypasses. The stoichiometric 
+	 * coefficients are large primes, the flux values of the modes are thus 
+	 * products of these primes, causing long overflows during the 
+	 * computation.
+	 */
+	private static MetabolicNetwork createOverflowNetwork() {
+		final double a = 10000019, b = 9999991, c = 10000079, d = 9999973, e = 10000103, f = 9999971;
+		final double[][] values = new double[][] {
+			{ 1, -a,  0,  0,  0, -e,  0},	//A
+			{ 0,  b, -c,  0,  0,  0, -f},	//B
+			{ 0,  0,  d, -a,  0,  f,  0},	//C
+			{ 0,  0,  0,  c, -1,  0,  e}	//D
+		};
+		final boolean[] reversible = new boolean[] {
+			false, false, false, false, false, false, false
+		};
+		final String[] metaNames = new String[] {"A", "B", "C", "D"};
+		final String[] reacNames = new String[] {"R1", "R2", "R3", "R4", "R5", "R6", "R7"};
+		return new DefaultMetabolicNetwork(metaNames, reacNames, values, reversible);
+	}
+	
+	private static List<String> calculateEfms(MetabolicNetwork network, String arithmetic) throws Exception {
+		final Config config = Config.getFromXmlConfig(Config.resolveXmlConfig(new String[] {
+			"-kind", "stoichiometry", "-stoich", "stoich.txt", "-rev", "rev.txt", 
+			"-meta", "meta.txt", "-reac", "reac.txt", "-out", "null", 
+			"-arithmetic", arithmetic, "-compression", "off", "-normalize", "none"
+		}));
+		final ElementaryFluxModes.Impl impl = new SequentialDoubleDescriptionImpl(config, new NullspaceEfmModelFactory(), new InCoreMemoryFactory());
+		final ElementaryFluxModes.Impl prev = getImplOrNull();
+		ElementaryFluxModes.setImpl(impl);
+		try {
+			final List<String> efms = new ArrayList<String>();
+			for (final FluxDistribution efm : ElementaryFluxModes.calculateAndReturnEfms(network)) {
+				efms.add(efm.toString());
+			}
+			Collections.sort(efms);
+			return efms;
+		}
+		finally {
+			ElementaryFluxModes.setImpl(prev);
+		}
+	}
+	private static ElementaryFluxModes.Impl getImplOrNull() {
+		try {
+			return ElementaryFluxModes.getImpl();
+		}
+		catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+}
@@ -39,10 +39,13 @@ import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.jbase.BlockCompressedTable;
 import ch.javasoft.jbase.EntityMarshaller;
 import ch.javasoft.jbase.VariableWidthTable;
 import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.jbase.marshal.VarLengthEncoding;
 import ch.javasoft.math.BigFraction;
 import ch.javasoft.math.NumberOperations;
 import ch.javasoft.math.ops.BigIntegerOperations;
@@ -50,6 +53,7 @@ import ch.javasoft.metabolic.FluxDistribution;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.model.IterationStateModel;
@@ -305,7 +309,7 @@ public class RawBigIntegerColumn extends AbstractColumn {
             throw new RuntimeException("not implemented");
 			//return new FractionalColumn(booleanSize, numericSize);
 		}
-		public RawBigIntegerColumn[] newInstances(ReadableMatrix<BigInteger> matrix, int booleanSize) {
+		public RawBigIntegerColumn[] newInstances(ReadableMatrix<BigInteger> matrix, int booleanSize, BitSetFactory bitSetFactory) {
 			final int rows = matrix.getRowCount();
 			final int cols = matrix.getColumnCount();
 			final RawBigIntegerColumn[] res = new RawBigIntegerColumn[cols];
@@ -314,12 +318,12 @@ public class RawBigIntegerColumn extends AbstractColumn {
 				for (int row = 0; row < rows; row++) {
                     vals[row] = matrix.getNumberValueAt(row, col); 
 				}
-                res[col] = new RawBigIntegerColumn(booleanSize, vals.length, BitSetUtil.factory().create(rows), fromBigIntegers(vals));
+                res[col] = new RawBigIntegerColumn(booleanSize, vals.length, bitSetFactory.create(booleanSize), fromBigIntegers(vals));
 			}
 			return res;
 		}
-		public RawBigIntegerColumn readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException {
-			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize);
+		public RawBigIntegerColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
 			
 			//read numeric
 			final int byteLen = dataIn.readInt();
@@ -333,35 +337,75 @@ public class RawBigIntegerColumn extends AbstractColumn {
 			dataOut.writeInt(column.mNumericBytes.length);
 			dataOut.write(column.mNumericBytes);
 		}
-		public EntityMarshaller<RawBigIntegerColumn> getEntityMarshaller(final int booleanSize, final int numericSize) throws IOException {
+		public EntityMarshaller<RawBigIntegerColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
 			return new EntityMarshaller<RawBigIntegerColumn>() {
                 public RawBigIntegerColumn readFrom(DataInput in) throws IOException {
-                    return HOME.readFrom(in, booleanSize, numericSize);
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
                 }
                 public void writeTo(RawBigIntegerColumn entity, DataOutput out) throws IOException {
                     HOME.writeTo(entity, out);
                 }
             };
 		}
-        public ConcurrentTable<RawBigIntegerColumn> createTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+		/**
+		 * Returns a marshaller for {@link BlockCompressedTable compressed 
+		 * tables}. The bit pattern is run length encoded, the raw numeric 
+		 * bytes are preceded by their length as varint.
+		 */
+		public EntityMarshaller<RawBigIntegerColumn> getCompressedEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) {
+			return new EntityMarshaller<RawBigIntegerColumn>() {
+                public RawBigIntegerColumn readFrom(DataInput in) throws IOException {
+        			final IBitSet bitSet = readCompressedBinaryFrom(in, booleanSize, bitSetFactory);
+        			final byte[] bytes = new byte[VarLengthEncoding.readUnsignedInt(in)];
+        			in.readFully(bytes);
+        			return new RawBigIntegerColumn(booleanSize, numericSize, bitSet, bytes);
+                }
+                public void writeTo(RawBigIntegerColumn column, DataOutput out) throws IOException {
+                	writeCompressedBinaryTo(column, out);
+                	VarLengthEncoding.writeUnsignedInt(out, column.mNumericBytes.length);
+                	out.write(column.mNumericBytes);
+                }
+            };
+		}
+        public ConcurrentTable<RawBigIntegerColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.BigIntegerMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<RawBigIntegerColumn>(
+                    BlockCompressedTable.create(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                        Cache.BigIntegerMemoryTable.isPinned()
+                    )
+                );
+            }
             final int boolByteLen 		= BitSetUtil.byteSize(booleanSize);
             final int numericByteLen	= numericSize * (4 + 8);//4 for len value, 8 for one long value
             return new ConcurrentTable<RawBigIntegerColumn>(
                 VariableWidthTable.create(
                 	folder, fileName, boolByteLen + numericByteLen, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigIntegerMemoryTable.getCacheTableSize(),
-                    Cache.BigIntegerMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                    Cache.BigIntegerMemoryTable.isPinned()
                 )
             );
         }
-        public ConcurrentTable<RawBigIntegerColumn> openTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<RawBigIntegerColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.BigIntegerMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<RawBigIntegerColumn>(
+                    BlockCompressedTable.open(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                        Cache.BigIntegerMemoryTable.isPinned()
+                    )
+                );
+            }
             return new ConcurrentTable<RawBigIntegerColumn>(
                 VariableWidthTable.open(
                 	folder, fileName, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.BigIntegerMemoryTable.getCacheTableSize(),
-                    Cache.BigIntegerMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.BigIntegerMemoryTable.getPageCache(tableConfig),
+                    Cache.BigIntegerMemoryTable.isPinned()
                 )
             );
         }
@@ -41,10 +41,13 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.jbase.BlockCompressedTable;
 import ch.javasoft.jbase.EntityMarshaller;
 import ch.javasoft.jbase.VariableWidthTable;
 import ch.javasoft.jbase.concurrent.ConcurrentTable;
+import ch.javasoft.jbase.marshal.VarLengthEncoding;
 import ch.javasoft.math.NumberOperations;
 import ch.javasoft.math.varint.VarInt;
 import ch.javasoft.math.varint.VarIntFactory;
@@ -54,6 +57,7 @@ import ch.javasoft.metabolic.FluxDistribution;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.memory.outcore.Cache;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
 import ch.javasoft.metabolic.efm.model.EfmModel;
 import ch.javasoft.metabolic.efm.model.IterationStateModel;
@@ -247,7 +251,7 @@ public class VarIntColumn extends AbstractColumn {
             throw new RuntimeException("not implemented");
 			//return new FractionalColumn(booleanSize, numericSize);
 		}
-		public VarIntColumn[] newInstances(ReadableMatrix<VarIntNumber> matrix, int booleanSize) {
+		public VarIntColumn[] newInstances(ReadableMatrix<VarIntNumber> matrix, int booleanSize, BitSetFactory bitSetFactory) {
 			final int rows = matrix.getRowCount();
 			final int cols = matrix.getColumnCount();
 			final VarIntColumn[] res = new VarIntColumn[cols];
@@ -256,12 +260,12 @@ public class VarIntColumn extends AbstractColumn {
 				for (int row = 0; row < rows; row++) {
                     vals[row] = matrix.getNumberValueAt(row, col); 
 				}
-                res[col] = new VarIntColumn(booleanSize, vals.length, BitSetUtil.factory().create(rows), fromVarIntNumber(vals));
+                res[col] = new VarIntColumn(booleanSize, vals.length, bitSetFactory.create(booleanSize), fromVarIntNumber(vals));
 			}
 			return res;
 		}
-		public VarIntColumn readFrom(DataInput dataIn, int booleanSize, int numericSize) throws IOException {
-			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize);
+		public VarIntColumn readFrom(DataInput dataIn, int booleanSize, int numericSize, BitSetFactory bitSetFactory) throws IOException {
+			final IBitSet bitSet = readBinaryFrom(dataIn, booleanSize, bitSetFactory);
 			//read numeric
 			final int len = dataIn.readInt();
 			final byte[] arr = new byte[len];
@@ -273,35 +277,76 @@ public class VarIntColumn extends AbstractColumn {
 			dataOut.writeInt(column.mNumericRaw.length);
 			dataOut.write(column.mNumericRaw);
 		}
-		public EntityMarshaller<VarIntColumn> getEntityMarshaller(final int booleanSize, final int numericSize) throws IOException {
+		public EntityMarshaller<VarIntColumn> getEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) throws IOException {
 			return new EntityMarshaller<VarIntColumn>() {
                 public VarIntColumn readFrom(DataInput in) throws IOException {
-                    return HOME.readFrom(in, booleanSize, numericSize);
+                    return HOME.readFrom(in, booleanSize, numericSize, bitSetFactory);
                 }
                 public void writeTo(VarIntColumn entity, DataOutput out) throws IOException {
                     HOME.writeTo(entity, out);
                 }
             };
 		}
-        public ConcurrentTable<VarIntColumn> createTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+		/**
+		 * Returns a marshaller for {@link BlockCompressedTable compressed 
+		 * tables}. The bit pattern is run length encoded, the numeric values
+		 * are already varint encoded and written as they are, preceded by 
+		 * their byte length as varint.
+		 */
+		public EntityMarshaller<VarIntColumn> getCompressedEntityMarshaller(final int booleanSize, final int numericSize, final BitSetFactory bitSetFactory) {
+			return new EntityMarshaller<VarIntColumn>() {
+                public VarIntColumn readFrom(DataInput in) throws IOException {
+        			final IBitSet bitSet = readCompressedBinaryFrom(in, booleanSize, bitSetFactory);
+        			final byte[] arr = new byte[VarLengthEncoding.readUnsignedInt(in)];
+        			in.readFully(arr);
+        			return new VarIntColumn(booleanSize, numericSize, bitSet, arr);
+                }
+                public void writeTo(VarIntColumn column, DataOutput out) throws IOException {
+                	writeCompressedBinaryTo(column, out);
+                	VarLengthEncoding.writeUnsignedInt(out, column.mNumericRaw.length);
+                	out.write(column.mNumericRaw);
+                }
+            };
+		}
+        public ConcurrentTable<VarIntColumn> createTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.VarIntMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<VarIntColumn>(
+                    BlockCompressedTable.create(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.VarIntMemoryTable.getPageCache(tableConfig),
+                        Cache.VarIntMemoryTable.isPinned()
+                    )
+                );
+            }
             final int boolByteLen 		= BitSetUtil.byteSize(booleanSize);
             final int numericByteLen	= 4 + numericSize * 8;//4 for array length, 8 for one long value
             return new ConcurrentTable<VarIntColumn>(
                 VariableWidthTable.create(
                 	folder, fileName, boolByteLen + numericByteLen, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.VarIntMemoryTable.getCacheTableSize(),
-                    Cache.VarIntMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.VarIntMemoryTable.getPageCache(tableConfig),
+                    Cache.VarIntMemoryTable.isPinned()
                 )
             );
         }
-        public ConcurrentTable<VarIntColumn> openTable(File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+        public ConcurrentTable<VarIntColumn> openTable(TableConfig tableConfig, File folder, String fileName, final int booleanSize, final int numericSize) throws IOException {
+            if (Cache.VarIntMemoryTable.isCompressed(tableConfig)) {
+                return new ConcurrentTable<VarIntColumn>(
+                    BlockCompressedTable.open(
+                    	new File(folder, fileName), 
+                    	getCompressedEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                        Cache.VarIntMemoryTable.getPageCache(tableConfig),
+                        Cache.VarIntMemoryTable.isPinned()
+                    )
+                );
+            }
             return new ConcurrentTable<VarIntColumn>(
                 VariableWidthTable.open(
                 	folder, fileName, 
-                	getEntityMarshaller(booleanSize, numericSize),
-                    Cache.VarIntMemoryTable.getCacheTableSize(),
-                    Cache.VarIntMemoryTable.getCacheEntrySize()
+                	getEntityMarshaller(booleanSize, numericSize, tableConfig.getBitSetFactory()),
+                    Cache.VarIntMemoryTable.getPageCache(tableConfig),
+                    Cache.VarIntMemoryTable.isPinned()
                 )
             );
         }
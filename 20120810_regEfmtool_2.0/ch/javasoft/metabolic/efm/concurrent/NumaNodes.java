@@ -0,0 +1,249 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import ch.javasoft.util.ExceptionUtil;
+
+/**
+ * The <code>NumaNodes</code> class defines the NUMA nodes used to shard 
+ * memories and to schedule jobs close to the data they process. The number of
+ * nodes is given by the {@link #SYSTEM_PROPERTY_NODES nodes system property}.
+ * Without this property, a single node is used, that is, sharding is disabled 
+ * and all jobs are processed locally.
+ * <p>
+ * Java offers no thread affinity. Threads are therefore bound to nodes
+ * logically: a thread bound to a node processes the jobs and allocates the
+ * data of this node. With <tt>-XX:+UseNUMA</tt>, the virtual machine places
+ * objects in memory local to the allocating thread, and the operating system
+ * scheduler keeps threads close to their memory. If no NUMA support is 
+ * available, the shards and job queues still work, without any locality 
+ * benefit.
+ */
+public class NumaNodes {
+	
+	private static final Logger LOG = LogPkg.LOGGER;
+	
+	/**
+	 * System property defining the number of NUMA nodes, either a positive 
+	 * number or <tt>auto</tt> to detect the nodes of the machine
+	 */
+	public static final String SYSTEM_PROPERTY_NODES = NumaNodes.class.getName() + ".nodes";
+	
+	/**
+	 * The sysfs folder containing a <tt>node&lt;N&gt;</tt> folder for every
+	 * NUMA node, used to detect the nodes on linux
+	 */
+	public static final String SYSFS_NODE_FOLDER = "/sys/devices/system/node";
+	
+	private static final ThreadLocal<Integer> sCurrentNode = new ThreadLocal<Integer>();
+	private static volatile int sNodeCount;
+	
+	/**
+	 * Returns the number of NUMA nodes, at least one, see 
+	 * {@link #SYSTEM_PROPERTY_NODES}
+	 */
+	public static int getNodeCount() {
+		int cnt = sNodeCount;
+		if (cnt == 0) {
+			final String prop = System.getProperty(SYSTEM_PROPERTY_NODES);
+			if (prop == null) {
+				cnt = 1;
+			}
+			else if ("auto".equalsIgnoreCase(prop.trim())) {
+				cnt = detectNodeCount();
+				LOG.info("detected " + cnt + " numa node(s)");
+			}
+			else {
+				try {
+					cnt = Math.max(1, Integer.parseInt(prop.trim()));
+				}
+				catch (NumberFormatException e) {
+					LOG.warning("ignoring invalid numa node count " + prop + ", using local node only");
+					cnt = 1;
+				}
+			}
+			sNodeCount = cnt;
+		}
+		return cnt;
+	}
+	
+	private static int detectNodeCount() {
+		final File[] files = new File(SYSFS_NODE_FOLDER).listFiles();
+		int cnt = 0;
+		if (files != null) {
+			for (final File file : files) {
+				if (file.isDirectory() && file.getName().matches("node[0-9]+")) {
+					cnt++;
+				}
+			}
+		}
+		return Math.max(1, cnt);
+	}
+	
+	/**
+	 * Returns true if more than one node is used
+	 */
+	public static boolean isSharding() {
+		return getNodeCount() > 1;
+	}
+	
+	/**
+	 * Returns the node owning the given index if <tt>size</tt> elements are
+	 * sharded into contiguous ranges of equal size, one per node
+	 */
+	public static int getNodeForIndex(int index, int size) {
+		final int nodes = getNodeCount();
+		if (nodes == 1 || size <= 0) return 0;
+		return (int)((((long)index) * nodes) / size);
+	}
+	/**
+	 * Returns the first index of the range owned by the given node if 
+	 * <tt>size</tt> elements are sharded, see {@link #getNodeForIndex(int, int)}
+	 */
+	public static int getShardStart(int node, int size) {
+		final int nodes = getNodeCount();
+		return (int)((((long)node) * size + nodes - 1) / nodes);
+	}
+	
+	/**
+	 * Returns the node to which the current thread is bound, or -1 if the 
+	 * thread is not bound to a node
+	 */
+	public static int getCurrentNode() {
+		final Integer node = sCurrentNode.get();
+		return node == null ? -1 : node.intValue();
+	}
+	/**
+	 * Binds the current thread to the given node
+	 */
+	public static void bindCurrentThread(int node) {
+		sCurrentNode.set(Integer.valueOf(node));
+	}
+	/**
+	 * Removes the node binding of the current thread
+	 */
+	public static void unbindCurrentThread() {
+		sCurrentNode.remove();
+	}
+	
+	/**
+	 * Returns a thread factory creating threads bound to the given node
+	 */
+	public static ThreadFactory createThreadFactory(final String namePrefix, final int node) {
+		final AtomicInteger index = new AtomicInteger();
+		return new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(new Runnable() {
+					public void run() {
+						bindCurrentThread(node);
+						r.run();
+					}
+				}, namePrefix + "-node" + node + "-" + index.incrementAndGet());
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * A task executed by {@link NumaNodes#runOnEachNode(NodeTask)}
+	 */
+	public static interface NodeTask {
+		/**
+		 * Runs the task for the given node, in a thread bound to this node
+		 */
+		void run(int node) throws Exception;
+	}
+	
+	/**
+	 * Runs the task once for every node, each in a thread bound to the 
+	 * respective node, and waits until all tasks have completed. With a 
+	 * single node, the task is executed in the current thread.
+	 * 
+	 * @throws IOException	if a task throws an exception, i/o exceptions are
+	 * 						thrown as is, other checked exceptions are nested
+	 */
+	public static void runOnEachNode(final NodeTask task) throws IOException {
+		final int nodes = getNodeCount();
+		if (nodes == 1) {
+			try {
+				task.run(0);
+			}
+			catch (Exception e) {
+				throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, e);
+			}
+			return;
+		}
+		final List<Thread> threads = new ArrayList<Thread>(nodes);
+		final Throwable[] failures = new Throwable[nodes];
+		for (int i = 0; i < nodes; i++) {
+			final int node = i;
+			final Thread thread = createThreadFactory("numa-task", node).newThread(new Runnable() {
+				public void run() {
+					try {
+						task.run(node);
+					}
+					catch (Throwable e) {
+						failures[node] = e;
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		try {
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+		}
+		catch (InterruptedException e) {
+			throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, e);
+		}
+		for (final Throwable failure : failures) {
+			if (failure != null) {
+				throw ExceptionUtil.toRuntimeExceptionOr(IOException.class, failure);
+			}
+		}
+	}
+	
+	//no instances
+	private NumaNodes() {}
+}
@@ -48,8 +48,11 @@ public class SemaphoreConcurrentToken extends AbstractConcurrentToken {
 	private final Semaphore semaphore;
 	
 	public SemaphoreConcurrentToken(EfmModel efmModel) {
+		this(efmModel.getAdjEnumThreads());
+	}
+	public SemaphoreConcurrentToken(int threads) {
 		super();
-		semaphore = new Semaphore(efmModel.getAdjEnumThreads());
+		semaphore = new Semaphore(threads);
 	}
 	public SemaphoreConcurrentToken(EfmModel efmModel, ProgressAggregator progress) throws IOException {
 		super(progress);
@@ -45,6 +45,7 @@ import ch.javasoft.metabolic.efm.column.BigIntegerColumn;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.column.DoubleColumn;
 import ch.javasoft.metabolic.efm.column.FractionalColumn;
+import ch.javasoft.metabolic.efm.column.LongColumn;
 import ch.javasoft.metabolic.efm.column.RawBigIntegerColumn;
 import ch.javasoft.metabolic.efm.column.VarIntColumn;
 import ch.javasoft.util.numeric.Zero;
@@ -90,6 +91,19 @@ public enum Arithmetic {
 		public boolean isExact() {
 			return true;
 		}
+	}, longint {
+		@Override
+		public ColumnHome<BigInteger, LongColumn> getColumnHome() {
+			return LongColumn.HOME;
+		}		
+		@Override
+		public Zero getDefaultZero() {
+			return new Zero(0d);
+		}
+		@Override
+		public boolean isExact() {
+			return true;
+		}
 	}, rawint {
 		@Override
 		public ColumnHome<BigInteger, RawBigIntegerColumn> getColumnHome() {
@@ -46,12 +46,15 @@ import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
 
 import ch.javasoft.io.Files;
 import ch.javasoft.metabolic.Norm;
@@ -59,8 +62,10 @@ import ch.javasoft.metabolic.compress.CompressionMethod;
 import ch.javasoft.metabolic.compress.config.MetabolicCompressionConfig;
 import ch.javasoft.metabolic.efm.ElementaryFluxModes;
 import ch.javasoft.metabolic.efm.adj.AdjMethodFactory;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilterFactory;
 import ch.javasoft.metabolic.efm.impl.SequentialDoubleDescriptionImpl;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryGovernor;
 import ch.javasoft.metabolic.efm.memory.incore.InCoreMemoryFactory;
 import ch.javasoft.metabolic.efm.model.EfmModelFactory;
 import ch.javasoft.metabolic.efm.model.nullspace.NullspaceEfmModelFactory;
@@ -74,9 +79,12 @@ import ch.javasoft.xml.config.MissingReferableException;
 import ch.javasoft.xml.config.XmlArgException;
 import ch.javasoft.xml.config.XmlConfig;
 import ch.javasoft.xml.config.XmlConfigException;
+import ch.javasoft.xml.config.XmlPrint;
 import ch.javasoft.xml.config.XmlUtil;
 
-public class Config {
+import at.acib.generegulation.GeneRules;
+
+public class Config implements Cloneable {
 	
 	public static final String CONFIG_FILE	= "config/metabolic-efm.xml";
 
@@ -86,8 +94,22 @@ public class Config {
 	public static final String USAGE_NAME			= "efm-usage";
 	public static final String VERSION_NAME			= "efm-version";
 	
+	/**
+	 * Upper bound for the {@link #getDefaultCacheSize() default page cache 
+	 * capacity}, 512M
+	 */
+	public static final long MAX_DEFAULT_CACHE_SIZE	= 512L << 20;
+	
+	/**
+	 * Class name of the adjacency filter factory used if no other factory is
+	 * configured, filtering adjacent pairs according to the gene rules. The
+	 * factory is instantiated by reflection, the core does not depend on the
+	 * gene regulation package.
+	 */
+	public static final String DEFAULT_ADJACENCY_FILTER_FACTORY = "at.acib.generegulation.GeneRuleAdjacencyFilterFactory";
+	
 	private final XmlConfig				mXmlConfig;//might be zero
-	private final AdjMethodFactory		mAdjFactory;
+	private AdjMethodFactory			mAdjFactory;//renewed for copies
 	private final Zero					mZero;
 	private final String				mAdjMethod;
 	private final String				mRowOrdering;
@@ -110,6 +132,18 @@ public class Config {
     private final CompressionMethod[]	mCompressionMethods;
     private final boolean				mPreprocessDuplicateGenes;
     
+    //settings below are not part of the xml config, they are changed in 
+    //copies of a config instance, see copy()
+    private GeneRules					mGeneRules;//null if unregulated
+    private long						mCacheSize;//page cache capacity in bytes
+    private boolean						mMappedTables;//memory mapped out-of-core tables
+    private boolean						mCompressedTables;//block compressed out-of-core tables
+    private boolean						mFixedWidthBitSets;//inline bit sets for columns up to 256 bits
+    private long						mDiskBudget;//governed disk bytes, 0 for no budget
+    private long						mRamBudget;//governed ram bytes, 0 for no budget
+    private long						mThrottleTimeout;//milliseconds to wait for budget
+    private AdjacencyFilterFactory		mAdjacencyFilterFactory;//null for no filtering
+    
 	public Config(Zero zero, String adjMethod, String rowOrdering, CompressionMethod[] compressionMethods, boolean preprocessDuplicateGenes, boolean selfTest, boolean parseOnly, int maxThreads, Arithmetic arithmetic, int precision, Generator generator, Normalize normalize, String reactionsToSuppress, String reactionsToEnforce, String reactionsNoSplit, File tempDir, int progressPartition, ProgressType progressType, String flag, DistributedConfig distConfig) {
 		this(zero, adjMethod, rowOrdering, compressionMethods, preprocessDuplicateGenes, selfTest, parseOnly, maxThreads, arithmetic, precision, generator, normalize, toSet(reactionsToSuppress), toSet(reactionsToEnforce), toSet(reactionsNoSplit), tempDir, progressPartition, progressType, flag, distConfig);
 	}
@@ -141,8 +175,34 @@ public class Config {
         mXmlConfig					= xmlConfig;
         mFlag						= flag;
         mDistributedConfig			= distConfig == null ? getDistributedConfig(xmlConfig) : distConfig;
+        mGeneRules					= null;
+        mCacheSize					= getDefaultCacheSize();
+        mMappedTables				= false;
+        mCompressedTables			= false;
+        mFixedWidthBitSets			= true;
+        mDiskBudget					= 0;
+        mRamBudget					= 0;
+        mThrottleTimeout			= MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT;
+        mAdjacencyFilterFactory		= createAdjacencyFilterFactory(DEFAULT_ADJACENCY_FILTER_FACTORY);
 		mAdjFactory					= initAdjFactory(this);
 	}
+	/**
+	 * Returns a copy of this config, used by the <code>withXXX</code> methods
+	 * to derive a config with a changed setting. All fields are copied, only
+	 * the adjacency method factory is renewed to refer to the copy.
+	 */
+	private Config copy() {
+		final Config copy;
+		try {
+			copy = (Config)super.clone();
+		}
+		catch (CloneNotSupportedException ex) {
+			//should not happen, we implement Cloneable
+			throw new RuntimeException(ex);
+		}
+		copy.mAdjFactory = initAdjFactory(copy);
+		return copy;
+	}
 	private static AdjMethodFactory initAdjFactory(Config config) {
 		try {
 			return new AdjMethodFactory(config);
@@ -151,6 +211,15 @@ public class Config {
 			throw new RuntimeException("cannot initialize AdjFactories, e=" + e, e);
 		}
 	}
+	private static AdjacencyFilterFactory createAdjacencyFilterFactory(String className) {
+		if (className == null || className.length() == 0) return null;
+		try {
+			return (AdjacencyFilterFactory)Class.forName(className).newInstance();
+		} 
+		catch (Exception e) {
+			throw new RuntimeException("cannot instantiate adjacency filter factory " + className + ", e=" + e, e);
+		}
+	}
 	private static DistributedConfig getDistributedConfig(XmlConfig xmlConfig) {
 		try {
 			if (xmlConfig == null) {
@@ -294,6 +363,222 @@ public class Config {
 		return mReactionsNoSplit;
 	}
 	
+	/**
+	 * Returns the factory for the filter of adjacent pairs, or null if 
+	 * adjacent pairs are not filtered
+	 * 
+	 * @see ch.javasoft.metabolic.efm.util.AdjacencyFilterUtil#getAdjacencyFilter(Config, ch.javasoft.metabolic.efm.model.EfmModel)
+	 */
+	public AdjacencyFilterFactory getAdjacencyFilterFactory() {
+		return mAdjacencyFilterFactory;
+	}
+	/**
+	 * Returns a copy of this config with the given adjacency filter factory.
+	 * Note that the factory class needs a public no-arg constructor if the
+	 * config is {@link #writeTo(File) written} and {@link #readFrom(File) read}
+	 * again.
+	 * 
+	 * @param factory	the factory, or null to disable filtering of adjacent
+	 * 					pairs
+	 * @return a new config instance, equal to this config except for the 
+	 * 			adjacency filter factory
+	 */
+	public Config withAdjacencyFilterFactory(AdjacencyFilterFactory factory) {
+		final Config copy = copy();
+		copy.mAdjacencyFilterFactory = factory;
+		return copy;
+	}
+	/**
+	 * Returns the gene rules restricting the elementary modes of this 
+	 * computation, or null if the computation is not regulated
+	 */
+	public GeneRules getGeneRules() {
+		return mGeneRules;
+	}
+	/**
+	 * Returns a copy of this config with the given gene rules. Every 
+	 * computation uses the rules of its own config, thus regulated 
+	 * computations with different rules can run concurrently in the same 
+	 * virtual machine.
+	 * 
+	 * @param geneRules	the gene rules, or null for an unregulated computation
+	 * @return a new config instance, equal to this config except for the 
+	 * 			gene rules
+	 */
+	public Config withGeneRules(GeneRules geneRules) {
+		final Config copy = copy();
+		copy.mGeneRules = geneRules;
+		return copy;
+	}
+	
+	/**
+	 * Returns the capacity of the page cache shared by the out-of-core 
+	 * tables of one computation, in bytes
+	 * 
+	 * @see ch.javasoft.metabolic.efm.memory.outcore.TableConfig#TableConfig(Config)
+	 */
+	public long getCacheSize() {
+		return mCacheSize;
+	}
+	/**
+	 * Returns the default page cache capacity, an eighth of the maximum heap 
+	 * size, but at most {@link #MAX_DEFAULT_CACHE_SIZE}
+	 */
+	public static long getDefaultCacheSize() {
+		return Math.min(MAX_DEFAULT_CACHE_SIZE, Runtime.getRuntime().maxMemory() / 8);
+	}
+	/**
+	 * Returns a copy of this config with the given page cache capacity
+	 * 
+	 * @param cacheSize	the capacity in bytes, or 0 for the 
+	 * 					{@link #getDefaultCacheSize() default capacity}
+	 * @return a new config instance, equal to this config except for the 
+	 * 			cache size
+	 */
+	public Config withCacheSize(long cacheSize) {
+		final Config copy = copy();
+		copy.mCacheSize = cacheSize <= 0 ? getDefaultCacheSize() : cacheSize;
+		return copy;
+	}
+	
+	/**
+	 * Returns true if out-of-core tables supporting it are accessed through 
+	 * memory mapped files. Mapped tables bypass the page cache, caching is 
+	 * left to the operating system. Off by default.
+	 * 
+	 * @see ch.javasoft.metabolic.efm.memory.outcore.Cache#isMemoryMapped(ch.javasoft.metabolic.efm.memory.outcore.TableConfig)
+	 */
+	public boolean useMappedTables() {
+		return mMappedTables;
+	}
+	/**
+	 * Returns a copy of this config with memory mapped out-of-core tables 
+	 * turned on or off
+	 * 
+	 * @param mappedTables	true to use memory mapped tables
+	 * @return a new config instance, equal to this config except for the 
+	 * 			mapped tables setting
+	 */
+	public Config withMappedTables(boolean mappedTables) {
+		final Config copy = copy();
+		copy.mMappedTables = mappedTables;
+		return copy;
+	}
+	
+	/**
+	 * Returns true if out-of-core tables supporting it are stored in block 
+	 * compressed tables, which use less disk space but are expensive to 
+	 * modify. Off by default.
+	 * 
+	 * @see ch.javasoft.metabolic.efm.memory.outcore.Cache#isCompressed(ch.javasoft.metabolic.efm.memory.outcore.TableConfig)
+	 */
+	public boolean useCompressedTables() {
+		return mCompressedTables;
+	}
+	/**
+	 * Returns a copy of this config with compressed out-of-core tables 
+	 * turned on or off
+	 * 
+	 * @param compressedTables	true to use compressed tables
+	 * @return a new config instance, equal to this config except for the 
+	 * 			compressed tables setting
+	 */
+	public Config withCompressedTables(boolean compressedTables) {
+		final Config copy = copy();
+		copy.mCompressedTables = compressedTables;
+		return copy;
+	}
+	
+	/**
+	 * Returns true if column bit sets of up to 256 bits are 
+	 * {@link ch.javasoft.bitset.FixedWidthBitSet fixed width bit sets}, 
+	 * which hold their bits inline. On by default.
+	 * 
+	 * @see ch.javasoft.metabolic.efm.model.EfmModel#getBitSetFactory()
+	 */
+	public boolean useFixedWidthBitSets() {
+		return mFixedWidthBitSets;
+	}
+	/**
+	 * Returns a copy of this config with fixed width column bit sets turned 
+	 * on or off
+	 * 
+	 * @param fixedWidthBitSets	true to use fixed width bit sets
+	 * @return a new config instance, equal to this config except for the 
+	 * 			fixed width bit sets setting
+	 */
+	public Config withFixedWidthBitSets(boolean fixedWidthBitSets) {
+		final Config copy = copy();
+		copy.mFixedWidthBitSets = fixedWidthBitSets;
+		return copy;
+	}
+	
+	/**
+	 * Returns the number of bytes which memory parts on disk may use, or 0 if
+	 * disk usage is not limited
+	 * 
+	 * @see MemoryGovernor
+	 */
+	public long getDiskBudget() {
+		return mDiskBudget;
+	}
+	/**
+	 * Returns a copy of this config with the given disk budget
+	 * 
+	 * @param diskBudget	the budget in bytes, or 0 for no budget
+	 * @return a new config instance, equal to this config except for the 
+	 * 			disk budget
+	 */
+	public Config withDiskBudget(long diskBudget) {
+		final Config copy = copy();
+		copy.mDiskBudget = Math.max(0, diskBudget);
+		return copy;
+	}
+	
+	/**
+	 * Returns the number of bytes which memory parts in RAM may use before 
+	 * they are spilled to disk, or 0 if RAM usage is not limited
+	 * 
+	 * @see MemoryGovernor
+	 */
+	public long getRamBudget() {
+		return mRamBudget;
+	}
+	/**
+	 * Returns a copy of this config with the given RAM budget
+	 * 
+	 * @param ramBudget	the budget in bytes, or 0 for no budget
+	 * @return a new config instance, equal to this config except for the 
+	 * 			RAM budget
+	 */
+	public Config withRamBudget(long ramBudget) {
+		final Config copy = copy();
+		copy.mRamBudget = Math.max(0, ramBudget);
+		return copy;
+	}
+	
+	/**
+	 * Returns the time in milliseconds an appending thread waits for released
+	 * memory parts if the disk budget is exhausted, before appending is 
+	 * refused. Default is {@link MemoryGovernor#DEFAULT_THROTTLE_TIMEOUT}.
+	 */
+	public long getThrottleTimeout() {
+		return mThrottleTimeout;
+	}
+	/**
+	 * Returns a copy of this config with the given throttle timeout
+	 * 
+	 * @param throttleTimeout	the timeout in milliseconds, 0 to refuse 
+	 * 							appending immediately
+	 * @return a new config instance, equal to this config except for the 
+	 * 			throttle timeout
+	 */
+	public Config withThrottleTimeout(long throttleTimeout) {
+		final Config copy = copy();
+		copy.mThrottleTimeout = Math.max(0, throttleTimeout);
+		return copy;
+	}
+	
 	/**
 	 * Returns the distributed configuration, never null;
 	 */
@@ -500,6 +785,14 @@ public class Config {
 		Element elTmpDir		= XmlUtil.getRequiredSingleChildElement(efmImplConfig, XmlElement.temp_dir);
 		Element elProgress		= XmlUtil.getRequiredSingleChildElement(efmImplConfig, XmlElement.progress);
 		Element elFlag			= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.flag);		
+		Element elCacheSize		= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.cache_size);		
+		Element elAdjFilter		= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.adjacency_filter);		
+		Element elMapped		= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.mapped_tables);		
+		Element elCompressed	= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.compressed_tables);		
+		Element elFixedWidth	= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.fixed_width_bitsets);		
+		Element elDiskBudget	= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.disk_budget);		
+		Element elRamBudget		= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.ram_budget);		
+		Element elThrottle		= XmlUtil.getOptionalSingleChildElement(efmImplConfig, XmlElement.throttle_timeout);		
 		String rowOrdering		= getAttributeValue(efmImplConfig, XmlElement.row_ordering, XmlAttribute.value);
 		String adjMethod		= getAttributeValue(efmImplConfig, XmlElement.adjacency_method, XmlAttribute.value);
 		int maxThreads			= Integer.parseInt(getAttributeValue(efmImplConfig, XmlElement.maxthreads, XmlAttribute.value));
@@ -519,6 +812,14 @@ public class Config {
 		String strProgType		= XmlUtil.getRequiredAttributeValue(elProgress, XmlAttribute.type);
 		String strProgPartition	= XmlUtil.getRequiredAttributeValue(elProgress, XmlAttribute.partition);
 		String flag				= elFlag == null ? null : XmlUtil.getOptionalAttributeValue(elFlag, XmlAttribute.value, null);
+		long cacheSize			= elCacheSize == null ? 0 : XmlElement.parseByteSize(elCacheSize.attribute(XmlAttribute.value.getXmlName()));
+		boolean mappedTables	= elMapped == null ? false : Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elMapped, XmlAttribute.value));
+		boolean compressedTables	= elCompressed == null ? false : Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elCompressed, XmlAttribute.value));
+		boolean fixedWidthBitSets	= elFixedWidth == null ? true : Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elFixedWidth, XmlAttribute.value));
+		long diskBudget			= elDiskBudget == null ? 0 : XmlElement.parseByteSize(elDiskBudget.attribute(XmlAttribute.value.getXmlName()));
+		long ramBudget			= elRamBudget == null ? 0 : XmlElement.parseByteSize(elRamBudget.attribute(XmlAttribute.value.getXmlName()));
+		long throttleTimeout	= elThrottle == null ? MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT : XmlElement.parseMillis(elThrottle.attribute(XmlAttribute.value.getXmlName()), MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT);
+		String adjFilter		= elAdjFilter == null ? DEFAULT_ADJACENCY_FILTER_FACTORY : XmlUtil.getOptionalAttributeValue(elAdjFilter, XmlAttribute.class_, null);
 		final int progPartition;
 		try {
 			progPartition = Integer.parseInt(strProgPartition);
@@ -549,7 +850,7 @@ public class Config {
 			preprocessDuplicateGenes, selfTest, parseOnly, maxThreads, 
 			arithmetic, precision, generator, normalize, 
 			reacsToSuppress, reacsToEnforce, reacsNoSplit, 
-			tmpDir, progPartition, progType, flag, distConfig);
+			tmpDir, progPartition, progType, flag, distConfig).withCacheSize(cacheSize).withMappedTables(mappedTables).withCompressedTables(compressedTables).withFixedWidthBitSets(fixedWidthBitSets).withDiskBudget(diskBudget).withRamBudget(ramBudget).withThrottleTimeout(throttleTimeout).withAdjacencyFilterFactory(createAdjacencyFilterFactory(adjFilter));
 	}
 	
 	public XmlConfig getXmlConfig() throws IOException {
@@ -658,6 +959,13 @@ public class Config {
 			"-normalize", mNormalize.name(),
 			"-generator", mGenerator.name(),
 			"-tmpdir", mTempDir.getBaseDir().getAbsolutePath(),
+			"-cache-size", String.valueOf(mCacheSize),
+			"-mapped-tables", String.valueOf(mMappedTables),
+			"-compressed-tables", String.valueOf(mCompressedTables),
+			"-fixed-width-bitsets", String.valueOf(mFixedWidthBitSets),
+			"-disk-budget", String.valueOf(mDiskBudget),
+			"-ram-budget", String.valueOf(mRamBudget),
+			"-throttle-timeout", String.valueOf(mThrottleTimeout),
 			"-level", Loggers.getRootLogger().getLevel().getName(),
 			
 			//we don't know about:
@@ -698,7 +1006,13 @@ public class Config {
 	public static Config readFrom(File file) throws IOException {
 		final FileReader reader = new FileReader(file);
 		try {
-			return Config.getFromXmlConfig(XmlConfig.fromXmlDocument(reader));
+			final Document doc = new SAXReader().read(reader);
+			final Element elComputation = doc.getRootElement().element(XmlElement.computation.getXmlName());
+			if (elComputation != null) {
+				doc.getRootElement().remove(elComputation);
+			}
+			final Config config = Config.getFromXmlConfig(XmlConfig.fromXmlDocument(doc));
+			return elComputation == null ? config : config.withComputationSettings(elComputation);
 		}
 		catch (XmlConfigException e) {
 			throw ExceptionUtil.toIOException(e);
@@ -712,10 +1026,72 @@ public class Config {
 	}
 
 	public void writeTo(OutputStream out) throws IOException {
-		getXmlConfig().writeTo(out);
+		new XmlPrint().print(toXmlDocument(), out);
 	}
 	public void writeTo(Writer writer) throws IOException {
-		getXmlConfig().writeTo(writer);
+		new XmlPrint().print(toXmlDocument(), writer);
+	}
+	/**
+	 * Returns the xml config document, with an additional computation element
+	 * containing the settings which are not part of the xml config, such as
+	 * the gene rules. 
+	 */
+	private Document toXmlDocument() throws IOException {
+		final Document doc = getXmlConfig().toXmlDocument();
+		final Element elComputation = doc.getRootElement().addElement(XmlElement.computation.getXmlName());
+		elComputation.addElement(XmlElement.cache_size.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mCacheSize));
+		elComputation.addElement(XmlElement.mapped_tables.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mMappedTables));
+		elComputation.addElement(XmlElement.compressed_tables.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mCompressedTables));
+		elComputation.addElement(XmlElement.fixed_width_bitsets.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mFixedWidthBitSets));
+		elComputation.addElement(XmlElement.disk_budget.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mDiskBudget));
+		elComputation.addElement(XmlElement.ram_budget.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mRamBudget));
+		elComputation.addElement(XmlElement.throttle_timeout.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), String.valueOf(mThrottleTimeout));
+		elComputation.addElement(XmlElement.adjacency_filter.getXmlName()).addAttribute(XmlAttribute.class_.getXmlName(), mAdjacencyFilterFactory == null ? "" : mAdjacencyFilterFactory.getClass().getName());
+		if (mGeneRules != null) {
+			final Element elRules = elComputation.addElement(XmlElement.gene_rules.getXmlName());
+			elRules.addAttribute(XmlAttribute.name.getXmlName(), mGeneRules.getSource());
+			for (final String line : mGeneRules.getLines()) {
+				elRules.addElement(XmlElement.rule.getXmlName()).addAttribute(XmlAttribute.value.getXmlName(), line);
+			}
+		}
+		return doc;
+	}
+	/**
+	 * Returns a copy of this config with the settings of the computation 
+	 * element written by {@link #toXmlDocument()}
+	 */
+	@SuppressWarnings("unchecked")
+	private Config withComputationSettings(Element elComputation) throws XmlConfigException {
+		final Config copy = copy();
+		final Element elCacheSize = XmlUtil.getRequiredSingleChildElement(elComputation, XmlElement.cache_size);
+		final long cacheSize = XmlElement.parseByteSize(elCacheSize.attribute(XmlAttribute.value.getXmlName()));
+		copy.mCacheSize = cacheSize <= 0 ? getDefaultCacheSize() : cacheSize;
+		final Element elMapped = XmlUtil.getRequiredSingleChildElement(elComputation, XmlElement.mapped_tables);
+		copy.mMappedTables = Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elMapped, XmlAttribute.value));
+		final Element elCompressed = XmlUtil.getRequiredSingleChildElement(elComputation, XmlElement.compressed_tables);
+		copy.mCompressedTables = Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elCompressed, XmlAttribute.value));
+		//optional, it might be missing in older manifests
+		final Element elFixedWidth = XmlUtil.getOptionalSingleChildElement(elComputation, XmlElement.fixed_width_bitsets);
+		copy.mFixedWidthBitSets = elFixedWidth == null ? true : Boolean.parseBoolean(XmlUtil.getRequiredAttributeValue(elFixedWidth, XmlAttribute.value));
+		//budgets are optional, they might be missing in older manifests
+		final Element elDiskBudget = XmlUtil.getOptionalSingleChildElement(elComputation, XmlElement.disk_budget);
+		copy.mDiskBudget = elDiskBudget == null ? 0 : XmlElement.parseByteSize(elDiskBudget.attribute(XmlAttribute.value.getXmlName()));
+		final Element elRamBudget = XmlUtil.getOptionalSingleChildElement(elComputation, XmlElement.ram_budget);
+		copy.mRamBudget = elRamBudget == null ? 0 : XmlElement.parseByteSize(elRamBudget.attribute(XmlAttribute.value.getXmlName()));
+		final Element elThrottle = XmlUtil.getOptionalSingleChildElement(elComputation, XmlElement.throttle_timeout);
+		copy.mThrottleTimeout = elThrottle == null ? MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT : XmlElement.parseMillis(elThrottle.attribute(XmlAttribute.value.getXmlName()), MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT);
+		final Element elAdjFilter = XmlUtil.getRequiredSingleChildElement(elComputation, XmlElement.adjacency_filter);
+		copy.mAdjacencyFilterFactory = createAdjacencyFilterFactory(XmlUtil.getOptionalAttributeValue(elAdjFilter, XmlAttribute.class_, null));
+		final Element elRules = XmlUtil.getOptionalSingleChildElement(elComputation, XmlElement.gene_rules);
+		if (elRules != null) {
+			final List<Element> elLines = elRules.elements(XmlElement.rule.getXmlName());
+			final String[] lines = new String[elLines.size()];
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = XmlUtil.getRequiredAttributeValue(elLines.get(i), XmlAttribute.value);
+			}
+			copy.mGeneRules = new GeneRules(XmlUtil.getRequiredAttributeValue(elRules, XmlAttribute.name), lines);
+		}
+		return copy;
 	}
 	
 	public static String getAttributeValue(Element efmImplConfig, XmlElement element, XmlAttribute attribute) throws XmlConfigException {
@@ -751,8 +1127,17 @@ public class Config {
 	 * Returns the ElementaryFluxMode implementation as configured in the
 	 * given xml config
 	 */
-	@SuppressWarnings("unchecked")
 	public static ElementaryFluxModes.Impl getEfmImpl(XmlConfig config, Element efmImplConfig) throws XmlConfigException {
+		return getEfmImpl(config, efmImplConfig, null);
+	}
+	/**
+	 * Instantiates the efm implementation as configured, using the given gene
+	 * rules for the computation.
+	 * 
+	 * @param geneRules	the gene rules, or null for an unregulated computation
+	 */
+	@SuppressWarnings("unchecked")
+	public static ElementaryFluxModes.Impl getEfmImpl(XmlConfig config, Element efmImplConfig, GeneRules geneRules) throws XmlConfigException {
 		//impl
 		String implClass 	= XmlUtil.getRequiredAttributeValue(efmImplConfig, XmlAttribute.class_);
 		//model
@@ -774,7 +1159,7 @@ public class Config {
 			EfmModelFactory facModel	= clsModel.newInstance();
 			MemoryFactory facMemory		= clsMemory.newInstance();
 			
-			return cons.newInstance(new Object[] {Config.getFromXmlConfig(config), facModel, facMemory});
+			return cons.newInstance(new Object[] {Config.getFromXmlConfig(config).withGeneRules(geneRules), facModel, facMemory});
 		}
 		catch (Exception ex) {
 			throw new XmlConfigException("cannot instantiate efm-impl class '" + implClass + "', e=" + ex, efmImplConfig, ex);
@@ -801,7 +1186,11 @@ public class Config {
 			logger.log(level, "..enforce          : " + getReactionsToEnforce());
 			logger.log(level, "..nosplit          : " + getReactionsNoSplit());
 			logger.log(level, "..temp dir         : " + getTempDir());
+			logger.log(level, "..cache size       : " + (getCacheSize() >> 20) + "M");
+			logger.log(level, "..fixed width bits : " + (useFixedWidthBitSets() ? "on" : "off"));
+			logger.log(level, "..disk/ram budget  : " + (getDiskBudget() == 0 ? "(none)" : (getDiskBudget() >> 20) + "M") + " / " + (getRamBudget() == 0 ? "(none)" : (getRamBudget() >> 20) + "M") + ", throttle " + getThrottleTimeout() + "ms");
 			logger.log(level, "..flag             : " + (getFlag() == null ? "(none)" : getFlag()));
+			logger.log(level, "..gene rules       : " + (getGeneRules() == null ? "(none)" : getGeneRules()));
 		}
 		getDistributedConfig().log(logger, level);
 		if (getArithmetic().isExact() && !getNormalize().isExact()) {
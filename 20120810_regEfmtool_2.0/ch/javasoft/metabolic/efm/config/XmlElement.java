@@ -44,7 +44,8 @@ public enum XmlElement implements XmlNode {
 	row_ordering, adjacency_method, maxthreads,  self_test, parse_only, 
 	numeric, arithmetic, precision, zero, normalize, generator,
 	reactions_to_suppress, reactions_to_enforce, reactions_no_split, temp_dir,
-	progress, flag, distribute, nodes, node, command, factories, clazz;
+	progress, flag, cache_size, mapped_tables, compressed_tables, fixed_width_bitsets, disk_budget, ram_budget, throttle_timeout, adjacency_filter, distribute, nodes, node, command, factories, clazz,
+	computation, gene_rules, rule;
 	public String getXmlName() {
 		return this == clazz ? "class" : name().replaceAll("_", "-");
 	}
@@ -69,5 +70,59 @@ public enum XmlElement implements XmlNode {
 				"invalid value for precision: " + str, attribute);
 		}
 	}
+	/**
+	 * Parses a byte size with an optional unit suffix, e.g. <code>512M</code> 
+	 * or <code>8G</code>. The value <code>auto</code> (or an empty value) 
+	 * yields 0, meaning that the size is chosen automatically.
+	 */
+	public static long parseByteSize(Attribute attribute) throws XmlConfigException {
+		final String str = attribute == null ? "" : attribute.getValue().trim();
+		if (str.length() == 0 || "auto".equalsIgnoreCase(str)) {
+			return 0;
+		}
+		final int shift;
+		switch (Character.toUpperCase(str.charAt(str.length() - 1))) {
+			case 'K': shift = 10; break;
+			case 'M': shift = 20; break;
+			case 'G': shift = 30; break;
+			case 'T': shift = 40; break;
+			default:  shift = 0;
+		}
+		try {
+			final long value = Long.parseLong(shift == 0 ? str : str.substring(0, str.length() - 1).trim());
+			if (value < 0) {
+				throw new NumberFormatException("negative value");
+			}
+			if (value > (Long.MAX_VALUE >> shift)) {
+				throw new NumberFormatException("value too large");
+			}
+			return value << shift;
+		}
+		catch (NumberFormatException ex) {
+			throw new XmlConfigException(
+				"invalid byte size value: " + str, attribute);
+		}
+	}
+	/**
+	 * Parses a non-negative time value in milliseconds. An empty value yields
+	 * the given default value.
+	 */
+	public static long parseMillis(Attribute attribute, long defaultValue) throws XmlConfigException {
+		final String str = attribute == null ? "" : attribute.getValue().trim();
+		if (str.length() == 0) {
+			return defaultValue;
+		}
+		try {
+			final long value = Long.parseLong(str);
+			if (value < 0) {
+				throw new NumberFormatException("negative value");
+			}
+			return value;
+		}
+		catch (NumberFormatException ex) {
+			throw new XmlConfigException(
+				"invalid millisecond value: " + str, attribute);
+		}
+	}
 
 }
\ No newline at end of file
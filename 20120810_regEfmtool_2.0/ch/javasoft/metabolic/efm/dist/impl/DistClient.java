@@ -56,6 +56,7 @@ import ch.javasoft.metabolic.efm.model.AdjEnumModel;
 import ch.javasoft.metabolic.efm.model.MemoryAccessor;
 import ch.javasoft.metabolic.efm.model.ModelPersister;
 import ch.javasoft.metabolic.efm.progress.ProgressAggregator;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
 
 /**
  * The <code>DistClient</code> is the client side of distributed computation.
@@ -91,8 +92,9 @@ public class DistClient<Col extends Column> implements MemoryAccessor<Col>, Part
 		this.memory				= new Memory();
 		this.progress 			= new Progress();
 		this.adjEnumModel		= modelPersister.readAdjEnumModel(columnHome, adjEnumPropsFile, this);
-		this.writeMarshaller	= columnHome.getEntityMarshaller(adjEnumModel.getNextState().getBooleanSize(), adjEnumModel.getNextState().getNumericSize());
-		this.readMarshaller		= columnHome.getEntityMarshaller(adjEnumModel.getCurrentState().getBooleanSize(), adjEnumModel.getCurrentState().getNumericSize());
+		//the final boolean size is not known here, use growable bit sets
+		this.writeMarshaller	= columnHome.getEntityMarshaller(adjEnumModel.getNextState().getBooleanSize(), adjEnumModel.getNextState().getNumericSize(), BitSetUtil.factory());
+		this.readMarshaller		= columnHome.getEntityMarshaller(adjEnumModel.getCurrentState().getBooleanSize(), adjEnumModel.getCurrentState().getNumericSize(), BitSetUtil.factory());
 		LogPkg.LOGGER.finest("CLIENT CONNECTED: " + socket);
 	}
 	
@@ -58,6 +58,7 @@ import ch.javasoft.metabolic.efm.progress.FileProgressWriter;
 import ch.javasoft.metabolic.efm.progress.IntProgressAggregator;
 import ch.javasoft.metabolic.efm.progress.ProgressAggregator;
 import ch.javasoft.metabolic.efm.progress.AbstractStringProgressWriter.Mode;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
 import ch.javasoft.util.logging.LogPrintWriter;
 
 /**
@@ -130,8 +131,9 @@ public class DistServer<Col extends Column> {
 		this.activeNodeLatch	= new CountDownLatch(nodeCount);
 		this.partCount			= config.getDistributedConfig().getPartition();
 		this.socket 			= new ServerSocket(port);
-		this.writeMarshaller	= columnHome.getEntityMarshaller(adjModel.getNextState().getBooleanSize(), adjModel.getNextState().getNumericSize());
-		this.readMarshaller		= columnHome.getEntityMarshaller(adjModel.getCurrentState().getBooleanSize(), adjModel.getCurrentState().getNumericSize());
+		//growable bit sets, as for the tables of distributed nodes
+		this.writeMarshaller	= columnHome.getEntityMarshaller(adjModel.getNextState().getBooleanSize(), adjModel.getNextState().getNumericSize(), BitSetUtil.factory());
+		this.readMarshaller		= columnHome.getEntityMarshaller(adjModel.getCurrentState().getBooleanSize(), adjModel.getCurrentState().getNumericSize(), BitSetUtil.factory());
 		this.adjModel			= adjModel;
 		if (config.getProgressPartition() <= 0) {
 			progress = null;
@@ -40,9 +40,10 @@ import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.Iterator;
 
 import ch.javasoft.lang.management.JVMTimer;
 import ch.javasoft.metabolic.MetabolicNetwork;
@@ -59,7 +60,9 @@ import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.AppendableMemory;
 import ch.javasoft.metabolic.efm.memory.IterableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryGovernor;
 import ch.javasoft.metabolic.efm.memory.PartId;
+import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemoryFactory;
 import ch.javasoft.metabolic.efm.model.DefaultIterationStepModel;
 import ch.javasoft.metabolic.efm.model.EfmModelFactory;
 import ch.javasoft.metabolic.efm.model.IterationStepModel;
@@ -73,9 +76,10 @@ import ch.javasoft.metabolic.impl.FractionNumberStoichMetabolicNetwork;
 import ch.javasoft.util.logging.LogPrintWriter;
 import ch.javasoft.util.numeric.Zero;
 
+import at.acib.generegulation.GeneRuleReduction;
 import at.acib.generegulation.GeneticRuleSet;
-import at.acib.generule_filestore.GeneRuleFilenameStore;
-import at.acib.filter_thread.PostFilterThread;
+import at.acib.generegulation.GeneticRuleSetRegistry;
+import at.acib.filter_thread.PartitionedPostFilter;
 import at.acib.filter_thread.RemovedModesCounter;
 
 /**
@@ -112,6 +116,7 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 	private Config 				mConfig;
 	private EfmModelFactory 	mEfmModelFactory;
 	private MemoryFactory 		mMemoryFactory;
+	private MemoryFactory 		mSpillFactory;
 	
 	/**
 	 * Constructor with config access and the two factories for model and 
@@ -130,6 +135,26 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 	protected MemoryFactory getMemoryFactory() {
 		return mMemoryFactory;
 	}
+	/**
+	 * Returns the out-of-core factory used to spill in-core memory parts, or 
+	 * null if the memory factory is already out-of-core
+	 */
+	private synchronized MemoryFactory getSpillFactory() {
+		if (mSpillFactory == null && !(mMemoryFactory instanceof OutOfCoreMemoryFactory)) {
+			mSpillFactory = new OutOfCoreMemoryFactory();
+		}
+		return mSpillFactory;
+	}
+	/**
+	 * Returns a new governor for the {@link #getMemoryFactory() memory factory}
+	 * with the budgets of the config. Memory parts created through the 
+	 * governor are released when erased, in-core parts spill to disk if the 
+	 * RAM budget is exceeded. A new governor should be created for every 
+	 * computation.
+	 */
+	protected MemoryGovernor createMemoryGovernor() {
+		return MemoryGovernor.govern(mMemoryFactory, getSpillFactory(), mConfig);
+	}
 	
 	//TO IMPLEMENT:
 	abstract protected <N extends Number, Col extends Column> IterableMemory<Col> iterate(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory) throws IOException;
@@ -155,39 +180,45 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 
 		//preprocess
 		final NetworkEfmModel efmModel = preprocess(columnHome, metabolicNetwork, callback);
-		final AppendableMemory<Col> memory = efmModel.createInitialMemory(columnHome, mMemoryFactory); 
+		try {
+			final AppendableMemory<Col> memory = efmModel.createInitialMemory(columnHome, mMemoryFactory); 
 
-		final IterableMemory<Col> results;
-		if (!mConfig.parseOnly()) {
-			//timing initialize
-	    	long tCpuStart = JVMTimer.getProcessCpuTimeMS();
-	    	JVMTimer timer = null;;
-	    	if (LOG.isLoggable(Level.FINER)) {
-	    		timer = new JVMTimer(100);
-		    	timer.start();
-	    	}
-			long tItStart = System.currentTimeMillis();
+			final IterableMemory<Col> results;
+			if (!mConfig.parseOnly()) {
+				//timing initialize
+		    	long tCpuStart = JVMTimer.getProcessCpuTimeMS();
+		    	JVMTimer timer = null;;
+		    	if (LOG.isLoggable(Level.FINER)) {
+		    		timer = new JVMTimer(100);
+			    	timer.start();
+		    	}
+				long tItStart = System.currentTimeMillis();
 			
-			//iterations
-			results = iterate(columnHome, efmModel, memory);
+				//iterations
+				results = iterate(columnHome, efmModel, memory);
 
-			//timing output
-			final long tEnd = System.currentTimeMillis();
-	    	final long tCpuEnd = JVMTimer.getProcessCpuTimeMS();
-	        LOG.info("TIME iterate: " + (tEnd - tItStart) + "ms");
-	        LOG.fine("TIME jvm (total): " + (tCpuEnd - tCpuStart) + "ms");
-	        LOG.fine("TIME jvm (per core): " + (tCpuEnd - tCpuStart)/getConfig().getMaxThreads() + "ms");
-			if (timer != null) {
-				timer.stop();
-		        LOG.finer("TIME java (threads): cpu=" + timer.getTotalCpuTimeMS() + "ms, user=" + timer.getTotalUserTimeMS() + "ms, system=" + timer.getTotalSystemTimeMS() + "ms");    			
+				//timing output
+				final long tEnd = System.currentTimeMillis();
+		    	final long tCpuEnd = JVMTimer.getProcessCpuTimeMS();
+		        LOG.info("TIME iterate: " + (tEnd - tItStart) + "ms");
+		        LOG.fine("TIME jvm (total): " + (tCpuEnd - tCpuStart) + "ms");
+		        LOG.fine("TIME jvm (per core): " + (tCpuEnd - tCpuStart)/getConfig().getMaxThreads() + "ms");
+				if (timer != null) {
+					timer.stop();
+			        LOG.finer("TIME java (threads): cpu=" + timer.getTotalCpuTimeMS() + "ms, user=" + timer.getTotalUserTimeMS() + "ms, system=" + timer.getTotalSystemTimeMS() + "ms");    			
+				}
 			}
+			else {
+				results = mMemoryFactory.createReadWriteMemory(columnHome, efmModel, efmModel.getIterationCount(), null); 
+			}
+
+			//postprocess
+			postprocess(columnHome, efmModel, results, callback);
 		}
-		else {
-			results = mMemoryFactory.createReadWriteMemory(columnHome, efmModel, efmModel.getIterationCount(), null); 
+		finally {
+			//also released if the computation failed or was aborted
+			GeneticRuleSetRegistry.release(efmModel, mConfig);
 		}
-
-		//postprocess
-		postprocess(columnHome, efmModel, results, callback);
 		
 		long tEnd = System.currentTimeMillis();			
 		LOG.info("overall computation time: " + (tEnd - tStart) + "ms");
@@ -206,13 +237,15 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 		LogPkg.logNetwork(metaNet, Level.FINEST);
 		LogPkg.infoNetworkSize("original network: ", metaNet);
 		if (mConfig.compressNetwork(true)) {
+			//reactions which are zero in all modes obeying the gene rules are suppressed, too
+			final Set<String> reactionsToSuppress = GeneRuleReduction.getReactionsToSuppress(mConfig, metaNet);
 			boolean preprocessDupl = mConfig.getPreprocessDuplicateGenes();
 			if (preprocessDupl && CompressionMethod.DuplicateGene.containedIn(mConfig.getCompressionMethods(true))) {
 				metaNet = CompressionUtil.compressDuplicateGeneReactions(metaNet, mConfig.zero(), mConfig.getCompressionMethods(true));
 				LogPkg.infoNetworkSize("duplicate-free network size: ", metaNet);
 			}
 			if (mConfig.compressNetwork(!preprocessDupl)) {
-				metaNet = CompressionUtil.compress(metaNet, mConfig.getCompressionMethods(!preprocessDupl), mConfig.getReactionsToSuppress(), mConfig.zero());
+				metaNet = CompressionUtil.compress(metaNet, mConfig.getCompressionMethods(!preprocessDupl), reactionsToSuppress, mConfig.zero());
 				LogPkg.infoNetworkSize("compressed network: ", metaNet);
 			}
 		}
@@ -227,6 +260,8 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 		}
 		final NetworkEfmModel efmModel = mEfmModelFactory.createEfmModel(columnHome, mConfig, metaNet);
 		efmModel.log(columnHome, LOG);
+		//parse and compile gene rules once, shared by iterations and post filter
+		GeneticRuleSetRegistry.getRuleSet(efmModel, mConfig);
 		long tEnd = System.currentTimeMillis();
 		LOG.info("TIME preprocessing: " + (tEnd - tStart) + "ms");
 		return efmModel;
@@ -237,83 +272,6 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 		final long tStart = System.currentTimeMillis();
 		final long efmCount;
 
-                ///////////////////////////////////////////////////////////////////////////////////////////
-                ///////////////////////////////////////////////////////////////////////////////////////////
-                GeneRuleFilenameStore fileNameStore = new GeneRuleFilenameStore();
-
-                if( fileNameStore.isFilenameAvailable() )
-                {
-                   String filename = fileNameStore.getFilename();
-                   int num_threads = efmModel.getAdjEnumThreads();
-
-                   int num_removed = 0;
-                   final AppendableMemory<Col> myFiltered = mMemoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, efmModel.getIterationCount() + 1, PartId.FLT);
-                   GeneticRuleSet myRuleSet = new GeneticRuleSet(filename, efmModel, mConfig);
-                   int numRules = myRuleSet.getNumberOfRules();
-
-                   if( num_threads > 1 )
-                   {
-                      /////////////////////////////////////////////////////////
-                      // multi threaded filtering
-                      /////////////////////////////////////////////////////////
-                      PostFilterThread arr_ft[] = new PostFilterThread[num_threads];
-                      RemovedModesCounter remModesCnt = new RemovedModesCounter(numRules);
-
-                      // create filter threads
-                      for( int nt = 0; nt < num_threads; nt++ )
-                      {
-                         // System.out.println("DEBUG: going to create filter thread #" + nt);
-                         arr_ft[nt] = new PostFilterThread(nt, num_threads, myRuleSet, (AppendableMemory<Column>) myFiltered, (IterableMemory<Column>) memory, remModesCnt);
-                      }
-
-                      // join filter threads
-                      try
-                      {
-                         for( int nt = 0; nt < num_threads; nt++ )
-                         {
-                            arr_ft[nt].getThreadObj().join();
-                            // System.out.println("INFO: joined filter thread #" + nt);
-                         }
-                      }
-                      catch(InterruptedException e)
-                      {
-                         System.out.println("FATAL ERROR: Main thread interrupted.");
-                         System.out.println("             execution aborted.");
-                         System.exit(-1);
-                      }
-
-                      // get number of modes removed by filter threads
-                      num_removed = remModesCnt.getNumRemovedModes();
-
-                      // print statistics of rule hits
-                      remModesCnt.printRuleHitStatistics();
-                      /////////////////////////////////////////////////////////
-                   }
-                   else
-                   {
-                      /////////////////////////////////////////////////////////
-                      // single threaded filtering
-                      /////////////////////////////////////////////////////////
-                      Iterator<Col> myIt = memory.iterator();
-                      while( myIt.hasNext() )
-                      {
-                         Col myCol = myIt.next();
-                         if( myRuleSet.doesEFMObeyRules( (Column) myCol ) == -1 )
-                         {
-                            myFiltered.appendColumn(myCol);
-                         }
-                         else
-                         {
-                             num_removed++;
-                         }
-                      }
-                      /////////////////////////////////////////////////////////
-                   }
-                   memory = myFiltered;
-                   LOG.info("Removed " + num_removed + " modes");
-                }
-                ///////////////////////////////////////////////////////////////////////////////////////////
-
 		if (!mConfig.parseOnly()) {
 			memory   = filterModes(columnHome, efmModel, memory);
                         System.out.println("DEBUG: after AbstractDoubleDescriptionImpl.filterModes()");
@@ -322,6 +280,22 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 		else {
 			efmCount = 0L;
 		}
+
+                ///////////////////////////////////////////////////////////////////////////////////////////
+                // the gene rules are applied in filterModes(), before the column filter of the model
+                ///////////////////////////////////////////////////////////////////////////////////////////
+                GeneticRuleSet myRuleSet = GeneticRuleSetRegistry.getRuleSet(efmModel, mConfig);
+
+                if( myRuleSet != null )
+                {
+                   RemovedModesCounter remModesCnt = myRuleSet.getRemovedModesCounter();
+
+                   // print statistics of rule hits
+                   remModesCnt.printRuleHitStatistics();
+                   LOG.info("Removed " + remModesCnt.getNumRemovedModes() + " modes");
+                }
+                ///////////////////////////////////////////////////////////////////////////////////////////
+
 		LOG.info("efm count after filtering/consolidation: " + efmCount);
 		LOG.info("uncompressing modes (can take a while)");
 		final EfmOutputEvent evtPre = new EfmOutputEvent(EfmOutputEvent.Kind.PRE, efmModel.getMetabolicNetwork(), efmCount);
@@ -360,9 +334,12 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 	 * new instance of memory.
 	 * <p>
 	 * Filtering includes, but is not limited to, removing modes with no flux
-	 * for enforced reactions. 
+	 * for enforced reactions. If gene rules are specified, the modes violating
+	 * the rules are removed first, evaluating the rules for blocks of modes in
+	 * parallel; the column filter of the model is applied to the remaining 
+	 * modes only. 
 	 */
-	protected <N extends Number, Col extends Column> IterableMemory<Col> filterModes(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, IterableMemory<Col> memory) throws IOException {
+	protected <N extends Number, Col extends Column> IterableMemory<Col> filterModes(final ColumnHome<N, Col> columnHome, final NetworkEfmModel efmModel, IterableMemory<Col> memory) throws IOException {
 		final int finalIteration = efmModel.getIterationCount() + 1;
 		final AppendableMemory<Col> filtered = mMemoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, finalIteration, PartId.FLT);
 //		for (int i = 0; i < efmModel.getOutOfIterationLoopCount(); i++) {
@@ -374,12 +351,29 @@ abstract public class AbstractDoubleDescriptionImpl implements ElementaryFluxMod
 		final ReactionMapping rmap = new ReactionMapping(mConfig, efmModel.getMetabolicNetwork(), efmModel.getReactionSorting());
 		
 		final IterationStepModel itModel = DefaultIterationStepModel.getFinal(efmModel);
-		for (Col col : memory) {
-			if (efmModel.getColumnFilter().keepColumn(col, mConfig, rmap)) {
-				col = col.convert(columnHome, efmModel, itModel, false /*clone*/);
-				filtered.appendColumn(col);
+		final GeneticRuleSet ruleSet = GeneticRuleSetRegistry.getRuleSet(efmModel, mConfig);
+		if (ruleSet == null) {
+			for (Col col : memory) {
+				if (efmModel.getColumnFilter().keepColumn(col, mConfig, rmap)) {
+					col = col.convert(columnHome, efmModel, itModel, false /*clone*/);
+					filtered.appendColumn(col);
+				}
 			}
 		}
+		else {
+			//the sink is not called concurrently
+			final PartitionedPostFilter.ModeSink<Col> sink = new PartitionedPostFilter.ModeSink<Col>() {
+				public void accept(List<Col> modes) throws IOException {
+					for (Col col : modes) {
+						if (efmModel.getColumnFilter().keepColumn(col, mConfig, rmap)) {
+							col = col.convert(columnHome, efmModel, itModel, false /*clone*/);
+							filtered.appendColumn(col);
+						}
+					}
+				}
+			};
+			PartitionedPostFilter.filter(ruleSet, memory, sink, mConfig.getMaxThreads(), ruleSet.getRemovedModesCounter());
+		}
 		return filtered;
 	}
 	
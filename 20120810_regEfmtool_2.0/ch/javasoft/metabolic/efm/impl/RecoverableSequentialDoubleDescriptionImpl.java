@@ -47,13 +47,17 @@ import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.AppendableMemory;
 import ch.javasoft.metabolic.efm.memory.IterableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryGovernor;
 import ch.javasoft.metabolic.efm.memory.PartId;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.memory.outcore.Checkpoint;
 import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemory;
 import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemoryFactory;
 import ch.javasoft.metabolic.efm.memory.outcore.Recovery;
 import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemory.FileId;
 import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemory.FileName;
 import ch.javasoft.metabolic.efm.model.AdjEnumModel;
+import ch.javasoft.metabolic.efm.model.DefaultIterationStateModel;
 import ch.javasoft.metabolic.efm.model.DefaultIterationStepModel;
 import ch.javasoft.metabolic.efm.model.EfmModelFactory;
 import ch.javasoft.metabolic.efm.model.IterationStepModel;
@@ -66,8 +70,14 @@ import ch.javasoft.util.logging.Loggers;
  * Similar to the {@link SequentialDoubleDescriptionImpl}, but adds functionality
  * especially suited for out-of-core computations. Incomplete computations can
  * be recovered from intermediary files.
- * 
- * TODO add description of recovery stuff
+ * <p>
+ * After the initial partitioning and after every iteration, a 
+ * {@link Checkpoint} is committed if an {@link OutOfCoreMemoryFactory} is 
+ * used. The memories of the previous checkpoint are erased only after the 
+ * commit, and committed memories are sorted through mapped views only. If a recovery flag is specified (see {@link Recovery}), the 
+ * checkpoint manifest in the recovery folder is verified and iteration is
+ * resumed with the memories of the last completed iteration. If no manifest
+ * is found, the most advanced memory files in the recovery folder are used.
  */
 public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionImpl {
 
@@ -92,9 +102,10 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
     @Override
 	protected <N extends Number, Col extends Column> IterableMemory<Col> iterate(ColumnHome<N,Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory) throws IOException {
     	skipModeFiltering.set(Boolean.FALSE);
+    	final MemoryGovernor memoryFactory = createMemoryGovernor();
     	final String flag = getConfig().getFlag();
     	if (flag == null) {
-    		return iterateUnpartitioned(columnHome, efmModel, memory, 0); 
+    		return iterateUnpartitioned(columnHome, efmModel, memoryFactory, memory, 0); 
     	}
     	else {
     		LOG.info("found flag: " + flag);
@@ -104,22 +115,31 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
     			LOG.severe(msg);
     			throw new IllegalArgumentException(msg);
     		}
-    		return iterateRecover(columnHome, efmModel, memory, recovery);
+    		return iterateRecover(columnHome, efmModel, memoryFactory, memory, recovery);
     	}
     }
     //the real iterate process
-    private <N extends Number, Col extends Column> IterableMemory<Col> iterateUnpartitioned(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory, int iterationStart) throws IOException {
+    private <N extends Number, Col extends Column> IterableMemory<Col> iterateUnpartitioned(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, MemoryGovernor memoryFactory, AppendableMemory<Col> memory, int iterationStart) throws IOException {
         final long tStart = System.currentTimeMillis();
-        AppendableMemory<Col> pos = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.POS);
-        AppendableMemory<Col> zer = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.ZER);
-        AppendableMemory<Col> neg = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.NEG);
+        AppendableMemory<Col> pos = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.POS);
+        AppendableMemory<Col> zer = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.ZER);
+        AppendableMemory<Col> neg = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iterationStart + 1, PartId.NEG);
+
+        //the checkpoint folder is initialized by the memory factory
+        final Checkpoint checkpoint = createCheckpoint();
+        pos = track(checkpoint, columnHome, pos);
+        zer = track(checkpoint, columnHome, zer);
+        neg = track(checkpoint, columnHome, neg);
 
         final IterationStepModel itModel = new DefaultIterationStepModel(efmModel, 0);
         ColumnUtil.partition(columnHome, efmModel, memory, pos, zer, neg, itModel, false /*keep*/);
 
-        return iteratePartitioned(columnHome, efmModel, pos, zer, neg, iterationStart, tStart);
+        if (checkpoint != null) {
+        	checkpoint.commitPartitioned(iterationStart, new DefaultIterationStateModel(efmModel, iterationStart + 1), pos, zer, neg);
+        }
+        return iteratePartitioned(columnHome, efmModel, memoryFactory, pos, zer, neg, iterationStart, tStart, checkpoint);
     }
-    private <N extends Number, Col extends Column> IterableMemory<Col> iteratePartitioned(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> pos, AppendableMemory<Col> zer, AppendableMemory<Col> neg, int iterationStart, long tStart) throws IOException {
+    private <N extends Number, Col extends Column> IterableMemory<Col> iteratePartitioned(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, MemoryGovernor memoryFactory, AppendableMemory<Col> pos, AppendableMemory<Col> zer, AppendableMemory<Col> neg, int iterationStart, long tStart, Checkpoint checkpoint) throws IOException {
         final AdjEnum adjEnum = getConfig().getAdjMethodFactory().createAdjEnumFromConfig();
         
         adjEnum.initialize(columnHome, getConfig(), efmModel);
@@ -147,24 +167,31 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
             iteration++;
             timeStart = System.currentTimeMillis();
 
-            memory = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, null);
+            memory = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, null);
+            if (iteration >= itCount) {
+            	//committed after the last iteration
+            	memory = track(checkpoint, columnHome, memory);
+            }
 
             //generate new rays from adjacent ray pairs
-            final AdjEnumModel<Col> adjModel = new AdjEnumModel<Col>(efmModel, iteration, pos.toSortableMemory(), zer.toSortableMemory(), neg.toSortableMemory(), memory);
+            final AdjEnumModel<Col> adjModel = new AdjEnumModel<Col>(efmModel, iteration, toSortableMemory(checkpoint, pos), toSortableMemory(checkpoint, zer), toSortableMemory(checkpoint, neg), memory);
             if (cntPos > 0 && cntNeg > 0) {
             	adjEnum.adjacentPairs(columnHome, adjModel);
             }
             
             if (iteration < itCount) {
-                final AppendableMemory<Col> npos = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration, PartId.POS);
-                final AppendableMemory<Col> nzer = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration, PartId.ZER);
-                final AppendableMemory<Col> nneg = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration, PartId.NEG);
+                final AppendableMemory<Col> npos = track(checkpoint, columnHome, memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.POS));
+                final AppendableMemory<Col> nzer = track(checkpoint, columnHome, memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.ZER));
+                final AppendableMemory<Col> nneg = track(checkpoint, columnHome, memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.NEG));
                 
-                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Positive, pos, npos, nzer, nneg, adjModel, true /*keep*/);
-                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Negative, neg, npos, nzer, nneg, adjModel, true /*keep*/);
-                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Zero, zer, npos, nzer, nneg, adjModel, true /*keep*/);
+                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Positive, retain(checkpoint, pos), npos, nzer, nneg, adjModel, true /*keep*/);
+                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Negative, retain(checkpoint, neg), npos, nzer, nneg, adjModel, true /*keep*/);
+                ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Zero, retain(checkpoint, zer), npos, nzer, nneg, adjModel, true /*keep*/);
                 ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Zero, memory, npos, nzer, nneg, adjModel, false /*keep*/);//the new columns
                 
+                if (checkpoint != null) {
+                	checkpoint.commitPartitioned(iteration, new DefaultIterationStateModel(efmModel, iteration + 1), npos, nzer, nneg);
+                }
 	            pos = npos;
 	            zer = nzer;
 	            neg = nneg;
@@ -173,13 +200,17 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 	        	cntNeg = neg.getColumnCount();
             }
             else {
-            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Positive, pos, memory, adjModel, true /*keep*/);
-            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Zero, zer, memory, adjModel, true /*keep*/);
-            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Negative, neg, memory, adjModel, true /*keep*/);
+            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Positive, retain(checkpoint, pos), memory, adjModel, true /*keep*/);
+            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Zero, retain(checkpoint, zer), memory, adjModel, true /*keep*/);
+            	ColumnUtil.moveToOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Negative, retain(checkpoint, neg), memory, adjModel, true /*keep*/);
+                if (checkpoint != null) {
+                	checkpoint.commitUnpartitioned(iteration, new DefaultIterationStateModel(efmModel, iteration + 1), memory);
+                }
             }
             
         	colCount = cntPos + cntZer + cntNeg;
             timeEnd = System.currentTimeMillis();
+            LOG.fine("memory usage after iteration " + iteration + ": " + memoryFactory);
         }
         if (iteration < itCount) {
             LOG.info("iteration " + iteration + "/" + itCount + ": discontinued since no modes left.");            
@@ -189,10 +220,11 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
         }
         final long tEnd = System.currentTimeMillis();
         LOG.info("TIME iterate " + (tEnd - tStart) + "ms");
+        LOG.info("memory usage: " + memoryFactory);
         return memory;
     }
     //the recovery process
-    private <N extends Number, Col extends Column> IterableMemory<Col> iterateRecover(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory, Recovery recovery) throws IOException {
+    private <N extends Number, Col extends Column> IterableMemory<Col> iterateRecover(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, MemoryGovernor memoryFactory, AppendableMemory<Col> memory, Recovery recovery) throws IOException {
     	final File dataFolder = recovery.getRecoveryFolder(); 
     	if (!dataFolder.exists() || !dataFolder.isDirectory()) {
     		final String msg = "recover data folder does not exist or is not a directory: " + dataFolder.getAbsolutePath();
@@ -229,6 +261,30 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 		LOG.info("..iterations                           : " + itCount);
 		LOG.info("..modes at step 0                      : " + colCount);
 		
+		//  0) checkpoint manifest	--> verified memories of last completed iteration
+		final Checkpoint.Manifest manifest = Checkpoint.readManifest(dataFolder);
+		if (manifest != null) {
+			final int completed = manifest.getIteration();
+			LOG.info("..checkpoint manifest                  : " + new File(dataFolder, Checkpoint.MANIFEST_FILE_NAME).getAbsolutePath());
+			LOG.info("..last completed iteration             : " + completed);
+			if (completed > itCount) {
+				throw new IOException("recovery error: iteration index " + completed + " to large");
+			}
+			manifest.verifyState(new DefaultIterationStateModel(efmModel, completed + 1));
+			if (manifest.isPartitioned()) {
+				final OutOfCoreMemory<Col> pos = manifest.openMemory(PartId.POS, efmModel.getTableConfig());
+				final OutOfCoreMemory<Col> zer = manifest.openMemory(PartId.ZER, efmModel.getTableConfig());
+				final OutOfCoreMemory<Col> neg = manifest.openMemory(PartId.NEG, efmModel.getTableConfig());
+				LOG.info("..verified [+/0/-] modes               : [" + pos.getColumnCount() + "/" + zer.getColumnCount() + "/" + neg.getColumnCount() + "]");
+				LOG.info("restarting iteration at step " + (completed + 1));
+				return iteratePartitioned(columnHome, efmModel, memoryFactory, pos, zer, neg, completed, System.currentTimeMillis(), createCheckpoint());
+			}
+			final OutOfCoreMemory<Col> mem = manifest.openMemory(null, efmModel.getTableConfig());
+			LOG.info("..verified modes                       : " + mem.getColumnCount());
+			LOG.info("iteration phase already completed.");
+			return mem;
+		}
+		LOG.info("..no checkpoint manifest found, scanning memory files");
 		
 		//the further the better, try in reverse order:
 		//  1) PartId.FLT 			--> memory already filtered, iteration phase already terminated
@@ -244,8 +300,8 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 			LOG.info("..recovered final filtered memory file : " + flt.mFile.getAbsolutePath());
 			LOG.info("..number of modes                      : " + flt.getColumnCount());
 			LOG.info("..last completed iteration             : " + flt.mIteration);
-			if (flt.mIteration != itCount) {
-				throw new IOException("recovery error: iteration " + flt.mIteration + " is not " + itCount);
+			if (flt.mIteration != itCount + 1) {
+				throw new IOException("recovery error: iteration index " + flt.mIteration + " is not " + (itCount + 1));
 			}
 			if (flt.mNumericSize != 0) {
 				throw new IOException("recovery error: numeric size is non-zero: " + flt.mNumericSize);
@@ -278,14 +334,10 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 			if (pos.mNumericSize != zer.mNumericSize || pos.mNumericSize != neg.mNumericSize) {
 				throw new IOException("recovery error: pos/zer/neg numeric sizes not matching");
 			}
-			LOG.info("..last completed iteration             : " + pos.mIteration);
-			if (pos.mIteration < itCount) {
-				LOG.info("restarting iteration at step " + (pos.mIteration + 1));
-				return iteratePartitioned(columnHome, efmModel, pos, zer, neg, pos.mIteration, System.currentTimeMillis());
-			}
-			else {
-				throw new IOException("iteration phase complete, but partitioned memories found");
-			}
+			//memories partitioned for iteration k, i.e. iteration k-1 completed
+			LOG.info("..last completed iteration             : " + (pos.mIteration - 1));
+			LOG.info("restarting iteration at step " + pos.mIteration);
+			return iteratePartitioned(columnHome, efmModel, memoryFactory, pos, zer, neg, pos.mIteration - 1, System.currentTimeMillis(), createCheckpoint());
 		}
 		
 		//  3) FileId.NORMAL		--> unpartitioned memory
@@ -295,13 +347,16 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 				throw new IOException("recovery error: unpartitioned memory found, but recover-tree option specified");
 			}
 			LOG.info("..recovered unpartitioned memory file  : " + mem.mFile.getAbsolutePath());
-			if (mem.mIteration > itCount) {
+			if (mem.mIteration > itCount + 1) {
 				throw new IOException("recovery error: iteration index " + mem.mIteration + " to large");
 			}
-			LOG.info("..last completed iteration             : " + mem.mIteration);
-			if (mem.mIteration < itCount) {
-				LOG.info("restarting iteration at step " + (mem.mIteration + 1));
-				return iterateUnpartitioned(columnHome, efmModel, memory, mem.mIteration);
+			LOG.info("..last completed iteration             : " + (mem.mIteration - 1));
+			if (mem.mIteration <= itCount) {
+				//unpartitioned memories of intermediary iterations only contain 
+				//the new modes, we have to start from scratch
+				mem.close(false);
+				LOG.warning("unpartitioned memory of intermediary iteration is incomplete, restarting iteration at step 1");
+				return iterateUnpartitioned(columnHome, efmModel, memoryFactory, memory, 0);
 			}
 			else {
 				LOG.info("iteration phase already completed.");
@@ -325,9 +380,9 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 		for (final File file : dataFolder.listFiles()) {
 			final int iteration = fileName.getIteration(file.getName()); 
 			if (iteration >= 0 && (mem == null || iteration > mem.mIteration)) {
-				final FileId<Col> fileId = fileName.getFileId(columnHome, dataFolder, iteration, efmModel.getNumericSize(iteration), efmModel.getBooleanSize(iteration), true);
+				final FileId<Col> fileId = fileName.getFileId(columnHome, dataFolder, iteration, efmModel.getNumericSize(iteration), efmModel.getBooleanSize(iteration), true, efmModel.getTableConfig().isCompressed());
 				try {
-					mem = new OutOfCoreMemory<Col>(fileId);
+					mem = new OutOfCoreMemory<Col>(fileId, efmModel.getTableConfig());
 				}
 				catch (Exception e) {
 					LOG.severe("recovering memory file " + fileId.getFile().getAbsolutePath() + " failed, e=" + e);
@@ -337,6 +392,39 @@ public class RecoverableSequentialDoubleDescriptionImpl extends AbstractDoubleDe
 		return mem;
 	}
 	
+	/**
+	 * Returns a new checkpoint in the temp folder if the memory factory
+	 * creates out-of-core memories, and null otherwise
+	 */
+	private Checkpoint createCheckpoint() {
+		if (getMemoryFactory() instanceof OutOfCoreMemoryFactory) {
+			return new Checkpoint(getConfig().getTempDir().getPersonalizedDir());
+		}
+		return null;
+	}
+	/**
+	 * Returns the memory unchanged if checkpoint is null, or a memory which
+	 * accumulates the digest of the appended columns for the checkpoint 
+	 * otherwise
+	 */
+	private static <Col extends Column> AppendableMemory<Col> track(Checkpoint checkpoint, ColumnHome<?, Col> columnHome, AppendableMemory<Col> memory) {
+		return checkpoint == null ? memory : checkpoint.track(memory, columnHome);
+	}
+	/**
+	 * Returns the sortable memory of the given memory if checkpoint is null,
+	 * or a sortable view which does not modify the committed memory otherwise
+	 */
+	private static <Col extends Column> SortableMemory<Col> toSortableMemory(Checkpoint checkpoint, AppendableMemory<Col> memory) throws IOException {
+		return checkpoint == null ? memory.toSortableMemory() : Checkpoint.toSortableMemory(memory);
+	}
+	/**
+	 * Returns the memory unchanged if checkpoint is null, or a memory which is
+	 * erased only after committing the next checkpoint otherwise
+	 */
+	private static <Col extends Column> IterableMemory<Col> retain(Checkpoint checkpoint, IterableMemory<Col> memory) throws IOException {
+		return checkpoint == null ? memory : checkpoint.retain(memory);
+	}
+	
 	@Override
 	protected <N extends Number, Col extends Column> IterableMemory<Col> filterModes(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, IterableMemory<Col> memory) throws IOException {
 		if (skipModeFiltering.get().booleanValue()) {
@@ -44,6 +44,7 @@ import ch.javasoft.metabolic.efm.config.Config;
 import ch.javasoft.metabolic.efm.memory.AppendableMemory;
 import ch.javasoft.metabolic.efm.memory.IterableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryGovernor;
 import ch.javasoft.metabolic.efm.memory.PartId;
 import ch.javasoft.metabolic.efm.model.AdjEnumModel;
 import ch.javasoft.metabolic.efm.model.DefaultIterationStepModel;
@@ -61,7 +62,7 @@ import ch.javasoft.metabolic.efm.util.ColumnUtil;
 public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionImpl {
 	
     private static final Logger LOG = LogPkg.LOGGER;
-
+    
     /**
 	 * Constructor with config access and the two factories for model and 
 	 * memory. Note that most factories have default constructors without 
@@ -73,9 +74,10 @@ public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionIm
 
 	@Override
 	protected <N extends Number, Col extends Column> IterableMemory<Col> iterate(ColumnHome<N,Col> columnHome, NetworkEfmModel efmModel, AppendableMemory<Col> memory) throws IOException {
-        AppendableMemory<Col> pos = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.POS);
-        AppendableMemory<Col> zer = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.ZER);
-        AppendableMemory<Col> neg = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.NEG);
+        final MemoryGovernor memoryFactory = createMemoryGovernor();
+        AppendableMemory<Col> pos = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.POS);
+        AppendableMemory<Col> zer = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.ZER);
+        AppendableMemory<Col> neg = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, 1, PartId.NEG);
         
         final IterationStepModel initialItModel = new DefaultIterationStepModel(efmModel, 0);
         ColumnUtil.partition(columnHome, efmModel, memory, pos, zer, neg, initialItModel, false /*keep*/);
@@ -109,7 +111,7 @@ public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionIm
             iteration++;
             timeStart = System.currentTimeMillis();
 
-            memory = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, null);
+            memory = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, null);
 
             //generate new rays from adjacent ray pairs
             final AdjEnumModel<Col> adjModel = new AdjEnumModel<Col>(efmModel, iteration, pos.toSortableMemory(), zer.toSortableMemory(), neg.toSortableMemory(), memory);
@@ -121,9 +123,9 @@ public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionIm
             }
             
             if (iteration < itCount) {
-                final AppendableMemory<Col> npos = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.POS);
-                final AppendableMemory<Col> nzer = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.ZER);
-                final AppendableMemory<Col> nneg = getMemoryFactory().createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.NEG);
+                final AppendableMemory<Col> npos = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.POS);
+                final AppendableMemory<Col> nzer = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.ZER);
+                final AppendableMemory<Col> nneg = memoryFactory.createConcurrentAppendableMemory(columnHome, efmModel, iteration + 1, PartId.NEG);
                 
                 ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Positive, pos, npos, nzer, nneg, adjModel, true /*keep*/);
                 ColumnUtil.partitionOrClose(columnHome, efmModel, NetworkEfmModel.Partition.Negative, neg, npos, nzer, nneg, adjModel, true /*keep*/);
@@ -145,6 +147,7 @@ public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionIm
         	colCount = cntPos + cntZer + cntNeg;
         	
             timeEnd = System.currentTimeMillis();
+            LOG.fine("memory usage after iteration " + iteration + ": " + memoryFactory);
         }
         if (iteration < itCount) {
             LOG.info("iteration " + iteration + "/" + itCount + ": discontinued since no modes left.");            
@@ -156,6 +159,7 @@ public class SequentialDoubleDescriptionImpl extends AbstractDoubleDescriptionIm
             }
         }
 
+        LOG.info("memory usage: " + memoryFactory);
 		return memory;
     }
 	
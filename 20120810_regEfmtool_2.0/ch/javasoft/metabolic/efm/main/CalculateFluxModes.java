@@ -69,6 +69,8 @@ import ch.javasoft.xml.config.XmlConfig;
 import ch.javasoft.xml.config.XmlConfigException;
 import ch.javasoft.xml.config.XmlUtil;
 
+import at.acib.generegulation.GeneRules;
+
 /**
  * Start class for the efm computation with an xml config file (e.g.
  * config/metabolic-efm.xml). The invocation kind depends on the config file
@@ -212,7 +214,8 @@ public class CalculateFluxModes {
 		Element efmImplConfig 		= Config.getConfigEfmImpl(config);
 		Element efmOutputConfig		= Config.getConfigEfmOutput(config);
 		
-		ElementaryFluxModes.setImpl(Config.getEfmImpl(config, efmImplConfig));
+		GeneRules geneRules			= ConfiguredParser.parseGeneRules(defConfig);
+		ElementaryFluxModes.setImpl(Config.getEfmImpl(config, efmImplConfig, geneRules));
 		
 		MetabolicNetwork net 		= ConfiguredParser.parseConfig(defConfig);
 		EfmOutputCallback callback 	= getEfmOutCb(net, efmOutputConfig);
@@ -0,0 +1,396 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ch.javasoft.metabolic.efm.column.Column;
+
+/**
+ * The <code>AsyncAppendableMemory</code> decouples appending threads from the
+ * i/o of an underlying appendable memory. Every appending thread owns a pair 
+ * of column buffers. When the active buffer is full, it is handed over to a 
+ * writer thread, and the thread continues with the second buffer. A thread 
+ * only blocks if both of its buffers are waiting to be written. Every memory
+ * has its own writer thread appending the buffered columns to the underlying
+ * memory in batches. The writer thread terminates if it is idle for some 
+ * time, and it is shut down when the memory is closed.
+ * <p>
+ * {@link #flush()} acts as a barrier: all columns appended before the call 
+ * are written to the underlying memory when the method returns. The buffers
+ * of the appending threads are released by the barrier, a thread appending
+ * again allocates new buffers. The other read and close methods also pass 
+ * this barrier before they delegate to the underlying memory. Columns are not
+ * necessarily appended in the order in which they were passed to this 
+ * memory.
+ * <p>
+ * If the writer thread fails to append columns, the exception is thrown by
+ * the next append or flush operation of the affected memory.
+ */
+public class AsyncAppendableMemory<Col extends Column> implements AppendableMemory<Col> {
+	
+	/**
+	 * System property defining the number of columns per buffer, see 
+	 * {@link #getDefaultBatchSize()}
+	 */
+	public static final String SYSTEM_PROPERTY_BATCH_SIZE = AsyncAppendableMemory.class.getName() + ".batchsize";
+	
+	/**
+	 * Default number of columns per buffer, if no 
+	 * {@link #SYSTEM_PROPERTY_BATCH_SIZE system property} is specified
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
+	private static final long WRITER_KEEP_ALIVE_MS = 5000;
+	
+	private static final ThreadFactory WRITER_THREAD_FACTORY = new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, "async-appendable-memory-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+	
+	private final AppendableMemory<Col>			mDelegate;
+	private final int							mBatchSize;
+	private final ThreadPoolExecutor			mWriter;
+	private final ConcurrentHashMap<Thread, Buffer>	mBuffers = new ConcurrentHashMap<Thread, Buffer>();
+	
+	//guarded by mProgress
+	private final Object	mProgress = new Object();
+	private long			mSubmitted;
+	private long			mWritten;
+	private IOException		mFailure;
+	
+	/**
+	 * Constructor for async memory using the 
+	 * {@link #getDefaultBatchSize() default batch size} 
+	 * 
+	 * @param delegate	the underlying memory, must not be accessed directly
+	 * 					while columns are appended through this memory 
+	 */
+	public AsyncAppendableMemory(AppendableMemory<Col> delegate) {
+		this(delegate, getDefaultBatchSize());
+	}
+	/**
+	 * Constructor for async memory with the given batch size 
+	 * 
+	 * @param delegate	the underlying memory, must not be accessed directly
+	 * 					while columns are appended through this memory 
+	 * @param batchSize	the number of columns per buffer, must be positive
+	 */
+	public AsyncAppendableMemory(AppendableMemory<Col> delegate, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+		}
+		mDelegate	= delegate;
+		mBatchSize	= batchSize;
+		mWriter		= new ThreadPoolExecutor(1, 1, WRITER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), WRITER_THREAD_FACTORY);
+		mWriter.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Returns the batch size defined by the 
+	 * {@link #SYSTEM_PROPERTY_BATCH_SIZE batch size system property}, or 
+	 * {@link #DEFAULT_BATCH_SIZE} if the property is not set. A value of 
+	 * zero or less indicates that appending should not be asynchronous.
+	 */
+	public static int getDefaultBatchSize() {
+		return Integer.getInteger(SYSTEM_PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE).intValue();
+	}
+	
+	/**
+	 * Returns the underlying memory
+	 */
+	public AppendableMemory<Col> getDelegate() {
+		return mDelegate;
+	}
+
+	public void appendColumn(Col column) throws IOException {
+		checkFailure();
+		append(column);
+	}
+
+	public void appendColumns(Iterable<? extends Col> columns) throws IOException {
+		checkFailure();
+		for (final Col col : columns) {
+			append(col);
+		}
+	}
+
+	public void appendFrom(IndexableMemory<? extends Col> memory) throws IOException {
+		checkFailure();
+		for (int i = 0; i < memory.getColumnCount(); i++) {
+			append(memory.getColumn(i));
+		}
+	}
+	
+	private void append(Col column) throws IOException {
+		//the buffer might be released by a concurrent barrier
+		while (!getBuffer().append(column));
+	}
+
+	/**
+	 * Waits until all columns appended so far are written to the underlying
+	 * memory, and flushes the underlying memory
+	 */
+	public void flush() throws IOException {
+		barrier();
+		mDelegate.flush();
+	}
+
+	public SortableMemory<Col> toSortableMemory() throws IOException {
+		barrier();
+		return mDelegate.toSortableMemory();
+	}
+
+	public void close(boolean erase) throws IOException {
+		try {
+			barrier();
+		}
+		finally {
+			mWriter.shutdown();
+			mDelegate.close(erase);
+		}
+	}
+
+	public String fileId() throws IOException {
+		barrier();
+		return mDelegate.fileId();
+	}
+
+	public int getColumnCount() throws IOException {
+		barrier();
+		return mDelegate.getColumnCount();
+	}
+
+	public Iterator<Col> iterator() {
+		try {
+			barrier();
+		}
+		catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return mDelegate.iterator();
+	}
+	
+	/**
+	 * Returns the buffer of the current thread, a new buffer is created if 
+	 * the thread has no buffer, or if it has been released by a barrier. Only
+	 * the owner thread puts a buffer for its key, the barrier only removes it.
+	 */
+	private Buffer getBuffer() {
+		final Thread thread = Thread.currentThread();
+		final Buffer buffer = mBuffers.get(thread);
+		if (buffer != null && !buffer.isReleased()) return buffer;
+		final Buffer newBuffer = new Buffer(this);
+		mBuffers.put(thread, newBuffer);
+		return newBuffer;
+	}
+	
+	/**
+	 * Submits and releases all buffers and waits until all batches submitted
+	 * so far are written. Since the writer thread processes the batches in 
+	 * submission order, batches submitted by other threads after the barrier
+	 * has started are not waited for.
+	 */
+	private void barrier() throws IOException {
+		for (final Map.Entry<Thread, Buffer> entry : mBuffers.entrySet()) {
+			final Buffer buffer = entry.getValue();
+			buffer.release();
+			mBuffers.remove(entry.getKey(), buffer);
+		}
+		synchronized (mProgress) {
+			final long target = mSubmitted;
+			while (mWritten < target) {
+				try {
+					mProgress.wait();
+				}
+				catch (InterruptedException e) {
+					throw interrupted(e);
+				}
+			}
+		}
+		checkFailure();
+	}
+	
+	private void checkFailure() throws IOException {
+		final IOException failure;
+		synchronized (mProgress) {
+			failure = mFailure;
+		}
+		if (failure != null) {
+			throw new IOException("asynchronous append failed, e=" + failure, failure);
+		}
+	}
+	
+	private void submit(Batch batch) throws IOException {
+		synchronized (mProgress) {
+			try {
+				mWriter.execute(batch);
+			}
+			catch (RejectedExecutionException e) {
+				throw new IOException("memory already closed", e);
+			}
+			mSubmitted++;
+		}
+	}
+	
+	/**
+	 * Called by the writer thread to append the batch columns to the 
+	 * underlying memory
+	 */
+	@SuppressWarnings("unchecked")
+	private void write(Batch batch) {
+		final Object[] columns	= batch.columns;
+		final int length		= batch.length;
+		IOException failure = null;
+		try {
+			for (int i = 0; i < length; i++) {
+				mDelegate.appendColumn((Col)columns[i]);
+			}
+		}
+		catch (IOException e) {
+			failure = e;
+		}
+		catch (RuntimeException e) {
+			failure = new IOException(e.toString(), e);
+		}
+		for (int i = 0; i < length; i++) {
+			columns[i] = null;
+		}
+		batch.buffer.recycle(columns);
+		synchronized (mProgress) {
+			if (failure != null && mFailure == null) {
+				mFailure = failure;
+			}
+			mWritten++;
+			mProgress.notifyAll();
+		}
+	}
+	
+	private static InterruptedIOException interrupted(InterruptedException e) {
+		Thread.currentThread().interrupt();
+		final InterruptedIOException ex = new InterruptedIOException(e.getMessage());
+		ex.initCause(e);
+		return ex;
+	}
+	
+	/**
+	 * The buffer pair of an appending thread. The active array is filled by
+	 * the owner thread, the spare array is available in the free queue after 
+	 * it has been written by the writer thread. A released buffer rejects 
+	 * further columns, the owner thread continues with a new buffer.
+	 */
+	private static final class Buffer {
+		private final AsyncAppendableMemory<?>	memory;
+		private final BlockingQueue<Object[]>	free	= new ArrayBlockingQueue<Object[]>(2);
+		private Object[]						active;
+		private int								count;
+		private volatile boolean				released;
+		
+		Buffer(AsyncAppendableMemory<?> memory) {
+			this.memory	= memory;
+			this.active	= new Object[memory.mBatchSize];
+			free.add(new Object[memory.mBatchSize]);
+		}
+		/**
+		 * Appends the column and returns true, or returns false if this 
+		 * buffer has been released
+		 */
+		synchronized boolean append(Object column) throws IOException {
+			if (released) return false;
+			active[count++] = column;
+			if (count == active.length) {
+				swap();
+			}
+			return true;
+		}
+		/**
+		 * Submits the buffered columns and releases this buffer
+		 */
+		synchronized void release() throws IOException {
+			if (released) return;
+			released = true;
+			if (count > 0) {
+				memory.submit(new Batch(this, active, count));
+				count = 0;
+			}
+			active = null;
+		}
+		boolean isReleased() {
+			return released;
+		}
+		private void swap() throws IOException {
+			memory.submit(new Batch(this, active, count));
+			count = 0;
+			try {
+				active = free.take();
+			}
+			catch (InterruptedException e) {
+				active = new Object[memory.mBatchSize];
+				throw interrupted(e);
+			}
+		}
+		void recycle(Object[] columns) {
+			free.offer(columns);
+		}
+	}
+	
+	private static final class Batch implements Runnable {
+		private final Buffer	buffer;
+		private final Object[]	columns;
+		private final int		length;
+		Batch(Buffer buffer, Object[] columns, int length) {
+			this.buffer		= buffer;
+			this.columns	= columns;
+			this.length		= length;
+		}
+		public void run() {
+			buffer.memory.write(this);
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreAppendableMemory;
+
+/**
+ * <tt>AsyncAppendableMemoryTest</tt> checks that no columns are lost if the
+ * memory is flushed while other threads append, and that the writer threads
+ * of closed memories terminate.
+ */
+public class AsyncAppendableMemoryTest extends TestCase {
+	
+	private static final String WRITER_THREAD_NAME = "async-appendable-memory-writer";
+	
+	public void testFlushWhileAppending() throws Exception {
+		final int threads	= 4;
+		final int columns	= 5000;
+		final AsyncAppendableMemory<DoubleColumn> memory = new AsyncAppendableMemory<DoubleColumn>(new InCoreAppendableMemory<DoubleColumn>(), 16);
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		final List<Thread> appenders = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final Thread appender = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < columns; i++) {
+							memory.appendColumn(new DoubleColumn(1));
+						}
+					}
+					catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			};
+			appenders.add(appender);
+			appender.start();
+		}
+		boolean alive = true;
+		while (alive) {
+			memory.flush();
+			alive = false;
+			for (final Thread appender : appenders) {
+				alive |= appender.isAlive();
+			}
+		}
+		for (final Thread appender : appenders) {
+			appender.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		memory.flush();
+		assertEquals(threads * columns, memory.getColumnCount());
+		
+		//appending after a flush uses new buffers
+		memory.appendColumn(new DoubleColumn(1));
+		assertEquals(threads * columns + 1, memory.getColumnCount());
+		memory.close(true);
+	}
+	
+	public void testWriterTerminatesOnClose() throws Exception {
+		final int before = countWriterThreads();
+		final List<AsyncAppendableMemory<DoubleColumn>> memories = new ArrayList<AsyncAppendableMemory<DoubleColumn>>();
+		for (int i = 0; i < 3; i++) {
+			final AsyncAppendableMemory<DoubleColumn> memory = new AsyncAppendableMemory<DoubleColumn>(new InCoreAppendableMemory<DoubleColumn>(), 4);
+			for (int j = 0; j < 10; j++) {
+				memory.appendColumn(new DoubleColumn(1));
+			}
+			memory.flush();
+			memories.add(memory);
+		}
+		assertTrue(countWriterThreads() >= before + memories.size());
+		for (final AsyncAppendableMemory<DoubleColumn> memory : memories) {
+			assertEquals(10, memory.getColumnCount());
+			memory.close(true);
+		}
+		for (int i = 0; i < 100 && countWriterThreads() > before; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(before, countWriterThreads());
+		try {
+			memories.get(0).appendColumn(new DoubleColumn(1));
+			memories.get(0).flush();
+			fail("append to closed memory should fail");
+		}
+		catch (IOException e) {
+			//expected
+		}
+	}
+	
+	private static int countWriterThreads() {
+		int cnt = 0;
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (WRITER_THREAD_NAME.equals(thread.getName()) && thread.isAlive()) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+}
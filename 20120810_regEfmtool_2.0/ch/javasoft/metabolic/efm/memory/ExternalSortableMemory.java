@@ -2,7 +2,7 @@
  * =============================================================================
  * Simplified BSD License, see http://www.opensource.org/licenses/
  * -----------------------------------------------------------------------------
- * Copyright (c) 2012, Christian Jungreuthmayer, Vienna, Austria
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
  * All rights reserved.
  * 
  * Redistribution and use in source and binary forms, with or without 
@@ -31,34 +31,28 @@
  * POSSIBILITY OF SUCH DAMAGE.
  * =============================================================================
  */
-package at.acib.generule_filestore;
+package ch.javasoft.metabolic.efm.memory;
 
-public class GeneRuleFilenameStore
-{
-   private static boolean filename_is_set = false;
-   private static String filename;
+import java.io.IOException;
+import java.util.Comparator;
 
-   public GeneRuleFilenameStore()
-   {
-   }
+import ch.javasoft.metabolic.efm.column.Column;
 
-   public GeneRuleFilenameStore(String inFilename) throws GeneRuleFilenameException
-   {
-      if( filename_is_set == true )
-      {
-         throw new GeneRuleFilenameException("Name of gene rule file has already been set: " + filename);
-      }
-      this.filename = inFilename;
-      filename_is_set = true;
-   }
-
-   public boolean isFilenameAvailable()
-   {
-      return(filename_is_set);
-   }
-
-   public String getFilename()
-   {
-      return(filename);
-   }
+/**
+ * An <code>ExternalSortableMemory</code> is a {@link SortableMemory} which can
+ * sort all its columns at once, with sequential i/o and bounded core memory, 
+ * for instance using an external merge sort. For file based memories, this is
+ * much cheaper than establishing the same order through 
+ * {@link #swapColumns(int, int) swapColumns()}, where every swap causes random
+ * reads and writes.
+ */
+public interface ExternalSortableMemory<Col extends Column> extends SortableMemory<Col> {
+	/**
+	 * Sorts all columns of this memory according to the given comparator. The
+	 * sort is not necessarily stable.
+	 * 
+	 * @param comparator	the comparator defining the column order
+	 * @throws IOException	if any i/o exception occurs
+	 */
+	void sortColumns(Comparator<? super Col> comparator) throws IOException;
 }
@@ -0,0 +1,446 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ch.javasoft.jbase.EntityMarshaller;
+import ch.javasoft.jbase.FixedWidthMarshaller;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+
+/**
+ * The <code>MemoryGovernor</code> is a memory factory decorator which keeps
+ * track of the bytes used by every memory part, separately for parts stored on
+ * disk and in RAM. Bytes are released as soon as a part is closed and erased,
+ * e.g. by {@link ch.javasoft.metabolic.efm.util.ColumnUtil#partitionOrClose(ColumnHome, NetworkEfmModel, NetworkEfmModel.Partition, IterableMemory, AppendableMemory, AppendableMemory, AppendableMemory, ch.javasoft.metabolic.efm.model.IterationStepModel, boolean) ColumnUtil.partitionOrClose(..)}.
+ * Erasing a part also erases sortable copies created by 
+ * {@link AppendableMemory#toSortableMemory()}.
+ * <p>
+ * If a budget is {@link Config#getDiskBudget() configured}, appending columns 
+ * to a part is controlled:
+ * <ul>
+ * <li><b>RAM budget: </b>If the budget is exceeded and a spill factory is 
+ * 	   available, the appended part is spilled, that is, its columns are moved 
+ * 	   to a memory of the spill factory, usually on disk. Without spill 
+ * 	   factory, the disk budget rules apply.</li>
+ * <li><b>Disk budget: </b>The appending thread is throttled, waiting for 
+ *     other parts to be released. If the budget is still exceeded after the 
+ *     {@link Config#getThrottleTimeout() throttle timeout}, appending is 
+ *     refused with an exception before the device runs out of space.</li>
+ * </ul>
+ * Byte counts are estimated from the column sizes. For disk parts with fixed
+ * width columns, the estimate is replaced by the logical table size, that is,
+ * the column count times the column byte width, whenever the part is flushed.
+ * The length of the table files is not used, it includes preallocated space, 
+ * e.g. for memory mapped tables. 
+ * <p>
+ * Only the memories created through {@link #createConcurrentAppendableMemory(ColumnHome, NetworkEfmModel, int, MemoryPart) createConcurrentAppendableMemory(..)}
+ * are governed, read/write memories are created by the underlying factory.
+ */
+public class MemoryGovernor implements MemoryFactory {
+	
+	/**
+	 * Default throttle timeout in milliseconds, the time an appending thread 
+	 * waits for released parts before appending is refused. Parts are 
+	 * released concurrently by spilling threads, and by the born/die 
+	 * algorithm, which erases cells while other cells are still appended.
+	 */
+	public static final long DEFAULT_THROTTLE_TIMEOUT = 30000;
+	
+	private static final int NUMERIC_BYTES		= 16;
+	private static final int COLUMN_OVERHEAD	= 32;
+	
+	private final MemoryFactory	mDelegate;
+	private final MemoryFactory	mSpillFactory;
+	private final long			mDiskBudget;
+	private final long			mRamBudget;
+	private final long			mThrottleTimeout;
+	
+	private final AtomicLong	mDiskUsage	= new AtomicLong();
+	private final AtomicLong	mRamUsage	= new AtomicLong();
+	private final AtomicLong	mDiskPeak	= new AtomicLong();
+	private final AtomicLong	mRamPeak	= new AtomicLong();
+	private final AtomicInteger	mSpillCount	= new AtomicInteger();
+	
+	/**
+	 * Constructor for a governor with budgets and throttle timeout 
+	 * 
+	 * @param delegate			the underlying memory factory
+	 * @param spillFactory		the factory used to spill parts if the RAM 
+	 * 							budget is exceeded, or null to not spill parts
+	 * @param diskBudget		the disk budget in bytes, zero or less for no
+	 * 							budget
+	 * @param ramBudget			the RAM budget in bytes, zero or less for no
+	 * 							budget
+	 * @param throttleTimeout	time in milliseconds to wait for released parts
+	 * 							before appending is refused
+	 */
+	public MemoryGovernor(MemoryFactory delegate, MemoryFactory spillFactory, long diskBudget, long ramBudget, long throttleTimeout) {
+		mDelegate			= delegate;
+		mSpillFactory		= spillFactory;
+		mDiskBudget			= diskBudget;
+		mRamBudget			= ramBudget;
+		mThrottleTimeout	= throttleTimeout;
+	}
+	
+	/**
+	 * Returns a governor for the given factory with budgets and throttle 
+	 * timeout defined by the config. Without budgets, a governor is still 
+	 * returned, tracking memory usage only. 
+	 * 
+	 * @param factory		the underlying memory factory
+	 * @param spillFactory	the factory used to spill parts if the RAM budget 
+	 * 						is exceeded, or null to not spill parts
+	 * @param config		the config defining budgets and throttle timeout
+	 */
+	public static MemoryGovernor govern(MemoryFactory factory, MemoryFactory spillFactory, Config config) {
+		return new MemoryGovernor(
+			factory, spillFactory,
+			config.getDiskBudget(), config.getRamBudget(), config.getThrottleTimeout()
+		);
+	}
+	
+	public <N extends Number, Col extends Column> AppendableMemory<Col> createConcurrentAppendableMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
+		return new GovernedMemory<N, Col>(columnHome, efmModel, iteration, part, mDelegate.createConcurrentAppendableMemory(columnHome, efmModel, iteration, part));
+	}
+	public <N extends Number, Col extends Column> ReadWriteMemory<Col> createReadWriteMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
+		return mDelegate.createReadWriteMemory(columnHome, efmModel, iteration, part);
+	}
+	
+	/**
+	 * Returns the bytes currently used on disk by governed parts
+	 */
+	public long getDiskUsage() {
+		return mDiskUsage.get();
+	}
+	/**
+	 * Returns the bytes currently used in RAM by governed parts
+	 */
+	public long getRamUsage() {
+		return mRamUsage.get();
+	}
+	/**
+	 * Returns the maximum bytes used on disk by governed parts
+	 */
+	public long getDiskPeak() {
+		return mDiskPeak.get();
+	}
+	/**
+	 * Returns the maximum bytes used in RAM by governed parts
+	 */
+	public long getRamPeak() {
+		return mRamPeak.get();
+	}
+	/**
+	 * Returns the number of parts spilled since the RAM budget was exceeded
+	 */
+	public int getSpillCount() {
+		return mSpillCount.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "disk " + mDiskUsage.get() + " bytes (peak " + mDiskPeak.get() + (mDiskBudget > 0 ? ", budget " + mDiskBudget : "") + "), " +
+			"ram " + mRamUsage.get() + " bytes (peak " + mRamPeak.get() + (mRamBudget > 0 ? ", budget " + mRamBudget : "") + "), " +
+			mSpillCount.get() + " spilled parts";
+	}
+	
+	/**
+	 * Returns the estimated number of bytes used to store the given column
+	 */
+	private static long getByteEstimate(Column column) {
+		return (((column.booleanSize() + 63) >>> 6) << 3) + column.numericSize() * NUMERIC_BYTES + COLUMN_OVERHEAD;
+	}
+	
+	/**
+	 * Returns true if the memory is stored on disk, that is, if it has a file
+	 * id
+	 */
+	private static boolean isOnDisk(IterableMemory<?> memory) {
+		try {
+			memory.fileId();
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+	
+	private AtomicLong usage(boolean onDisk) {
+		return onDisk ? mDiskUsage : mRamUsage;
+	}
+	
+	private void add(boolean onDisk, long bytes) {
+		final long usage = usage(onDisk).addAndGet(bytes);
+		if (bytes > 0) {
+			updatePeak(onDisk, usage);
+		}
+		else if (bytes < 0) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Returns true if the bytes are within the budget and have been added to
+	 * the usage, and false if the budget would be exceeded
+	 */
+	private boolean tryAcquire(boolean onDisk, long bytes) {
+		final long budget = onDisk ? mDiskBudget : mRamBudget;
+		if (budget <= 0) {
+			add(onDisk, bytes);
+			return true;
+		}
+		final AtomicLong usage = usage(onDisk);
+		long cur;
+		do {
+			cur = usage.get();
+			if (cur + bytes > budget) return false;
+		}
+		while (!usage.compareAndSet(cur, cur + bytes));
+		updatePeak(onDisk, cur + bytes);
+		return true;
+	}
+	private void updatePeak(boolean onDisk, long usage) {
+		final AtomicLong peak = onDisk ? mDiskPeak : mRamPeak;
+		long cur;
+		while ((cur = peak.get()) < usage && !peak.compareAndSet(cur, usage)) {
+			//retry
+		}
+	}
+	
+	/**
+	 * Waits until the bytes can be acquired, or throws an exception if the 
+	 * throttle timeout elapses
+	 */
+	private void acquireOrThrottle(boolean onDisk, long bytes, String partName) throws IOException {
+		if (tryAcquire(onDisk, bytes)) return;
+		final long deadline = System.currentTimeMillis() + mThrottleTimeout;
+		synchronized (this) {
+			long wait;
+			while ((wait = deadline - System.currentTimeMillis()) > 0) {
+				try {
+					wait(wait);
+				}
+				catch (InterruptedException e) {
+					throw new InterruptedIOException("interrupted while waiting for memory budget, part " + partName);
+				}
+				if (tryAcquire(onDisk, bytes)) return;
+			}
+		}
+		if (tryAcquire(onDisk, bytes)) return;
+		throw new IOException(
+			(onDisk ? "disk" : "ram") + " budget of " + (onDisk ? mDiskBudget : mRamBudget) + 
+			" bytes exceeded when appending to part " + partName + ", usage: " + this
+		);
+	}
+	
+	/**
+	 * A governed memory part. Appending threads share the read lock, the 
+	 * write lock is acquired to spill the part.
+	 */
+	private class GovernedMemory<N extends Number, Col extends Column> implements AppendableMemory<Col> {
+		private final ColumnHome<N, Col>	mColumnHome;
+		private final NetworkEfmModel		mEfmModel;
+		private final int					mIteration;
+		private final MemoryPart			mPart;
+		private final int					mByteWidth;//-1 if not fixed
+		private final ReadWriteLock			mLock = new ReentrantReadWriteLock();
+		
+		private volatile AppendableMemory<Col>	mMemory;
+		private volatile boolean				mOnDisk;
+		private final AtomicLong				mBytes = new AtomicLong();
+		private SortableMemory<Col>				mSortableCopy;//guarded by this
+		private long							mSortableBytes;//guarded by this
+		private boolean							mReleased;//guarded by this
+		
+		public GovernedMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part, AppendableMemory<Col> memory) throws IOException {
+			mColumnHome	= columnHome;
+			mEfmModel	= efmModel;
+			mIteration	= iteration;
+			mPart		= part;
+			mMemory		= memory;
+			mOnDisk		= isOnDisk(memory);
+			final EntityMarshaller<Col> marshaller = columnHome.getEntityMarshaller(efmModel.getBooleanSize(iteration), efmModel.getNumericSize(iteration), efmModel.getBitSetFactory());
+			mByteWidth	= marshaller instanceof FixedWidthMarshaller ? ((FixedWidthMarshaller<Col>)marshaller).getByteWidth() : -1;
+		}
+		private String getPartName() {
+			return (mPart == null ? "all" : mPart.getPartId()) + "@" + mIteration;
+		}
+		
+		public void appendColumn(Col column) throws IOException {
+			final long bytes = getByteEstimate(column);
+			while (true) {
+				mLock.readLock().lock();
+				try {
+					if (mOnDisk || mSpillFactory == null || tryAcquire(false, bytes)) {
+						if (mOnDisk || mSpillFactory == null) {
+							acquireOrThrottle(mOnDisk, bytes, getPartName());
+						}
+						mBytes.addAndGet(bytes);
+						mMemory.appendColumn(column);
+						return;
+					}
+				}
+				finally {
+					mLock.readLock().unlock();
+				}
+				spill();
+			}
+		}
+		public void appendColumns(Iterable<? extends Col> columns) throws IOException {
+			for (final Col col : columns) {
+				appendColumn(col);
+			}
+		}
+		public void appendFrom(IndexableMemory<? extends Col> memory) throws IOException {
+			for (final Col col : memory) {
+				appendColumn(col);
+			}
+		}
+		
+		/**
+		 * Moves all columns to a memory created by the spill factory. The disk
+		 * budget is acquired before the columns are moved. If the budget is
+		 * refused or moving fails, the spilled memory is erased and the 
+		 * in-core memory is kept.
+		 */
+		private void spill() throws IOException {
+			mLock.writeLock().lock();
+			try {
+				if (mOnDisk) return;//spilled by another thread
+				final AppendableMemory<Col> spilled = mSpillFactory.createConcurrentAppendableMemory(mColumnHome, mEfmModel, mIteration, mPart);
+				final long bytes = mBytes.get();
+				boolean acquired	= false;
+				boolean moved		= false;
+				try {
+					acquireOrThrottle(true, bytes, getPartName());
+					acquired = true;
+					for (final Col col : mMemory) {
+						spilled.appendColumn(col);
+					}
+					spilled.flush();
+					moved = true;
+				}
+				finally {
+					if (!moved) {
+						if (acquired) add(true, -bytes);
+						spilled.close(true /*erase*/);
+					}
+				}
+				mMemory.close(true /*erase*/);
+				add(false, -bytes);
+				mMemory	= spilled;
+				mOnDisk	= true;
+				mSpillCount.incrementAndGet();
+			}
+			finally {
+				mLock.writeLock().unlock();
+			}
+		}
+
+		public void flush() throws IOException {
+			mMemory.flush();
+			if (mOnDisk && mByteWidth > 0) {
+				//correct the estimate with the logical table size
+				mLock.writeLock().lock();
+				try {
+					final long measured	= (long)mMemory.getColumnCount() * mByteWidth;
+					final long estimated;
+					synchronized (this) {
+						if (mReleased) return;
+						estimated = mBytes.getAndSet(measured);
+					}
+					add(true, measured - estimated);
+				}
+				finally {
+					mLock.writeLock().unlock();
+				}
+			}
+		}
+		
+		public SortableMemory<Col> toSortableMemory() throws IOException {
+			final SortableMemory<Col> sortable = mMemory.toSortableMemory();
+			if (!mOnDisk && sortable != mMemory) {
+				//an in-core copy, account it until this part is erased
+				synchronized (this) {
+					if (mSortableCopy != null) {
+						mSortableCopy.close(true /*erase*/);
+						add(false, -mSortableBytes);
+					}
+					mSortableCopy	= sortable;
+					mSortableBytes	= mBytes.get();
+					add(false, mSortableBytes);
+				}
+			}
+			return sortable;
+		}
+		
+		public void close(boolean erase) throws IOException {
+			mMemory.close(erase);
+			if (erase) {
+				synchronized (this) {
+					if (mReleased) return;
+					mReleased = true;
+					if (mSortableCopy != null) {
+						mSortableCopy.close(true /*erase*/);
+						add(false, -mSortableBytes);
+						mSortableCopy = null;
+					}
+				}
+				add(mOnDisk, -mBytes.getAndSet(0));
+			}
+		}
+		
+		public Iterator<Col> iterator() {
+			return mMemory.iterator();
+		}
+		public int getColumnCount() throws IOException {
+			return mMemory.getColumnCount();
+		}
+		public String fileId() throws IOException {
+			return mMemory.fileId();
+		}
+	}
+}
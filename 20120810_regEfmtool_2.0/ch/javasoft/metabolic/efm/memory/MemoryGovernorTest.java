@@ -0,0 +1,228 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.javasoft.io.Files;
+import ch.javasoft.metabolic.FluxDistribution;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.ElementaryFluxModes;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.BigIntegerColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.impl.SequentialDoubleDescriptionImpl;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreMemoryFactory;
+import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemoryFactory;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+import ch.javasoft.metabolic.efm.model.nullspace.NullspaceEfmModelFactory;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+import ch.javasoft.smx.impl.DefaultBigIntegerMatrix;
+
+/**
+ * <tt>MemoryGovernorTest</tt> checks that the budgets are read from the 
+ * config, that in-core parts spill to disk if the RAM budget is exceeded, 
+ * that appending is refused if the disk budget is exceeded, and that a part
+ * is kept in-core if spilling it is refused.
+ */
+public class MemoryGovernorTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.double_);
+	}
+	
+	private File folder;
+	
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("MemoryGovernorTest", "");
+		folder.delete();
+		folder.mkdir();
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		Files.deleteRecursive(folder);
+		folder.delete();
+	}
+	
+	public void testConfigOptions() throws Exception {
+		final Config config = getConfig("-disk-budget", "2G", "-ram-budget", "512M", "-throttle-timeout", "100");
+		assertEquals(2L << 30, config.getDiskBudget());
+		assertEquals(512L << 20, config.getRamBudget());
+		assertEquals(100, config.getThrottleTimeout());
+		
+		final Config defaults = getConfig();
+		assertEquals(0, defaults.getDiskBudget());
+		assertEquals(0, defaults.getRamBudget());
+		assertEquals(MemoryGovernor.DEFAULT_THROTTLE_TIMEOUT, defaults.getThrottleTimeout());
+	}
+	
+	public void testRamBudgetSpills() throws Exception {
+		final MetabolicNetwork network = createNetwork();
+		final List<String> expected = calculateEfms(network, new InCoreMemoryFactory(), getConfig());
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, calculateEfms(network, new InCoreMemoryFactory(), getConfig("-ram-budget", "1")));
+	}
+	
+	public void testDiskBudgetRefused() throws Exception {
+		final MetabolicNetwork network = createNetwork();
+		try {
+			calculateEfms(network, new OutOfCoreMemoryFactory(), getConfig("-disk-budget", "1", "-throttle-timeout", "0"));
+			fail("disk budget should be exceeded");
+		}
+		catch (Exception ex) {
+			assertBudgetExceeded(ex);
+		}
+	}
+	
+	public void testRefusedSpillKeepsPart() throws Exception {
+		final Config config = getConfig();
+		final NetworkEfmModel efmModel = new NullspaceEfmModelFactory().createEfmModel(BigIntegerColumn.HOME, config, createNetwork());
+		final int iteration		= 1;
+		final int booleanSize	= efmModel.getBooleanSize(iteration);
+		final int numericSize	= efmModel.getNumericSize(iteration);
+		final int columnCount	= 5;
+		final DefaultBigIntegerMatrix matrix = new DefaultBigIntegerMatrix(numericSize, columnCount);
+		for (int col = 0; col < columnCount; col++) {
+			for (int row = 0; row < numericSize; row++) {
+				matrix.setValueAt(row, col, BigInteger.valueOf(col + row + 1));
+			}
+		}
+		final BigIntegerColumn[] cols = BigIntegerColumn.HOME.newInstances(matrix, booleanSize, efmModel.getBitSetFactory());
+		
+		//ram for 3 columns, spilling the part is refused by the disk budget
+		final long columnBytes = (((booleanSize + 63) >>> 6) << 3) + numericSize * 16 + 32;
+		final MemoryGovernor governor = new MemoryGovernor(new InCoreMemoryFactory(), new OutOfCoreMemoryFactory(), 1, 3 * columnBytes, 0);
+		final AppendableMemory<BigIntegerColumn> memory = governor.createConcurrentAppendableMemory(BigIntegerColumn.HOME, efmModel, iteration, null);
+		int appended = 0;
+		try {
+			for (final BigIntegerColumn col : cols) {
+				memory.appendColumn(col);
+				appended++;
+			}
+			fail("spill should be refused");
+		}
+		catch (IOException ex) {
+			assertBudgetExceeded(ex);
+		}
+		assertEquals(3, appended);
+		assertEquals(0, governor.getSpillCount());
+		assertEquals(0, governor.getDiskUsage());
+		assertEquals(3 * columnBytes, governor.getRamUsage());
+		
+		//the in-core part is intact, the spilled part is erased
+		final SortableMemory<BigIntegerColumn> sortable = memory.toSortableMemory();
+		assertEquals(appended, sortable.getColumnCount());
+		for (int i = 0; i < appended; i++) {
+			assertEquals(cols[i].getNumeric(BigIntegerColumn.HOME, 0), sortable.getColumn(i).getNumeric(BigIntegerColumn.HOME, 0));
+		}
+		final File[] files = config.getTempDir().getPersonalizedDir().listFiles();
+		for (final File file : files == null ? new File[0] : files) {
+			assertFalse("spilled part not erased: " + file.getName(), file.getName().startsWith("cols_"));
+		}
+	}
+	
+	private static void assertBudgetExceeded(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (cause.getMessage() != null && cause.getMessage().contains("budget of 1 bytes exceeded")) return;
+		}
+		throw new AssertionError(ex);
+	}
+	
+	private Config getConfig(String... args) throws Exception {
+		final List<String> allArgs = new ArrayList<String>(Arrays.asList(
+			"-kind", "stoichiometry", "-stoich", "stoich.txt", "-rev", "rev.txt", 
+			"-meta", "meta.txt", "-reac", "reac.txt", "-out", "null", 
+			"-arithmetic", "bigint", "-compression", "off", 
+			"-tmpdir", folder.getAbsolutePath()
+		));
+		allArgs.addAll(Arrays.asList(args));
+		return Config.getFromXmlConfig(Config.resolveXmlConfig(allArgs.toArray(new String[allArgs.size()])));
+	}
+	
+	/**
+	 * Same network as in the gene regulation tests, with 6 metabolites and 
+	 * 10 reactions
+	 */
+	private static MetabolicNetwork createNetwork() {
+		final double[][] values = new double[][] {
+			{ 1,  0,  0,  0, -1, -1, -1,  0,  0,  0},	//A
+			{ 0,  1,  0,  0,  1,  0,  0, -1, -1,  0},	//B
+			{ 0,  0,  0,  0,  0,  1,  0,  1,  0, -1},	//C
+			{ 0,  0,  0,  0,  0,  0,  1,  0,  0, -1},	//D
+			{ 0,  0,  0, -1,  0,  0,  0,  0,  0,  1},	//E
+			{ 0,  0, -1,  0,  0,  0,  0,  0,  1,  1}	//P
+		};
+		final boolean[] reversible = new boolean[] {
+			true, true, false, false, false, false, false, true, false, true
+		};
+		final String[] metaNames = new String[] {"A", "B", "C", "D", "E", "P"};
+		final String[] reacNames = new String[] {"R1", "R2", "R3", "R4", "R5", "R6", "R7", "R8", "R9", "R10"};
+		return new DefaultMetabolicNetwork(metaNames, reacNames, values, reversible);
+	}
+	
+	private static List<String> calculateEfms(MetabolicNetwork network, MemoryFactory memoryFactory, Config config) throws Exception {
+		final ElementaryFluxModes.Impl impl = new SequentialDoubleDescriptionImpl(config, new NullspaceEfmModelFactory(), memoryFactory);
+		final ElementaryFluxModes.Impl prev = getImplOrNull();
+		ElementaryFluxModes.setImpl(impl);
+		try {
+			final List<String> efms = new ArrayList<String>();
+			for (final FluxDistribution efm : ElementaryFluxModes.calculateAndReturnEfms(network)) {
+				efms.add(efm.toString());
+			}
+			Collections.sort(efms);
+			return efms;
+		}
+		finally {
+			ElementaryFluxModes.setImpl(prev);
+		}
+	}
+	private static ElementaryFluxModes.Impl getImplOrNull() {
+		try {
+			return ElementaryFluxModes.getImpl();
+		}
+		catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+}
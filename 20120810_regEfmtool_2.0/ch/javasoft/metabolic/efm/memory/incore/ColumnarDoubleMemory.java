@@ -0,0 +1,272 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.incore;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ch.javasoft.bitset.BitSetFactory;
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.memory.IndexableMemory;
+import ch.javasoft.metabolic.efm.memory.ReadWriteMemory;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+
+/**
+ * The <code>ColumnarDoubleMemory</code> stores {@link DoubleColumn}s in 
+ * primitive arrays instead of individual column objects. The bits of all 
+ * columns are stored in <code>long[]</code> slabs, the numeric values in 
+ * parallel <code>double[]</code> slabs. The slabs are allocated in chunks of 
+ * {@link #CHUNK_SIZE} columns, thus, growing the memory does not copy the 
+ * columns stored so far. Only the first chunk is allocated lazily and grows
+ * geometrically from {@link #MIN_CHUNK_SIZE} columns, such that small 
+ * memories do not allocate a full chunk.
+ * <p>
+ * Columns returned by {@link #getColumn(int)} and {@link #iterator()} are 
+ * short living copies of the stored data, modifications of such columns do
+ * not affect the memory, just as for out-of-core memories. Compared to 
+ * {@link InCoreMemory}, the memory holds no per column objects, saving 
+ * object headers and references, and the garbage collector does not have to 
+ * trace the stored columns.
+ * <p>
+ * All columns must have the boolean and numeric size specified in the 
+ * constructor. Append operations are synchronized, read operations are not. 
+ * Reading while other threads are appending is not supported.
+ */
+public class ColumnarDoubleMemory implements ReadWriteMemory<DoubleColumn> {
+	
+	/**
+	 * The number of columns per slab chunk, as power of 2
+	 */
+	public static final int CHUNK_SHIFT	= 14;
+	/**
+	 * The number of columns per slab chunk
+	 */
+	public static final int CHUNK_SIZE	= 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK	= CHUNK_SIZE - 1;
+	/**
+	 * The initial number of columns of the first chunk, unless more columns
+	 * are appended at once
+	 */
+	public static final int MIN_CHUNK_SIZE	= 64;
+	
+	private final int booleanSize;
+	private final int numericSize;
+	private final int wordsPerColumn;
+	private final BitSetFactory bitSetFactory;
+	
+	private long[][]	bitChunks	= new long[0][];
+	private double[][]	numChunks	= new double[0][];
+	private int			capacity;
+	private int			size;
+	
+	public ColumnarDoubleMemory(int booleanSize, int numericSize, BitSetFactory bitSetFactory) {
+		this.booleanSize	= booleanSize;
+		this.numericSize	= numericSize;
+		this.wordsPerColumn	= BitSetUtil.longSize(booleanSize);
+		this.bitSetFactory	= bitSetFactory;
+	}
+	
+	public String fileId() throws IOException {
+		throw new IOException("in core memory has no associated file id");
+	}
+	
+	public int getColumnCount() {
+		return size;
+	}
+	
+	public DoubleColumn getColumn(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " not in [0, " + size + ")");
+		}
+		final int chunk 	= index >>> CHUNK_SHIFT;
+		final int offset	= index & CHUNK_MASK;
+		final long[] words	= new long[wordsPerColumn];
+		final double[] vals	= new double[numericSize];
+		System.arraycopy(bitChunks[chunk], offset * wordsPerColumn, words, 0, wordsPerColumn);
+		System.arraycopy(numChunks[chunk], offset * numericSize, vals, 0, numericSize);
+		final IBitSet bitSet = BitSetUtil.fromLongArray(words, false /*cloneArray*/, bitSetFactory);
+		return DoubleColumn.HOME.newInstance(booleanSize, bitSet, vals);
+	}
+	
+	public Iterator<DoubleColumn> iterator() {
+		return new Iterator<DoubleColumn>() {
+			int next = 0;
+			public boolean hasNext() {
+				return next < size;
+			}
+			public DoubleColumn next() {
+				if (next >= size) throw new NoSuchElementException();
+				return getColumn(next++);
+			}
+			public void remove() {
+				throw new UnsupportedOperationException("unmodifiable iterator");
+			}
+		};
+	}
+	
+	public synchronized void appendColumn(DoubleColumn column) {
+		if (column.booleanSize() != booleanSize || column.numericSize() != numericSize) {
+			throw new IllegalArgumentException(
+				"column size [" + column.booleanSize() + ", " + column.numericSize() + 
+				"] does not match memory column size [" + booleanSize + ", " + numericSize + "]");
+		}
+		ensureCapacity(size + 1);
+		final int chunk 	= size >>> CHUNK_SHIFT;
+		final int offset	= size & CHUNK_MASK;
+		final long[] bits	= bitChunks[chunk];
+		final int base		= offset * wordsPerColumn;
+		final IBitSet bitSet = column.bitValues();
+		for (int bit = bitSet.nextSetBit(0); bit >= 0 && bit < booleanSize; bit = bitSet.nextSetBit(bit + 1)) {
+			bits[base + (bit >>> 6)] |= (1L << bit);
+		}
+		DoubleColumn.HOME.copyValues(column, numChunks[chunk], offset * numericSize);
+		size++;
+	}
+	/**
+	 * Ensures that the given number of columns fit into the chunks. The 
+	 * first chunk is doubled until it has {@link #CHUNK_SIZE} columns, or
+	 * allocated or grown to the required size if more columns are needed. 
+	 * Further chunks are always allocated with {@link #CHUNK_SIZE} columns.
+	 */
+	private void ensureCapacity(int columns) {
+		while (columns > capacity) {
+			if (capacity < CHUNK_SIZE) {
+				final int required	= Math.max(columns, Math.max(MIN_CHUNK_SIZE, 2 * capacity));
+				final int chunkSize	= Math.min(CHUNK_SIZE, required);
+				if (capacity == 0) {
+					bitChunks = new long[][] {new long[chunkSize * wordsPerColumn]};
+					numChunks = new double[][] {new double[chunkSize * numericSize]};
+				}
+				else {
+					bitChunks[0] = Arrays.copyOf(bitChunks[0], chunkSize * wordsPerColumn);
+					numChunks[0] = Arrays.copyOf(numChunks[0], chunkSize * numericSize);
+				}
+				capacity = chunkSize;
+			}
+			else {
+				final int chunks = bitChunks.length;
+				final long[][] newBits	= new long[chunks + 1][];
+				final double[][] newNum	= new double[chunks + 1][];
+				System.arraycopy(bitChunks, 0, newBits, 0, chunks);
+				System.arraycopy(numChunks, 0, newNum, 0, chunks);
+				newBits[chunks]	= new long[CHUNK_SIZE * wordsPerColumn];
+				newNum[chunks]	= new double[CHUNK_SIZE * numericSize];
+				bitChunks = newBits;
+				numChunks = newNum;
+				capacity += CHUNK_SIZE;
+			}
+		}
+	}
+	
+	public synchronized void appendColumns(Iterable<? extends DoubleColumn> columns) {
+		for (final DoubleColumn col : columns) {
+			appendColumn(col);
+		}
+	}
+	
+	public synchronized void appendFrom(IndexableMemory<? extends DoubleColumn> memory) throws IOException {
+		if (memory instanceof ColumnarDoubleMemory) {
+			final ColumnarDoubleMemory src = (ColumnarDoubleMemory)memory;
+			if (src.booleanSize == booleanSize && src.numericSize == numericSize) {
+				ensureCapacity(size + src.size);
+				for (int i = 0; i < src.size; i++) {
+					copy(src, i, this, size);
+					size++;
+				}
+				return;
+			}
+		}
+		appendColumns(memory);
+	}
+	
+	/**
+	 * Copies a column from source to destination, without creating a column
+	 * object. The destination must have the capacity for the column.
+	 */
+	private static void copy(ColumnarDoubleMemory src, int srcIndex, ColumnarDoubleMemory dst, int dstIndex) {
+		final int srcChunk	= srcIndex >>> CHUNK_SHIFT;
+		final int srcOffset	= srcIndex & CHUNK_MASK;
+		final int dstChunk	= dstIndex >>> CHUNK_SHIFT;
+		final int dstOffset	= dstIndex & CHUNK_MASK;
+		final int words = dst.wordsPerColumn;
+		final int nums	= dst.numericSize;
+		System.arraycopy(src.bitChunks[srcChunk], srcOffset * words, dst.bitChunks[dstChunk], dstOffset * words, words);
+		System.arraycopy(src.numChunks[srcChunk], srcOffset * nums, dst.numChunks[dstChunk], dstOffset * nums, nums);
+	}
+	
+	public synchronized void swapColumns(int indexA, int indexB) {
+		if (indexA == indexB) return;
+		final long[] bitsA 	= bitChunks[indexA >>> CHUNK_SHIFT];
+		final long[] bitsB 	= bitChunks[indexB >>> CHUNK_SHIFT];
+		final int baseBitsA	= (indexA & CHUNK_MASK) * wordsPerColumn;
+		final int baseBitsB	= (indexB & CHUNK_MASK) * wordsPerColumn;
+		for (int i = 0; i < wordsPerColumn; i++) {
+			final long tmp 		= bitsA[baseBitsA + i];
+			bitsA[baseBitsA + i]	= bitsB[baseBitsB + i];
+			bitsB[baseBitsB + i]	= tmp;
+		}
+		final double[] numA 	= numChunks[indexA >>> CHUNK_SHIFT];
+		final double[] numB 	= numChunks[indexB >>> CHUNK_SHIFT];
+		final int baseNumA		= (indexA & CHUNK_MASK) * numericSize;
+		final int baseNumB		= (indexB & CHUNK_MASK) * numericSize;
+		for (int i = 0; i < numericSize; i++) {
+			final double tmp	= numA[baseNumA + i];
+			numA[baseNumA + i]	= numB[baseNumB + i];
+			numB[baseNumB + i]	= tmp;
+		}
+	}
+	
+	public synchronized void clear() {
+		bitChunks	= new long[0][];
+		numChunks	= new double[0][];
+		capacity	= 0;
+		size		= 0;
+	}
+	
+    public SortableMemory<DoubleColumn> toSortableMemory() throws IOException {
+    	return this;
+    }
+    public void flush() throws IOException {
+    	//nothing to do
+    }
+    public void close(boolean erase) throws IOException {
+    	if (erase) {
+    		clear();
+    	}
+    }
+}
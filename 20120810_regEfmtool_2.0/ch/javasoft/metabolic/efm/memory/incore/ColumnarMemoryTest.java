@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.incore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.dom4j.Element;
+
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.FluxDistribution;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.efm.ElementaryFluxModes;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.config.XmlAttribute;
+import ch.javasoft.metabolic.efm.config.XmlElement;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+import ch.javasoft.xml.config.XmlConfig;
+import ch.javasoft.xml.config.XmlUtil;
+
+/**
+ * <tt>ColumnarMemoryTest</tt> checks that the columnar memory can be selected
+ * through the xml config, that it computes the same modes as the default
+ * in-core memory, and that columns survive the growth of the chunks.
+ */
+public class ColumnarMemoryTest extends TestCase {
+	
+	/**
+	 * The sample of the "geometry of the flux cone" paper, see
+	 * {@link ch.javasoft.metabolic.parse.SmallTest#testGeneratingSample()}
+	 */
+	private static MetabolicNetwork createNetwork() {
+		final double[][] values = new double[][] {
+			{ 1, -1,  1,  0,  0,  0},	//A
+			{ 0,  1,  0,  1,  0, -1},	//B
+			{ 0,  0, -1, -1,  1,  0}	//C
+		};
+		final boolean[] reversible = new boolean[] {
+			true, true, false, false, false, false
+		};
+		final String[] metaNames = new String[] {"A", "B", "C"};
+		final String[] reacNames = new String[] {"J1", "J2", "J3", "J4", "J5", "J6"};
+		return new DefaultMetabolicNetwork(metaNames, reacNames, values, reversible);
+	}
+	
+	private static XmlConfig resolveXmlConfig(String memory) throws Exception {
+		return Config.resolveXmlConfig(new String[] {
+			"-kind", "stoichiometry", "-stoich", "stoich.txt", "-rev", "rev.txt", 
+			"-meta", "meta.txt", "-reac", "reac.txt", "-out", "null", 
+			"-arithmetic", "double", "-memory", memory
+		});
+	}
+	
+	public void testXmlConfig() throws Exception {
+		final XmlConfig xmlConfig = resolveXmlConfig("columnar");
+		final Element elMemory = XmlUtil.getRequiredSingleChildElement(Config.getConfigEfmImpl(xmlConfig), XmlElement.memory);
+		final String factory = XmlUtil.getRequiredAttributeValue(elMemory, XmlAttribute.factory);
+		assertEquals(ColumnarMemoryFactory.class.getName(), factory);
+	}
+
+	public void testColumnarEqualsInCore() throws Exception {
+		final MetabolicNetwork network = createNetwork();
+		final List<String> inCore	= calculateEfms("in-core", network);
+		final List<String> columnar	= calculateEfms("columnar", network);
+		assertEquals(5, inCore.size());
+		assertEquals(inCore, columnar);
+	}
+	
+	/**
+	 * Appends columns beyond the first chunk, one by one and by copying from
+	 * another columnar memory, and swaps columns across chunks
+	 */
+	public void testGrowChunks() throws Exception {
+		final int booleanSize	= 70;
+		final int numericSize	= 2;
+		final int count			= ColumnarDoubleMemory.CHUNK_SIZE + 100;
+		final ColumnarDoubleMemory mem = new ColumnarDoubleMemory(booleanSize, numericSize, BitSetUtil.factory());
+		for (int i = 0; i < count; i++) {
+			mem.appendColumn(createColumn(booleanSize, i));
+		}
+		assertColumns(mem, 0, 0, count);
+		
+		final ColumnarDoubleMemory dst = new ColumnarDoubleMemory(booleanSize, numericSize, BitSetUtil.factory());
+		for (int i = 0; i < 3; i++) {
+			dst.appendColumn(createColumn(booleanSize, i));
+		}
+		dst.appendFrom(mem);
+		assertColumns(dst, 0, 0, 3);
+		assertColumns(dst, 3, 0, count);
+		
+		final int last = dst.getColumnCount() - 1;
+		dst.swapColumns(1, last);
+		assertEquals(createColumn(booleanSize, count - 1).toString(), dst.getColumn(1).toString());
+		assertEquals(createColumn(booleanSize, 1).toString(), dst.getColumn(last).toString());
+		
+		dst.clear();
+		dst.appendColumn(createColumn(booleanSize, 5));
+		assertColumns(dst, 0, 5, 1);
+	}
+	private static DoubleColumn createColumn(int booleanSize, int index) {
+		final IBitSet bitSet = BitSetUtil.factory().create(booleanSize);
+		bitSet.set(index % booleanSize);
+		bitSet.set((7 * index) % booleanSize);
+		return DoubleColumn.HOME.newInstance(booleanSize, bitSet, new double[] {index, -0.5 * index});
+	}
+	private static void assertColumns(ColumnarDoubleMemory mem, int memIndex, int colIndex, int count) {
+		for (int i = 0; i < count; i++) {
+			assertEquals(createColumn(mem.getColumn(memIndex + i).booleanSize(), colIndex + i).toString(), mem.getColumn(memIndex + i).toString());
+		}
+	}
+	
+	private static List<String> calculateEfms(String memory, MetabolicNetwork network) throws Exception {
+		final XmlConfig xmlConfig = resolveXmlConfig(memory);
+		final ElementaryFluxModes.Impl impl = Config.getEfmImpl(xmlConfig, Config.getConfigEfmImpl(xmlConfig));
+		final ElementaryFluxModes.Impl prev = getImplOrNull();
+		ElementaryFluxModes.setImpl(impl);
+		try {
+			final List<String> efms = new ArrayList<String>();
+			for (final FluxDistribution efm : ElementaryFluxModes.calculateAndReturnEfms(network)) {
+				efms.add(efm.toString());
+			}
+			Collections.sort(efms);
+			return efms;
+		}
+		finally {
+			ElementaryFluxModes.setImpl(prev);
+		}
+	}
+	
+	private static ElementaryFluxModes.Impl getImplOrNull() {
+		try {
+			return ElementaryFluxModes.getImpl();
+		}
+		catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+}
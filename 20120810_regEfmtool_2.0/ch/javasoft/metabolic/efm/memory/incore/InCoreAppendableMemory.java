@@ -87,7 +87,10 @@ public class InCoreAppendableMemory<Col extends Column> implements AppendableMem
 		return mem;
 	}
 	public void close(boolean erase) throws IOException {
-		//nothing to do
+		if (erase) {
+			//release the columns, even if this memory is still referenced
+			queue.clear();
+		}
 	}
 
 	public void flush() throws IOException {
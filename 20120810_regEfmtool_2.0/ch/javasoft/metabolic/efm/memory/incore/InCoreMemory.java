@@ -41,6 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.concurrent.NumaNodes;
 import ch.javasoft.metabolic.efm.memory.IndexableMemory;
 import ch.javasoft.metabolic.efm.memory.ReadWriteMemory;
 import ch.javasoft.metabolic.efm.memory.SortableMemory;
@@ -107,6 +108,38 @@ public class InCoreMemory<Col extends Column> implements ReadWriteMemory<Col> {
     	//nothing to do
     }
     public void close(boolean erase) throws IOException {
-    	//nothing to do
+    	if (erase) {
+    		//release the columns, even if this memory is still referenced
+    		mColumns.clear();
+    	}
+    }
+    
+    /**
+     * Shards the columns of the given memory across the 
+     * {@link NumaNodes NUMA nodes}. The columns are split into contiguous 
+     * index ranges, one per node, and every column is replaced by a copy 
+     * allocated by a thread bound to the owning node. With 
+     * <tt>-XX:+UseNUMA</tt>, the copies reside in memory local to the node, 
+     * and jobs processing a range should be scheduled on the same node, see
+     * {@link NumaNodes#getNodeForIndex(int, int)}.
+     * <p>
+     * Nothing happens if only a single node is used, or if the memory is not
+     * an in-core memory; file based and mapped memories cannot be placed and
+     * are accessed from all nodes.
+     */
+    @SuppressWarnings("unchecked")
+	public static <Col extends Column> void localizeShards(IndexableMemory<Col> memory) throws IOException {
+    	if (!NumaNodes.isSharding() || !(memory instanceof InCoreMemory)) return;
+    	final List<Col> columns = ((InCoreMemory<Col>)memory).mColumns;
+    	final int size = columns.size();
+    	NumaNodes.runOnEachNode(new NumaNodes.NodeTask() {
+    		public void run(int node) {
+    			final int end = NumaNodes.getShardStart(node + 1, size);
+    			for (int i = NumaNodes.getShardStart(node, size); i < end; i++) {
+    				//distinct indices per node, the list is not structurally modified
+    				columns.set(i, (Col)columns.get(i).clone());
+    			}
+    		}
+    	});
     }
 }
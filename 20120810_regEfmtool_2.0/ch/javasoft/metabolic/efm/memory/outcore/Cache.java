@@ -33,66 +33,99 @@
  */
 package ch.javasoft.metabolic.efm.memory.outcore;
 
-import ch.javasoft.jbase.BufferedRandomAccessPersister;
+import ch.javasoft.jbase.BlockCompressedTable;
 import ch.javasoft.jbase.FixedWidthTable;
+import ch.javasoft.jbase.MappedRandomAccessPersister;
+import ch.javasoft.jbase.PageCache;
 import ch.javasoft.jbase.Table;
 import ch.javasoft.jbase.VariableWidthTable;
 import ch.javasoft.metabolic.efm.column.BigIntegerColumn;
 import ch.javasoft.metabolic.efm.column.DoubleColumn;
 import ch.javasoft.metabolic.efm.column.FractionalColumn;
+import ch.javasoft.metabolic.efm.column.LongColumn;
+import ch.javasoft.metabolic.efm.config.Config;
 
 /**
- * Cache settings for {@link Table} use for different persisted objects.
+ * Cache settings for {@link Table} use for different persisted objects. The
+ * settings of a computation, such as the page cache shared by its tables and
+ * whether tables are memory mapped, are taken from the {@link TableConfig}.
  * 
- * @see BufferedRandomAccessPersister#BufferedRandomAccessPersister(java.io.File, int, int)
- * @see FixedWidthTable#create(java.io.File, ch.javasoft.jbase.FixedWidthMarshaller, int, int)
- * @see VariableWidthTable#create(java.io.File, String, int, ch.javasoft.jbase.EntityMarshaller, int, int)
+ * @see FixedWidthTable#create(java.io.File, ch.javasoft.jbase.FixedWidthMarshaller, PageCache, boolean)
+ * @see VariableWidthTable#create(java.io.File, String, int, ch.javasoft.jbase.EntityMarshaller, PageCache, boolean)
  */
 public enum Cache {
 	/**
 	 * The cache specification for tables used by {@link OutOfCoreMemory}
-	 * for {@link DoubleColumn}
+	 * for {@link DoubleColumn}, memory mapped if enabled in the table config
 	 */
-	DoubleMemoryTable(16, 4096), 
+	DoubleMemoryTable(false, true, false), 
 	/**
 	 * The cache specification for tables used by {@link OutOfCoreMemory}
 	 * for {@link FractionalColumn}
 	 */
-	BigFractionMemoryTable(16, 1024), 
+	BigFractionMemoryTable(false, false, false), 
 	/**
 	 * The cache specification for tables used by {@link OutOfCoreMemory}
-	 * for {@link BigIntegerColumn}
+	 * for {@link BigIntegerColumn}, block compressed if enabled in the table
+	 * config
 	 */
-	BigIntegerMemoryTable(16, 1024), 
+	BigIntegerMemoryTable(false, false, true), 
 	/**
 	 * The cache specification for tables used by {@link OutOfCoreMemory}
-	 * for {@link BigIntegerColumn}
+	 * for {@link LongColumn}
 	 */
-	VarIntMemoryTable(16, 1024), 
+	LongMemoryTable(false, false, false), 
+	/**
+	 * The cache specification for tables used by {@link OutOfCoreMemory}
+	 * for {@link ch.javasoft.metabolic.efm.column.VarIntColumn VarIntColumn},
+	 * block compressed if enabled in the table config
+	 */
+	VarIntMemoryTable(false, false, true), 
 	/**
 	 * The cache specification for tables used by 
-	 * {@link ch.javasoft.metabolic.efm.tree.outcore.PersistentBitPatternTree PersistentBitPatternTree}
+	 * {@link ch.javasoft.metabolic.efm.tree.outcore.PersistentBitPatternTree PersistentBitPatternTree},
+	 * the tree nodes are pinned since they are traversed over and over again
 	 */
-	PersistentBitPatternTree(16, 4096);
+	PersistentBitPatternTree(true, false, false);
 
-	private final int cacheEntrySize;
-	private final int cacheTableSize;
-	private Cache(int cacheTableSize, int cacheEntrySize) {
-		this.cacheTableSize	= cacheTableSize;
-		this.cacheEntrySize	= cacheEntrySize;		
+	private final boolean pinned;
+	private final boolean mappable;
+	private final boolean compressible;
+	private Cache(boolean pinned, boolean mappable, boolean compressible) {
+		this.pinned			= pinned;
+		this.mappable		= mappable;
+		this.compressible	= compressible;
+	}
+	/**
+	 * The page cache for use with {@link FixedWidthTable} and 
+	 * {@link VariableWidthTable}, the page cache of the given table config
+	 */
+	public PageCache getPageCache(TableConfig tableConfig) {
+		return tableConfig.getPageCache();
+	}
+	/**
+	 * True if the pages of the tables are preferably kept in the page cache
+	 */
+	public boolean isPinned() {
+		return pinned;
 	}
 	/**
-	 * Setting for use with {@link BufferedRandomAccessPersister},
-	 * {@link FixedWidthTable} and {@link VariableWidthTable}
+	 * True if the table file is to be accessed through a 
+	 * {@link MappedRandomAccessPersister}, leaving caching to the page cache 
+	 * of the operating system. The page cache is not used in this case. This
+	 * is the case if the table supports mapping and if mapped tables are 
+	 * enabled in the table config, see {@link Config#useMappedTables()}.
 	 */
-	public int getCacheTableSize() {
-		return cacheTableSize;
+	public boolean isMemoryMapped(TableConfig tableConfig) {
+		return mappable && tableConfig.isMemoryMapped();
 	}
 	/**
-	 * Setting for use with {@link BufferedRandomAccessPersister},
-	 * {@link FixedWidthTable} and {@link VariableWidthTable}
+	 * True if the table is to be stored in a {@link BlockCompressedTable}. 
+	 * This is the case if the table supports compression and if compressed
+	 * tables are enabled in the table config, see 
+	 * {@link Config#useCompressedTables()}.
 	 */
-	public int getCacheEntrySize() {
-		return cacheEntrySize;
+	public boolean isCompressed(TableConfig tableConfig) {
+		return compressible && tableConfig.isCompressed();
 	}
 }
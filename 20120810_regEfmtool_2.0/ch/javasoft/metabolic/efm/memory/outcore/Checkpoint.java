@@ -0,0 +1,475 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.memory.AppendableMemory;
+import ch.javasoft.metabolic.efm.memory.IndexableMemory;
+import ch.javasoft.metabolic.efm.memory.IterableMemory;
+import ch.javasoft.metabolic.efm.memory.MappedSortableMemory;
+import ch.javasoft.metabolic.efm.memory.PartId;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.memory.outcore.OutOfCoreMemory.FileId;
+import ch.javasoft.metabolic.efm.model.IterationStateModel;
+
+/**
+ * A <code>Checkpoint</code> records the memories of the last completed 
+ * iteration in a manifest file, such that an interrupted computation can be 
+ * resumed with these memories. For every memory, the manifest contains the
+ * column count and a digest of the column data. The digest does not depend on
+ * the column order or on the layout of the table files. It is accumulated 
+ * while the columns are appended to a {@link #track(AppendableMemory, ColumnHome) tracked}
+ * memory, and recomputed from the columns when the memory is 
+ * {@link Manifest#openMemory(PartId, TableConfig) opened} for recovery. The 
+ * {@link IterationStateModel iteration state} of the recorded columns is also
+ * stored and compared with the runtime state when resuming.
+ * <p>
+ * Committing a checkpoint is atomic: the memories are flushed and synced to 
+ * disk, the manifest is written to a temporary file, synced and renamed to 
+ * the manifest file. Memories of the previous checkpoint must not be erased
+ * before the new checkpoint is committed, they are therefore 
+ * {@link #retain(IterableMemory) retained} and erased after the commit. 
+ * Committed memories must not be modified, they are only sorted through a 
+ * {@link #toSortableMemory(AppendableMemory) mapped view}.
+ */
+public class Checkpoint {
+	
+	public static final String MANIFEST_FILE_NAME = "checkpoint.properties";
+	
+	private static final String KEY_ITERATION		= "iteration";
+	private static final String KEY_PARTS			= "parts";
+	private static final String KEY_HYPERPLANE		= "state.hyperplane-index";
+	private static final String KEY_BOOLEAN_SIZE	= "state.boolean-size";
+	private static final String KEY_NUMERIC_SIZE	= "state.numeric-size";
+	
+	/**
+	 * Part name used for unpartitioned memories
+	 */
+	private static final String UNPARTITIONED = "all";
+	
+	private final File 			folder;
+	private final Map<String, IterableMemory<?>>	retired = new LinkedHashMap<String, IterableMemory<?>>();
+	
+	/**
+	 * Constructor for a checkpoint with manifest file in the given folder
+	 */
+	public Checkpoint(File folder) {
+		this.folder = folder;
+	}
+	
+	/**
+	 * Returns the file containing the manifest of the last committed checkpoint
+	 */
+	public File getManifestFile() {
+		return new File(folder, MANIFEST_FILE_NAME);
+	}
+
+	/**
+	 * Returns a view of the given memory which accumulates the digest of the
+	 * appended columns. The digest is stored in the manifest if the returned
+	 * memory is committed. Appending is thread safe if the given memory is.
+	 */
+	public <Col extends Column> AppendableMemory<Col> track(AppendableMemory<Col> memory, ColumnHome<?, Col> columnHome) {
+		return new TrackedMemory<Col>(memory, columnHome);
+	}
+	
+	/**
+	 * Returns a sortable view of a committed memory. Sorting only changes the
+	 * column order of the view, the tables of the memory are never modified.
+	 */
+	public static <Col extends Column> SortableMemory<Col> toSortableMemory(AppendableMemory<Col> memory) throws IOException {
+		return new MappedSortableMemory<Col>(memory.toSortableMemory());
+	}
+
+	/**
+	 * Returns a view of the given memory whose {@link IterableMemory#close(boolean) close}
+	 * method never erases the memory. Instead, closing and erasing is deferred
+	 * until the next checkpoint has been committed. The memory is then closed
+	 * with erase, releasing resources accounted by the memory itself, e.g. by
+	 * a {@link ch.javasoft.metabolic.efm.memory.MemoryGovernor governor}.
+	 */
+	public <Col extends Column> IterableMemory<Col> retain(final IterableMemory<Col> memory) throws IOException {
+		final String fileId = memory.fileId();
+		return new IterableMemory<Col>() {
+			public Iterator<Col> iterator() {
+				return memory.iterator();
+			}
+			public int getColumnCount() throws IOException {
+				return memory.getColumnCount();
+			}
+			public String fileId() throws IOException {
+				return fileId;
+			}
+			public void close(boolean erase) throws IOException {
+				if (erase) {
+					synchronized (retired) {
+						retired.put(fileId, memory);
+					}
+				}
+				else {
+					memory.close(false);
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Commits a checkpoint with partitioned memories
+	 * 
+	 * @param completedIteration	the last completed iteration
+	 * @param state					iteration state of the columns in the 
+	 * 								given memories, that is, the current state 
+	 * 								of the next iteration
+	 * @param pos					memory with columns on positive side of the 
+	 * 								next hyperplane
+	 * @param zer					memory with columns in the next hyperplane
+	 * @param neg					memory with columns on negative side of the 
+	 * 								next hyperplane
+	 * @throws IOException			if an i/o exception occurs
+	 */
+	public void commitPartitioned(int completedIteration, IterationStateModel state, IterableMemory<?> pos, IterableMemory<?> zer, IterableMemory<?> neg) throws IOException {
+		final Map<String, IterableMemory<?>> parts = new LinkedHashMap<String, IterableMemory<?>>();
+		parts.put(PartId.POS.getPartId(), pos);
+		parts.put(PartId.ZER.getPartId(), zer);
+		parts.put(PartId.NEG.getPartId(), neg);
+		commit(completedIteration, state, parts);
+	}
+	/**
+	 * Commits a checkpoint with the unpartitioned memory, containing the modes
+	 * after the last iteration
+	 * 
+	 * @param completedIteration	the last completed iteration
+	 * @param state					iteration state of the columns in the 
+	 * 								memory
+	 * @param memory				the memory with all columns
+	 * @throws IOException			if an i/o exception occurs
+	 */
+	public void commitUnpartitioned(int completedIteration, IterationStateModel state, IterableMemory<?> memory) throws IOException {
+		final Map<String, IterableMemory<?>> parts = new LinkedHashMap<String, IterableMemory<?>>();
+		parts.put(UNPARTITIONED, memory);
+		commit(completedIteration, state, parts);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void commit(int completedIteration, IterationStateModel state, Map<String, IterableMemory<?>> parts) throws IOException {
+		final Properties props = new Properties();
+		props.setProperty(KEY_ITERATION, String.valueOf(completedIteration));
+		props.setProperty(KEY_HYPERPLANE, String.valueOf(state.getHyperplaneIndex()));
+		props.setProperty(KEY_BOOLEAN_SIZE, String.valueOf(state.getBooleanSize()));
+		props.setProperty(KEY_NUMERIC_SIZE, String.valueOf(state.getNumericSize()));
+		final StringBuilder partNames = new StringBuilder();
+		for (final Map.Entry<String, IterableMemory<?>> part : parts.entrySet()) {
+			final String name 				= part.getKey();
+			final IterableMemory<?> memory	= part.getValue();
+			if (memory instanceof AppendableMemory) {
+				((AppendableMemory<?>)memory).flush();
+			}
+			final FileId<Column> fileId = new FileId<Column>(memory.fileId());
+			for (final File file : fileId.getTableFiles()) {
+				sync(file);
+			}
+			final long digest;
+			if (memory instanceof TrackedMemory) {
+				digest = ((TrackedMemory<?>)memory).digest.get();
+			}
+			else {
+				digest = digest((IterableMemory<Column>)memory, fileId.getColumnHome());
+			}
+			props.setProperty(partKey(name, "file-id"), fileId.toRelativeString());
+			props.setProperty(partKey(name, "columns"), String.valueOf(memory.getColumnCount()));
+			props.setProperty(partKey(name, "digest"), String.valueOf(digest));
+			if (partNames.length() > 0) partNames.append(',');
+			partNames.append(name);
+		}
+		props.setProperty(KEY_PARTS, partNames.toString());
+		
+		//write temp manifest, sync and rename
+		final File manifest	= getManifestFile();
+		final File tmp		= new File(folder, MANIFEST_FILE_NAME + ".tmp");
+		final FileOutputStream out = new FileOutputStream(tmp);
+		try {
+			props.store(out, "efm checkpoint after iteration " + completedIteration);
+			out.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+		if (!tmp.renameTo(manifest)) {
+			//not atomic, but some platforms do not replace existing files
+			manifest.delete();
+			if (!tmp.renameTo(manifest)) {
+				throw new IOException("cannot rename " + tmp.getAbsolutePath() + " to " + manifest.getAbsolutePath());
+			}
+		}
+		
+		//now, memories of the previous checkpoint can be erased
+		final Map<String, IterableMemory<?>> toErase;
+		synchronized (retired) {
+			toErase = new LinkedHashMap<String, IterableMemory<?>>(retired);
+			retired.clear();
+		}
+		for (final IterableMemory<?> memory : toErase.values()) {
+			memory.close(true /*erase*/);
+		}
+	}
+	
+	/**
+	 * Reads the manifest of the last committed checkpoint in the given folder,
+	 * or returns null if no manifest exists. Note that the manifest is not 
+	 * verified by this method, verification takes place when memories are
+	 * {@link Manifest#openMemory(PartId, TableConfig) opened}.
+	 */
+	public static Manifest readManifest(File folder) throws IOException {
+		final File file = new File(folder, MANIFEST_FILE_NAME);
+		if (!file.exists()) return null;
+		final Properties props = new Properties();
+		final InputStream in = new FileInputStream(file);
+		try {
+			props.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return new Manifest(folder, props);
+	}
+	
+	/**
+	 * The manifest of a committed checkpoint
+	 */
+	public static class Manifest {
+		private final File			folder;
+		private final Properties	props;
+		private Manifest(File folder, Properties props) {
+			this.folder	= folder;
+			this.props	= props;
+		}
+		/**
+		 * Returns the last completed iteration
+		 */
+		public int getIteration() throws IOException {
+			return getInt(KEY_ITERATION);
+		}
+		/**
+		 * Returns true if the checkpoint contains partitioned memories
+		 */
+		public boolean isPartitioned() throws IOException {
+			return !UNPARTITIONED.equals(getString(KEY_PARTS));
+		}
+		/**
+		 * Throws an exception if the stored iteration state differs from the
+		 * given state, for instance because the network or the configuration
+		 * has changed since the checkpoint was committed.
+		 */
+		public void verifyState(IterationStateModel state) throws IOException {
+			verifyInt(KEY_HYPERPLANE, state.getHyperplaneIndex());
+			verifyInt(KEY_BOOLEAN_SIZE, state.getBooleanSize());
+			verifyInt(KEY_NUMERIC_SIZE, state.getNumericSize());
+		}
+		/**
+		 * Opens the memory for the given part, or for the unpartitioned memory
+		 * if part is null, and verifies the column count and the digest of 
+		 * the column data.
+		 * 
+		 * @throws IOException	if verification fails or if any other i/o 
+		 * 						exception occurs
+		 */
+		public <Col extends Column> OutOfCoreMemory<Col> openMemory(PartId part, TableConfig tableConfig) throws IOException {
+			final String name = part == null ? UNPARTITIONED : part.getPartId();
+			final FileId<Col> fileId = FileId.fromRelativeString(folder, getString(partKey(name, "file-id")));
+			if (!fileId.getFile().exists()) {
+				throw new IOException("checkpoint verification failed, missing file: " + fileId.getFile().getAbsolutePath());
+			}
+			final OutOfCoreMemory<Col> memory = new OutOfCoreMemory<Col>(fileId, tableConfig);
+			final int columns	= getInt(partKey(name, "columns"));
+			final int found		= memory.getColumnCount();
+			if (found != columns) {
+				memory.close(false);
+				throw new IOException("checkpoint verification failed, expected " + columns + " columns but found " + found + " in " + fileId.getFile().getAbsolutePath());
+			}
+			if (digest(memory, fileId.getColumnHome()) != getLong(partKey(name, "digest"))) {
+				memory.close(false);
+				throw new IOException("checkpoint verification failed, digest mismatch: " + fileId.getFile().getAbsolutePath());
+			}
+			return memory;
+		}
+		private void verifyInt(String key, int expected) throws IOException {
+			final int value = getInt(key);
+			if (value != expected) {
+				throw new IOException("checkpoint verification failed, " + key + " is " + value + " but runtime value is " + expected);
+			}
+		}
+		private String getString(String key) throws IOException {
+			final String value = props.getProperty(key);
+			if (value == null) {
+				throw new IOException("checkpoint manifest corrupt, missing key: " + key);
+			}
+			return value;
+		}
+		private int getInt(String key) throws IOException {
+			try {
+				return Integer.parseInt(getString(key));
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("checkpoint manifest corrupt, invalid value for key " + key + ": " + e);
+			}
+		}
+		private long getLong(String key) throws IOException {
+			try {
+				return Long.parseLong(getString(key));
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("checkpoint manifest corrupt, invalid value for key " + key + ": " + e);
+			}
+		}
+	}
+	
+	private static String partKey(String part, String attribute) {
+		return "part." + part + "." + attribute;
+	}
+	
+	/**
+	 * Syncs the file to disk
+	 */
+	private static void sync(File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.getFD().sync();
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Returns the digest of all columns of the given memory, see 
+	 * {@link #digest(Column, ColumnHome)}
+	 */
+	private static <Col extends Column> long digest(IterableMemory<Col> memory, ColumnHome<?, Col> columnHome) throws IOException {
+		long digest = 0;
+		if (memory instanceof IndexableMemory) {
+			final IndexableMemory<Col> indexable = (IndexableMemory<Col>)memory;
+			final int size = indexable.getColumnCount();
+			for (int i = 0; i < size; i++) {
+				digest += digest(indexable.getColumn(i), columnHome);
+			}
+		}
+		else {
+			for (final Col col : memory) {
+				digest += digest(col, columnHome);
+			}
+		}
+		return digest;
+	}
+	
+	/**
+	 * Returns the digest of a single column. The digest of a memory is the 
+	 * sum of the column digests, and thus independent of the column order. 
+	 * The CRC-32 checksum of the column data is spread over 64 bits before
+	 * summing it up.
+	 */
+	private static <Col extends Column> long digest(Col column, ColumnHome<?, Col> columnHome) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		columnHome.writeTo(column, out);
+		out.flush();
+		final CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		long h = crc.getValue() * 0x9E3779B97F4A7C15L;
+		h ^= (h >>> 31);
+		h *= 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 29);
+	}
+	
+	/**
+	 * A memory accumulating the digest of the appended columns
+	 */
+	private static class TrackedMemory<Col extends Column> implements AppendableMemory<Col> {
+		private final AppendableMemory<Col>	memory;
+		private final ColumnHome<?, Col>	columnHome;
+		private final AtomicLong			digest = new AtomicLong();
+		public TrackedMemory(AppendableMemory<Col> memory, ColumnHome<?, Col> columnHome) {
+			this.memory		= memory;
+			this.columnHome	= columnHome;
+		}
+		public void appendColumn(Col column) throws IOException {
+			digest.addAndGet(digest(column, columnHome));
+			memory.appendColumn(column);
+		}
+		public void appendColumns(Iterable<? extends Col> columns) throws IOException {
+			for (final Col col : columns) {
+				appendColumn(col);
+			}
+		}
+		public void appendFrom(IndexableMemory<? extends Col> memory) throws IOException {
+			final int size = memory.getColumnCount();
+			for (int i = 0; i < size; i++) {
+				appendColumn(memory.getColumn(i));
+			}
+		}
+		public void flush() throws IOException {
+			memory.flush();
+		}
+		public SortableMemory<Col> toSortableMemory() throws IOException {
+			return memory.toSortableMemory();
+		}
+		public String fileId() throws IOException {
+			return memory.fileId();
+		}
+		public int getColumnCount() throws IOException {
+			return memory.getColumnCount();
+		}
+		public Iterator<Col> iterator() {
+			return memory.iterator();
+		}
+		public void close(boolean erase) throws IOException {
+			memory.close(erase);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.javasoft.io.Files;
+import ch.javasoft.metabolic.FluxDistribution;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.ElementaryFluxModes;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.impl.RecoverableSequentialDoubleDescriptionImpl;
+import ch.javasoft.metabolic.efm.memory.AppendableMemory;
+import ch.javasoft.metabolic.efm.memory.IterableMemory;
+import ch.javasoft.metabolic.efm.memory.MemoryFactory;
+import ch.javasoft.metabolic.efm.memory.MemoryPart;
+import ch.javasoft.metabolic.efm.memory.PartId;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.memory.incore.InCoreMemoryFactory;
+import ch.javasoft.metabolic.efm.model.IterationStateModel;
+import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
+import ch.javasoft.metabolic.efm.model.nullspace.NullspaceEfmModelFactory;
+import ch.javasoft.metabolic.impl.DefaultMetabolicNetwork;
+
+/**
+ * <tt>CheckpointTest</tt> checks that committed checkpoints can be verified
+ * after the memories have been reordered or truncated, that modified column
+ * data is detected, and that an interrupted computation is resumed from the
+ * last checkpoint with the same result.
+ */
+public class CheckpointTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.double_);
+	}
+	
+	private static final int BOOLEAN_SIZE = 16;
+	
+	private static final String CRASH_MESSAGE = "simulated crash";
+	
+	private static final IterationStateModel STATE = new IterationStateModel() {
+		public int getHyperplaneIndex() {
+			return 3;
+		}
+		public int getBooleanSize() {
+			return BOOLEAN_SIZE;
+		}
+		public int getNumericSize() {
+			return 0;
+		}
+	};
+	
+	private File folder;
+	
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("CheckpointTest", "");
+		folder.delete();
+		folder.mkdir();
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		Files.deleteRecursive(folder);
+		folder.delete();
+	}
+	
+	public void testVerifyAfterReorderAndClose() throws IOException {
+		final TableConfig tableConfig = new TableConfig(Config.getConfig().withMappedTables(true));
+		final Checkpoint checkpoint = new Checkpoint(folder);
+		final AppendableMemory<DoubleColumn> pos = checkpoint.track(createMemory(PartId.POS, tableConfig), columnHome());
+		final AppendableMemory<DoubleColumn> zer = checkpoint.track(createMemory(PartId.ZER, tableConfig), columnHome());
+		final AppendableMemory<DoubleColumn> neg = checkpoint.track(createMemory(PartId.NEG, tableConfig), columnHome());
+		append(pos, 1, 100);
+		append(neg, 101, 50);
+		checkpoint.commitPartitioned(2, STATE, pos, zer, neg);
+		
+		//sorting the mapped view does not modify the memory
+		final SortableMemory<DoubleColumn> sortable = Checkpoint.toSortableMemory(pos);
+		sortable.swapColumns(0, 99);
+		assertEquals(100, valueOf(sortable.getColumn(0)));
+		assertEquals(1, valueOf(pos.toSortableMemory().getColumn(0)));
+		
+		//reordering the columns does not change the digest
+		((OutOfCoreMemory<DoubleColumn>)pos.toSortableMemory()).sortColumns(new Comparator<DoubleColumn>() {
+			public int compare(DoubleColumn o1, DoubleColumn o2) {
+				return valueOf(o2) - valueOf(o1);
+			}
+		});
+		
+		//retained memories are closed and truncated, but not erased
+		for (final IterableMemory<DoubleColumn> mem : new IterableMemory[] {pos, zer, neg}) {
+			checkpoint.retain(mem).close(true /*erase*/);
+		}
+		
+		final Checkpoint.Manifest manifest = Checkpoint.readManifest(folder);
+		assertEquals(2, manifest.getIteration());
+		assertTrue(manifest.isPartitioned());
+		manifest.verifyState(STATE);
+		assertEquals(100, open(manifest, PartId.POS));
+		assertEquals(0, open(manifest, PartId.ZER));
+		assertEquals(50, open(manifest, PartId.NEG));
+	}
+	
+	public void testModifiedColumnsDetected() throws IOException {
+		final TableConfig tableConfig = new TableConfig(Config.getConfig());
+		final Checkpoint checkpoint = new Checkpoint(folder);
+		final AppendableMemory<DoubleColumn> mem = checkpoint.track(createMemory(null, tableConfig), columnHome());
+		append(mem, 1, 20);
+		checkpoint.commitUnpartitioned(5, STATE, mem);
+		mem.close(false);
+		assertEquals(20, open(Checkpoint.readManifest(folder), null));
+		
+		//same column count, but one column differs
+		final AppendableMemory<DoubleColumn> rewritten = createMemory(null, tableConfig);
+		append(rewritten, 2, 20);
+		rewritten.close(false);
+		assertVerificationFails(null, "digest mismatch");
+		
+		//additional column
+		final AppendableMemory<DoubleColumn> appended = createMemory(null, tableConfig);
+		append(appended, 1, 21);
+		appended.close(false);
+		assertVerificationFails(null, "columns");
+	}
+	
+	public void testCrashAndRecover() throws Exception {
+		final MetabolicNetwork network = createNetwork();
+		final List<String> expected = calculateEfms(network, new InCoreMemoryFactory(), "-tmpdir", folder.getAbsolutePath());
+		assertTrue(expected.size() > 0);
+		
+		//crash in iteration 3, after the adjacent pairs have been enumerated
+		//with the memories of the checkpoint committed after iteration 2
+		final File crashDir = new File(folder, "crash");
+		crashDir.mkdir();
+		try {
+			calculateEfms(network, new CrashingMemoryFactory(4), "-tmpdir", crashDir.getAbsolutePath());
+			fail("computation should crash");
+		}
+		catch (Exception ex) {
+			assertCrash(ex);
+		}
+		final File[] dataFolders = crashDir.listFiles();
+		assertEquals(1, dataFolders.length);
+		final Checkpoint.Manifest manifest = Checkpoint.readManifest(dataFolders[0]);
+		assertNotNull(manifest);
+		assertEquals(2, manifest.getIteration());
+		assertTrue(manifest.isPartitioned());
+		
+		//resume from the checkpoint
+		final File recoverDir = new File(folder, "recover");
+		recoverDir.mkdir();
+		final List<String> recovered = calculateEfms(network, new OutOfCoreMemoryFactory(), "-tmpdir", recoverDir.getAbsolutePath(), "-flag", "recover:" + dataFolders[0].getAbsolutePath());
+		assertEquals(expected, recovered);
+	}
+	
+	private static void assertCrash(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (CRASH_MESSAGE.equals(cause.getMessage())) return;
+		}
+		throw new AssertionError(ex);
+	}
+	private void assertVerificationFails(PartId part, String message) throws IOException {
+		try {
+			open(Checkpoint.readManifest(folder), part);
+			fail("checkpoint verification should fail");
+		}
+		catch (IOException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().contains(message));
+		}
+	}
+	
+	/**
+	 * Opens and verifies the memory, and returns its column count
+	 */
+	private static int open(Checkpoint.Manifest manifest, PartId part) throws IOException {
+		final OutOfCoreMemory<DoubleColumn> memory = manifest.openMemory(part, new TableConfig(Config.getConfig()));
+		try {
+			return memory.getColumnCount();
+		}
+		finally {
+			memory.close(false);
+		}
+	}
+	private OutOfCoreMemory<DoubleColumn> createMemory(PartId part, TableConfig tableConfig) throws IOException {
+		if (part == null) {
+			return new OutOfCoreMemory<DoubleColumn>(folder, 3, BOOLEAN_SIZE, 0, false, columnHome(), tableConfig);
+		}
+		return new OutOfCoreMemory<DoubleColumn>(folder, part, 3, BOOLEAN_SIZE, 0, false, columnHome(), tableConfig);
+	}
+	private static void append(AppendableMemory<DoubleColumn> memory, int first, int count) throws IOException {
+		for (int value = first; value < first + count; value++) {
+			final DoubleColumn col = new DoubleColumn(BOOLEAN_SIZE, 0);
+			for (int bit = 0; bit < BOOLEAN_SIZE; bit++) {
+				if ((value & (1 << bit)) != 0) col.bitValues().set(bit);
+			}
+			memory.appendColumn(col);
+		}
+		memory.flush();
+	}
+	private static int valueOf(DoubleColumn col) {
+		int value = 0;
+		for (int bit = 0; bit < BOOLEAN_SIZE; bit++) {
+			if (col.bitValues().get(bit)) value |= (1 << bit);
+		}
+		return value;
+	}
+	@SuppressWarnings("unchecked")
+	private static ColumnHome<?, DoubleColumn> columnHome() {
+		return (ColumnHome<?, DoubleColumn>)Arithmetic.double_.getColumnHome();
+	}
+	
+	/**
+	 * Same network as in the gene regulation tests, with 6 metabolites and 
+	 * 10 reactions
+	 */
+	private static MetabolicNetwork createNetwork() {
+		final double[][] values = new double[][] {
+			{ 1,  0,  0,  0, -1, -1, -1,  0,  0,  0},	//A
+			{ 0,  1,  0,  0,  1,  0,  0, -1, -1,  0},	//B
+			{ 0,  0,  0,  0,  0,  1,  0,  1,  0, -1},	//C
+			{ 0,  0,  0,  0,  0,  0,  1,  0,  0, -1},	//D
+			{ 0,  0,  0, -1,  0,  0,  0,  0,  0,  1},	//E
+			{ 0,  0, -1,  0,  0,  0,  0,  0,  1,  1}	//P
+		};
+		final boolean[] reversible = new boolean[] {
+			true, true, false, false, false, false, false, true, false, true
+		};
+		final String[] metaNames = new String[] {"A", "B", "C", "D", "E", "P"};
+		final String[] reacNames = new String[] {"R1", "R2", "R3", "R4", "R5", "R6", "R7", "R8", "R9", "R10"};
+		return new DefaultMetabolicNetwork(metaNames, reacNames, values, reversible);
+	}
+	
+	private static List<String> calculateEfms(MetabolicNetwork network, MemoryFactory memoryFactory, String... args) throws Exception {
+		final List<String> allArgs = new ArrayList<String>(Arrays.asList(
+			"-kind", "stoichiometry", "-stoich", "stoich.txt", "-rev", "rev.txt", 
+			"-meta", "meta.txt", "-reac", "reac.txt", "-out", "null", 
+			"-arithmetic", "bigint", "-compression", "off"
+		));
+		allArgs.addAll(Arrays.asList(args));
+		final Config config = Config.getFromXmlConfig(Config.resolveXmlConfig(allArgs.toArray(new String[allArgs.size()])));
+		final ElementaryFluxModes.Impl impl = new RecoverableSequentialDoubleDescriptionImpl(config, new NullspaceEfmModelFactory(), memoryFactory);
+		final ElementaryFluxModes.Impl prev = getImplOrNull();
+		ElementaryFluxModes.setImpl(impl);
+		try {
+			final List<String> efms = new ArrayList<String>();
+			for (final FluxDistribution efm : ElementaryFluxModes.calculateAndReturnEfms(network)) {
+				efms.add(efm.toString());
+			}
+			Collections.sort(efms);
+			return efms;
+		}
+		finally {
+			ElementaryFluxModes.setImpl(prev);
+		}
+	}
+	private static ElementaryFluxModes.Impl getImplOrNull() {
+		try {
+			return ElementaryFluxModes.getImpl();
+		}
+		catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Out-of-core memory factory which fails when the positive memory for the
+	 * given iteration is created, that is, after the adjacent pairs of the 
+	 * previous iteration have been enumerated
+	 */
+	private static class CrashingMemoryFactory extends OutOfCoreMemoryFactory {
+		private final int crashIteration;
+		public CrashingMemoryFactory(int crashIteration) {
+			this.crashIteration = crashIteration;
+		}
+		@Override
+		public <N extends Number, Col extends Column> AppendableMemory<Col> createConcurrentAppendableMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
+			if (part == PartId.POS && iteration == crashIteration) {
+				throw new IOException(CRASH_MESSAGE);
+			}
+			return super.createConcurrentAppendableMemory(columnHome, efmModel, iteration, part);
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.memory.AppendableMemory;
+import ch.javasoft.metabolic.efm.memory.IndexableMemory;
+import ch.javasoft.metabolic.efm.memory.ReadWriteMemory;
+
+/**
+ * The <code>ExternalMergeSort</code> sorts the columns of a memory with 
+ * bounded core memory and sequential i/o only. The columns are read in chunks 
+ * of {@link #getDefaultRunSize() run size} columns, every chunk is sorted in 
+ * core and written to a temporary run memory. The runs are then merged, at 
+ * most {@link #DEFAULT_FAN_IN fan-in} runs at a time, and the last merge pass 
+ * writes the sorted columns to the target memory.
+ * <p>
+ * The source memory is never modified. If all columns fit into a single run, 
+ * no temporary memories are created. Temporary run memories are erased after 
+ * merging them, or when the sort fails.
+ */
+public class ExternalMergeSort {
+	
+	/**
+	 * System property defining the number of columns sorted in core per run,
+	 * see {@link #getDefaultRunSize()}
+	 */
+	public static final String SYSTEM_PROPERTY_RUN_SIZE = ExternalMergeSort.class.getName() + ".runsize";
+	
+	/**
+	 * Default number of columns sorted in core per run, if no 
+	 * {@link #SYSTEM_PROPERTY_RUN_SIZE system property} is specified
+	 */
+	public static final int DEFAULT_RUN_SIZE = 1 << 16;
+	
+	/**
+	 * Default number of runs merged at once
+	 */
+	public static final int DEFAULT_FAN_IN = 64;
+	
+	/**
+	 * Creates the temporary memories storing the sorted runs
+	 */
+	public static interface RunFactory<Col extends Column> {
+		/**
+		 * Creates an empty memory for the run with the given index. Run 
+		 * indices are unique during a sort operation. The run memory is
+		 * closed and erased when it has been merged, or if the sort fails.
+		 */
+		ReadWriteMemory<Col> createRun(int index) throws IOException;
+	}
+	
+	/**
+	 * Returns the run size defined by the 
+	 * {@link #SYSTEM_PROPERTY_RUN_SIZE run size system property}, or 
+	 * {@link #DEFAULT_RUN_SIZE} if the property is not set.
+	 */
+	public static int getDefaultRunSize() {
+		return Integer.getInteger(SYSTEM_PROPERTY_RUN_SIZE, DEFAULT_RUN_SIZE).intValue();
+	}
+	
+	/**
+	 * Sorts the columns using the {@link #getDefaultRunSize() default run size}
+	 * and {@link #DEFAULT_FAN_IN default fan-in}
+	 * 
+	 * @see #sort(IndexableMemory, AppendableMemory, Comparator, RunFactory, int, int)
+	 */
+	public static <Col extends Column> void sort(IndexableMemory<? extends Col> source, AppendableMemory<Col> target, Comparator<? super Col> comparator, RunFactory<Col> runFactory) throws IOException {
+		sort(source, target, comparator, runFactory, getDefaultRunSize(), DEFAULT_FAN_IN);
+	}
+	
+	/**
+	 * Sorts the columns of the source memory and appends them to the target
+	 * memory. The source memory is not modified.
+	 * 
+	 * @param source		the memory with the columns to sort
+	 * @param target		the memory receiving the sorted columns
+	 * @param comparator	comparator defining the column order
+	 * @param runFactory	factory for temporary run memories
+	 * @param runSize		the number of columns sorted in core, at least 1
+	 * @param fanIn			the maximum number of runs merged at once, at 
+	 * 						least 2
+	 * @throws IOException	if any i/o exception occurs
+	 */
+	public static <Col extends Column> void sort(IndexableMemory<? extends Col> source, AppendableMemory<Col> target, Comparator<? super Col> comparator, RunFactory<Col> runFactory, int runSize, int fanIn) throws IOException {
+		if (runSize < 1) {
+			throw new IllegalArgumentException("run size must be positive: " + runSize);
+		}
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("fan-in must be at least 2: " + fanIn);
+		}
+		final int size = source.getColumnCount();
+		
+		//runs not yet merged and erased
+		final List<ReadWriteMemory<Col>> pending = new ArrayList<ReadWriteMemory<Col>>();
+		boolean success = false;
+		try {
+			//create sorted runs
+			final List<Col> chunk = new ArrayList<Col>(Math.max(1, Math.min(runSize, size)));
+			List<ReadWriteMemory<Col>> runs = new ArrayList<ReadWriteMemory<Col>>();
+			int runIndex = 0;
+			for (int i = 0; i < size; i++) {
+				chunk.add(source.getColumn(i));
+				if (chunk.size() == runSize || i == size - 1) {
+					Collections.sort(chunk, comparator);
+					if (runs.isEmpty() && i == size - 1) {
+						//everything fits into one run
+						target.appendColumns(chunk);
+						target.flush();
+						success = true;
+						return;
+					}
+					final ReadWriteMemory<Col> run = runFactory.createRun(runIndex++);
+					pending.add(run);
+					run.appendColumns(chunk);
+					run.flush();
+					runs.add(run);
+					chunk.clear();
+				}
+			}
+			
+			//intermediary merge passes
+			while (runs.size() > fanIn) {
+				final List<ReadWriteMemory<Col>> merged = new ArrayList<ReadWriteMemory<Col>>();
+				for (int start = 0; start < runs.size(); start += fanIn) {
+					final List<ReadWriteMemory<Col>> group = runs.subList(start, Math.min(start + fanIn, runs.size()));
+					if (group.size() == 1) {
+						merged.add(group.get(0));
+					}
+					else {
+						final ReadWriteMemory<Col> run = runFactory.createRun(runIndex++);
+						pending.add(run);
+						merge(group, run, comparator, pending);
+						run.flush();
+						merged.add(run);
+					}
+				}
+				runs = merged;
+			}
+			
+			//final merge pass into target memory
+			merge(runs, target, comparator, pending);
+			target.flush();
+			success = true;
+		}
+		finally {
+			eraseRuns(pending, success);
+		}
+	}
+	
+	/**
+	 * Merges the given runs into the target memory, and closes and erases the
+	 * runs afterwards. Erased runs are removed from the pending runs.
+	 */
+	private static <Col extends Column> void merge(List<ReadWriteMemory<Col>> runs, AppendableMemory<Col> target, Comparator<? super Col> comparator, List<ReadWriteMemory<Col>> pending) throws IOException {
+		final PriorityQueue<Cursor<Col>> queue = new PriorityQueue<Cursor<Col>>(runs.size(), new CursorComparator<Col>(comparator));
+		for (final ReadWriteMemory<Col> run : runs) {
+			final Cursor<Col> cursor = new Cursor<Col>(run);
+			if (cursor.next()) {
+				queue.add(cursor);
+			}
+		}
+		while (!queue.isEmpty()) {
+			final Cursor<Col> cursor = queue.poll();
+			target.appendColumn(cursor.current);
+			if (cursor.next()) {
+				queue.add(cursor);
+			}
+		}
+		for (final ReadWriteMemory<Col> run : runs) {
+			pending.remove(run);
+			run.close(true /*erase*/);
+		}
+	}
+	
+	/**
+	 * Closes and erases the given runs. If the sort failed, i/o exceptions are
+	 * ignored to not hide the original exception. Otherwise, the first i/o 
+	 * exception is thrown after all runs have been erased.
+	 */
+	private static <Col extends Column> void eraseRuns(List<ReadWriteMemory<Col>> runs, boolean throwException) throws IOException {
+		IOException first = null;
+		for (final ReadWriteMemory<Col> run : runs) {
+			try {
+				run.close(true /*erase*/);
+			}
+			catch (IOException ex) {
+				if (first == null) first = ex;
+			}
+		}
+		runs.clear();
+		if (throwException && first != null) {
+			throw first;
+		}
+	}
+	
+	/**
+	 * Sequential read position in a run
+	 */
+	private static class Cursor<Col extends Column> {
+		private final IndexableMemory<Col>	run;
+		private final int					size;
+		private int							index;
+		private Col							current;
+		Cursor(IndexableMemory<Col> run) throws IOException {
+			this.run	= run;
+			this.size	= run.getColumnCount();
+		}
+		boolean next() throws IOException {
+			if (index < size) {
+				current = run.getColumn(index++);
+				return true;
+			}
+			current = null;
+			return false;
+		}
+	}
+	private static class CursorComparator<Col extends Column> implements Comparator<Cursor<Col>> {
+		private final Comparator<? super Col> comparator;
+		CursorComparator(Comparator<? super Col> comparator) {
+			this.comparator = comparator;
+		}
+		public int compare(Cursor<Col> o1, Cursor<Col> o2) {
+			return comparator.compare(o1.current, o2.current);
+		}
+	}
+	
+	//no instances
+	private ExternalMergeSort() {}
+}
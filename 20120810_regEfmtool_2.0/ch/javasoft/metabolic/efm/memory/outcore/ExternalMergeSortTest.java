@@ -0,0 +1,232 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.column.DoubleColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.ReadWriteMemory;
+
+/**
+ * <tt>ExternalMergeSortTest</tt> sorts out-of-core memories with multiple 
+ * merge passes, and checks that the temporary tables are erased and that the
+ * memory is left intact if the sort fails.
+ */
+public class ExternalMergeSortTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.double_);
+	}
+	
+	private static final int BOOLEAN_SIZE = 16;
+	
+	private File folder;
+	
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("ExternalMergeSortTest", "");
+		folder.delete();
+		folder.mkdir();
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		final File[] files = folder.listFiles();
+		if (files != null) {
+			for (final File file : files) file.delete();
+		}
+		folder.delete();
+	}
+	
+	public void testMultiPassMerge() throws IOException {
+		final int size		= 200;
+		final int runSize	= 3;
+		final int fanIn		= 2;
+		assertTrue(size > runSize * fanIn * fanIn);
+		final OutOfCoreMemory<DoubleColumn> source = createMemory(0, randomValues(size, 1));
+		final OutOfCoreMemory<DoubleColumn> target = createMemory(1, new int[0]);
+		final List<File> runs = new ArrayList<File>();
+		ExternalMergeSort.sort(source, target, COMPARATOR, new ExternalMergeSort.RunFactory<DoubleColumn>() {
+			public ReadWriteMemory<DoubleColumn> createRun(int index) throws IOException {
+				final OutOfCoreMemory<DoubleColumn> run = new OutOfCoreMemory<DoubleColumn>(folder, 100 + index, BOOLEAN_SIZE, 0, false, columnHome(), tableConfig());
+				runs.add(run.mFile);
+				return run;
+			}
+		}, runSize, fanIn);
+		assertTrue("expected intermediary passes, runs=" + runs.size(), runs.size() > (size + runSize - 1) / runSize);
+		assertSorted(target, values(source));
+		assertEquals(size, source.getColumnCount());
+		for (final File run : runs) {
+			assertEquals("run not erased: " + run.getName(), 0, OutOfCoreMemory.getTableFiles(run).size());
+		}
+		source.close(true);
+		target.close(true);
+	}
+	
+	public void testSortColumns() throws IOException {
+		final String runSize = System.getProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE);
+		System.setProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE, "7");
+		try {
+			final int[] values = randomValues(1000, 2);
+			final OutOfCoreMemory<DoubleColumn> memory = createMemory(0, values);
+			memory.sortColumns(COMPARATOR);
+			assertSorted(memory, values);
+			assertNoTemporaryFiles();
+			
+			//data survives closing and reopening the table
+			memory.close(false);
+			final OutOfCoreMemory<DoubleColumn> reopened = new OutOfCoreMemory<DoubleColumn>(new OutOfCoreMemory.FileId<DoubleColumn>(memory.fileId()), tableConfig());
+			assertSorted(reopened, values);
+			reopened.close(true);
+		}
+		finally {
+			if (runSize == null) System.clearProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE);
+			else System.setProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE, runSize);
+		}
+	}
+	
+	public void testFailedSortLeavesMemoryIntact() throws IOException {
+		final String runSize = System.getProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE);
+		System.setProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE, "5");
+		try {
+			final int[] values = randomValues(100, 3);
+			final OutOfCoreMemory<DoubleColumn> memory = createMemory(0, values);
+			final int[] compares = new int[1];
+			try {
+				memory.sortColumns(new Comparator<DoubleColumn>() {
+					public int compare(DoubleColumn o1, DoubleColumn o2) {
+						if (++compares[0] > 500) {
+							throw new IllegalStateException("comparator failure");
+						}
+						return COMPARATOR.compare(o1, o2);
+					}
+				});
+				fail("sort should fail");
+			}
+			catch (IllegalStateException ex) {
+				assertEquals("comparator failure", ex.getMessage());
+			}
+			assertNoTemporaryFiles();
+			assertEquals(values.length, memory.getColumnCount());
+			for (int i = 0; i < values.length; i++) {
+				assertEquals(values[i], valueOf(memory.getColumn(i)));
+			}
+			memory.close(true);
+		}
+		finally {
+			if (runSize == null) System.clearProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE);
+			else System.setProperty(ExternalMergeSort.SYSTEM_PROPERTY_RUN_SIZE, runSize);
+		}
+	}
+	
+	private static final Comparator<DoubleColumn> COMPARATOR = new Comparator<DoubleColumn>() {
+		public int compare(DoubleColumn o1, DoubleColumn o2) {
+			final int v1 = valueOf(o1);
+			final int v2 = valueOf(o2);
+			return v1 < v2 ? -1 : v1 == v2 ? 0 : 1;
+		}
+	};
+	
+	private OutOfCoreMemory<DoubleColumn> createMemory(int iteration, int[] values) throws IOException {
+		final OutOfCoreMemory<DoubleColumn> memory = new OutOfCoreMemory<DoubleColumn>(folder, iteration, BOOLEAN_SIZE, 0, false, columnHome(), tableConfig());
+		for (final int value : values) {
+			final DoubleColumn col = new DoubleColumn(BOOLEAN_SIZE, 0);
+			for (int bit = 0; bit < BOOLEAN_SIZE; bit++) {
+				if ((value & (1 << bit)) != 0) col.bitValues().set(bit);
+			}
+			memory.appendColumn(col);
+		}
+		memory.flush();
+		return memory;
+	}
+	private static int valueOf(DoubleColumn col) {
+		int value = 0;
+		for (int bit = 0; bit < BOOLEAN_SIZE; bit++) {
+			if (col.bitValues().get(bit)) value |= (1 << bit);
+		}
+		return value;
+	}
+	private static int[] values(OutOfCoreMemory<DoubleColumn> memory) throws IOException {
+		final int[] values = new int[memory.getColumnCount()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = valueOf(memory.getColumn(i));
+		}
+		return values;
+	}
+	private static int[] randomValues(int size, long seed) {
+		final Random rnd = new Random(seed);
+		final int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = rnd.nextInt(1 << BOOLEAN_SIZE);
+		}
+		return values;
+	}
+	private static void assertSorted(OutOfCoreMemory<DoubleColumn> memory, int[] unsorted) throws IOException {
+		final int[] expected = unsorted.clone();
+		Arrays.sort(expected);
+		final int[] actual = values(memory);
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("at index " + i, expected[i], actual[i]);
+		}
+	}
+	private void assertNoTemporaryFiles() {
+		final List<String> temporary = new ArrayList<String>();
+		for (final File file : folder.listFiles()) {
+			final String name = file.getName();
+			if (name.contains(".run") || name.startsWith("sorted_")) {
+				temporary.add(name);
+			}
+		}
+		assertTrue("temporary files left: " + temporary, temporary.isEmpty());
+	}
+	@SuppressWarnings("unchecked")
+	private static ColumnHome<?, DoubleColumn> columnHome() {
+		return (ColumnHome<?, DoubleColumn>)Arithmetic.double_.getColumnHome();
+	}
+	private static TableConfig tableConfig() {
+		return new TableConfig(Config.getConfig());
+	}
+}
@@ -35,15 +35,18 @@ package ch.javasoft.metabolic.efm.memory.outcore;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 
 import ch.javasoft.jbase.Table;
-import ch.javasoft.jbase.util.CachedTableWeakReference;
 import ch.javasoft.jbase.util.Tables;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.memory.ExternalSortableMemory;
 import ch.javasoft.metabolic.efm.memory.IndexableMemory;
 import ch.javasoft.metabolic.efm.memory.MappedSortableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryPart;
@@ -52,9 +55,12 @@ import ch.javasoft.metabolic.efm.memory.SortableMemory;
 
 /**
  * The <code>OutOfCoreMemory</code> stores columns out of the core memory. They 
- * are stored in files using appropriate {@link Table} implementations.  
+ * are stored in files using appropriate {@link Table} implementations.
+ * Sorting all columns at once is performed with an {@link ExternalMergeSort},
+ * the temporary runs and the sorted table are stored next to the memory file.
+ * The sorted table replaces the original table only after it is complete.
  */
-public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col> {
+public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>, ExternalSortableMemory<Col> {
 	
 	public final boolean				mSortInCore;
 	public final File               	mFile;
@@ -62,19 +68,31 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
 	public final int					mNumericSize;
 	public final int					mIteration;
 	
+	/**
+	 * File name prefix of the sorted table replacing the table of this memory,
+	 * see {@link #sortColumns(Comparator)}
+	 */
+	private static final String			SORTED_FILE_PREFIX = "sorted_";
+	
     private final ColumnHome<?, Col>	mColumnHome;
-    private final Table<Col>			mTable;
+    private final TableConfig			mTableConfig;
+    private Table<Col>					mTable;
     
     /**
-     * Opens the file specified by file id for reading
+     * Opens the file specified by file id for reading, using the 
+     * {@link TableConfig#getDefault(boolean) default} table config, block
+     * compressed if the {@link FileId#isCompressed() file id} says so
      */
     public OutOfCoreMemory(String fileId) throws IOException {
         this(new FileId<Col>(fileId));
     }
+    private OutOfCoreMemory(FileId<Col> fileId) throws IOException {
+        this(fileId, TableConfig.getDefault(fileId.isCompressed()));
+    }
     /**
      * Opens the file specified by file id for reading
      */
-    public OutOfCoreMemory(FileId<Col> fileId) throws IOException {
+    public OutOfCoreMemory(FileId<Col> fileId, TableConfig tableConfig) throws IOException {
 		if (!fileId.getFile().exists() || !fileId.getFile().canRead()) {
 			throw new IOException("cannot read file: " + fileId.getFile().getAbsolutePath());
 		}
@@ -84,24 +102,25 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
         mIteration      = fileId.getIteration();
         mColumnHome     = fileId.getColumnHome();
         mSortInCore		= fileId.sortInCore();
-        mTable 			= getNestedTable(mColumnHome.openTable(fileId.getFolder(), fileId.getFileName(), mBooleanSize, mNumericSize));
+        mTableConfig	= tableConfig;
+        mTable 			= getNestedTable(mColumnHome.openTable(tableConfig, fileId.getFolder(), fileId.getFileName(), mBooleanSize, mNumericSize));
     }
     /**
      * Creates a new non-partitioned memory, stored in one or multiple files.
      */
-	public OutOfCoreMemory(File folder, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome) throws IOException {
-		this(folder, FileName.NORMAL, iteration, booleanSize, numericSize, sortInCore, columnHome);
+	public OutOfCoreMemory(File folder, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome, TableConfig tableConfig) throws IOException {
+		this(folder, FileName.NORMAL, iteration, booleanSize, numericSize, sortInCore, columnHome, tableConfig);
 	}
     /**
      * Creates a new partitioned memory, stored in one or multiple files.
      */
-	public OutOfCoreMemory(File folder, MemoryPart part, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome) throws IOException {
-		this(folder, FileName.getPartFileName(part), iteration, booleanSize, numericSize, sortInCore, columnHome);
+	public OutOfCoreMemory(File folder, MemoryPart part, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome, TableConfig tableConfig) throws IOException {
+		this(folder, FileName.getPartFileName(part), iteration, booleanSize, numericSize, sortInCore, columnHome, tableConfig);
 	}
-	private OutOfCoreMemory(File folder, FileName fileName, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome) throws IOException {
-		this(folder, fileName.getFileName(iteration), iteration, booleanSize, numericSize, sortInCore, columnHome);
+	private OutOfCoreMemory(File folder, FileName fileName, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome, TableConfig tableConfig) throws IOException {
+		this(folder, fileName.getFileName(iteration), iteration, booleanSize, numericSize, sortInCore, columnHome, tableConfig);
 	}
-	private OutOfCoreMemory(File folder, String fileName, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome) throws IOException {
+	private OutOfCoreMemory(File folder, String fileName, int iteration, int booleanSize, int numericSize, boolean sortInCore, ColumnHome<?, Col> columnHome, TableConfig tableConfig) throws IOException {
 //		System.out.println(fileName + " / " + iteration + " (" + booleanSize + " / " + numericSize + ")");
 		if (!folder.exists()) {
 //			if (!folder.mkdirs()) {
@@ -115,7 +134,8 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
         mIteration      = iteration;
         mColumnHome     = columnHome;
         mSortInCore		= sortInCore;
-        mTable 			= getNestedTable(columnHome.createTable(folder, fileName, booleanSize, numericSize));
+        mTableConfig	= tableConfig;
+        mTable 			= getNestedTable(columnHome.createTable(tableConfig, folder, fileName, booleanSize, numericSize));
 	}
 	private static <C extends Column> Table<C> getNestedTable(Table<C> table) throws IOException {
 //		return table;
@@ -127,7 +147,9 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
 //      mTable 			= columnHome.createTable(folder, fileName, booleanSize, numericSize);
 //      mTable 			= new CachedTableSoftReference<Col>(columnHome.createTable(folder, fileName, booleanSize, numericSize), 256, true);
 //      mTable 			= Tables.readWriteLockTable(columnHome.createTable(folder, fileName, booleanSize, numericSize));
-		return new CachedTableWeakReference<C>(table);
+//		return new CachedTableWeakReference<C>(table);
+		//table pages are cached by the shared page cache, see Cache
+		return table;
 //		return new CachedTableSoftReference<Col>(table);
 	}
     public static class FileName {
@@ -145,8 +167,8 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
     		return prefix + iteration + postfix;
     	}
     	@SuppressWarnings("unchecked")
-		public <N extends Number, Col extends Column> FileId<Col> getFileId(ColumnHome<N, Col> columnHome, File dataFolder, int iteration, int numericSize, int booleanSize, boolean sortInCore) {
-    		return new FileId(FileId.toString(columnHome.getArithmetic(), numericSize, booleanSize, iteration, new File(dataFolder, getFileName(iteration)), sortInCore));
+		public <N extends Number, Col extends Column> FileId<Col> getFileId(ColumnHome<N, Col> columnHome, File dataFolder, int iteration, int numericSize, int booleanSize, boolean sortInCore, boolean compressed) {
+    		return new FileId(FileId.toString(columnHome.getArithmetic(), numericSize, booleanSize, iteration, new File(dataFolder, getFileName(iteration)), sortInCore, compressed));
     	}
     	public int getIteration(String fileName) {
     		if (fileName.length() <= prefix.length() + postfix.length()) return -1;
@@ -168,7 +190,8 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
     		BooleanSize,
     		Iteration,
     		FileName,
-    		SortInCore;
+    		SortInCore,
+    		Compressed;
     		public String getPart(String[] parts) {
     			return parts[ordinal()];
     		}
@@ -177,6 +200,12 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
     	FileId(String fileId) {
     		fileIdParts = fileId.split(":");
     	}    	
+		/**
+		 * Parses a file id as returned by {@link OutOfCoreMemory#fileId()}
+		 */
+		public static <Col extends Column> FileId<Col> parse(String fileId) {
+			return new FileId<Col>(fileId);
+		}
 		@SuppressWarnings("unchecked")
 		public ColumnHome<?, Col> getColumnHome() {
 			return (ColumnHome<?, Col>)Arithmetic.parse(Parts.Arithmetic.getPart(fileIdParts)).getColumnHome();
@@ -201,6 +230,16 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
 				return true;/*default: in-core sorting*/
 			}
 		}
+		/**
+		 * True if the table was created with compression enabled in the
+		 * {@link TableConfig#isCompressed() table config}. Tables supporting
+		 * compression are then {@link Cache#isCompressed(TableConfig) block
+		 * compressed} and must be opened with a compressing table config. 
+		 * False if the part is missing, e.g. in file ids of older versions.
+		 */
+		public boolean isCompressed() {
+			return fileIdParts.length > Parts.Compressed.ordinal() && Boolean.parseBoolean(Parts.Compressed.getPart(fileIdParts));
+		}
 		public File getFolder() {
 			return getFile().getParentFile();
 		}
@@ -208,11 +247,38 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
 		public String getFileName() {
 			return getFile().getName();
 		}
+		/**
+		 * Returns the files of the table with this id. Tables might consist
+		 * of multiple files, additional files have the byte width of the table 
+		 * rows inserted before the file extension, see 
+		 * {@link ch.javasoft.jbase.VariableWidthTable VariableWidthTable}.
+		 */
+		public List<File> getTableFiles() {
+			return OutOfCoreMemory.getTableFiles(getFile());
+		}
+		/**
+		 * Returns this file id with the simple file name instead of the
+		 * absolute file path, see {@link #fromRelativeString(File, String)}
+		 */
+		public String toRelativeString() {
+			return toString(Arithmetic.parse(Parts.Arithmetic.getPart(fileIdParts)), getNumericSize(), getBooleanSize(), getIteration(), new File(getFileName()), sortInCore(), isCompressed(), false);
+		}
+		/**
+		 * Parses a file id created by {@link #toRelativeString()}, resolving
+		 * the file name relative to the given folder
+		 */
+		public static <Col extends Column> FileId<Col> fromRelativeString(File folder, String relativeFileId) {
+			final FileId<Col> relative = new FileId<Col>(relativeFileId);
+			return new FileId<Col>(toString(Arithmetic.parse(Parts.Arithmetic.getPart(relative.fileIdParts)), relative.getNumericSize(), relative.getBooleanSize(), relative.getIteration(), new File(folder, relative.getFileName()), relative.sortInCore(), relative.isCompressed()));
+		}
 
 		static String toString(OutOfCoreMemory mem) {
-			return toString(mem.mColumnHome.getArithmetic(), mem.mNumericSize, mem.mBooleanSize, mem.mIteration, mem.mFile, mem.mSortInCore);
+			return toString(mem.mColumnHome.getArithmetic(), mem.mNumericSize, mem.mBooleanSize, mem.mIteration, mem.mFile, mem.mSortInCore, mem.mTableConfig.isCompressed());
+		}
+		static String toString(Arithmetic arith, int numericSize, int booleanSize, int iteration, File file, boolean sortInCore, boolean compressed) {
+			return toString(arith, numericSize, booleanSize, iteration, file, sortInCore, compressed, true);
 		}
-		static String toString(Arithmetic arith, int numericSize, int booleanSize, int iteration, File file, boolean sortInCore) {
+		private static String toString(Arithmetic arith, int numericSize, int booleanSize, int iteration, File file, boolean sortInCore, boolean compressed, boolean absolutePath) {
     		final StringBuilder sb = new StringBuilder();
     		sb
 				.append(arith)
@@ -223,13 +289,48 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
     			.append(':')
     			.append(iteration)
     			.append(':')
-    			.append(file.getAbsolutePath())
+    			.append(absolutePath ? file.getAbsolutePath() : file.getPath())
     			.append(':')
     			.append(sortInCore)
+    			.append(':')
+    			.append(compressed)
     			;
     		return sb.toString();
     	}
     }
+	/**
+	 * Returns the files of the table stored in the given table file, see
+	 * {@link FileId#getTableFiles()}
+	 */
+	static List<File> getTableFiles(File tableFile) {
+		final String fileName	= tableFile.getName();
+		final int lastDot		= fileName.lastIndexOf('.');
+		final String prefix		= lastDot < 0 ? fileName : fileName.substring(0, lastDot);
+		final String postfix	= lastDot < 0 ? "" : fileName.substring(lastDot);
+		final List<File> files = new ArrayList<File>();
+		final File[] candidates = tableFile.getParentFile().listFiles();
+		if (candidates != null) {
+			for (final File file : candidates) {
+				final String name = file.getName();
+				if (name.equals(fileName)) {
+					files.add(file);
+				}
+				else if (name.startsWith(prefix) && name.endsWith(postfix) && name.length() > prefix.length() + postfix.length()) {
+					final String width = name.substring(prefix.length(), name.length() - postfix.length());
+					if (isDigits(width)) {
+						files.add(file);
+					}
+				}
+			}
+		}
+		return files;
+	}
+	private static boolean isDigits(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			if (!Character.isDigit(str.charAt(i))) return false;
+		}
+		return true;
+	}
 	public String fileId() throws IOException {
 		return FileId.toString(this);
 	}
@@ -254,6 +355,62 @@ public class OutOfCoreMemory<Col extends Column> implements ReadWriteMemory<Col>
 	public void swapColumns(int indexA, int indexB) throws IOException {
 		mTable.swap(indexA, indexB);
 	}
+	/**
+	 * Sorts the columns into a new table next to the memory file. The new 
+	 * table replaces the current table when the sort has completed, the 
+	 * current table is not modified before. If the sort fails, the new table
+	 * and all temporary runs are erased.
+	 */
+	public void sortColumns(Comparator<? super Col> comparator) throws IOException {
+		if (getColumnCount() <= 1) return;
+		final File folder = mFile.getParentFile();
+		final OutOfCoreMemory<Col> sorted = new OutOfCoreMemory<Col>(folder, SORTED_FILE_PREFIX + mFile.getName(), mIteration, mBooleanSize, mNumericSize, mSortInCore, mColumnHome, mTableConfig);
+		boolean success = false;
+		try {
+			ExternalMergeSort.sort(this, sorted, comparator, new ExternalMergeSort.RunFactory<Col>() {
+				public ReadWriteMemory<Col> createRun(int index) throws IOException {
+					return new OutOfCoreMemory<Col>(folder, mFile.getName() + ".run" + index, mIteration, mBooleanSize, mNumericSize, mSortInCore, mColumnHome, mTableConfig);
+				}
+			});
+			sorted.close(false);
+			success = true;
+		}
+		finally {
+			if (!success) {
+				try {
+					sorted.close(true /*erase*/);
+				}
+				catch (IOException ex) {
+					//ignore, the original exception is thrown
+				}
+			}
+		}
+		replaceTable(sorted.mFile);
+	}
+	/**
+	 * Closes the current table and replaces its files by the files of the
+	 * given closed table, which is then opened as table of this memory
+	 */
+	private void replaceTable(File sortedFile) throws IOException {
+		final File folder = mFile.getParentFile();
+		mTable.close(false);
+		final List<File> obsolete = getTableFiles(mFile);
+		for (final File file : getTableFiles(sortedFile)) {
+			final File dst = new File(folder, file.getName().substring(SORTED_FILE_PREFIX.length()));
+			if (!file.renameTo(dst)) {
+				if (!dst.delete() || !file.renameTo(dst)) {
+					throw new IOException("cannot rename " + file.getAbsolutePath() + " to " + dst.getName());
+				}
+			}
+			obsolete.remove(dst);
+		}
+		for (final File file : obsolete) {
+			if (!file.delete()) {
+				throw new IOException("cannot delete " + file.getAbsolutePath());
+			}
+		}
+		mTable = getNestedTable(mColumnHome.openTable(mTableConfig, folder, mFile.getName(), mBooleanSize, mNumericSize));
+	}
     public void clear() throws IOException {
         mTable.removeAll();
     }
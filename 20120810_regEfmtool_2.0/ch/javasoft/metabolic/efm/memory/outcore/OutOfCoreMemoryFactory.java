@@ -40,6 +40,8 @@ import java.io.IOException;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.AppendableMemory;
+import ch.javasoft.metabolic.efm.memory.AsyncAppendableMemory;
 import ch.javasoft.metabolic.efm.memory.MemoryFactory;
 import ch.javasoft.metabolic.efm.memory.MemoryPart;
 import ch.javasoft.metabolic.efm.memory.ReadWriteMemory;
@@ -49,6 +51,11 @@ import ch.javasoft.metabolic.efm.model.NetworkEfmModel;
  * The <code>OutOfCoreMemoryFactory</code> creates an 
  * {@link OutOfCoreMemory out-of-core memory}, meaning that intermediary modes 
  * are stored in files.
+ * <p>
+ * Concurrent appendable memories are wrapped in an 
+ * {@link AsyncAppendableMemory}, such that appending threads do not block on
+ * disk writes, unless asynchronous appending is disabled by setting the
+ * {@link AsyncAppendableMemory#SYSTEM_PROPERTY_BATCH_SIZE batch size} to zero.
  */
 public class OutOfCoreMemoryFactory implements MemoryFactory {
 
@@ -78,7 +85,13 @@ public class OutOfCoreMemoryFactory implements MemoryFactory {
 		}
 	}
     
-	public <N extends Number, Col extends Column> OutOfCoreMemory<Col> createConcurrentAppendableMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
+	public <N extends Number, Col extends Column> AppendableMemory<Col> createConcurrentAppendableMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
+		final OutOfCoreMemory<Col> memory = createMemory(columnHome, efmModel, iteration, part);
+		final int batchSize = AsyncAppendableMemory.getDefaultBatchSize();
+		return batchSize > 0 ? new AsyncAppendableMemory<Col>(memory, batchSize) : memory;
+	}
+	
+	private <N extends Number, Col extends Column> OutOfCoreMemory<Col> createMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
 		ensureInitialized(columnHome, efmModel);
 		final Config config = efmModel.getConfig();
 		
@@ -89,7 +102,8 @@ public class OutOfCoreMemoryFactory implements MemoryFactory {
 	        	efmModel.getBooleanSize(iteration), 
 	        	efmModel.getNumericSize(iteration),
 	        	sortInCore,
-	        	columnHome
+	        	columnHome,
+	        	efmModel.getTableConfig()
 	        );
 		}
         return new OutOfCoreMemory<Col>(
@@ -98,12 +112,13 @@ public class OutOfCoreMemoryFactory implements MemoryFactory {
         	efmModel.getBooleanSize(iteration), 
         	efmModel.getNumericSize(iteration),
         	sortInCore,
-        	columnHome
+        	columnHome,
+        	efmModel.getTableConfig()
         );
 	}
 	
 	public <N extends Number, Col extends Column> ReadWriteMemory<Col> createReadWriteMemory(ColumnHome<N, Col> columnHome, NetworkEfmModel efmModel, int iteration, MemoryPart part) throws IOException {
-		return createConcurrentAppendableMemory(columnHome, efmModel, iteration, part);
+		return createMemory(columnHome, efmModel, iteration, part);
 	}
 	
 	
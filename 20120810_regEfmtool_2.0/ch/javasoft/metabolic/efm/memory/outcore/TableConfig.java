@@ -0,0 +1,161 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import ch.javasoft.bitset.BitSetFactory;
+import ch.javasoft.jbase.PageCache;
+import ch.javasoft.jbase.Table;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+
+/**
+ * The <code>TableConfig</code> contains the settings for the out-of-core 
+ * {@link Table tables} of one computation. It is derived from the 
+ * {@link Config} and held by the {@link EfmModel#getTableConfig() efm model}, 
+ * thus, concurrent computations in the same virtual machine use their own
+ * settings and their own page cache. The {@link Cache} constants specify the
+ * per-table settings, such as whether a table supports memory mapping or 
+ * compression at all.
+ * <p>
+ * Columns read from the tables get bit sets created by the 
+ * {@link #getBitSetFactory() bit set factory}, that is, by the 
+ * {@link EfmModel#getBitSetFactory() factory of the efm model} if the table
+ * config is held by the model.
+ */
+public class TableConfig {
+	
+	private static TableConfig defaultConfig;
+	
+	private final PageCache pageCache;
+	private final boolean	memoryMapped;
+	private final boolean	compressed;
+	private final BitSetFactory bitSetFactory;
+	
+	/**
+	 * Constructor for table settings derived from the given config. A new 
+	 * page cache is created with the {@link Config#getCacheSize() capacity}
+	 * of the config, shared by all tables of the computation, but not by the
+	 * tables of other computations. Bit sets are created by the default 
+	 * {@link BitSetUtil#factory() factory}.
+	 */
+	public TableConfig(Config config) {
+		this(config, BitSetUtil.factory());
+	}
+	/**
+	 * Constructor for table settings derived from the given config, with the
+	 * given factory for the bit sets of columns read from the tables
+	 * 
+	 * @see #TableConfig(Config)
+	 */
+	public TableConfig(Config config, BitSetFactory bitSetFactory) {
+		this(new PageCache(config.getCacheSize()), config.useMappedTables(), config.useCompressedTables(), bitSetFactory);
+	}
+	/**
+	 * Constructor for table config with given settings
+	 * 
+	 * @param pageCache		the page cache for tables which are not mapped
+	 * @param memoryMapped	true if tables supporting it are memory mapped
+	 * @param compressed	true if tables supporting it are block compressed
+	 */
+	public TableConfig(PageCache pageCache, boolean memoryMapped, boolean compressed) {
+		this(pageCache, memoryMapped, compressed, BitSetUtil.factory());
+	}
+	/**
+	 * Constructor for table config with given settings
+	 * 
+	 * @param pageCache		the page cache for tables which are not mapped
+	 * @param memoryMapped	true if tables supporting it are memory mapped
+	 * @param compressed	true if tables supporting it are block compressed
+	 * @param bitSetFactory	the factory for bit sets of columns read from 
+	 * 						the tables
+	 */
+	public TableConfig(PageCache pageCache, boolean memoryMapped, boolean compressed, BitSetFactory bitSetFactory) {
+		this.pageCache		= pageCache;
+		this.memoryMapped	= memoryMapped;
+		this.compressed		= compressed;
+		this.bitSetFactory	= bitSetFactory;
+	}
+	
+	/**
+	 * Returns the table config used for tables opened outside of a 
+	 * computation, e.g. by distributed nodes opening a memory by its file id.
+	 * The tables use the {@link PageCache#getDefault() default page cache} and
+	 * are neither memory mapped nor compressed.
+	 */
+	public static synchronized TableConfig getDefault() {
+		if (defaultConfig == null) {
+			defaultConfig = new TableConfig(PageCache.getDefault(), false, false);
+		}
+		return defaultConfig;
+	}
+	
+	/**
+	 * Returns the {@link #getDefault() default} table config, or a config
+	 * using the same page cache with compressed tables if {@code compressed}
+	 * is true. Used to open tables by file id, which records whether the 
+	 * table was created with compression.
+	 */
+	public static TableConfig getDefault(boolean compressed) {
+		final TableConfig def = getDefault();
+		return compressed ? new TableConfig(def.getPageCache(), false, true) : def;
+	}
+	
+	/**
+	 * The page cache for use with tables which are not memory mapped
+	 */
+	public PageCache getPageCache() {
+		return pageCache;
+	}
+	/**
+	 * True if tables supporting memory mapping are to be mapped, see
+	 * {@link Cache#isMemoryMapped(TableConfig)}
+	 */
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+	/**
+	 * True if tables supporting compression are to be block compressed, see
+	 * {@link Cache#isCompressed(TableConfig)}
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+	/**
+	 * The factory for bit sets of columns read from the tables
+	 */
+	public BitSetFactory getBitSetFactory() {
+		return bitSetFactory;
+	}
+}
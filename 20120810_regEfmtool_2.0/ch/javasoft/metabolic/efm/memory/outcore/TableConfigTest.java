@@ -0,0 +1,164 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.memory.outcore;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.dom4j.DocumentHelper;
+
+import ch.javasoft.metabolic.compress.CompressionMethod;
+import ch.javasoft.metabolic.efm.adj.incore.tree.search.PatternTreeMinZerosAdjacencyEnumerator;
+import ch.javasoft.metabolic.efm.column.BigIntegerColumn;
+import ch.javasoft.metabolic.efm.config.Arithmetic;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.config.XmlElement;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.smx.impl.DefaultBigIntegerMatrix;
+import ch.javasoft.xml.config.XmlConfigException;
+
+/**
+ * <tt>TableConfigTest</tt> checks that the page cache is scoped to the table 
+ * config of a computation, that compression is taken from the config, and 
+ * that the configured cache size is validated. Compressed tables must be 
+ * readable when reopened by file id, as done by distributed nodes.
+ */
+public class TableConfigTest extends TestCase {
+	
+	static {
+		Config.initForJUnitTest(PatternTreeMinZerosAdjacencyEnumerator.NAME, CompressionMethod.NONE, Arithmetic.double_);
+	}
+	
+	public void testPageCachePerComputation() {
+		final Config small	= Config.getConfig().withCacheSize(1L << 20);
+		final Config large	= Config.getConfig().withCacheSize(3L << 20);
+		final TableConfig smallTables = new TableConfig(small);
+		final TableConfig largeTables = new TableConfig(large);
+		assertNotSame(smallTables.getPageCache(), largeTables.getPageCache());
+		assertEquals(1L << 20, smallTables.getPageCache().getCapacity());
+		assertEquals(3L << 20, largeTables.getPageCache().getCapacity());
+		assertNotSame(smallTables.getPageCache(), new TableConfig(small).getPageCache());
+	}
+	
+	public void testCompressedTables() {
+		final TableConfig plain		= new TableConfig(Config.getConfig());
+		final TableConfig compressed	= new TableConfig(Config.getConfig().withCompressedTables(true));
+		assertFalse(Cache.BigIntegerMemoryTable.isCompressed(plain));
+		assertTrue(Cache.BigIntegerMemoryTable.isCompressed(compressed));
+		assertTrue(Cache.VarIntMemoryTable.isCompressed(compressed));
+		assertFalse(Cache.DoubleMemoryTable.isCompressed(compressed));
+	}
+	
+	public void testReopenCompressedByFileId() throws IOException {
+		final File folder = File.createTempFile("TableConfigTest", "");
+		folder.delete();
+		folder.mkdir();
+		try {
+			final int booleanSize	= 20;
+			final int numericSize	= 3;
+			final int columnCount	= 100;
+			final DefaultBigIntegerMatrix matrix = new DefaultBigIntegerMatrix(numericSize, columnCount);
+			for (int col = 0; col < columnCount; col++) {
+				for (int row = 0; row < numericSize; row++) {
+					matrix.setValueAt(row, col, BigInteger.valueOf(col - row).shiftLeft(col));
+				}
+			}
+			final BigIntegerColumn[] cols = BigIntegerColumn.HOME.newInstances(matrix, booleanSize, BitSetUtil.factory());
+			for (int col = 0; col < columnCount; col++) {
+				cols[col].bitValues().set(col % booleanSize);
+			}
+			final TableConfig compressed = new TableConfig(Config.getConfig().withCompressedTables(true));
+			final OutOfCoreMemory<BigIntegerColumn> memory = new OutOfCoreMemory<BigIntegerColumn>(folder, 1, booleanSize, numericSize, false, BigIntegerColumn.HOME, compressed);
+			for (final BigIntegerColumn col : cols) {
+				memory.appendColumn(col);
+			}
+			memory.flush();
+			memory.close(false);
+			
+			final String fileId = memory.fileId();
+			assertTrue(new OutOfCoreMemory.FileId<BigIntegerColumn>(fileId).isCompressed());
+			final OutOfCoreMemory<BigIntegerColumn> reopened = new OutOfCoreMemory<BigIntegerColumn>(fileId);
+			assertEquals(columnCount, reopened.getColumnCount());
+			for (int col = 0; col < columnCount; col++) {
+				final BigIntegerColumn read = reopened.getColumn(col);
+				assertEquals(cols[col].bitValues(), read.bitValues());
+				for (int row = 0; row < numericSize; row++) {
+					assertEquals(matrix.getBigIntegerValueAt(row, col), read.getNumeric(BigIntegerColumn.HOME, row));
+				}
+			}
+			reopened.close(true);
+		}
+		finally {
+			final File[] files = folder.listFiles();
+			if (files != null) {
+				for (final File file : files) file.delete();
+			}
+			folder.delete();
+		}
+	}
+	
+	public void testDefaultCacheSize() {
+		final long size = Config.getDefaultCacheSize();
+		assertTrue(size > 0);
+		assertTrue(size <= Config.MAX_DEFAULT_CACHE_SIZE);
+		assertEquals(size, Config.getConfig().withCacheSize(0).getCacheSize());
+	}
+	
+	public void testParseByteSize() throws XmlConfigException {
+		assertEquals(0L, parseByteSize("auto"));
+		assertEquals(512L << 20, parseByteSize("512M"));
+		assertEquals(8L << 30, parseByteSize("8G"));
+		assertEquals(1L << 62, parseByteSize("4194304T"));
+		assertInvalid("8388608T");
+		assertInvalid(String.valueOf(Long.MAX_VALUE) + "K");
+		assertInvalid("-1M");
+		assertInvalid("12X");
+	}
+	
+	private static long parseByteSize(String value) throws XmlConfigException {
+		return XmlElement.parseByteSize(DocumentHelper.createAttribute(null, "value", value));
+	}
+	private static void assertInvalid(String value) {
+		try {
+			final long size = parseByteSize(value);
+			fail("expected exception for " + value + ", but got " + size);
+		}
+		catch (XmlConfigException ex) {
+			//expected
+		}
+	}
+}
@@ -36,6 +36,7 @@ package ch.javasoft.metabolic.efm.model;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.math.BigFraction;
 import ch.javasoft.metabolic.MetabolicNetwork;
 import ch.javasoft.metabolic.Reaction;
@@ -46,6 +47,7 @@ import ch.javasoft.metabolic.efm.column.filter.CompoundColumnFilter;
 import ch.javasoft.metabolic.efm.column.filter.EnforcedFluxColumnFilter;
 import ch.javasoft.metabolic.efm.column.filter.FutileCycleColumnFilter;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
 import ch.javasoft.metabolic.efm.util.MatrixUtil;
 import ch.javasoft.metabolic.efm.util.ReactionMapping;
 import ch.javasoft.metabolic.util.StoichiometricMatrices;
@@ -182,6 +184,17 @@ abstract public class AbstractNetworkEfmModel extends DefaultEfmModel implements
 	public int getOutOfIterationLoopCount() {
 		return outOfLoopReactionCnt;
 	}
+	
+	/**
+	 * Returns the factory of the smallest fixed width bit set holding the 
+	 * {@link #getFinalBooleanSize() final boolean size}, or the default 
+	 * factory if fixed width bit sets are 
+	 * {@link Config#useFixedWidthBitSets() disabled} or too small
+	 */
+	@Override
+	public BitSetFactory getBitSetFactory() {
+		return getConfig().useFixedWidthBitSets() ? BitSetUtil.factory(getFinalBooleanSize()) : BitSetUtil.factory();
+	}
 
 //	private <N extends Number, M extends ReadableDoubleMatrix<N> & WritableMatrix<N>> void sortStoich(Config config, M matrix) {
 //		final int rows = matrix.getRowCount();
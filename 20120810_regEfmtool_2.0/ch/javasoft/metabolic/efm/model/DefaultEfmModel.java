@@ -37,11 +37,14 @@ import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.math.BigFraction;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
 import ch.javasoft.smx.iface.ReadableMatrix;
 import ch.javasoft.util.numeric.Zero;
 
@@ -50,6 +53,7 @@ import ch.javasoft.util.numeric.Zero;
  */
 public class DefaultEfmModel implements EfmModel {
 	private final Config config;
+	private TableConfig tableConfig;//created on first access, see getTableConfig()
 	/** stoichiometric matrix*/
 //	private final ReadableMatrix 					stoichiometricMatrix;
 	private final ReadableMatrix<BigFraction>		stoichiometricMatrixRational;
@@ -103,6 +107,24 @@ public class DefaultEfmModel implements EfmModel {
 	public Config getConfig() {
 		return config;
 	}
+	/**
+	 * Returns the table config, created on first access since the 
+	 * {@link #getBitSetFactory() bit set factory} of subclasses might depend
+	 * on fields initialized after this constructor
+	 */
+	public synchronized TableConfig getTableConfig() {
+		if (tableConfig == null) {
+			tableConfig = new TableConfig(config, getBitSetFactory());
+		}
+		return tableConfig;
+	}
+	/**
+	 * Default implementation returns the default {@link BitSetUtil#factory()}
+	 * since the final boolean size is not known
+	 */
+	public BitSetFactory getBitSetFactory() {
+		return BitSetUtil.factory();
+	}
 	public Arithmetic getArithmetic() {
 		return config.getArithmetic();
 	}
@@ -161,6 +183,7 @@ public class DefaultEfmModel implements EfmModel {
 			logger.fine("..reaction sorting : " + Arrays.toString(reactionSorting));
 			logger.fine("..metabolite sort. : " + Arrays.toString(metaboliteSorting));
 			logger.fine("..col i/m factory  : " + columnInspectorModifierFactory.getClass().getSimpleName());
+			logger.fine("..bit set class    : " + getBitSetFactory().getBitSetClass().getSimpleName());
 		}
 	}
 
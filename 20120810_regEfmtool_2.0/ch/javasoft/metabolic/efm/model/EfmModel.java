@@ -35,10 +35,12 @@ package ch.javasoft.metabolic.efm.model;
 
 import java.util.logging.Logger;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.config.Arithmetic;
 import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.memory.outcore.TableConfig;
 import ch.javasoft.metabolic.efm.rankup.RankUpRoot;
 import ch.javasoft.smx.iface.ReadableMatrix;
 
@@ -58,6 +60,23 @@ public interface EfmModel extends RankUpRoot {
 	 */
 	Config getConfig();
 	
+	/**
+	 * Returns the settings for out-of-core tables of this computation, 
+	 * derived from the {@link #getConfig() config}
+	 */
+	TableConfig getTableConfig();
+	
+	/**
+	 * Returns the factory for the column bit sets of this computation. It is
+	 * used for initial columns and for columns read from out-of-core tables, 
+	 * thus, all column bit sets of a computation share their class. Fixed 
+	 * width bit sets must hold all bits up to the final boolean size, since
+	 * they cannot grow.
+	 * 
+	 * @see Config#useFixedWidthBitSets()
+	 */
+	BitSetFactory getBitSetFactory();
+	
 	/**
 	 * Returns the current arithmetic, e.g. double or fractional
 	 */
@@ -255,7 +255,7 @@ public class CanonicalEfmModel extends AbstractNetworkEfmModel {
 		final int nosplit = getConfig().getReactionsNoSplit().size();
 		final int idLen = cols - nosplit;
 		
-		final Col[] columns = columnHome.newInstances(columnHome.castMatrix(inverseMatrix), getBooleanSize(0));
+		final Col[] columns = columnHome.newInstances(columnHome.castMatrix(inverseMatrix), getBooleanSize(0), getBitSetFactory());
 		//make first entries binary
 		for (int col = 0; col < cols; col++) {
 			//invert matrix has format [I 0 ; inv(D)*-C  inv(D)]
@@ -78,7 +78,7 @@ public class NullspaceEfmModel extends AbstractNetworkEfmModel {
 	}
 
 	public <N extends Number, Col extends Column> AppendableMemory<Col> createInitialMemory(ColumnHome<N, Col> columnHome, MemoryFactory memoryFactory) throws IOException {
-		final Col[] cols = columnHome.newInstances(getKernelMatrix(columnHome), 0);
+		final Col[] cols = columnHome.newInstances(getKernelMatrix(columnHome), 0, getBitSetFactory());
 		//set binary entries, an identity matrix with false values on the 
 		//diagonal, and off-diagonal true values reflecting the zero flux values
 		final IterationStepModel itModel = new DefaultIterationStepModel(this, 0);//the 'before-first' iteration
@@ -56,6 +56,7 @@ public class NullspaceEfmModelFactory implements EfmModelFactory, ColumnInspecto
 		columnInspectorsModifiers.put(new DualKey(Double.class, double[].class), new NullspaceDoubleColumnInspectorModifier(true));
 		columnInspectorsModifiers.put(new DualKey(BigFraction.class, BigFraction[].class), new NullspaceFractionalColumnInspectorModifier(true));
 		columnInspectorsModifiers.put(new DualKey(BigInteger.class, BigInteger[].class), new NullspaceBigIntegerColumnInspectorModifier(true));
+		columnInspectorsModifiers.put(new DualKey(Long.class, long[].class), new NullspaceLongColumnInspectorModifier(true));
 		columnInspectorsModifiers.put(new DualKey(VarIntNumber.class, VarIntNumber[].class), new NullspaceVarIntColumnInspectorModifier(true));
 	}
 	public <N extends Number, Col extends Column> NullspaceEfmModel createEfmModel(ColumnHome<N, Col> columnHome, Config config, MetabolicNetwork network) {
@@ -0,0 +1,168 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.model.nullspace;
+
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.column.LongColumn;
+import ch.javasoft.metabolic.efm.model.ColumnInspectorModifier;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.model.IterationStateModel;
+import ch.javasoft.metabolic.efm.model.IterationStepModel;
+import ch.javasoft.util.Arrays;
+import ch.javasoft.util.numeric.IntegerUtil;
+
+/**
+ * Column {@link ColumnInspectorModifier inspector/modifier} for nullspace model
+ * and primitive long values, used by {@link LongColumn}.
+ * <p>
+ * All operations are exact. If a merged value does not fit into a long, an
+ * {@link ArithmeticException} is thrown and the caller is expected to repeat
+ * the merge with big integer values. {@link Long#MIN_VALUE} is treated as
+ * overflow, too, such that negation and absolute values are always safe.
+ * <p>
+ * The column home argument is not used by this modifier and might be null. 
+ */
+public class NullspaceLongColumnInspectorModifier extends AbstractNullspaceColumnInspectorModifier<Long, long[]> {
+
+	public NullspaceLongColumnInspectorModifier(boolean convertNumericToBinaryOnMerge) {
+		super(convertNumericToBinaryOnMerge);
+	}
+	public int getHyperplaneSign(ColumnHome<Long, ?> columnHome, EfmModel model, IBitSet binaryVals, int binarySize, long[] numericVals, IterationStateModel iteration) {
+		final int numericInd = getNumericIndex(model, binarySize, numericVals.length, iteration.getHyperplaneIndex());
+		return IntegerUtil.signum(numericVals[numericInd]);
+	}
+
+	public IBitSet convertBinary(ColumnHome<Long, ?> columnHome, EfmModel model, IBitSet binaryVals, int binarySize, long[] numericVals, IterationStepModel iteration, boolean clone) {
+		final int convertCount = getConvertSizeBinary(model, binarySize, numericVals.length, iteration);
+		if (clone) {
+			binaryVals = binaryVals.clone();
+		}
+		if (convertCount == 0) {
+			return binaryVals;
+		}
+		final int hyperInd = iteration.getCurrentState().getHyperplaneIndex();
+		for (int i = 0; i < convertCount; i++) {
+			final int numericInd = getNumericIndex(model, binarySize, numericVals.length, hyperInd + i);
+
+			//numeric value might already have been removed, thus, numericInd can be -1 
+			final long value = numericInd == -1 ? 0L : numericVals[numericInd];
+			if (value < 0L) {
+				throw new IllegalStateException("pivot value is below zero: " + value);
+			}
+			else if (value == 0L) {
+				binaryVals.set(hyperInd + i);
+			}
+		}
+		return binaryVals;
+	}
+
+	public long[] convertNumeric(ColumnHome<Long, ?> columnHome, EfmModel model, IBitSet binaryVals, int binarySize, long[] numericVals, IterationStepModel iteration, boolean clone) {
+		final int convertCount = getConvertSizeNumeric(model, binarySize, numericVals.length, iteration);
+		if (convertCount == 0 && !clone) {
+			return numericVals;
+		}
+		return reduceVector(Arrays.copyOfRange(numericVals, convertCount, numericVals.length));
+	}
+
+	public long[] mergeNumeric(ColumnHome<Long, ?> columnHome, EfmModel model, IBitSet binaryValsCol1, int binarySizeCol1, long[] numericValsCol1, IBitSet binaryValsCol2, int binarySizeCol2, long[] numericValsCol2, IterationStepModel iteration) {
+		final int hyperInd = iteration.getCurrentState().getHyperplaneIndex();
+		final int numerInd1 = getNumericIndex(model, binarySizeCol1, numericValsCol1.length, hyperInd);
+		final int numerInd2 = getNumericIndex(model, binarySizeCol2, numericValsCol2.length, hyperInd);
+		final long mulCol1 = numericValsCol2[numerInd2];
+		final long mulCol2 = numericValsCol1[numerInd1];
+		//no zero check as for big integers: mulCol1 and mulCol2 are the 
+		//values at the hyperplane index, the combination is zero by definition
+		if (mulCol1 < 0L && mulCol2 > 0L) {
+			return mergeNumeric(mulCol2, numericValsCol2, mulCol1, numericValsCol1, convertNumericToBinaryOnMerge);
+		}
+		if (mulCol1 >= 0L && mulCol2 < 0L) {
+			return mergeNumeric(mulCol1, numericValsCol1, mulCol2, numericValsCol2, convertNumericToBinaryOnMerge);
+		}
+		throw new RuntimeException("multipliers must have opposite sign: " + mulCol1 + " / " + mulCol2);
+	}
+	
+	/**
+	 * Computes <tt>newval[i] = mulPos * posval[i] - mulNeg * negval[i]</tt>
+	 * with checked long arithmetic and returns the reduced vector. The 
+	 * multipliers are divided by their gcd first, which keeps intermediary 
+	 * products small and often avoids an overflow altogether. Since the 
+	 * resulting vector is reduced anyway, this does not change the result.
+	 * 
+	 * @throws ArithmeticException	if any value overflows a long
+	 */
+	private static long[] mergeNumeric(long mulPos, long[] posVals, long mulNeg, long[] negVals, boolean num2bool) {
+		final long gcd = IntegerUtil.gcd(mulPos, mulNeg);
+		if (gcd > 1L) {
+			mulPos /= gcd;
+			mulNeg /= gcd;
+		}
+		final int boolInc = num2bool ? 1 : 0;
+		final long[] values = new long[posVals.length - boolInc];
+		for (int ii = 0; ii < values.length; ii++) {
+			final long prodA = IntegerUtil.multiplyExact(posVals[ii + boolInc], mulPos);
+			final long prodB = IntegerUtil.multiplyExact(negVals[ii + boolInc], mulNeg);
+			values[ii] = IntegerUtil.subtractExact(prodA, prodB);
+			if (values[ii] == Long.MIN_VALUE) {
+				throw new ArithmeticException("long overflow: " + prodA + " - " + prodB);
+			}
+		}
+		return reduceVector(values);
+	}
+	
+	/**
+	 * Divides all values by their common divisor, in place. The gcd 
+	 * computation stops early if a value with absolute value one or a common 
+	 * divisor of one is found, which is the common case.
+	 */
+	private static long[] reduceVector(long[] values) {
+		long gcd = 0L;
+		for (int i = 0; i < values.length && gcd != 1L; i++) {
+			final long val = values[i];
+			if (val == 1L || val == -1L) {
+				gcd = 1L;
+			}
+			else if (val != 0L) {
+				gcd = gcd == 0L ? Math.abs(val) : IntegerUtil.gcd(gcd, val);
+			}
+		}
+		if (gcd > 1L) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] /= gcd;
+			}
+		}
+		return values;
+	}
+
+}
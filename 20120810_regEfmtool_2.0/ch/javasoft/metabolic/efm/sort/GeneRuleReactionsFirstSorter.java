@@ -0,0 +1,114 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.sort;
+
+import java.util.Arrays;
+import java.util.List;
+
+import at.acib.generegulation.GeneRules;
+import ch.javasoft.metabolic.MetabolicNetwork;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.util.ReactionMapping;
+import ch.javasoft.metabolic.efm.util.ReactionMapping.Layer;
+import ch.javasoft.smx.iface.ReadableDoubleMatrix;
+import ch.javasoft.util.ints.IntList;
+
+/**
+ * The <code>GeneRuleReactionsFirstSorter</code> puts reactions to the front
+ * which are referenced by gene rules, either as input or as target reaction.
+ * A gene rule can only prune intermediate modes after all of its reactions 
+ * have been processed (see <code>GeneticRule.getMaxReacSortedIdx()</code>), 
+ * thus processing them early reduces the number of intermediate modes in
+ * the first iterations.
+ * <p>
+ * Reactions are weighted by the number of rules referencing them, reactions
+ * occurring in more rules come first. Reactions with equal weight compare 
+ * as equal, i.e. this sorter is intended to be used with a 
+ * {@link CascadingSorter}, after the {@link SuppressedEnforcedNoSplitSorter}
+ * and before the zero count and lexicographical sorters.
+ */
+public class GeneRuleReactionsFirstSorter extends RowColSorter {
+	
+	private final int[] mRowMapping;
+	private final int[] mRuleCountByExpandedIndex;
+	
+	/**
+	 * Constructor for <code>GeneRuleReactionsFirstSorter</code> to sort the
+	 * rows of the kernel matrix, from startRow to endRow (to exclude the
+	 * identity part of the row-echelon kernel matrix). The gene rules are 
+	 * taken from the config, all rows compare as equal if the config has no 
+	 * gene rules.
+	 */
+	public GeneRuleReactionsFirstSorter(MetabolicNetwork net, Config config, int[] rowMappings, int startRow, int endRow) {
+		super(true, startRow, endRow, -1, -1);
+		mRowMapping					= rowMappings;
+		mRuleCountByExpandedIndex	= getRuleCounts(net, config, rowMappings);
+	}
+	
+	private static int[] getRuleCounts(MetabolicNetwork net, Config config, int[] rowMappings) {
+		final int[] counts = new int[rowMappings.length];
+		final GeneRules geneRules = config.getGeneRules();
+		if (geneRules == null) return counts;
+		
+		final ReactionMapping mapping = new ReactionMapping(config, net, rowMappings);
+		final boolean[] inRule = new boolean[counts.length];
+		for (final List<String> ruleReacs : geneRules.getRuleReactionNames()) {
+			Arrays.fill(inRule, false);
+			for (final String reacName : ruleReacs) {
+				if (mapping.getOriginalReactionIndexByName(reacName) < 0) continue;
+				//empty if the reaction has been removed during compression
+				final IntList expanded = mapping.getByOriginalReactionName(reacName, Layer.Expanded);
+				for (int i = 0; i < expanded.size(); i++) {
+					inRule[expanded.getInt(i)] = true;
+				}
+			}
+			for (int i = 0; i < counts.length; i++) {
+				if (inRule[i]) counts[i]++;
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * Returns the number of gene rules referencing the reaction of the given
+	 * row, using the current row mapping
+	 */
+	public int getRuleCount(int row) {
+		return mRuleCountByExpandedIndex[mRowMapping[row]];
+	}
+	
+	public int compare(ReadableDoubleMatrix mx, int rowA, int rowB) {
+		return getRuleCount(rowB) - getRuleCount(rowA);//more rules first
+	}
+}
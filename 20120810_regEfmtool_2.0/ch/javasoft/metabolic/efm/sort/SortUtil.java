@@ -461,6 +461,31 @@ public class SortUtil {
         );      
     }
 
+	/**
+	 * Like MostZerosOrAbsLexMin, but reactions referenced by gene rules come
+	 * first, such that the rules prune intermediate modes as early as possible
+	 */
+	@SuppressWarnings("unused")
+    private static void sortMatrixGeneRulesOrMostZerosOrAbsLexMin(ReadableDoubleMatrix kernel, int[] rowMapping, int startRow, int endRow, boolean reverse, MetabolicNetwork net, Config config) {
+        if (rowMapping == null || config.getGeneRules() == null) {
+        	sortMatrixMostZerosOrAbsLexMin(kernel, rowMapping, startRow, endRow, reverse, net, config);
+        	return;
+        }
+        int cols = kernel.getColumnCount();
+//      do not sort the upper square part since we have the identity matrix here
+        sortMatrix(
+            kernel, rowMapping, 
+            new CascadingSorter(
+        		new SuppressedEnforcedNoSplitSorter(net, config, rowMapping, startRow, endRow),
+        		new GeneRuleReactionsFirstSorter(net, config, rowMapping, startRow, endRow),
+                new MostZerosSorter(true, startRow, endRow, 0, cols, new Zero()),
+                new AbsLexMinSorter(true, startRow, endRow, 0, cols)                    
+            ),
+            reverse,
+            null, false
+        );      
+    }
+
 
 	private static void sortMatrix(ReadableDoubleMatrix kernel, int[] rowMapping, MatrixSorter rowSorter, boolean reverseRows, MatrixSorter colSorter, boolean reverseCols) {
 		//sort columns
@@ -33,8 +33,6 @@
  */
 package ch.javasoft.metabolic.efm.tree;
 
-import java.io.IOException;
-
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.concurrent.ConcurrentToken;
@@ -59,8 +57,11 @@ public interface AdjacencyPrecondition<T extends ConcurrentToken> {
 	 */
 	<Col extends Column, N extends Number> void leave(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int myDepth, int otherDepth, boolean meIsPos, Node me, Node other);
 	/**
-	 * If the precondition is met, true is returned.
+	 * If the precondition is met for the given column pair, true is returned.
+	 * The columns have been loaded by the caller, implementations should not
+	 * read them from the memory again, which might cause random i/o for out 
+	 * of core memory.
 	 */
-	<Col extends Column, N extends Number> boolean isMet(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int posColIndex, int negColIndex) throws IOException;
+	<Col extends Column, N extends Number> boolean isMet(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, Col posCol, Col negCol);
 	
 }
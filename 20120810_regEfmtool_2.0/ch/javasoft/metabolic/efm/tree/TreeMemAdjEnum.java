@@ -43,6 +43,7 @@ import java.util.Random;
 import ch.javasoft.job.Job;
 import ch.javasoft.job.MultiJobExecutable;
 import ch.javasoft.metabolic.efm.adj.AbstractAdjEnum;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
 import ch.javasoft.metabolic.efm.adj.incore.tree.AbstractRoot;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Root;
 import ch.javasoft.metabolic.efm.adj.incore.tree.Traverser;
@@ -60,8 +61,10 @@ import ch.javasoft.metabolic.efm.progress.IntProgressAggregator;
 import ch.javasoft.metabolic.efm.progress.ProgressAggregator;
 import ch.javasoft.metabolic.efm.progress.ProgressNotifiable;
 import ch.javasoft.metabolic.efm.tree.BitPatternTree.Kind;
+import ch.javasoft.metabolic.efm.tree.impl.AdjacencyFilterPrecondition;
 import ch.javasoft.metabolic.efm.tree.impl.DefaultTreePairTraverser;
 import ch.javasoft.metabolic.efm.tree.impl.SubtreePairTraverser;
+import ch.javasoft.metabolic.efm.tree.outcore.MappedBitPatternTree;
 import ch.javasoft.metabolic.efm.tree.outcore.PersistentBitPatternTree;
 import ch.javasoft.metabolic.efm.util.ColumnUtil;
 import ch.javasoft.metabolic.efm.util.PreconditionUtil;
@@ -108,7 +111,7 @@ abstract public class TreeMemAdjEnum<T extends ConcurrentToken> extends Abstract
 		
 		final Thread treeOwner = Thread.currentThread();//we own the trees
 		final Trees trees = createOrRecoverTrees(treeOwner, columnHome, itModel);
-        final TreePairTraverser<T> traverser = createTreeTraverser(columnHome, itModel, trees.getPosTree(), trees.getNegTree(), null);
+        final TreePairTraverser<T> traverser = createTreeTraverser(columnHome, itModel, trees.getPosTree(), trees.getNegTree(), createFilterPrecondition(itModel));
 		traverseTrees(columnHome, itModel, trees, traverser, progress);
 		
 		//close trees and erase tree files
@@ -138,7 +141,7 @@ abstract public class TreeMemAdjEnum<T extends ConcurrentToken> extends Abstract
 			final Trees trees = openTrees(treeOwner, columnHome, itModel);
 			
 			do {
-		        final TreePairTraverser<T> traverser = createTreeTraverser(columnHome, itModel, trees.getPosTree(), trees.getNegTree(), null);
+		        final TreePairTraverser<T> traverser = createTreeTraverser(columnHome, itModel, trees.getPosTree(), trees.getNegTree(), createFilterPrecondition(itModel));
 				traverseTrees(columnHome, itModel, trees, new SubtreePairTraverser<T>(subTreeLevel, subTreeIndex, traverser), progress);
 				subTreeIndex = partIterator.getNextPart();
 			}
@@ -151,6 +154,20 @@ abstract public class TreeMemAdjEnum<T extends ConcurrentToken> extends Abstract
 		}
 	}
 
+	/**
+	 * Returns the precondition applying the 
+	 * {@link #getAdjacencyFilter() adjacency filter}, or null if no filter is
+	 * installed
+	 */
+	private <Col extends Column> AdjacencyPrecondition<T> createFilterPrecondition(AdjEnumModel<Col> itModel) throws IOException {
+		final AdjacencyFilter filter = getAdjacencyFilter();
+		if (filter == null) {
+			return null;
+		}
+		final int booleanSize = Math.min(ColumnUtil.getBooleanSize(itModel.getMemoryPos()), ColumnUtil.getBooleanSize(itModel.getMemoryNeg()));
+		return new AdjacencyFilterPrecondition<T>(filter, booleanSize);
+	}
+
 	private static interface Trees {
 		BitPatternTree getPosTree();
 		BitPatternTree getNegTree();
@@ -251,7 +268,8 @@ abstract public class TreeMemAdjEnum<T extends ConcurrentToken> extends Abstract
 
 	/**
 	 * 
-	 * Opens a {@link PersistentBitPatternTree} from an existing tree file.
+	 * Opens a {@link MappedBitPatternTree} or a {@link PersistentBitPatternTree}
+	 * from an existing tree file.
 	 * 
 	 * @see #execDistributed(ColumnHome, Config, EfmModel, AdjEnumModel, DistributedInfo, PartIterator, ProgressAggregator)
 	 * @see ch.javasoft.metabolic.efm.tree.outcore.PersistentBitPatternTree#open(Thread, File, ColumnHome, EfmModel, AdjEnumModel, BitPatternTree.Kind)
@@ -266,6 +284,9 @@ abstract public class TreeMemAdjEnum<T extends ConcurrentToken> extends Abstract
 		else {
 			folder = getConfig().getTempDir().getPersonalizedDir();
 		}
+		if (MappedBitPatternTree.exists(folder, itModel, kind)) {
+			return MappedBitPatternTree.open(folder, columnHome, getEfmModel(), itModel, kind);
+		}
 		return PersistentBitPatternTree.open(treeOwner, folder, columnHome, getEfmModel(), itModel, kind);
 	}
 	
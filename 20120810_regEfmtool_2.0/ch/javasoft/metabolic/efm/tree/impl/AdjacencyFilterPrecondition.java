@@ -0,0 +1,78 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.tree.impl;
+
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.concurrent.ConcurrentToken;
+import ch.javasoft.metabolic.efm.model.AdjEnumModel;
+import ch.javasoft.metabolic.efm.tree.AdjacencyPrecondition;
+import ch.javasoft.metabolic.efm.tree.Node;
+import ch.javasoft.metabolic.efm.util.AdjacencyFilterUtil;
+
+/**
+ * The <code>AdjacencyFilterPrecondition</code> applies an 
+ * {@link AdjacencyFilter} during the traversal of the bit pattern trees. 
+ * Subtree pairs are skipped if the filter rejects all pairs derivable from 
+ * the union patterns of the nodes, single pairs are skipped if the filter 
+ * rejects them.
+ */
+public class AdjacencyFilterPrecondition<T extends ConcurrentToken> implements AdjacencyPrecondition<T> {
+	
+	private final AdjacencyFilter	filter;
+	private final int				booleanSize;
+	
+	/**
+	 * Constructor with filter and the boolean size to use for subtree 
+	 * patterns. The boolean size should be the smallest size of all columns
+	 * in the trees.
+	 */
+	public AdjacencyFilterPrecondition(AdjacencyFilter filter, int booleanSize) {
+		this.filter			= filter;
+		this.booleanSize	= booleanSize;
+	}
+
+	public <Col extends Column, N extends Number> boolean enterIfMet(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int myDepth, int otherDepth, boolean meIsPos, Node me, Node other) {
+		return filter.mightKeepAny(me.unionPattern(), other.unionPattern(), booleanSize);
+	}
+	
+	public <Col extends Column, N extends Number> void leave(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int myDepth, int otherDepth, boolean meIsPos, Node me, Node other) {
+		// no resources to free
+	}
+	
+	public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, T token, Col posCol, Col negCol) {
+		return AdjacencyFilterUtil.keepPair(filter, posCol, negCol);
+	}
+}
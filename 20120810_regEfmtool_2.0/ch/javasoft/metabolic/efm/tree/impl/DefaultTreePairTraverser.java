@@ -34,6 +34,8 @@
 package ch.javasoft.metabolic.efm.tree.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.AdjCandidates;
@@ -116,10 +118,18 @@ public class DefaultTreePairTraverser<T extends ConcurrentToken> extends Abstrac
 			iterationModel.getMemoryPos(), iterationModel.getMemoryNeg(),
 			(meE - meS) * (otE - otS));
 		
+		//load the columns once, not per pair (random access for out of core memory)
+		final List<Col> otCols = new ArrayList<Col>(otE - otS);
+		for (int j = otS; j < otE; j++) {
+			otCols.add(otherCols.getColumn(j));
+		}
+		
 		IBitSet commonPattern = null;
 		for (int i = meS; i < meE; i++) {
+			final Col myCol = myCols.getColumn(i);
 			for (int j = otS; j < otE; j++) {
-				if (precondition.isMet(columnHome, iterationModel, token, meIsPos ? i : j, meIsPos ? j : i)) {
+				final Col otCol = otCols.get(j - otS);
+				if (precondition.isMet(columnHome, iterationModel, token, meIsPos ? myCol : otCol, meIsPos ? otCol : myCol)) {
 					final int index = adjCandidates.size();
 					adjCandidates.add(myCols, i, otherCols, j);
 					final IBitSet inter = adjCandidates.getIntersection(index);
@@ -33,8 +33,6 @@
  */
 package ch.javasoft.metabolic.efm.tree.impl;
 
-import java.io.IOException;
-
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
@@ -75,9 +73,7 @@ public class MinCardinalityAdjacencyPrecondition implements AdjacencyPreconditio
 		return null;
 	}
 
-	public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, ConcurrentToken token, int posColIndex, int negColIndex) throws IOException {
-		final Col posCol = iterationModel.getMemoryPos().getColumn(posColIndex);
-		final Col negCol = iterationModel.getMemoryNeg().getColumn(negColIndex);
+	public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, ConcurrentToken token, Col posCol, Col negCol) {
 		return posCol.bitValues().getAndCardinality(negCol.bitValues()) >= requiredCardinality;		
 	};
 }
@@ -0,0 +1,330 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.tree.outcore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+import ch.javasoft.bitset.BitSetFactory;
+import ch.javasoft.bitset.IBitSet;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.column.ColumnHome;
+import ch.javasoft.metabolic.efm.memory.SortableMemory;
+import ch.javasoft.metabolic.efm.model.AdjEnumModel;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+import ch.javasoft.metabolic.efm.tree.BitPatternTree;
+import ch.javasoft.metabolic.efm.tree.Node;
+import ch.javasoft.metabolic.efm.tree.Partition;
+import ch.javasoft.metabolic.efm.tree.impl.AbstractInterNode;
+import ch.javasoft.metabolic.efm.util.BitSetUtil;
+import ch.javasoft.metabolic.efm.util.ColumnUtil;
+
+/**
+ * The <code>MappedBitPatternTree</code> is an out-of-core tree stored in a 
+ * file with fixed-stride node records, which is read through memory mapping. 
+ * Compared to the {@link PersistentBitPatternTree}, no table and no 
+ * unmarshalling is involved when visiting a node: the record of a node is 
+ * located by offset arithmetic, and the union pattern is read directly from 
+ * the mapped buffer.
+ * <p>
+ * The tree is constructed breadth-first and written in one pass. Since the 
+ * children of a node are enumerated in the same order as their parents, the 
+ * indices of the child records are known when the parent record is written. 
+ * Every record is written exactly once, no record is rewritten.
+ * <p>
+ * File layout (native byte order):
+ * <pre>
+ *   header:	int magic, int version, int bitSetSize, int nodeCount
+ *   records:	int valueA, int valueB, long[longSize(bitSetSize)] unionPattern
+ * </pre>
+ * As for {@link PersistentNodeEntity}, leaf nodes store the column start and 
+ * end index with the highest bit set, intermediary nodes store the record
+ * indices of their left and right child. The root is the first record.
+ */
+public class MappedBitPatternTree implements BitPatternTree {
+	
+	private static final int MAGIC			= 0x6d627074;//mbpt
+	private static final int VERSION		= 1;
+	private static final int HEADER_SIZE	= 16;
+	private static final int LEAF_FLAG		= 0x80000000;
+	private static final int MAX_LEAF_SIZE	= 4;
+	private static final int WRITE_BUFFER_SIZE	= 1 << 16;
+	
+	private final Kind			kind;
+	private final File			file;
+	private final int			bitSetSize;
+	private final BitSetFactory	bitSetFactory;
+	private final int			longSize;
+	private final int			stride;
+	private final int			nodeCount;
+	private final int			nodesPerSegment;
+	private final ByteBuffer[]	segments;
+	private final Node			root;
+	
+	//open tree from mapped file
+	private MappedBitPatternTree(Kind kind, File file, int bitSetSize, BitSetFactory bitSetFactory) throws IOException {
+		this.kind		= kind;
+		this.file		= file;
+		this.bitSetSize	= bitSetSize;
+		this.bitSetFactory	= bitSetFactory;
+		this.longSize	= BitSetUtil.longSize(bitSetSize);
+		this.stride		= getStride(bitSetSize);
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.nativeOrder());
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not a mapped bit pattern tree file: " + file.getAbsolutePath());
+			}
+			if (header.getInt(8) != bitSetSize) {
+				throw new IOException("bit set size " + header.getInt(8) + " of tree file does not match expected size " + bitSetSize + ": " + file.getAbsolutePath());
+			}
+			this.nodeCount			= header.getInt(12);
+			this.nodesPerSegment	= Integer.MAX_VALUE / stride;
+			final int segmentCount	= nodeCount == 0 ? 0 : (nodeCount - 1) / nodesPerSegment + 1;
+			if (HEADER_SIZE + ((long)nodeCount) * stride > channel.size()) {
+				throw new IOException("tree file truncated: " + file.getAbsolutePath());
+			}
+			this.segments = new ByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				final int nodes = Math.min(nodesPerSegment, nodeCount - i * nodesPerSegment);
+				final long pos = HEADER_SIZE + ((long)i) * nodesPerSegment * stride;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, ((long)nodes) * stride).order(ByteOrder.nativeOrder());
+			}
+		}
+		finally {
+			//the mapping remains valid after closing the file
+			raf.close();
+		}
+		this.root = nodeCount == 0 ? null : node(0);
+	}
+	
+	private static int getStride(int bitSetSize) {
+		return 2 * 4 + 8 * BitSetUtil.longSize(bitSetSize);
+	}
+
+	public Kind kind() {
+		return kind;
+	}
+
+	public int bitSetSize() {
+		return bitSetSize;
+	}
+
+	public Node root() {
+		return root;
+	}
+	
+	/**
+	 * Returns the number of node records in the tree file
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	/**
+	 * Nothing to do, the mapped buffers are shared by all threads
+	 */
+	public void closeForCurrentThread() throws IOException {
+		//nothing to do
+	}
+	
+	/**
+	 * Deletes the tree file. Note that the file is unmapped when the buffers
+	 * are garbage collected, on some platforms, deleting a mapped file is 
+	 * delayed or fails until then.
+	 */
+	public void close() throws IOException {
+		file.delete();
+	}
+	
+	/**
+	 * Returns the node with the given record index, reading the record at the
+	 * computed offset from the mapped buffer
+	 */
+	private PersistentNode node(int index) {
+		final ByteBuffer segment	= segments[index / nodesPerSegment];
+		final int offset			= (index % nodesPerSegment) * stride;
+		final int valueA			= segment.getInt(offset);
+		final int valueB			= segment.getInt(offset + 4);
+		final long[] longs			= new long[longSize];
+		for (int i = 0; i < longSize; i++) {
+			longs[i] = segment.getLong(offset + 8 + 8 * i);
+		}
+		final IBitSet unionPattern = BitSetUtil.fromLongArray(longs, false /*cloneArray*/, bitSetFactory);
+		if (valueA < 0) {
+			return new PersistentLeafNode(unionPattern, valueA ^ LEAF_FLAG, valueB ^ LEAF_FLAG);
+		}
+		return new MappedInterNode(unionPattern, valueA, valueB);
+	}
+	
+	/**
+	 * Opens an existing tree file
+	 */
+	public static <Col extends Column, N extends Number> MappedBitPatternTree open(File folder, ColumnHome<N, Col> columnHome, EfmModel efmModel, AdjEnumModel<Col> itModel, Kind kind) throws IOException {
+		final int bitSetSize = itModel.getCurrentState().getBooleanSize();
+		return new MappedBitPatternTree(kind, getTreeFile(folder, itModel, kind), bitSetSize, efmModel.getBitSetFactory());
+	}
+	/**
+	 * Returns true if a tree file exists for the given iteration and kind
+	 */
+	public static boolean exists(File folder, AdjEnumModel<? extends Column> itModel, Kind kind) {
+		return getTreeFile(folder, itModel, kind).exists();
+	}
+	/**
+	 * Creates the tree file breadth-first from the given columns, and opens 
+	 * the tree. Note that the columns are reordered.
+	 */
+	public static <Col extends Column, N extends Number> MappedBitPatternTree create(File folder, ColumnHome<N, Col> columnHome, EfmModel efmModel, AdjEnumModel<Col> itModel, Kind kind, final int[] selectiveBits, SortableMemory<Col> columns) throws IOException {
+		final int bitSetSize	= itModel.getCurrentState().getBooleanSize();
+		final File file			= getTreeFile(folder, itModel, kind);
+		write(file, bitSetSize, selectiveBits, columns);
+		return new MappedBitPatternTree(kind, file, bitSetSize, efmModel.getBitSetFactory());
+	}
+	
+	private static File getTreeFile(File folder, AdjEnumModel<? extends Column> iterationModel, Kind kind) {
+		return new File(folder, "bstree-" + iterationModel.getIterationIndex() + "-" + kind.toChar() + ".mbt");
+	}
+	
+	private static <Col extends Column> void write(File file, int bitSetSize, int[] selectiveBits, SortableMemory<Col> columns) throws IOException {
+		final int longSize	= BitSetUtil.longSize(bitSetSize);
+		final int stride	= getStride(bitSetSize);
+		final ByteBuffer buffer = ByteBuffer.allocate(Math.max(stride, WRITE_BUFFER_SIZE - WRITE_BUFFER_SIZE % stride)).order(ByteOrder.nativeOrder());
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			final FileChannel channel = out.getChannel();
+			channel.position(HEADER_SIZE);
+			
+			//pending nodes: {start, end, selective bit index}
+			final ArrayDeque<int[]> pending = new ArrayDeque<int[]>();
+			int nodeCount = 0;
+			final int cols = columns.getColumnCount();
+			if (cols > 0) {
+				pending.add(new int[] {0, cols, 0});
+				nodeCount = 1;
+			}
+			while (!pending.isEmpty()) {
+				final int[] range	= pending.poll();
+				final int start		= range[0];
+				final int end		= range[1];
+				int curSelectiveBit	= range[2];
+				Partition partition = ColumnUtil.partitionColumns(columns, selectiveBits[curSelectiveBit], start, end);
+				final int valueA, valueB;
+				if (end - start <= MAX_LEAF_SIZE) {
+					valueA = start | LEAF_FLAG;
+					valueB = end | LEAF_FLAG;
+				}
+				else {
+					//path-shortening, as in PersistentBitPatternTree
+					while (partition.getMedian() == start || partition.getMedian() == end) {
+						curSelectiveBit++;
+						partition = ColumnUtil.partitionColumns(columns, selectiveBits[curSelectiveBit], start, end);
+					}
+					final int median = partition.getMedian();
+					//children are enumerated in the order of their parents
+					valueA = nodeCount++;
+					valueB = nodeCount++;
+					pending.add(new int[] {start, median, curSelectiveBit + 1});
+					pending.add(new int[] {median, end, curSelectiveBit + 1});
+				}
+				if (buffer.remaining() < stride) {
+					writeFully(channel, buffer);
+				}
+				buffer.putInt(valueA);
+				buffer.putInt(valueB);
+				final IBitSet union = partition.unionPattern();
+				final long[] longs = union == null ? new long[0] : BitSetUtil.toLongArray(union);
+				for (int i = 0; i < longSize; i++) {
+					buffer.putLong(i < longs.length ? longs[i] : 0L);
+				}
+			}
+			writeFully(channel, buffer);
+			
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+			header.putInt(MAGIC).putInt(VERSION).putInt(bitSetSize).putInt(nodeCount);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Intermediary node of a mapped tree, the child nodes are soft references
+	 * and recreated from the mapped records if they have been cleared
+	 */
+	private class MappedInterNode extends AbstractInterNode implements PersistentNode {
+		private final int indexLeft, indexRight;
+		private Reference<PersistentNode> left, right;
+		public MappedInterNode(IBitSet unionPattern, int indexLeft, int indexRight) {
+			super(unionPattern);
+			this.indexLeft	= indexLeft;
+			this.indexRight	= indexRight;
+		}
+		public PersistentNode left() {
+			PersistentNode node = left == null ? null : left.get();
+			if (node == null) {
+				node = node(indexLeft);
+				left = new SoftReference<PersistentNode>(node);
+			}
+			return node;
+		}
+		public PersistentNode right() {
+			PersistentNode node = right == null ? null : right.get();
+			if (node == null) {
+				node = node(indexRight);
+				right = new SoftReference<PersistentNode>(node);
+			}
+			return node;
+		}
+	}
+}
@@ -101,9 +101,9 @@ public class PersistentBitPatternTree implements BitPatternTree {
 		this.bitSetSize = itModel.getCurrentState().getBooleanSize();
 		this.table 		= new ConcurrentTable<PersistentNodeEntity>(
 			FixedWidthTable.create(
-				file, new PersistentNodeEntityMarshaller(bitSetSize),
-	            Cache.PersistentBitPatternTree.getCacheTableSize(),
-	            Cache.PersistentBitPatternTree.getCacheEntrySize()				
+				file, new PersistentNodeEntityMarshaller(bitSetSize, efmModel.getBitSetFactory()),
+	            Cache.PersistentBitPatternTree.getPageCache(efmModel.getTableConfig()),
+	            Cache.PersistentBitPatternTree.isPinned()
 			), owner
 		);
 		//this.table		= new MemoryTable<PersistentNodeEntity>();
@@ -139,9 +139,9 @@ public class PersistentBitPatternTree implements BitPatternTree {
 		final int bitSetSize = itModel.getCurrentState().getBooleanSize();
 		final File file = getTreeFile(folder, efmModel.getConfig(), efmModel, itModel, kind);
 		final FixedWidthTable<PersistentNodeEntity> table = FixedWidthTable.open(
-            file, new PersistentNodeEntityMarshaller(bitSetSize), 
-            Cache.PersistentBitPatternTree.getCacheTableSize(),
-            Cache.PersistentBitPatternTree.getCacheEntrySize()
+            file, new PersistentNodeEntityMarshaller(bitSetSize, efmModel.getBitSetFactory()), 
+            Cache.PersistentBitPatternTree.getPageCache(efmModel.getTableConfig()),
+            Cache.PersistentBitPatternTree.isPinned()
 		);
 		return new PersistentBitPatternTree(owner, kind, table, bitSetSize);
 	}
@@ -37,6 +37,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
+import ch.javasoft.bitset.BitSetFactory;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.jbase.FixedWidthMarshaller;
 import ch.javasoft.metabolic.efm.util.BitSetUtil;
@@ -49,10 +50,12 @@ import ch.javasoft.metabolic.efm.util.BitSetUtil;
  */
 public class PersistentNodeEntityMarshaller implements FixedWidthMarshaller<PersistentNodeEntity> {
 	
-	private final int bitSetSize;
+	private final int			bitSetSize;
+	private final BitSetFactory	bitSetFactory;
 	
-	public PersistentNodeEntityMarshaller(int bitSetSize) {
-		this.bitSetSize = bitSetSize;
+	public PersistentNodeEntityMarshaller(int bitSetSize, BitSetFactory bitSetFactory) {
+		this.bitSetSize		= bitSetSize;
+		this.bitSetFactory	= bitSetFactory;
 	}
 
 	public int getByteWidth() {
@@ -65,7 +68,7 @@ public class PersistentNodeEntityMarshaller implements FixedWidthMarshaller<Pers
 	 * @see ch.javasoft.jbase.EntityMarshaller#readFrom(java.io.DataInput)
 	 */
 	public PersistentNodeEntity readFrom(DataInput in) throws IOException {
-		final IBitSet unionPattern = BitSetUtil.readFrom(in, bitSetSize);
+		final IBitSet unionPattern = BitSetUtil.readFrom(in, bitSetSize, bitSetFactory);
 		final int intA = in.readInt();
 		final int intB = in.readInt();
 		return new PersistentNodeEntity(unionPattern, intA, intB);
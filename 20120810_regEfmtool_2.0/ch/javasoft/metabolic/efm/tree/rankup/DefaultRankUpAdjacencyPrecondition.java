@@ -33,8 +33,6 @@
  */
 package ch.javasoft.metabolic.efm.tree.rankup;
 
-import java.io.IOException;
-
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
@@ -75,7 +73,7 @@ public class DefaultRankUpAdjacencyPrecondition<T extends RankUpdateToken> imple
 		token.removeChildRankMatrix();
 	}
 
-	public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int posColIndex, int negColIndex) throws IOException {
-		return precondition.isMet(columnHome, iterationModel, token, posColIndex, negColIndex);		
+	public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, T token, Col posCol, Col negCol) {
+		return precondition.isMet(columnHome, iterationModel, token, posCol, negCol);		
 	};
 }
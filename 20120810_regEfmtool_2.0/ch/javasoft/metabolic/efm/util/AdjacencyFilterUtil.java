@@ -0,0 +1,71 @@
+/*
+ * =============================================================================
+ * Simplified BSD License, see http://www.opensource.org/licenses/
+ * -----------------------------------------------------------------------------
+ * Copyright (c) 2008-2009, Marco Terzer, Zurich, Switzerland
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without 
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *     * Redistributions of source code must retain the above copyright notice, 
+ *       this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright 
+ *       notice, this list of conditions and the following disclaimer in the 
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Swiss Federal Institute of Technology Zurich 
+ *       nor the names of its contributors may be used to endorse or promote 
+ *       products derived from this software without specific prior written 
+ *       permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ * =============================================================================
+ */
+package ch.javasoft.metabolic.efm.util;
+
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilter;
+import ch.javasoft.metabolic.efm.adj.AdjacencyFilterFactory;
+import ch.javasoft.metabolic.efm.column.Column;
+import ch.javasoft.metabolic.efm.config.Config;
+import ch.javasoft.metabolic.efm.model.EfmModel;
+
+/**
+ * The <code>AdjacencyFilterUtil</code> contains static helper methods to 
+ * create and apply {@link AdjacencyFilter adjacency filters}. The filter is
+ * created by the {@link AdjacencyFilterFactory} of the {@link Config}, by 
+ * default, adjacent pairs are filtered according to the gene regulatory rules 
+ * if such rules are specified.
+ */
+public class AdjacencyFilterUtil {
+	
+	/**
+	 * Returns the adjacency filter for the given computation, or null if 
+	 * adjacent pairs are not filtered
+	 */
+	public static AdjacencyFilter getAdjacencyFilter(Config config, EfmModel efmModel) {
+		final AdjacencyFilterFactory fac = config.getAdjacencyFilterFactory();
+		return fac == null ? null : fac.createAdjacencyFilter(config, efmModel);
+	}
+	
+	/**
+	 * Returns true if the filter is null or if it keeps the pair consisting of
+	 * the two given columns. The smaller boolean size of the two columns is 
+	 * used.
+	 */
+	public static boolean keepPair(AdjacencyFilter filter, Column colA, Column colB) {
+		return filter == null || filter.keepPair(colA.bitValues(), colB.bitValues(), Math.min(colA.booleanSize(), colB.booleanSize()));
+	}
+
+	//no instances
+	private AdjacencyFilterUtil() {}
+}
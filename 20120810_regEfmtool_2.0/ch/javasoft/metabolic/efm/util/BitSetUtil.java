@@ -38,8 +38,15 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import ch.javasoft.bitset.BitSetFactory;
+import ch.javasoft.bitset.Bits128;
+import ch.javasoft.bitset.Bits192;
+import ch.javasoft.bitset.Bits256;
+import ch.javasoft.bitset.Bits64;
+import ch.javasoft.bitset.FixedWidthBitSet;
 import ch.javasoft.bitset.IBitSet;
 import ch.javasoft.bitset.LongBitSet;
+import ch.javasoft.jbase.marshal.VarLengthEncoding;
+import ch.javasoft.metabolic.efm.model.EfmModel;
 
 /**
  * The <code>BitSetUtil</code> offers some common methods related to bit sets.
@@ -56,6 +63,23 @@ public class BitSetUtil {
 //		return DefaultBitSet.FACTORY;//slow
 	}
 	
+	/**
+	 * Returns the factory of the smallest {@link FixedWidthBitSet fixed width
+	 * bit set} holding {@code bitCapacity} bits, or the default 
+	 * {@link #factory()} if more than 256 bits are needed.
+	 * <p>
+	 * Fixed width bit sets cannot grow. Column bit sets are therefore created
+	 * by the {@link EfmModel#getBitSetFactory() factory of the efm model},
+	 * which uses the final boolean size of the columns as capacity. 
+	 */
+	public static BitSetFactory factory(int bitCapacity) {
+		if (bitCapacity <= Bits64.CAPACITY) return Bits64.FACTORY;
+		if (bitCapacity <= Bits128.CAPACITY) return Bits128.FACTORY;
+		if (bitCapacity <= Bits192.CAPACITY) return Bits192.FACTORY;
+		if (bitCapacity <= Bits256.CAPACITY) return Bits256.FACTORY;
+		return factory();
+	}
+	
 	/**
 	 * Returns the number of longs needed to store a {@link IBitSet}
 	 * of the given bit capacity. Capacity here is the same as the boolean size 
@@ -74,6 +98,40 @@ public class BitSetUtil {
 		return (bitCapacity - 1) / 8 + 1;
 	}
 	
+	/**
+	 * Returns the intersection of the two given sets, reusing the target set
+	 * if possible. If the target is a {@link LongBitSet} and both operands are
+	 * long bit sets, or if all three sets are {@link FixedWidthBitSet fixed 
+	 * width sets} of the same class, the intersection is stored in the target 
+	 * without allocating memory and the target is returned. Otherwise, a new 
+	 * set is returned, and the target is left unchanged.
+	 * <p>
+	 * Typical usage is to keep the returned set as target for the next call,
+	 * e.g. in loops testing many candidate pairs.
+	 * 
+	 * @param setA		the first operand, not modified
+	 * @param setB		the second operand, not modified
+	 * @param target	the set to store the intersection in, or null
+	 * @return the target set if it could be reused, or a new set otherwise
+	 */
+	public static IBitSet intersectInto(IBitSet setA, IBitSet setB, IBitSet target) {
+		if (target instanceof LongBitSet) {
+			if (setA instanceof LongBitSet && setB instanceof LongBitSet) {
+				return LongBitSet.getAnd((LongBitSet)setA, (LongBitSet)setB, (LongBitSet)target);
+			}
+		}
+		else if (target instanceof FixedWidthBitSet) {
+			final Class<?> cls = target.getClass();
+			if (target != setA && target != setB && cls == setA.getClass() && cls == setB.getClass()) {
+				target.clear();
+				target.or(setA);
+				target.and(setB);
+				return target;
+			}
+		}
+		return setA.getAnd(setB);
+	}
+	
 	/**
 	 * Returns a long array containing the bits of the given bit set in raw
 	 * form. 
@@ -84,6 +142,9 @@ public class BitSetUtil {
 	 * @return the array with the bits in raw form
 	 */
 	public static long[] toLongArray(IBitSet bitSet) {
+		if (bitSet instanceof FixedWidthBitSet) {
+			return ((FixedWidthBitSet)bitSet).toLongArray();
+		}
 		return LongBitSet.FACTORY.convert(bitSet).toLongArray();
 	}
 	
@@ -100,7 +161,21 @@ public class BitSetUtil {
 	 * @return the new bit set instance
 	 */
 	public static IBitSet fromLongArray(long[] longs, boolean cloneArray) {
-		return factory().convert(new LongBitSet(longs, cloneArray));
+		return fromLongArray(longs, cloneArray, factory());
+	}
+	/**
+	 * Returns a new bit set instance based on the given long array containing
+	 * the bits, created by the given factory. If {@code cloneArray} is true 
+	 * and the factory creates {@link LongBitSet long bit sets}, the long array
+	 * is cloned.
+	 * 
+	 * @param longs			the bit data in its raw form
+	 * @param cloneArray	if true, the array is cloned
+	 * @param factory		the factory for the returned bit set
+	 * @return the new bit set instance
+	 */
+	public static IBitSet fromLongArray(long[] longs, boolean cloneArray, BitSetFactory factory) {
+		return factory.convert(new LongBitSet(longs, cloneArray));
 	}
 	
 	/**
@@ -112,6 +187,15 @@ public class BitSetUtil {
 	 * capacity. Capacity here is the same as the boolean size of the columns.
 	 */
 	public static IBitSet readFrom(DataInput in, int bitCapacity) throws IOException {
+		return readFrom(in, bitCapacity, factory());
+	}
+	/**
+	 * Creates a new bit set instance by reading bytes from the given data 
+	 * input assuming the specified bit capacity, see 
+	 * {@link #readFrom(DataInput, int)}. The bit set is created by the given
+	 * factory.
+	 */
+	public static IBitSet readFrom(DataInput in, int bitCapacity, BitSetFactory factory) throws IOException {
 		final long[] longs = new long[longSize(bitCapacity)];
 		final int byteSize = byteSize(bitCapacity);
 		for (int i = 0; i < byteSize; i++) {
@@ -119,7 +203,7 @@ public class BitSetUtil {
 			long lg = 0x00000000000000ffL & bt;//the signed/unsigned conflict when converting byte to long
 			longs[i / 8] |= (lg << (8 * (i % 8)));
 		}
-		return fromLongArray(longs, false /*cloneArray*/);
+		return fromLongArray(longs, false /*cloneArray*/, factory);
 	}
 	/**
 	 * Writes the given bit set to the data output, assuming the specified bit 
@@ -140,6 +224,33 @@ public class BitSetUtil {
 		}
 	}
 
+	/**
+	 * Creates a new bit set instance by reading compressed bits from the given
+	 * data input, written by {@link #writeCompressedTo(IBitSet, int, DataOutput)}.
+	 */
+	public static IBitSet readCompressedFrom(DataInput in, int bitCapacity) throws IOException {
+		return readCompressedFrom(in, bitCapacity, factory());
+	}
+	/**
+	 * Creates a new bit set instance by reading compressed bits from the given
+	 * data input, see {@link #readCompressedFrom(DataInput, int)}. The bit set
+	 * is created by the given factory.
+	 */
+	public static IBitSet readCompressedFrom(DataInput in, int bitCapacity, BitSetFactory factory) throws IOException {
+		return fromLongArray(VarLengthEncoding.readBits(in, bitCapacity), false /*cloneArray*/, factory);
+	}
+	/**
+	 * Writes the given bit set to the data output, run length encoded if this
+	 * is shorter than the raw bytes written by 
+	 * {@link #writeTo(IBitSet, int, DataOutput)}. Sparse and dense bit sets 
+	 * thus need only a few bytes.
+	 * 
+	 * @see VarLengthEncoding#writeBits(DataOutput, long[], int)
+	 */
+	public static void writeCompressedTo(IBitSet bitSet, int bitCapacity, DataOutput out) throws IOException {
+		VarLengthEncoding.writeBits(out, toLongArray(bitSet), bitCapacity);
+	}
+
 	/**
 	 * Returns the shorted possible (rounded to byte) hex string for the given
 	 * bit set. This string can for instance be used as a (unique) identifier,
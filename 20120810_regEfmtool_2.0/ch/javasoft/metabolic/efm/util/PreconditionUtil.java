@@ -33,8 +33,6 @@
  */
 package ch.javasoft.metabolic.efm.util;
 
-import java.io.IOException;
-
 import ch.javasoft.metabolic.efm.column.Column;
 import ch.javasoft.metabolic.efm.column.ColumnHome;
 import ch.javasoft.metabolic.efm.concurrent.ConcurrentToken;
@@ -65,10 +63,10 @@ public class PreconditionUtil {
 				return false;
 			}
 
-			public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int posColIndex, int negColIndex) throws IOException {
+			public <Col extends Column, N extends Number> boolean isMet(ColumnHome<N,Col> columnHome, AdjEnumModel<Col> iterationModel, T token, Col posCol, Col negCol) {
 				return 
-					factorA.isMet(columnHome, iterationModel, token, posColIndex, negColIndex) &&
-					factorB.isMet(columnHome, iterationModel, token, posColIndex, negColIndex);
+					factorA.isMet(columnHome, iterationModel, token, posCol, negCol) &&
+					factorB.isMet(columnHome, iterationModel, token, posCol, negCol);
 			}
 
 			public <Col extends Column, N extends Number> void leave(ColumnHome<N, Col> columnHome, AdjEnumModel<Col> iterationModel, T token, int myDepth, int otherDepth, boolean meIsPos, Node me, Node other) {
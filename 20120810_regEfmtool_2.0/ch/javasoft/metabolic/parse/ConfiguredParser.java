@@ -55,8 +55,7 @@ import ch.javasoft.xml.config.XmlConfigException;
 import ch.javasoft.xml.config.XmlNode;
 import ch.javasoft.xml.config.XmlUtil;
 
-import at.acib.generule_filestore.GeneRuleFilenameStore;
-import at.acib.generule_filestore.GeneRuleFilenameException;
+import at.acib.generegulation.GeneRules;
 
 /**
  * The <tt>ConfiguredParser</tt> reads from the xml config what to parse
@@ -392,10 +391,6 @@ public class ConfiguredParser {
 		Element elMetaNames	= XmlUtil.getChildElementByAttributeValue(parseElement, XmlElements.input, XmlAttributes.name, StoichInputType.metabolite_names_file.getXmlName(), true /*throwExceptionIfNull*/);
 		Element elReacNames	= XmlUtil.getChildElementByAttributeValue(parseElement, XmlElements.input, XmlAttributes.name, StoichInputType.reaction_names_file.getXmlName(), true /*throwExceptionIfNull*/);
 
-		Element elGeneRules	= XmlUtil.getRequiredSingleChildElement(parseElement, XmlElements.generulefile);
-		String generulefile	= XmlUtil.getRequiredAttributeValue(elGeneRules, XmlAttributes.value);
-                generulefile = generulefile.trim();
-
 		Element elSeparator	= XmlUtil.getRequiredSingleChildElement(parseElement, XmlElements.separator);
 		String separator	= XmlUtil.getRequiredAttributeValue(elSeparator, XmlAttributes.value);
 
@@ -412,18 +407,32 @@ public class ConfiguredParser {
 			parser = StoichParser.getSeparatorStoichParser(separator);
 		}
 
-                if( generulefile.length() > 0 ) {
-			try {
-				GeneRuleFilenameStore filenameStore = new GeneRuleFilenameStore(generulefile);
-			} catch( GeneRuleFilenameException e) {
-				System.out.println("Filename of gene rules has been set before.");
-				System.exit(-1);
-			}
-                }
-
 		return parser.parse(rdStoich, rdMetaNames, rdReacNames, rdRev);
 	}
 	
+	/**
+	 * Parses the gene rules referred to by the generulefile element of the
+	 * parse element, if any. The rules are not part of the network, they
+	 * are passed to the efm computation with the
+	 * {@link ch.javasoft.metabolic.efm.config.Config#withGeneRules(GeneRules) config}.
+	 * 
+	 * @param parentElement			the element which contains the metabolic_parse child
+	 * @return the gene rules, or null if no gene rule file is specified
+	 * @throws XmlConfigException	if an xml configuration exception occurs,
+	 * 								for instance due to invalid xml structure
+     * @throws IOException			if the gene rule file cannot be read
+	 */
+	public static GeneRules parseGeneRules(Element parentElement) throws XmlConfigException, IOException {
+		Element metabolicParseElement	= XmlUtil.getRequiredSingleChildElement(parentElement, XmlElements.metabolic_parse);
+		Element parseElement			= XmlUtil.getRequiredSingleChildElement(metabolicParseElement, XmlElements.parse);
+		Element elGeneRules				= XmlUtil.getOptionalSingleChildElement(parseElement, XmlElements.generulefile);
+		if (elGeneRules == null) {
+			return null;
+		}
+		String generulefile	= XmlUtil.getRequiredAttributeValue(elGeneRules, XmlAttributes.value).trim();
+		return generulefile.length() == 0 ? null : GeneRules.fromFile(generulefile);
+	}
+	
 	private static final BufferedReader toBufferedReader(InputStream in) {
 		return new BufferedReader(new InputStreamReader(in));
 	}
@@ -276,6 +276,54 @@ public class IntegerUtil {
         return iMin;
     }
     
+	/**
+	 * Returns the sum of a and b, throwing an exception if the result
+	 * overflows a long.
+	 *
+	 * @throws ArithmeticException	if the result overflows a long
+	 */
+    public static long addExact(long a, long b) {
+    	final long r = a + b;
+    	//overflow iff both arguments have the opposite sign of the result
+    	if (((a ^ r) & (b ^ r)) < 0) {
+    		throw new ArithmeticException("long overflow: " + a + " + " + b);
+    	}
+    	return r;
+    }
+	/**
+	 * Returns the difference of a and b, throwing an exception if the result
+	 * overflows a long.
+	 *
+	 * @throws ArithmeticException	if the result overflows a long
+	 */
+    public static long subtractExact(long a, long b) {
+    	final long r = a - b;
+    	//overflow iff the arguments have different signs and the sign of the
+    	//result is different than the sign of a
+    	if (((a ^ b) & (a ^ r)) < 0) {
+    		throw new ArithmeticException("long overflow: " + a + " - " + b);
+    	}
+    	return r;
+    }
+	/**
+	 * Returns the product of a and b, throwing an exception if the result
+	 * overflows a long.
+	 *
+	 * @throws ArithmeticException	if the result overflows a long
+	 */
+    public static long multiplyExact(long a, long b) {
+    	final long r = a * b;
+    	final long ax = Math.abs(a);
+    	final long ay = Math.abs(b);
+    	if (((ax | ay) >>> 31) != 0) {
+    		//some bits greater than 2^31 that might cause overflow
+    		if (((b != 0) && (r / b != a)) || (a == Long.MIN_VALUE && b == -1)) {
+        		throw new ArithmeticException("long overflow: " + a + " * " + b);
+    		}
+    	}
+    	return r;
+    }
+
 	/**
 	 * The extended euclidean algorithm solves the equation
 	 * <tt>a*x + b*y = gcd(a,b)</tt>.
@@ -187,13 +187,13 @@ public class XmlPrint {
 	}
 	
 	/**
-	 * Replaces quotes and less than by the xml escaped symbol
+	 * Replaces ampersands, quotes and less than by the xml escaped symbol
 	 * 
 	 * @param value	the unescaped value
 	 * @return the escaped value
 	 */
 	private static String escapeAttributeValue(String value) {
-		return value.replaceAll("\"", "&quot;").replaceAll("<", "&lt;");
+		return value.replaceAll("&", "&amp;").replaceAll("\"", "&quot;").replaceAll("<", "&lt;");
 	}
 	
 	/**